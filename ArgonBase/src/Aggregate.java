@@ -0,0 +1,243 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Groups the records of its input by the values of the group columns and computes aggregate functions
+ * over each group: COUNT(*), COUNT(<column>), SUM, MIN, MAX and AVG of a column
+ * The groups are kept in a hash table while the input is read, they are returned in the order their first
+ * record was read, each as a record of the group columns followed by the results of the functions
+ * Without group columns all records form one group, so a single record is returned even for an empty input
+ * NULL values are left out of every function but COUNT(*), a function over no values is NULL, COUNT is 0
+ * COUNT is a BIGINT, SUM of an integer column is a BIGINT and of a FLOAT or DOUBLE column a DOUBLE,
+ * AVG is a DOUBLE, MIN and MAX have the type of their column
+ */
+public class Aggregate extends Operator {
+    //functions that can be computed
+    public static final List<String> FUNCTIONS = List.of("count", "sum", "min", "max", "avg");
+
+    /*
+     * The state of the functions of one group
+     */
+    private static class Group {
+        final ArrayList<Object> key;
+        //number of values, the sum of integer and of floating point values and the least or greatest value
+        final long[] counts;
+        final long[] longSums;
+        final double[] doubleSums;
+        final Object[] extremes;
+
+        Group(ArrayList<Object> key, int functionCount) {
+            this.key = key;
+            this.counts = new long[functionCount];
+            this.longSums = new long[functionCount];
+            this.doubleSums = new double[functionCount];
+            this.extremes = new Object[functionCount];
+        }
+    }
+
+    private final Operator input;
+    private final ArrayList<String> groupColumns;
+    private final ArrayList<String> functions;
+    //column of each function, null for COUNT(*)
+    private final ArrayList<String> arguments;
+
+    //positions of the group columns and the function columns in the records of the input
+    private int[] groupIndexes;
+    private int[] argumentIndexes;
+
+    //results and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates an aggregation of the input, the functions are applied to the columns given as arguments
+    //the columns have to be columns of the input and SUM and AVG need numeric columns, see isNumeric
+    public Aggregate(Operator input, ArrayList<String> groupColumns, ArrayList<String> functions, ArrayList<String> arguments) {
+        super(new ArrayList<>(), new ArrayList<>());
+        this.input = input;
+        this.groupColumns = groupColumns;
+        this.functions = functions;
+        this.arguments = arguments;
+
+        for (String column : groupColumns) {
+            columnNames.add(column);
+            columnTypes.add(input.getColumnType(column));
+        }
+        for (int i = 0; i < functions.size(); i++) {
+            String function = functions.get(i);
+            String argument = arguments.get(i);
+            columnNames.add(name(function, argument));
+            columnTypes.add(resultType(function, argument == null ? null : input.getColumnType(argument)));
+        }
+    }
+
+    //returns the type of the result of a function over a column of the given type, null for COUNT(*)
+    public static Constants.DataTypes resultType(String function, Constants.DataTypes type) {
+        switch (function) {
+            case "count":
+                return Constants.DataTypes.BIGINT;
+            case "sum":
+                return isFloatingPoint(type) ? Constants.DataTypes.DOUBLE : Constants.DataTypes.BIGINT;
+            case "avg":
+                return Constants.DataTypes.DOUBLE;
+            default:
+                return type;
+        }
+    }
+
+    //returns the name of the result column of a function, like count(*) or max(age)
+    public static String name(String function, String argument) {
+        return function + "(" + (argument == null ? "*" : argument) + ")";
+    }
+
+    //checks whether SUM and AVG can be computed over values of the type
+    public static boolean isNumeric(Constants.DataTypes type) {
+        switch (type) {
+            case TINYINT:
+            case SMALLINT:
+            case INT:
+            case BIGINT:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    //checks whether the type holds floating point values
+    private static boolean isFloatingPoint(Constants.DataTypes type) {
+        return type == Constants.DataTypes.FLOAT || type == Constants.DataTypes.DOUBLE;
+    }
+
+    @Override
+    public void open() throws IOException {
+        groupIndexes = new int[groupColumns.size()];
+        for (int i = 0; i < groupIndexes.length; i++) {
+            groupIndexes[i] = input.columnIndex(groupColumns.get(i));
+        }
+        argumentIndexes = new int[arguments.size()];
+        for (int i = 0; i < argumentIndexes.length; i++) {
+            argumentIndexes[i] = arguments.get(i) == null ? -1 : input.columnIndex(arguments.get(i));
+        }
+
+        //groups by the values of their group columns, in the order they were found
+        LinkedHashMap<ArrayList<Object>, Group> groups = new LinkedHashMap<>();
+        if (groupIndexes.length == 0) {
+            groups.put(new ArrayList<>(), new Group(new ArrayList<>(), functions.size()));
+        }
+        input.open();
+        Record record;
+        while ((record = input.next()) != null) {
+            ArrayList<Object> values = record.getValues();
+            ArrayList<Object> key = new ArrayList<>(groupIndexes.length);
+            for (int groupIndex : groupIndexes) {
+                key.add(values.get(groupIndex));
+            }
+            Group group = groups.computeIfAbsent(key, k -> new Group(k, functions.size()));
+            accumulate(group, values);
+        }
+        input.close();
+
+        records = new ArrayList<>(groups.size());
+        int rowId = 1;
+        for (Group group : groups.values()) {
+            records.add(result(group, rowId++));
+        }
+        position = 0;
+    }
+
+    //adds the values of a record to the functions of its group
+    private void accumulate(Group group, ArrayList<Object> values) {
+        for (int i = 0; i < argumentIndexes.length; i++) {
+            if (argumentIndexes[i] == -1) {
+                group.counts[i]++;
+                continue;
+            }
+            Object value = values.get(argumentIndexes[i]);
+            if (value == null) {
+                continue;
+            }
+            group.counts[i]++;
+            switch (functions.get(i)) {
+                case "sum":
+                case "avg":
+                    if (value instanceof Float || value instanceof Double) {
+                        group.doubleSums[i] += ((Number) value).doubleValue();
+                    } else {
+                        group.longSums[i] += ((Number) value).longValue();
+                    }
+                    break;
+                case "min":
+                case "max":
+                    Object extreme = group.extremes[i];
+                    int comparison = extreme == null ? 0
+                            : DataTools.compareTo(input.columnTypes.get(argumentIndexes[i]), value, extreme);
+                    if (extreme == null || (functions.get(i).equals("min") ? comparison < 0 : comparison > 0)) {
+                        group.extremes[i] = value;
+                    }
+                    break;
+            }
+        }
+    }
+
+    //builds the record of a group from its key and the results of its functions
+    private Record result(Group group, int rowId) {
+        ArrayList<Object> values = new ArrayList<>(group.key);
+        for (int i = 0; i < functions.size(); i++) {
+            Constants.DataTypes type = columnTypes.get(groupColumns.size() + i);
+            long count = group.counts[i];
+            switch (functions.get(i)) {
+                case "count":
+                    values.add(count);
+                    break;
+                case "sum":
+                    if (count == 0) {
+                        values.add(null);
+                    } else if (type == Constants.DataTypes.DOUBLE) {
+                        values.add(group.doubleSums[i]);
+                    } else {
+                        values.add(group.longSums[i]);
+                    }
+                    break;
+                case "avg":
+                    values.add(count == 0 ? null : (group.doubleSums[i] + group.longSums[i]) / count);
+                    break;
+                default:
+                    values.add(group.extremes[i]);
+                    break;
+            }
+        }
+        return new Record(new ArrayList<>(columnTypes), values, rowId);
+    }
+
+    @Override
+    public Record next() {
+        return position < records.size() ? records.get(position++) : null;
+    }
+
+    @Override
+    public String describe() {
+        return "Aggregate (" + describe(groupColumns, functions, arguments) + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    //returns the functions and group columns of an aggregation as shown by EXPLAIN
+    static String describe(List<String> groupColumns, List<String> functions, List<String> arguments) {
+        StringJoiner text = new StringJoiner(", ");
+        for (int i = 0; i < functions.size(); i++) {
+            text.add(name(functions.get(i), arguments.get(i)));
+        }
+        return groupColumns.isEmpty() ? text.toString() : text + " GROUP BY " + String.join(", ", groupColumns);
+    }
+
+    @Override
+    public void close() throws IOException {
+        records = new ArrayList<>();
+        input.close();
+    }
+}
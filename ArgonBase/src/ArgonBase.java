@@ -48,8 +48,22 @@ public class ArgonBase {
             System.out.print(Settings.getPrompt());
             /* Strip newlines and carriage returns */
             userCommand = scanner.next().replace("\n", " ").replace("\r", "").trim();
-            Commands.parseUserCommand(userCommand);
+            FileManager.LOCK.lock();
+            try {
+                Commands.parseUserCommand(userCommand);
+            } finally {
+                FileManager.LOCK.unlock();
+            }
         }
+        //indexes built in the background are completed before the files are closed
+        try {
+            OnlineIndexBuild.awaitAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        //tables kept open by cached plans are closed with the other files
+        PlanCache.clear();
+        FileManager.closeAll();
         System.out.println("Exiting...");
     }
 }
\ No newline at end of file
@@ -0,0 +1,496 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Represents a B-tree index file in the Argon database
+ * The index is a B+ tree: leaf pages hold every value with its row IDs and are linked to their
+ * right sibling at 0x06 and their left sibling at 0x10, interior pages only hold separator values
+ * to route searches
+ * Separators copied into interior pages are cut to the shortest string telling the two leaves apart
+ * The leaves are walked in the order of the key, so unlike a hash index it can be scanned by range,
+ * see rangeIterator
+ */
+public class BTreeIndexFile extends IndexFile {
+
+    //Creates a new BTreeIndexFile object
+    public BTreeIndexFile(Table table, IndexDefinition definition, String path) throws IOException {
+        super(table, definition, path, Constants.PageType.INDEX_LEAF);
+    }
+
+   //find the index of the last cell on the page whose value is < the given value when strict,
+   //or <= the given value otherwise
+   //the leftmost cell of an interior page has no value and sorts before every value
+   //returns -1 if there is no such cell
+    //on a prefix compressed page the value is compared with the prefix once and then only with the
+    //stored rest of each key
+    public int findValueIndex(Object value, int page, boolean strict) throws IOException {
+        //cells at or before low satisfy the condition, cells after high do not
+        int low = -1;
+        int high = getCellCount(page) - 1;
+
+        String prefix = compressed ? getPagePrefix(page) : "";
+        if (!prefix.isEmpty()) {
+            if (!((String) value).startsWith(prefix)) {
+                //the value sorts before or after all keys of the page
+                if (prefix.compareTo((String) value) > 0) {
+                    return getPageType(page) == Constants.PageType.INDEX_INTERIOR ? 0 : -1;
+                }
+                return high;
+            }
+            value = ((String) value).substring(prefix.length());
+        }
+
+        //perform binary search
+        while (low < high) {
+            //midpoint, rounded up so the search always makes progress
+            int mid = (low + high + 1) >>> 1;
+
+            //read the value of the midpoint cell, the leftmost interior pointer has none
+            Object currentValue = readStoredKey(page, getCellOffset(page, mid));
+            int comparison = currentValue == null ? -1 : compareKeys(currentValue, value);
+
+            if (comparison < 0 || (!strict && comparison == 0)) {
+                //midpoint satisfies the condition, adjust the left boundary
+                low = mid;
+            } else {
+                //midpoint is past the value, adjust the right boundary
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    //descends from the root to the leaf page where the given value belongs
+    //a strict descent ends at the leaf holding the first occurrence of the value,
+    //otherwise at the leaf holding its last occurrence
+    public int findLeafPage(Object value, boolean strict) throws IOException {
+        int currentPage = getRootPage();
+        while (getPageType(currentPage) == Constants.PageType.INDEX_INTERIOR) {
+            //follow the pointer of the last separator before the value
+            int index = findValueIndex(value, currentPage, strict);
+            this.seek((long) currentPage * pageSize + getCellOffset(currentPage, index));
+            currentPage = this.readInt();
+        }
+        return currentPage;
+    }
+
+    //retrieves the leftmost leaf page of the index
+    public int getFirstLeafPage() throws IOException {
+        int currentPage = getRootPage();
+        while (getPageType(currentPage) == Constants.PageType.INDEX_INTERIOR) {
+            this.seek((long) currentPage * pageSize + getCellOffset(currentPage, 0));
+            currentPage = this.readInt();
+        }
+        return currentPage;
+    }
+
+    //retrieves the rightmost leaf page of the index
+    public int getLastLeafPage() throws IOException {
+        int currentPage = getRootPage();
+        while (getPageType(currentPage) == Constants.PageType.INDEX_INTERIOR) {
+            this.seek((long) currentPage * pageSize + getCellOffset(currentPage, getCellCount(currentPage) - 1));
+            currentPage = this.readInt();
+        }
+        return currentPage;
+    }
+
+    //returns the number of pages a search reads to reach a leaf page, the root and the leaf included
+    @Override
+    public int getHeight() throws IOException {
+        int height = 1;
+        int currentPage = getRootPage();
+        while (getPageType(currentPage) == Constants.PageType.INDEX_INTERIOR) {
+            this.seek((long) currentPage * pageSize + getCellOffset(currentPage, 0));
+            currentPage = this.readInt();
+            height++;
+        }
+        return height;
+    }
+
+    //retrieves the left sibling of a leaf page, 0xFFFFFFFF before the first leaf page
+    public int getPreviousLeafPage(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x10);
+        return this.readInt();
+    }
+
+    //sets the left sibling of a leaf page
+    public void setPreviousLeafPage(int page, int previousPage) throws IOException {
+        this.seek((long) page * pageSize + 0x10);
+        this.writeInt(previousPage);
+    }
+
+    //writes the cells of a leaf page, splitting it when they do not fit
+    //the cells beyond the first page move to new right siblings, see splitPoints, and the shortest
+    //separator between each page and the next is copied into the parent
+    public void writeLeafCells(int page, ArrayList<byte[]> cells) throws IOException {
+        if (fits(cells, false)) {
+            writeCells(page, cells);
+            return;
+        }
+
+        //link the new pages in as right siblings of the page, one after the other
+        ArrayList<Integer> points = splitPoints(cells, false);
+        ArrayList<Integer> pages = new ArrayList<>(List.of(page));
+        for (int i = 1; i < points.size(); i++) {
+            int previousPage = pages.get(i - 1);
+            int newPage = createPage(getParentPage(page), Constants.PageType.INDEX_LEAF);
+            int nextPage = getNextLeafPage(previousPage);
+            setNextLeafPage(newPage, nextPage);
+            setPreviousLeafPage(newPage, previousPage);
+            if (nextPage != 0xFFFFFFFF) {
+                setPreviousLeafPage(nextPage, newPage);
+            }
+            setNextLeafPage(previousPage, newPage);
+            pages.add(newPage);
+        }
+
+        for (int i = 0; i < pages.size(); i++) {
+            writeCells(pages.get(i), pageCells(cells, points, i, false));
+        }
+        for (int i = 1; i < pages.size(); i++) {
+            int splitAt = points.get(i);
+            insertIntoParent(pages.get(i - 1), shortestSeparator(cellValue(cells.get(splitAt - 1), false),
+                    cellValue(cells.get(splitAt), false)), pages.get(i));
+        }
+    }
+
+    //returns the index of the first cell of each page the cells of a full page are split into
+    //the pages are as few as the cells fit on with the prefix of each page taken out of its keys, a key
+    //breaking the prefix of a page may need more than two of them
+    //two pages are balanced by the size of their cells, more pages are filled one after the other
+    //the first cell of a later interior page becomes its leftmost pointer and its separator moves up
+    private ArrayList<Integer> splitPoints(List<byte[]> cells, boolean interior) throws IOException {
+        //a page only gets fuller with more cells, so the split points leaving both pages small enough
+        //lie between first and last
+        int last = 1;
+        while (last + 1 < cells.size() && fits(pageCells(cells, 0, last + 1, interior), interior)) {
+            last++;
+        }
+        int first = cells.size() - 1;
+        while (first > 1 && fits(pageCells(cells, first - 1, cells.size(), interior), interior)) {
+            first--;
+        }
+
+        if (first <= last) {
+            //split the cells by size so both pages end up about half full
+            int totalSize = 0;
+            for (byte[] cell : cells) {
+                totalSize += cell.length + 2;
+            }
+            int splitAt = 1;
+            int leftSize = cells.get(0).length + 2;
+            while (splitAt < cells.size() - 1 && leftSize + cells.get(splitAt).length + 2 <= totalSize / 2) {
+                leftSize += cells.get(splitAt).length + 2;
+                splitAt++;
+            }
+            return new ArrayList<>(List.of(0, Math.max(first, Math.min(last, splitAt))));
+        }
+
+        //fill each page with as many cells as fit
+        ArrayList<Integer> points = new ArrayList<>(List.of(0));
+        int start = 0;
+        while (true) {
+            int end = start + 1;
+            while (end < cells.size() && fits(pageCells(cells, start, end + 1, interior), interior)) {
+                end++;
+            }
+            if (end == cells.size()) {
+                return points;
+            }
+            points.add(end);
+            start = end;
+        }
+    }
+
+    //returns the cells of the page starting at the given split point, see splitPoints
+    private ArrayList<byte[]> pageCells(List<byte[]> cells, List<Integer> points, int index, boolean interior) throws IOException {
+        int end = index + 1 < points.size() ? points.get(index + 1) : cells.size();
+        return pageCells(cells, points.get(index), end, interior);
+    }
+
+    //returns the cells from start to end as the cells of a page, an interior page starting after the
+    //first cell keeps only the pointer of its first cell
+    private ArrayList<byte[]> pageCells(List<byte[]> cells, int start, int end, boolean interior) throws IOException {
+        if (!interior || start == 0) {
+            return new ArrayList<>(cells.subList(start, end));
+        }
+        ArrayList<byte[]> pageCells = new ArrayList<>();
+        pageCells.add(buildPointerCell(cellChild(cells.get(start))));
+        pageCells.addAll(cells.subList(start + 1, end));
+        return pageCells;
+    }
+
+    //returns the shortest separator sorting after the last value of a leaf and not after the first value
+    //of its right sibling, the shortest prefix of the right value that is greater than the left value
+    //only TEXT keys of a single column index are shortened, other values are returned unchanged
+    public Object shortestSeparator(Object leftValue, Object rightValue) {
+        if (!compressed || compareKeys(leftValue, rightValue) == 0) {
+            return rightValue;
+        }
+        String right = (String) rightValue;
+        for (int length = 1; length < right.length(); length++) {
+            String separator = right.substring(0, length);
+            if (separator.compareTo((String) leftValue) > 0) {
+                return separator;
+            }
+        }
+        return rightValue;
+    }
+
+    //adds a separator pointing to newPage to the parent of page, right after the pointer to page
+    //creates a new root when page is the root and splits the parent when it is full,
+    //moving the separators between its parts one level up
+    public void insertIntoParent(int page, Object separator, int newPage) throws IOException {
+        int parentPage = getParentPage(page);
+        byte[] cell = buildCell(separator, Collections.emptyList(), newPage);
+
+        //the split page was the root, so the tree grows by one level
+        if (parentPage == 0xFFFFFFFF) {
+            parentPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_INTERIOR);
+            writeCells(parentPage, Arrays.asList(buildPointerCell(page), cell));
+            setParentPage(page, parentPage);
+            setParentPage(newPage, parentPage);
+            return;
+        }
+
+        //the new pointer goes right after the pointer to the page that was split
+        ArrayList<byte[]> cells = readCells(parentPage);
+        int position = 0;
+        while (cellChild(cells.get(position)) != page) {
+            position++;
+        }
+        cells.add(position + 1, cell);
+        setParentPage(newPage, parentPage);
+
+        if (fits(cells, true)) {
+            writeCells(parentPage, cells);
+            return;
+        }
+
+        //split the interior page, the first separator of each new page moves up and its pointer
+        //becomes the leftmost pointer of the new page
+        ArrayList<Integer> points = splitPoints(cells, true);
+        ArrayList<Integer> pages = new ArrayList<>(List.of(parentPage));
+        for (int i = 1; i < points.size(); i++) {
+            pages.add(createPage(getParentPage(parentPage), Constants.PageType.INDEX_INTERIOR));
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            ArrayList<byte[]> pageCells = pageCells(cells, points, i, true);
+            writeCells(pages.get(i), pageCells);
+            if (i > 0) {
+                for (byte[] pageCell : pageCells) {
+                    setParentPage(cellChild(pageCell), pages.get(i));
+                }
+            }
+        }
+        for (int i = 1; i < pages.size(); i++) {
+            insertIntoParent(pages.get(i - 1), cellValue(cells.get(points.get(i)), true), pages.get(i));
+        }
+    }
+
+    //populate the index file by reading records from the associated table and creating index entries
+    //the pages are written bottom-up from the sorted values, see IndexBuilder
+    @Override
+    public void populateIndex() throws IOException {
+        try (TableFile table = FileManager.openTableFile(tableName, path)) {
+            new IndexBuilder(this, table).build();
+        }
+    }
+
+    //remove a row ID from the index entry associated with given value
+    //the cells of the value are searched from its first occurrence on and
+    //a cell is deleted from its leaf once it has no entries left, on the cell or on its posting pages
+    //val is the the value for which the row ID needs to be removed from the index
+    //rowID is the row id to be removed from the index entry
+    @Override
+    public void removeItemFromCell(Object value, int rowId) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        int page = findLeafPage(value, true);
+        while (page != 0xFFFFFFFF) {
+            int numberOfCells = getCellCount(page);
+            for (int i = findValueIndex(value, page, true) + 1; i < numberOfCells; i++) {
+                int offset = getCellOffset(page, i);
+
+                //all cells of the value have been checked
+                if (compareKeys(readData(page, offset), value) != 0) {
+                    throw new IllegalArgumentException("Row id not present in index");
+                }
+
+                //remove the entry from the posting list of the cell, the cell goes with its last entry
+                if (isPostingList(page, offset)) {
+                    if (removeFromPostingList(page, offset, rowId) == 0) {
+                        ArrayList<byte[]> cells = readCells(page);
+                        cells.remove(i);
+                        writeCells(page, cells);
+                    }
+                    return;
+                }
+
+                //remove the entry of the specified row ID from the entries of the cell
+                ArrayList<byte[]> entries = readEntries(page, offset);
+                for (int e = 0; e < entries.size(); e++) {
+                    if (entryRowId(entries.get(e)) == rowId) {
+                        entries.remove(e);
+                        ArrayList<byte[]> cells = readCells(page);
+                        if (entries.isEmpty()) {
+                            cells.remove(i);
+                        } else {
+                            cells.set(i, buildCell(value, entries, -1));
+                        }
+                        writeCells(page, cells);
+                        return;
+                    }
+                }
+            }
+            page = getNextLeafPage(page);
+        }
+        throw new IllegalArgumentException("Row id not present in index");
+    }
+
+    //add an entry to the cells of the value in the index
+    //the entry is added to the last cell of the value, whose entries move to posting pages once they
+    //outgrow the cell, a value without a cell gets a new one
+    @Override
+    public void addItemToCell(Object value, byte[] entry) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        //find the leaf page and the last cell with a value <= the new value
+        int page = findLeafPage(value, false);
+        int index = findValueIndex(value, page, false);
+        ArrayList<byte[]> cells = readCells(page);
+
+        if (index >= 0) {
+            int offset = getCellOffset(page, index);
+            if (compareKeys(readData(page, offset), value) == 0) {
+                if (isPostingList(page, offset)) {
+                    addToPostingList(page, offset, entry);
+                    return;
+                }
+
+                //add the new entry to the cell and keep the entries in row ID order
+                ArrayList<byte[]> entries = readEntries(page, offset);
+                addEntry(entries, entry);
+                byte[] cell = buildCell(value, entries, -1);
+                if (!fitsInline(cell.length, entries.size())) {
+                    int[] postingPages = writePostingList(entries);
+                    cell = buildPostingCell(value, postingPages[0], postingPages[1], entries.size());
+                }
+                cells.set(index, cell);
+                writeLeafCells(page, cells);
+                return;
+            }
+        }
+
+        //create a new cell right after the last cell with a smaller or equal value
+        cells.add(index + 1, buildCell(value, Collections.singletonList(entry), -1));
+        writeLeafCells(page, cells);
+    }
+
+    //returns the distinct keys in the index
+    @Override
+    public ArrayList<Object> readKeys() throws IOException {
+        ArrayList<Object> keys = new ArrayList<>();
+        IndexIterator iterator = new IndexIterator(this, null, true, null, true, false);
+        while (iterator.next()) {
+            keys.add(iterator.getValue());
+        }
+        return keys;
+    }
+
+    //searches for row IDs in a specified range based on the given value and operator
+    //for a composite index the value may be a prefix of the key: the operator then applies to its
+    //last column and all earlier columns have to be equal
+    @Override
+    public ArrayList<Integer> search(Object value, String operator) throws IOException {
+        ArrayList<Integer> rowIds = new ArrayList<>();
+        if (isAbsent(value, operator)) {
+            return rowIds;
+        }
+        IndexIterator iterator = rangeIterator(value, operator);
+        while (iterator.next()) {
+            if (!operator.equals("<>") || compareKeys(iterator.getValue(), value) != 0) {
+                rowIds.addAll(iterator.getRowIds());
+            }
+        }
+        return rowIds;
+    }
+
+    //searches for row IDs like search and returns them as a bitmap, so the row IDs of several
+    //conditions can be combined before the table is read
+    @Override
+    public RowIdBitmap searchBitmap(Object value, String operator) throws IOException {
+        RowIdBitmap bitmap = new RowIdBitmap();
+        if (isAbsent(value, operator)) {
+            return bitmap;
+        }
+        IndexIterator iterator = rangeIterator(value, operator);
+        while (iterator.next()) {
+            if (!operator.equals("<>") || compareKeys(iterator.getValue(), value) != 0) {
+                bitmap = bitmap.or(iterator.getBitmap());
+            }
+        }
+        return bitmap;
+    }
+
+    //searches for rows in a specified range based on the given value and operator and
+    //returns them as records read from the index alone, see readRecords
+    @Override
+    public ArrayList<Record> searchRecords(Object value, String operator) throws IOException {
+        ArrayList<Record> records = new ArrayList<>();
+        if (isAbsent(value, operator)) {
+            return records;
+        }
+        IndexIterator iterator = rangeIterator(value, operator);
+        while (iterator.next()) {
+            if (!operator.equals("<>") || compareKeys(iterator.getValue(), value) != 0) {
+                records.addAll(iterator.getRecords());
+            }
+        }
+        return records;
+    }
+
+    //turns the operator into bounds for a range scan over the leaf pages, see IndexIterator
+    //the range is limited to the keys starting with the equal columns of a composite prefix
+    //<> scans that whole range and the cells of the value have to be skipped by the caller
+    public IndexIterator rangeIterator(Object value, String operator) throws IOException {
+        //the columns before the last one of a composite prefix have to be equal
+        Object equalPrefix = null;
+        if (composite) {
+            List<?> key = toKey(value);
+            if (key.size() > 1) {
+                equalPrefix = new ArrayList<>(key.subList(0, key.size() - 1));
+            }
+        }
+
+        switch(operator){
+            case "=":
+                return new IndexIterator(this, value, true, value, true, false);
+            case ">":
+                return new IndexIterator(this, value, false, equalPrefix, true, false);
+            case ">=":
+                return new IndexIterator(this, value, true, equalPrefix, true, false);
+            case "<":
+                return new IndexIterator(this, equalPrefix, true, value, false, false);
+            case "<=":
+                return new IndexIterator(this, equalPrefix, true, value, true, false);
+            case "<>":
+                return new IndexIterator(this, equalPrefix, true, equalPrefix, true, false);
+            default:
+                throw new IllegalArgumentException("Operator must be =, <>, <, <=, >, or >=");
+        }
+    }
+
+    //turns a lower bound > or >= and an upper bound < or <= on the same column into a single range scan,
+    //the bounds of a composite prefix have the same equal columns before the last one
+    public IndexIterator rangeIterator(Object lower, String lowerOperator, Object upper, String upperOperator)
+            throws IOException {
+        return new IndexIterator(this, lower, lowerOperator.equals(">="), upper, upperOperator.equals("<="), false);
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * A physical operator of the vectorized execution mode, it passes on ColumnBatches instead of records
+ * open, nextBatch and close work like those of Operator, nextBatch returns null once there are no more rows
+ * A returned batch may be reused by the next call, so it has to be consumed before asking for another
+ * BatchToRows turns the batches back into records for the operators above
+ */
+public abstract class BatchOperator implements Closeable {
+    //names and data types of the columns of the batches returned
+    final ArrayList<String> columnNames;
+    final ArrayList<Constants.DataTypes> columnTypes;
+    //cost and number of rows Planner estimated for an access path, -1 if it was not estimated
+    double estimatedCost = -1;
+    double estimatedRows = -1;
+
+    BatchOperator(ArrayList<String> columnNames, ArrayList<Constants.DataTypes> columnTypes) {
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+    }
+
+    //prepares the operator to return its first batch
+    public abstract void open() throws IOException;
+
+    //returns the next batch holding selected rows, null once there are no more rows
+    public abstract ColumnBatch nextBatch() throws IOException;
+
+    //releases the resources of the operator and its inputs
+    public abstract void close() throws IOException;
+
+    //returns the line showing the operator in the output of EXPLAIN
+    public abstract String describe();
+
+    //adds the line of the operator to the output of EXPLAIN, followed by the lines of its inputs indented
+    //one level deeper
+    public void explain(ArrayList<String> lines, int depth) {
+        lines.add(Operator.explainLine(describe(), depth, estimatedCost, estimatedRows));
+    }
+
+    //returns the position of the column in the batches returned, -1 if there is no such column
+    public int columnIndex(String columnName) {
+        return columnNames.indexOf(columnName);
+    }
+}
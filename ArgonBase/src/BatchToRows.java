@@ -0,0 +1,55 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Turns the selected rows of the batches of a vectorized operator into records, so the operators of the
+ * row at a time mode can be put on top of a vectorized plan
+ */
+public class BatchToRows extends Operator {
+    final BatchOperator input;
+    //current batch and the position of the next selected row in it
+    private ColumnBatch batch;
+    private int position;
+
+    //Creates records of the batches of the input
+    public BatchToRows(BatchOperator input) {
+        super(input.columnNames, input.columnTypes);
+        this.input = input;
+    }
+
+    @Override
+    public void open() throws IOException {
+        batch = null;
+        position = 0;
+        input.open();
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (batch == null || position == batch.selected) {
+            batch = input.nextBatch();
+            position = 0;
+            if (batch == null) {
+                return null;
+            }
+        }
+        return batch.toRecord(batch.selection[position++]);
+    }
+
+    @Override
+    public String describe() {
+        return input.describe();
+    }
+
+    //the batches are turned into records without a line of their own
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        input.explain(lines, depth);
+    }
+
+    @Override
+    public void close() throws IOException {
+        batch = null;
+        input.close();
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Counts the records matching a predicate whose comparisons can each be searched in an index, without
+ * reading the table: the row IDs each search finds are combined like BitmapScan does and only counted
+ * A single comparison on a column with a bitmap index is counted from the sizes of the bitmaps in range,
+ * see BitmapIndexFile.count, without reading the bitmaps themselves
+ * The result is the single record of COUNT(*), like that of an Aggregate without group columns
+ */
+public class BitmapCount extends Operator {
+    private final Table table;
+    private final Predicate predicate;
+
+    //the count, null once it is returned
+    private Long count;
+
+    //Creates a count of the records of the table matching the predicate, every comparison of the
+    //predicate needs an index Table.findIndex finds for it
+    public BitmapCount(Table table, Predicate predicate) {
+        super(new ArrayList<>(List.of(Aggregate.name("count", null))),
+                new ArrayList<>(List.of(Aggregate.resultType("count", null))));
+        this.table = table;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        IndexDefinition bitmapIndex = predicate.isComparison() && predicate.value != null
+                ? table.findBitmapIndex(predicate.column) : null;
+        if (bitmapIndex != null) {
+            try (BitmapIndexFile indexFile = (BitmapIndexFile) table.getIndexFile(bitmapIndex)) {
+                count = (long) indexFile.count(predicate.value, predicate.operator);
+            }
+        } else {
+            count = (long) table.searchBitmap(predicate).cardinality();
+        }
+    }
+
+    @Override
+    public Record next() {
+        if (count == null) {
+            return null;
+        }
+        Record record = new Record(new ArrayList<>(columnTypes), new ArrayList<>(List.of(count)), 1);
+        count = null;
+        return record;
+    }
+
+    @Override
+    public String describe() {
+        return "Bitmap Count on " + table.tableName + " (" + predicate + ")";
+    }
+
+    @Override
+    public void close() {
+        count = null;
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Represents a bitmap index file in the Argon database, meant for columns with few distinct values
+ * The distinct values are kept in the B+ tree of BTreeIndexFile, the leaf cell of a value has the format of a
+ * posting list cell, see buildPostingCell, and points to a chain of bitmap pages holding its row IDs
+ * as a RowIdBitmap
+ * A bitmap page stores its number of chunks at 0x02, the end of its chunks at 0x04, the next bitmap page
+ * at 0x06 and its last chunk number at 0x10, the chunks follow the header in ascending order
+ * The bitmaps of several conditions can be combined with and, or and andNot before the table is read
+ */
+public class BitmapIndexFile extends BTreeIndexFile {
+
+    //Creates a new BitmapIndexFile object
+    public BitmapIndexFile(Table table, IndexDefinition definition, String path) throws IOException {
+        super(table, definition, path);
+    }
+
+    //populate the index file from the table
+    //the bitmaps of all values are collected while the table is read in row ID order and then
+    //written in value order, there are few of them for a column suited to a bitmap index
+    @Override
+    public void populateIndex() throws IOException {
+        TreeMap<Object, RowIdBitmap> bitmaps = new TreeMap<>(this::compareKeys);
+        try (TableFile table = FileManager.openTableFile(tableName, path)) {
+            int page = table.getFirstLeafPage();
+            while (page != 0xFFFFFFFF) {
+                for (Record record : table.readPageRecords(page)) {
+                    Object value = getKey(record.getValues());
+                    if (value != null && indexesRow(record.getValues())) {
+                        bitmaps.computeIfAbsent(value, v -> new RowIdBitmap()).add(record.getRowId());
+                    }
+                }
+                page = table.getNextLeafPage(page);
+            }
+        }
+
+        for (Map.Entry<Object, RowIdBitmap> entry : bitmaps.entrySet()) {
+            int page = findLeafPage(entry.getKey(), false);
+            insertCell(page, findValueIndex(entry.getKey(), page, false), entry.getKey(), entry.getValue());
+        }
+    }
+
+    //add the row ID of the entry to the bitmap of the value, a value without a cell gets a new one
+    @Override
+    public void addItemToCell(Object value, byte[] entry) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        //find the leaf page and the last cell with a value <= the new value
+        int page = findLeafPage(value, false);
+        int index = findValueIndex(value, page, false);
+        if (index >= 0) {
+            int offset = getCellOffset(page, index);
+            if (compareKeys(readData(page, offset), value) == 0) {
+                addToBitmap(page, offset, entryRowId(entry));
+                return;
+            }
+        }
+
+        RowIdBitmap bitmap = new RowIdBitmap();
+        bitmap.add(entryRowId(entry));
+        insertCell(page, index, value, bitmap);
+    }
+
+    //remove a row ID from the bitmap of the value, the cell of the value goes with its last row ID
+    @Override
+    public void removeItemFromCell(Object value, int rowId) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        int page = findLeafPage(value, false);
+        int index = findValueIndex(value, page, false);
+        if (index < 0 || compareKeys(readData(page, getCellOffset(page, index)), value) != 0) {
+            throw new IllegalArgumentException("Row id not present in index");
+        }
+        if (removeFromBitmap(page, getCellOffset(page, index), rowId) == 0) {
+            ArrayList<byte[]> cells = readCells(page);
+            cells.remove(index);
+            writeCells(page, cells);
+        }
+    }
+
+    //writes the bitmap to new bitmap pages and inserts a cell pointing to them right after the cell at the index
+    private void insertCell(int page, int index, Object value, RowIdBitmap bitmap) throws IOException {
+        int firstPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_BITMAP);
+        int lastPage = writeBitmapPages(firstPage, bitmap);
+        ArrayList<byte[]> cells = readCells(page);
+        cells.add(index + 1, buildPostingCell(value, firstPage, lastPage, bitmap.cardinality()));
+        writeLeafCells(page, cells);
+    }
+
+    //reads the bitmap of a leaf cell from its bitmap pages
+    @Override
+    public RowIdBitmap readBitmap(int page, int offset) throws IOException {
+        seekEntries(page, offset);
+        int bitmapPage = this.readInt();
+        RowIdBitmap bitmap = new RowIdBitmap();
+        while (bitmapPage != 0xFFFFFFFF) {
+            readBitmapPage(bitmapPage, bitmap);
+            bitmapPage = getNextLeafPage(bitmapPage);
+        }
+        return bitmap;
+    }
+
+    //reads the row IDs of a leaf cell from its bitmap, in ascending order
+    @Override
+    public ArrayList<Integer> readRowIds(int page, int offset) throws IOException {
+        if (getPageType(page) == Constants.PageType.INDEX_INTERIOR) {
+            return new ArrayList<>();
+        }
+        return readBitmap(page, offset).toRowIds();
+    }
+
+    //reads the row IDs of a leaf cell as entries, a bitmap index stores no included columns
+    @Override
+    public ArrayList<byte[]> readEntries(int page, int offset) throws IOException {
+        ArrayList<byte[]> entries = new ArrayList<>();
+        for (int rowId : readBitmap(page, offset).toRowIds()) {
+            entries.add(buildEntry(rowId, null));
+        }
+        return entries;
+    }
+
+    //searches for row IDs in a specified range based on the given value and operator
+    //the bitmaps of the values in range are combined so the row IDs come in ascending order
+    @Override
+    public ArrayList<Integer> search(Object value, String operator) throws IOException {
+        return searchBitmap(value, operator).toRowIds();
+    }
+
+    //returns the number of row IDs of the values matching the operator, without reading the bitmaps
+    public int count(Object value, String operator) throws IOException {
+        int count = 0;
+        if (isAbsent(value, operator)) {
+            return count;
+        }
+        IndexIterator iterator = rangeIterator(value, operator);
+        while (iterator.next()) {
+            if (!operator.equals("<>") || compareKeys(iterator.getValue(), value) != 0) {
+                seekEntries(iterator.getPage(), iterator.getOffset());
+                this.skipBytes(8);
+                count += this.readInt();
+            }
+        }
+        return count;
+    }
+
+    //number of bytes of chunks a bitmap page holds
+    private int bitmapCapacity() {
+        return pageSize - getHeaderSize();
+    }
+
+    //reads the chunks stored on a bitmap page and adds them to the bitmap
+    private void readBitmapPage(int page, RowIdBitmap bitmap) throws IOException {
+        byte[] content = new byte[pageSize];
+        this.seek((long) page * pageSize);
+        this.readFully(content);
+        int count = ((content[0x02] & 0xFF) << 8) | (content[0x03] & 0xFF);
+        int end = ((content[0x04] & 0xFF) << 8) | (content[0x05] & 0xFF);
+        bitmap.read(new DataInputStream(new ByteArrayInputStream(content, getHeaderSize(), end - getHeaderSize())), count);
+    }
+
+    //writes all chunks of the bitmap to a bitmap page, the next bitmap page is left unchanged
+    private void writeBitmapPage(int page, RowIdBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(bytes));
+        byte[] content = new byte[bitmapCapacity()];
+        System.arraycopy(bytes.toByteArray(), 0, content, 0, bytes.size());
+
+        this.seek((long) page * pageSize + 0x02);
+        this.writeShort(bitmap.chunkNumbers().size());
+        this.writeShort(getHeaderSize() + bytes.size());
+        this.seek((long) page * pageSize + 0x10);
+        this.writeInt(bitmap.isEmpty() ? 0xFFFFFFFF : bitmap.chunkNumbers().last());
+        this.write(content);
+    }
+
+    //retrieves the last chunk number on a bitmap page
+    private int getLastChunk(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x10);
+        return this.readInt();
+    }
+
+    //writes the chunks of the bitmap to the page and to new bitmap pages linked after it, each page
+    //filled as far as it goes, the page after the written ones stays linked behind them
+    //returns the last page written
+    private int writeBitmapPages(int page, RowIdBitmap bitmap) throws IOException {
+        int nextPage = getNextLeafPage(page);
+        ArrayList<Integer> chunkNumbers = new ArrayList<>(bitmap.chunkNumbers());
+        int start = 0;
+        while (true) {
+            //take chunks while they fit, a single chunk always fits on a page
+            int end = start;
+            int length = 0;
+            while (end < chunkNumbers.size() && (end == start || length + bitmap.chunkLength(chunkNumbers.get(end)) <= bitmapCapacity())) {
+                length += bitmap.chunkLength(chunkNumbers.get(end));
+                end++;
+            }
+            if (end == chunkNumbers.size()) {
+                writeBitmapPage(page, start == 0 ? bitmap : bitmap.chunkRange(chunkNumbers.get(start), Integer.MAX_VALUE));
+                break;
+            }
+            writeBitmapPage(page, bitmap.chunkRange(chunkNumbers.get(start), chunkNumbers.get(end)));
+            int newPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_BITMAP);
+            setNextLeafPage(page, newPage);
+            page = newPage;
+            start = end;
+        }
+        setNextLeafPage(page, nextPage);
+        return page;
+    }
+
+    //adds a row ID to the bitmap of the leaf cell at the offset
+    //a row ID after all others, as of a new row, goes to the last bitmap page, otherwise the page holding
+    //its chunk is rewritten, chunks that no longer fit move to a new page after it
+    private void addToBitmap(int page, int offset, int rowId) throws IOException {
+        seekEntries(page, offset);
+        long fields = this.getFilePointer();
+        int firstPage = this.readInt();
+        int lastPage = this.readInt();
+        int count = this.readInt();
+        int chunk = rowId >>> RowIdBitmap.CHUNK_BITS;
+
+        int bitmapPage = lastPage;
+        if (chunk < getLastChunk(lastPage)) {
+            //find the first page whose last chunk is not before the chunk
+            bitmapPage = firstPage;
+            while (getLastChunk(bitmapPage) < chunk) {
+                bitmapPage = getNextLeafPage(bitmapPage);
+            }
+        }
+
+        RowIdBitmap bitmap = new RowIdBitmap();
+        readBitmapPage(bitmapPage, bitmap);
+        if (!bitmap.add(rowId)) {
+            return;
+        }
+        if (bitmap.length() <= bitmapCapacity()) {
+            writeBitmapPage(bitmapPage, bitmap);
+        } else {
+            int writtenPage = writeBitmapPages(bitmapPage, bitmap);
+            if (bitmapPage == lastPage) {
+                lastPage = writtenPage;
+            }
+        }
+
+        this.seek(fields);
+        this.writeInt(firstPage);
+        this.writeInt(lastPage);
+        this.writeInt(count + 1);
+    }
+
+    //removes a row ID from the bitmap of the leaf cell at the offset
+    //bitmap pages are freed once they are empty
+    //returns the number of row IDs left
+    private int removeFromBitmap(int page, int offset, int rowId) throws IOException {
+        seekEntries(page, offset);
+        long fields = this.getFilePointer();
+        int firstPage = this.readInt();
+        int lastPage = this.readInt();
+        int count = this.readInt();
+        int chunk = rowId >>> RowIdBitmap.CHUNK_BITS;
+
+        //find the first page whose last chunk is not before the chunk
+        int previousPage = 0xFFFFFFFF;
+        int bitmapPage = firstPage;
+        while (bitmapPage != 0xFFFFFFFF && getLastChunk(bitmapPage) < chunk) {
+            previousPage = bitmapPage;
+            bitmapPage = getNextLeafPage(bitmapPage);
+        }
+        RowIdBitmap bitmap = new RowIdBitmap();
+        if (bitmapPage != 0xFFFFFFFF) {
+            readBitmapPage(bitmapPage, bitmap);
+        }
+        if (!bitmap.remove(rowId)) {
+            throw new IllegalArgumentException("Row id not present in index");
+        }
+
+        if (bitmap.isEmpty()) {
+            //unlink the empty page from the chain
+            int nextPage = getNextLeafPage(bitmapPage);
+            if (previousPage == 0xFFFFFFFF) {
+                firstPage = nextPage;
+            } else {
+                setNextLeafPage(previousPage, nextPage);
+            }
+            if (bitmapPage == lastPage) {
+                lastPage = previousPage;
+            }
+            deletePage(bitmapPage);
+        } else {
+            writeBitmapPage(bitmapPage, bitmap);
+        }
+
+        this.seek(fields);
+        this.writeInt(firstPage);
+        this.writeInt(lastPage);
+        this.writeInt(count - 1);
+        return count - 1;
+    }
+}
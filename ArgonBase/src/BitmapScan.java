@@ -0,0 +1,63 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Reads the records matching a predicate whose comparisons can each be searched in an index, the row IDs
+ * each search finds are turned into a RowIdBitmap and the bitmaps are intersected for AND and united for
+ * OR before the table is read, see Table.searchBitmap
+ * The row IDs left are fetched in ascending order, IndexScan.BATCH_SIZE of them at a time
+ * Planner only hands the scan the parts of a WHERE clause indexes can answer, a Filter above the scan
+ * checks the rest
+ */
+public class BitmapScan extends Operator {
+    private final Table table;
+    private final Predicate predicate;
+
+    //row IDs matching the conditions and the position of the next batch
+    private ArrayList<Integer> rowIds = new ArrayList<>();
+    private int rowIdPosition;
+    //records of the current batch and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates a scan of the records of the table matching the predicate, every comparison of the predicate
+    //needs an index Table.findIndex finds for it
+    public BitmapScan(Table table, Predicate predicate) {
+        super(table.columnNames, table.columnTypes);
+        this.table = table;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        rowIds = table.searchBitmap(predicate).toRowIds();
+        rowIdPosition = 0;
+        records = new ArrayList<>();
+        position = 0;
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (position == records.size()) {
+            if (rowIdPosition == rowIds.size()) {
+                return null;
+            }
+            int end = Math.min(rowIds.size(), rowIdPosition + IndexScan.BATCH_SIZE);
+            records = table.tableFile.getRecords(rowIds.subList(rowIdPosition, end));
+            rowIdPosition = end;
+            position = 0;
+        }
+        return records.get(position++);
+    }
+
+    @Override
+    public String describe() {
+        return "Bitmap Scan on " + table.tableName + " (" + predicate + ")";
+    }
+
+    @Override
+    public void close() {
+        rowIds = new ArrayList<>();
+        records = new ArrayList<>();
+    }
+}
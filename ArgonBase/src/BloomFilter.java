@@ -0,0 +1,167 @@
+import java.io.*;
+
+/*
+ * A split block Bloom filter over the keys of an index, telling keys that are definitely absent
+ * The filter is an array of blocks of eight 32 bit words, a key sets one bit in each word of the block
+ * picked by its hash, so adding or looking up a key touches a single block of 32 bytes
+ * A key that was added is always found, a key that was not is found with a probability of about 1%
+ * at ten bits per key, keys removed from the index stay in the filter until it is rebuilt
+ * The filter is stored in its own file: the number of keys it was sized for at 0x00, the number of keys
+ * added at 0x04 and the blocks from 0x08 on, a block is written back as soon as a key changes it
+ */
+public class BloomFilter implements Closeable {
+    //bits reserved for each key the filter is sized for
+    private static final int BITS_PER_KEY = 10;
+    //number of 32 bit words in a block
+    private static final int BLOCK_WORDS = 8;
+    //length of the header of the file
+    private static final int HEADER_SIZE = 0x08;
+    //odd constants spreading the hash over the eight words of a block
+    private static final int[] SALT = {
+        0x47B6137B, 0x44974D91, 0x8824AD5B, 0xA2B7289D, 0x705495C7, 0x2DF1424B, 0x9EFC4947, 0x5C6BFB31
+    };
+
+    //file holding the filter
+    private final RandomAccessFile file;
+    //number of keys the filter was sized for
+    private final int capacity;
+    //number of keys added
+    private int count;
+    //words of all blocks
+    private final int[] words;
+
+    //Creates a filter from its file
+    private BloomFilter(RandomAccessFile file, int capacity, int count, int[] words) {
+        this.file = file;
+        this.capacity = capacity;
+        this.count = count;
+        this.words = words;
+    }
+
+    //creates an empty filter sized for the given number of keys, replacing the file if it exists
+    public static BloomFilter create(File path, int capacity) throws IOException {
+        capacity = Math.max(capacity, 64);
+        int blocks = (int) (((long) capacity * BITS_PER_KEY + 255) / 256);
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        file.setLength(HEADER_SIZE + (long) blocks * BLOCK_WORDS * 4);
+        file.writeInt(capacity);
+        file.writeInt(0);
+        return new BloomFilter(file, capacity, 0, new int[blocks * BLOCK_WORDS]);
+    }
+
+    //opens the filter stored in the file, returns null if there is no such file
+    public static BloomFilter open(File path) throws IOException {
+        if (!path.exists()) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        byte[] content = new byte[(int) file.length()];
+        file.readFully(content);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        int capacity = in.readInt();
+        int count = in.readInt();
+        int[] words = new int[(content.length - HEADER_SIZE) / 4];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readInt();
+        }
+        return new BloomFilter(file, capacity, count, words);
+    }
+
+    //returns a 64 bit hash of the bytes, FNV-1a followed by a final mix of the bits
+    public static long hash(byte[] bytes) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    //returns the first word of the block picked by the upper half of the hash
+    private int blockOf(long hash) {
+        int blocks = words.length / BLOCK_WORDS;
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+
+    //adds a key given by its hash and writes its block, returns false if all its bits were set already
+    public boolean add(long hash) throws IOException {
+        int block = blockOf(hash);
+        if (!setBits(block, (int) hash)) {
+            return false;
+        }
+
+        file.seek(0x04);
+        file.writeInt(count);
+        file.seek(HEADER_SIZE + (long) block * 4);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_WORDS * 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            out.writeInt(words[block + i]);
+        }
+        file.write(bytes.toByteArray());
+        return true;
+    }
+
+    //adds the keys given by their hashes and writes the whole filter once, used to fill a new filter
+    public void addAll(long[] hashes) throws IOException {
+        for (long hash : hashes) {
+            setBits(blockOf(hash), (int) hash);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + words.length * 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(capacity);
+        out.writeInt(count);
+        for (int word : words) {
+            out.writeInt(word);
+        }
+        file.seek(0);
+        file.write(bytes.toByteArray());
+    }
+
+    //sets the bits of the key in the block and counts the key if one of them was not set
+    private boolean setBits(int block, int key) {
+        boolean changed = false;
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            int bit = 1 << ((key * SALT[i]) >>> 27);
+            if ((words[block + i] & bit) == 0) {
+                words[block + i] |= bit;
+                changed = true;
+            }
+        }
+        if (changed) {
+            count++;
+        }
+        return changed;
+    }
+
+    //checks whether a key given by its hash may have been added, false means it definitely was not
+    public boolean mightContain(long hash) {
+        int block = blockOf(hash);
+        int key = (int) hash;
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            if ((words[block + i] & (1 << ((key * SALT[i]) >>> 27))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //checks whether more keys were added than the filter was sized for, it then finds too many
+    //absent keys and should be rebuilt larger
+    public boolean isFull() {
+        return count > capacity;
+    }
+
+    //closes the file of the filter
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * In-memory copy of the catalog, so a statement finds the schema of its table with a map lookup instead
+ * of scanning the argonbase_tables, argonbase_columns and argonbase_indexes tables
+ * The catalog tables are read once in Directory.createCatalogTables, afterwards DDL updates the copy
+ * together with the catalog tables: CREATE TABLE adds a schema, DROP TABLE removes it and creating an
+ * index replaces the index list of its table
+ * The statistics ANALYZE records in argonbase_statistics are kept here as well, Planner estimates the cost
+ * of access paths from them
+ * Every change increases the version of the catalog, so cached work that depends on schemas can tell
+ * whether it is out of date
+ */
+public class Catalog {
+
+    /*
+     * The columns, key constraints and indexes of a table
+     */
+    public static class TableSchema {
+        final String tableName;
+        final ArrayList<String> columnNames;
+        final ArrayList<Constants.DataTypes> columnTypes;
+        final ArrayList<Boolean> nullable;
+        //PRI or UNI for the columns with a key constraint, null for the others
+        final ArrayList<String> columnKeys;
+        ArrayList<IndexDefinition> indexes = new ArrayList<>();
+
+        TableSchema(String tableName, ArrayList<String> columnNames, ArrayList<Constants.DataTypes> columnTypes,
+                    ArrayList<Boolean> nullable, ArrayList<String> columnKeys) {
+            this.tableName = tableName;
+            this.columnNames = columnNames;
+            this.columnTypes = columnTypes;
+            this.nullable = nullable;
+            this.columnKeys = columnKeys;
+        }
+
+        //returns the columns with a PRI or UNI constraint, in column order
+        public ArrayList<String> getKeyColumns() {
+            ArrayList<String> keyColumns = new ArrayList<>();
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (columnKeys.get(i) != null) {
+                    keyColumns.add(columnNames.get(i));
+                }
+            }
+            return keyColumns;
+        }
+    }
+
+    //schemas by table name, in the order the tables were created
+    private static final LinkedHashMap<String, TableSchema> tables = new LinkedHashMap<>();
+    //statistics by table name and column name, tables that were never analyzed have none
+    private static final HashMap<String, HashMap<String, ColumnStatistics>> statistics = new HashMap<>();
+    //number of changes made to the catalog since it was loaded
+    private static long version = 0;
+
+    //reads the schemas of all tables from the catalog tables
+    public static void load() throws IOException {
+        tables.clear();
+        for (Record record : Table.tableTable.searchTable(null, null, null)) {
+            String tableName = (String) record.getValues().get(0);
+            tables.put(tableName, new TableSchema(tableName, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+        }
+
+        //the columns are stored in the order of their position
+        for (Record record : Table.columnTable.searchTable(null, null, null)) {
+            ArrayList<Object> values = record.getValues();
+            TableSchema schema = tables.get((String) values.get(0));
+            if (schema == null) {
+                continue;
+            }
+            schema.columnNames.add((String) values.get(1));
+            schema.columnTypes.add(Constants.DataTypes.valueOf((String) values.get(2)));
+            schema.nullable.add("YES".equals(values.get(4)));
+            String columnKey = (String) values.get(5);
+            schema.columnKeys.add("PRI".equals(columnKey) || "UNI".equals(columnKey) ? columnKey : null);
+        }
+
+        for (Record record : Table.indexTable.searchTable(null, null, null)) {
+            IndexDefinition index = IndexDefinition.fromRecord(record);
+            TableSchema schema = tables.get(index.tableName);
+            if (schema != null) {
+                schema.indexes.add(index);
+            }
+        }
+
+        statistics.clear();
+        for (Record record : Table.statisticsTable.searchTable(null, null, null)) {
+            ColumnStatistics column = ColumnStatistics.fromRecord(record);
+            statistics.computeIfAbsent(column.tableName, t -> new HashMap<>()).put(column.columnName, column);
+        }
+
+        //index files created before indexes were recorded in the metadata are named after their column,
+        //they are in the oldest format and are built again when they are first opened
+        for (TableSchema schema : tables.values()) {
+            for (String columnName : schema.columnNames) {
+                if (findIndex(schema, columnName) == null && new File(Settings.getUserDataDirectory() + "/"
+                        + schema.tableName + "." + columnName + ".ndx").exists()) {
+                    schema.indexes.add(new IndexDefinition(schema.tableName, columnName,
+                            new ArrayList<>(List.of(columnName)), new ArrayList<>()));
+                }
+            }
+        }
+        version++;
+    }
+
+    //returns the schema of the table, null if there is no such table
+    public static TableSchema getTable(String tableName) {
+        return tables.get(tableName);
+    }
+
+    //checks whether a table with the given name exists
+    public static boolean exists(String tableName) {
+        return tables.containsKey(tableName);
+    }
+
+    //returns the number of changes made to the catalog
+    public static long getVersion() {
+        return version;
+    }
+
+    //adds the schema of a new table, columnKeys holds PRI, UNI or null for each column
+    public static void addTable(String tableName, ArrayList<String> columnNames, ArrayList<Constants.DataTypes> columnTypes,
+                                ArrayList<Boolean> nullable, ArrayList<String> columnKeys) {
+        tables.put(tableName, new TableSchema(tableName, new ArrayList<>(columnNames), new ArrayList<>(columnTypes),
+                new ArrayList<>(nullable), new ArrayList<>(columnKeys)));
+        version++;
+    }
+
+    //removes the schema of a dropped table
+    public static void removeTable(String tableName) {
+        tables.remove(tableName);
+        statistics.remove(tableName);
+        version++;
+    }
+
+    //returns the index definitions of the table, empty if there is no such table
+    public static ArrayList<IndexDefinition> getIndexes(String tableName) {
+        TableSchema schema = tables.get(tableName);
+        return schema == null ? new ArrayList<>() : new ArrayList<>(schema.indexes);
+    }
+
+    //replaces the index definitions of the table
+    public static void setIndexes(String tableName, List<IndexDefinition> indexes) {
+        TableSchema schema = tables.get(tableName);
+        if (schema != null) {
+            schema.indexes = new ArrayList<>(indexes);
+            version++;
+        }
+    }
+
+    //returns the statistics of the column, null if its table was never analyzed
+    public static ColumnStatistics getStatistics(String tableName, String columnName) {
+        HashMap<String, ColumnStatistics> columns = statistics.get(tableName);
+        return columns == null ? null : columns.get(columnName);
+    }
+
+    //replaces the statistics of the columns of a table after it was analyzed
+    public static void setStatistics(String tableName, List<ColumnStatistics> columns) {
+        HashMap<String, ColumnStatistics> byName = new HashMap<>();
+        for (ColumnStatistics column : columns) {
+            byName.put(column.columnName, column);
+        }
+        statistics.put(tableName, byName);
+        //plans compiled with the old statistics may no longer be the cheapest
+        version++;
+    }
+
+    //returns the index of the table named after the column, null if there is none
+    private static IndexDefinition findIndex(TableSchema schema, String indexName) {
+        for (IndexDefinition index : schema.indexes) {
+            if (index.indexName.equals(indexName)) {
+                return index;
+            }
+        }
+        return null;
+    }
+}
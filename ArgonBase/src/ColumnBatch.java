@@ -0,0 +1,58 @@
+import java.util.*;
+
+/*
+ * A batch of up to about BATCH_SIZE rows of a table stored column by column in ColumnVectors
+ * The selection vector lists the rows of the batch still selected in ascending order, a filter narrows
+ * it down instead of copying the rows it keeps
+ */
+public class ColumnBatch {
+    //number of rows a scan gathers into a batch
+    public static final int BATCH_SIZE = 1024;
+    //a batch is filled page by page and may go past BATCH_SIZE by the rows of one page
+    public static final int CAPACITY = BATCH_SIZE + Constants.PAGE_SIZE / 9;
+
+    final ColumnVector[] columns;
+    final int[] rowIds = new int[CAPACITY];
+    //number of rows in the batch
+    int size;
+    //rows selected and their number
+    final int[] selection = new int[CAPACITY];
+    int selected;
+
+    //Creates an empty batch of columns of the given types
+    public ColumnBatch(List<Constants.DataTypes> columnTypes) {
+        columns = new ColumnVector[columnTypes.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnVector(columnTypes.get(i), CAPACITY);
+        }
+    }
+
+    //removes all rows
+    public void reset() {
+        for (ColumnVector column : columns) {
+            Arrays.fill(column.nulls, 0, size, false);
+        }
+        size = 0;
+        selected = 0;
+    }
+
+    //selects all rows of the batch
+    public void selectAll() {
+        for (int i = 0; i < size; i++) {
+            selection[i] = i;
+        }
+        selected = size;
+    }
+
+    //returns a row of the batch as a record, a NULL value has the type NULL like a record read from a page
+    public Record toRecord(int row) {
+        ArrayList<Constants.DataTypes> types = new ArrayList<>(columns.length);
+        ArrayList<Object> values = new ArrayList<>(columns.length);
+        for (ColumnVector column : columns) {
+            Object value = column.getValue(row);
+            types.add(value == null ? Constants.DataTypes.NULL : column.type);
+            values.add(value);
+        }
+        return new Record(types, values, rowIds[row]);
+    }
+}
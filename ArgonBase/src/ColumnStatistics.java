@@ -0,0 +1,192 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Statistics of a column of a table as recorded in the argonbase_statistics catalog table by ANALYZE
+ * The table is read once: the rows and null values are counted and the distinct values of each column are
+ * estimated with a HyperLogLog, so the memory used does not grow with the table
+ * The equi-depth histogram of a column is built from a random sample of at most SAMPLE_SIZE rows, its
+ * bounds split the sorted non-null values into HISTOGRAM_BUCKETS buckets of the same number of rows and
+ * are stored as a comma separated list in which ',' and '\' are escaped with a '\', a column with fewer
+ * distinct values keeps each of them
+ */
+public class ColumnStatistics {
+    //number of rows sampled for the histograms
+    public static final int SAMPLE_SIZE = 10000;
+    //number of buckets of a histogram
+    public static final int HISTOGRAM_BUCKETS = 10;
+    //longest part of a TEXT value kept as histogram bound
+    private static final int BOUND_LENGTH = 16;
+
+    //name of the table and the column
+    String tableName;
+    String columnName;
+    //number of rows of the table
+    int rowCount;
+    //fraction of the rows whose value is null
+    double nullFraction;
+    //estimated number of distinct non-null values
+    int distinctValues;
+    //bounds of the histogram buckets in ascending order, empty if the column only holds nulls
+    ArrayList<String> histogramBounds;
+
+    //Creates the statistics of a column
+    public ColumnStatistics(String tableName, String columnName, int rowCount, double nullFraction,
+                            int distinctValues, ArrayList<String> histogramBounds) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.rowCount = rowCount;
+        this.nullFraction = nullFraction;
+        this.distinctValues = distinctValues;
+        this.histogramBounds = histogramBounds;
+    }
+
+    //reads the statistics of a column from a record of argonbase_statistics
+    public static ColumnStatistics fromRecord(Record record) {
+        ArrayList<Object> values = record.getValues();
+        String bounds = (String) values.get(5);
+        return new ColumnStatistics((String) values.get(0), (String) values.get(1), (Integer) values.get(2),
+                (Double) values.get(3), (Integer) values.get(4),
+                bounds == null ? new ArrayList<>() : decodeBounds(bounds));
+    }
+
+    //returns the values of the record of argonbase_statistics describing the column
+    public ArrayList<Object> toValues() {
+        return new ArrayList<>(Arrays.asList(
+            tableName,
+            columnName,
+            rowCount,
+            nullFraction,
+            distinctValues,
+            histogramBounds.isEmpty() ? null : encodeBounds(histogramBounds)
+        ));
+    }
+
+    //joins the bounds with commas, escaping the commas and backslashes within them
+    static String encodeBounds(List<String> bounds) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < bounds.size(); i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            for (char c : bounds.get(i).toCharArray()) {
+                if (c == ',' || c == '\\') {
+                    text.append('\\');
+                }
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    //splits bounds joined by encodeBounds at the commas that are not escaped
+    static ArrayList<String> decodeBounds(String text) {
+        ArrayList<String> bounds = new ArrayList<>();
+        StringBuilder bound = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                bound.append(text.charAt(++i));
+            } else if (c == ',') {
+                bounds.add(bound.toString());
+                bound.setLength(0);
+            } else {
+                bound.append(c);
+            }
+        }
+        bounds.add(bound.toString());
+        return bounds;
+    }
+
+    //computes the statistics of all columns of the table
+    public static ArrayList<ColumnStatistics> analyze(Table table) throws IOException {
+        int columnCount = table.columnNames.size();
+        int rowCount = 0;
+        int[] nullCounts = new int[columnCount];
+        HyperLogLog[] distinct = new HyperLogLog[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            distinct[i] = new HyperLogLog();
+        }
+
+        //keep a uniform sample of the rows, each row read replaces a sampled one with falling probability
+        ArrayList<ArrayList<Object>> sample = new ArrayList<>();
+        Random random = new Random();
+
+        int page = table.tableFile.getFirstLeafPage();
+        while (page != 0xFFFFFFFF) {
+            for (Record record : table.tableFile.readPageRecords(page)) {
+                ArrayList<Object> values = record.getValues();
+                for (int i = 0; i < columnCount; i++) {
+                    if (values.get(i) == null) {
+                        nullCounts[i]++;
+                    } else {
+                        distinct[i].add(valueHash(table.columnTypes.get(i), values.get(i)));
+                    }
+                }
+                rowCount++;
+                if (sample.size() < SAMPLE_SIZE) {
+                    sample.add(values);
+                } else {
+                    int slot = random.nextInt(rowCount);
+                    if (slot < SAMPLE_SIZE) {
+                        sample.set(slot, values);
+                    }
+                }
+            }
+            page = table.tableFile.getNextLeafPage(page);
+        }
+
+        ArrayList<ColumnStatistics> statistics = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            Constants.DataTypes type = table.columnTypes.get(i);
+            ArrayList<Object> values = new ArrayList<>();
+            for (ArrayList<Object> row : sample) {
+                if (row.get(i) != null) {
+                    values.add(row.get(i));
+                }
+            }
+            values.sort((value1, value2) -> DataTools.compareTo(type, value1, value2));
+
+            //a column can't hold more distinct values than non-null rows
+            int distinctValues = (int) Math.min(distinct[i].estimate(), rowCount - nullCounts[i]);
+            statistics.add(new ColumnStatistics(table.tableName, table.columnNames.get(i), rowCount,
+                    rowCount == 0 ? 0.0 : (double) nullCounts[i] / rowCount, distinctValues,
+                    histogramBounds(type, values)));
+        }
+        return statistics;
+    }
+
+    //returns the bounds splitting the sorted values into buckets of the same size, the first and last
+    //bound are the smallest and largest value, with few distinct values the bounds are the values themselves
+    private static ArrayList<String> histogramBounds(Constants.DataTypes type, ArrayList<Object> values) {
+        ArrayList<Object> bounds = new ArrayList<>();
+        for (Object value : values) {
+            if (bounds.isEmpty() || DataTools.compareTo(type, bounds.get(bounds.size() - 1), value) != 0) {
+                bounds.add(value);
+                if (bounds.size() > HISTOGRAM_BUCKETS + 1) {
+                    break;
+                }
+            }
+        }
+        if (bounds.size() > HISTOGRAM_BUCKETS + 1) {
+            bounds.clear();
+            for (int b = 0; b <= HISTOGRAM_BUCKETS; b++) {
+                bounds.add(values.get((int) ((long) b * (values.size() - 1) / HISTOGRAM_BUCKETS)));
+            }
+        }
+
+        ArrayList<String> result = new ArrayList<>();
+        for (Object bound : bounds) {
+            String text = bound.toString();
+            result.add(text.length() > BOUND_LENGTH ? text.substring(0, BOUND_LENGTH) : text);
+        }
+        return result;
+    }
+
+    //returns the hash of a value as it is stored, for the distinct value estimate
+    private static long valueHash(Constants.DataTypes type, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IndexFile.writeValue(new DataOutputStream(bytes), type, value);
+        return BloomFilter.hash(bytes.toByteArray());
+    }
+}
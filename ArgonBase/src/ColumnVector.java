@@ -0,0 +1,130 @@
+import java.util.*;
+
+/*
+ * The values of one column for the rows of a ColumnBatch, held in a primitive array
+ * TINYINT, SMALLINT, INT, YEAR and TIME values are kept in ints, BIGINT, DATE and DATETIME values in
+ * longs, FLOAT and DOUBLE values in doubles, a float widens to a double exactly so comparisons keep their
+ * result, the bytes of TEXT values are kept one after the other in bytes, value i spanning
+ * bytes[offsets[i]] to bytes[offsets[i + 1]]
+ * nulls marks the rows whose value is NULL, the array of such a row holds no meaningful value
+ */
+public class ColumnVector {
+
+    //kinds of arrays a column is kept in
+    public enum Kind {
+        INT,
+        LONG,
+        DOUBLE,
+        TEXT
+    }
+
+    final Constants.DataTypes type;
+    final Kind kind;
+    int[] ints;
+    long[] longs;
+    double[] doubles;
+    int[] offsets;
+    byte[] bytes;
+    final boolean[] nulls;
+
+    //Creates a vector of the type for up to capacity rows
+    public ColumnVector(Constants.DataTypes type, int capacity) {
+        this.type = type;
+        this.kind = kindOf(type);
+        this.nulls = new boolean[capacity];
+        switch (kind) {
+            case INT:
+                ints = new int[capacity];
+                break;
+            case LONG:
+                longs = new long[capacity];
+                break;
+            case DOUBLE:
+                doubles = new double[capacity];
+                break;
+            case TEXT:
+                offsets = new int[capacity + 1];
+                bytes = new byte[capacity * 16];
+                break;
+        }
+    }
+
+    //returns the kind of array values of the type are kept in
+    public static Kind kindOf(Constants.DataTypes type) {
+        switch (type) {
+            case BIGINT:
+            case DATE:
+            case DATETIME:
+                return Kind.LONG;
+            case FLOAT:
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case TEXT:
+                return Kind.TEXT;
+            default:
+                return Kind.INT;
+        }
+    }
+
+    //sets the value of a TEXT row from length bytes of source starting at from, rows are set in order
+    public void setText(int row, byte[] source, int from, int length) {
+        int start = offsets[row];
+        if (start + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + length));
+        }
+        System.arraycopy(source, from, bytes, start, length);
+        offsets[row + 1] = start + length;
+    }
+
+    //sets a row to NULL, rows are set in order
+    public void setNull(int row) {
+        nulls[row] = true;
+        if (kind == Kind.TEXT) {
+            offsets[row + 1] = offsets[row];
+        }
+    }
+
+    //returns the value of a row as the object a Record holds for the type, null for NULL
+    public Object getValue(int row) {
+        if (nulls[row]) {
+            return null;
+        }
+        switch (kind) {
+            case INT:
+                return box(type, ints[row]);
+            case LONG:
+                return longs[row];
+            case DOUBLE:
+                return type == Constants.DataTypes.FLOAT ? (Object) (float) doubles[row] : (Object) doubles[row];
+            default:
+                return getText(row);
+        }
+    }
+
+    //returns the value of a TEXT row as a string
+    public String getText(int row) {
+        return new String(bytes, offsets[row], offsets[row + 1] - offsets[row]);
+    }
+
+    //returns an int kept for the type as the object a Record holds for it
+    public static Object box(Constants.DataTypes type, int value) {
+        switch (type) {
+            case TINYINT:
+            case YEAR:
+                return (byte) value;
+            case SMALLINT:
+                return (short) value;
+            default:
+                return value;
+        }
+    }
+
+    //returns the bytes a TEXT value is stored with, one byte for each character as TableFile writes it
+    public static byte[] textBytes(String value) {
+        byte[] text = new byte[value.length()];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) value.charAt(i);
+        }
+        return text;
+    }
+}
@@ -5,63 +5,86 @@ import java.util.*;
 
 /*
  * This class provides all the functionality to perform SQL database command query parsing
+ * A command is parsed into a Statement by Parser, the statement is then bound to the schema of its table
+ * and executed here
+ * Parsed statements are taken from the PlanCache, so a statement issued again is not parsed again, and a
+ * query issued again runs the plan compiled for it before
  */
 public class Commands {
+    //statements prepared with PREPARE by their name
+    private static final HashMap<String, PreparedStatement> preparedStatements = new HashMap<>();
 
-    /* This method determines what type of command the userCommand is and
-	 * calls the appropriate method to parse the userCommand String. 
+    /* This method parses the userCommand String into a statement and
+	 * calls the appropriate method to execute it.
 	 */
     public static void parseUserCommand(String userCommand) throws IOException {
-        
-        /* commandTokens is an array of Strings that contains one lexical token per array
-         * element. The first token can be used to determine the type of command
-         * The other tokens can be used to pass relevant parameters to each command-specific
-         * method inside each case statement
-         */
-        ArrayList<String> commandTokens = commandStringToTokenList(userCommand);
-
-        /*
-         *  This switch handles a very small list of hard-coded commands from SQL syntax.
-         *  You will want to rewrite this method to interpret more complex commands.
-         */
-        switch (commandTokens.get(0).toLowerCase()) {
-            case "show":
-                show(commandTokens);
-                break;
-            case "select":
-                parseQuery(commandTokens);
-                break;
-            case "create":
-                if (commandTokens.get(1).equalsIgnoreCase("index")) {
-                    parseCreateIndex(commandTokens);
-                } else {
-                    parseCreateTable(commandTokens);
-                }
-                break;
-            case "insert":
-                parseInsert(commandTokens);
-                break;
-            case "delete": 
-                parseDelete(commandTokens);
-                break;
-            case "update": 
-                parseUpdate(commandTokens);
-                break;
-            case "drop": 
-                dropTable(commandTokens);
-                break;
-            case "help":
-                help();
-                break;
-            case "version":
-                displayVersion();
-                break;
-            case "exit":
-                Settings.setExit(true);
-                break;
-            default:
+        try {
+            PreparedStatement prepared = PlanCache.get(userCommand);
+            if (prepared == null) {
                 System.out.println("I didn't understand the command: \"" + userCommand + "\"");
-                break;
+                return;
+            }
+            execute(prepared, new ArrayList<>());
+        } catch (SqlException e) {
+            //errors in the command point at the token causing them
+            System.out.println("Error at position " + e.position + ": " + e.getMessage()
+                    + ".\nType \"help;\" to display supported commands.");
+        }
+    }
+
+    //executes a prepared statement, the arguments are the values of its parameters
+    //a SELECT runs the plan kept with the statement when it can, see executeQuery
+    public static void execute(PreparedStatement prepared, List<Statement.Literal> arguments) throws IOException {
+        if (prepared.statement instanceof Statement.Select) {
+            executeQuery(prepared, arguments);
+        } else {
+            execute(prepared.statement, arguments);
+        }
+    }
+
+    //executes a parsed statement, the arguments are the values of its parameters
+    public static void execute(Statement statement, List<Statement.Literal> arguments) throws IOException {
+        if (statement instanceof Statement.Select) {
+            executeQuery((Statement.Select) statement, arguments);
+        } else if (statement instanceof Statement.Explain) {
+            executeQuery(((Statement.Explain) statement).select, arguments, true);
+        } else if (statement instanceof Statement.Insert) {
+            executeInsert((Statement.Insert) statement, arguments);
+        } else if (statement instanceof Statement.Update) {
+            executeUpdate((Statement.Update) statement, arguments);
+        } else if (statement instanceof Statement.Delete) {
+            executeDelete((Statement.Delete) statement, arguments);
+        } else if (statement instanceof Statement.Prepare) {
+            executePrepare((Statement.Prepare) statement);
+        } else if (statement instanceof Statement.Execute) {
+            executeExecute((Statement.Execute) statement);
+        } else if (statement instanceof Statement.Deallocate) {
+            String name = ((Statement.Deallocate) statement).name;
+            if (preparedStatements.remove(name) == null) {
+                System.out.println("Prepared statement " + name + " does not exist.");
+            }
+        } else if (statement instanceof Statement.CreateTable) {
+            executeCreateTable((Statement.CreateTable) statement);
+        } else if (statement instanceof Statement.CreateIndex) {
+            executeCreateIndex((Statement.CreateIndex) statement);
+        } else if (statement instanceof Statement.DropTable) {
+            dropTable((Statement.DropTable) statement);
+        } else if (statement instanceof Statement.ShowTables) {
+            show();
+        } else if (statement instanceof Statement.Analyze) {
+            executeAnalyze((Statement.Analyze) statement);
+        } else if (statement instanceof Statement.Utility) {
+            switch (((Statement.Utility) statement).command) {
+                case "help":
+                    help();
+                    break;
+                case "version":
+                    displayVersion();
+                    break;
+                case "exit":
+                    Settings.setExit(true);
+                    break;
+            }
         }
     }
 
@@ -70,22 +93,172 @@ public class Commands {
         System.out.println(Settings.getCopyright());
     }
 
-    //parses the create index command 
-    public static void parseCreateIndex(ArrayList<String> commandTokens) throws IOException {
-        //check if the command structure is valid
-        if (commandTokens.size() < 6 || !commandTokens.get(3).equals("(") || !commandTokens.get(5).equals(")")) {
-            System.out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
+    //checks that the column exists in the table
+    private static void checkColumn(Table table, String column, int position) {
+        if (!table.columnNames.contains(column)) {
+            throw new SqlException("Column " + column + " does not exist", position);
+        }
+    }
+
+    //executes PREPARE, the statement is prepared under its name
+    public static void executePrepare(Statement.Prepare prepare) {
+        if (preparedStatements.containsKey(prepare.name)) {
+            System.out.println("Prepared statement " + prepare.name + " already exists.");
+            return;
+        }
+        preparedStatements.put(prepare.name, PreparedStatement.prepare(prepare.text));
+        System.out.println("Statement " + prepare.name + " prepared.");
+    }
+
+    //executes EXECUTE, the prepared statement is executed with the values given for its parameters
+    public static void executeExecute(Statement.Execute execute) throws IOException {
+        PreparedStatement prepared = preparedStatements.get(execute.name);
+        if (prepared == null) {
+            System.out.println("Prepared statement " + execute.name + " does not exist.");
             return;
         }
+        if (execute.arguments.size() != prepared.parameterCount) {
+            throw new SqlException("Expected " + prepared.parameterCount + " values but found "
+                    + execute.arguments.size(), execute.position);
+        }
+        //a statement prepared before the catalog changed is prepared again
+        prepared = prepared.refresh();
+        preparedStatements.put(execute.name, prepared);
+        prepared.execute(execute.arguments);
+    }
+
+    //returns the value given for a parameter, the literal itself if it is a value
+    public static Statement.Literal argument(Statement.Literal literal, List<Statement.Literal> arguments) {
+        if (!literal.isParameter()) {
+            return literal;
+        }
+        if (literal.parameter >= arguments.size()) {
+            throw new SqlException("No value given for parameter " + (literal.parameter + 1), literal.position);
+        }
+        return arguments.get(literal.parameter);
+    }
+
+    //parses the literal as a value of the column, NULL gives null, a parameter takes its value from the arguments
+    public static Object bindValue(Table table, String column, Statement.Literal literal, List<Statement.Literal> arguments) {
+        literal = argument(literal, arguments);
+        if (literal.isNull()) {
+            return null;
+        }
+        try {
+            return DataTools.parseStr(table.getColumnType(column), literal.text);
+        } catch (RuntimeException e) {
+            throw new SqlException("Value " + literal.text + " is not valid for column " + column, literal.position);
+        }
+    }
+
+    //binds the WHERE clause to the columns of the table, returns null without a WHERE clause
+    public static Predicate bindWhere(Table table, Statement.Expression where, List<Statement.Literal> arguments) {
+        return bindWhere(List.of(table), where, arguments);
+    }
+
+    //binds the WHERE clause to the columns of the tables, naming them as resolveColumn does
+    private static Predicate bindWhere(List<Table> tables, Statement.Expression where, List<Statement.Literal> arguments) {
+        if (where == null) {
+            return null;
+        }
+        if (where instanceof Statement.Condition) {
+            Statement.Condition condition = (Statement.Condition) where;
+            String column = resolveColumn(tables, condition.column, condition.position);
+            return Predicate.comparison(column, condition.operator,
+                    bindValue(tableOf(tables, column), columnOf(tables, column), condition.value, arguments));
+        }
+        if (where instanceof Statement.NullTest) {
+            Statement.NullTest test = (Statement.NullTest) where;
+            return Predicate.isNull(resolveColumn(tables, test.column, test.position), test.negated);
+        }
+        Statement.Junction junction = (Statement.Junction) where;
+        ArrayList<Predicate> operands = new ArrayList<>();
+        for (Statement.Expression operand : junction.operands) {
+            operands.add(bindWhere(tables, operand, arguments));
+        }
+        return junction.or ? Predicate.or(operands) : Predicate.and(operands);
+    }
+
+    //executes the create index command
+    //CREATE INDEX <index_name> ON <table_name> [USING BTREE|HASH|BITMAP] ( <column_name>, ... ) [INCLUDE ( <column_name>, ... )]
+    //    [WHERE <column_name> <operator> <value> [AND ...]]
+    //the USING clause may also follow the column lists, CREATE BITMAP INDEX is short for USING BITMAP
+    //an index with a WHERE clause is partial and only holds the rows matching its conditions
+    //CREATE INDEX CONCURRENTLY builds the index in the background while statements keep using the table
+    //the short form CREATE INDEX <table_name> ( <column_name>, ... ) names the index after its columns
+    public static void executeCreateIndex(Statement.CreateIndex create) throws IOException {
+        String tableName = create.tableName;
+        String indexType = create.indexType;
+        ArrayList<String> columns = new ArrayList<>(create.columns);
+        ArrayList<String> includeColumns = new ArrayList<>(create.includeColumns);
+
+        if (!indexType.equals("BTREE") && !indexType.equals("HASH") && !indexType.equals("BITMAP")) {
+            System.out.println("Index type " + indexType + " is not supported.");
+            return;
+        }
+        if (indexType.equals("BITMAP") && (columns.size() > 1 || !includeColumns.isEmpty())) {
+            System.out.println("A bitmap index has a single column and no included columns.");
+            return;
+        }
+        //a key column is stored in the index anyway, including it again is a mistake
+        for (int i = 0; i < includeColumns.size(); i++) {
+            if (columns.contains(includeColumns.get(i))) {
+                throw new SqlException("Column " + includeColumns.get(i) + " is already a key column of the index",
+                        create.includePositions.get(i));
+            }
+        }
+
+        //check if the table and the columns exist
+        if (!Table.isTableExist(tableName)) {
+            System.out.println("Table " + tableName + " does not exist.");
+            return;
+        }
+        try (Table table = new Table(tableName, true)) {
+            ArrayList<String> allColumns = new ArrayList<>(columns);
+            allColumns.addAll(includeColumns);
+            ArrayList<String> predicateConditions = new ArrayList<>();
+            for (Statement.Condition condition : create.conditions) {
+                allColumns.add(condition.column);
+                predicateConditions.add(condition.toString());
+            }
+            for (String column : allColumns) {
+                if (!table.columnNames.contains(column)) {
+                    System.out.println("Column " + column + " does not exist.");
+                    return;
+                }
+            }
+
+            //the values of the predicate have to be values of their columns, the predicate is stored as
+            //text split at spaces, so its values can't hold any
+            for (Statement.Condition condition : create.conditions) {
+                String value = condition.value.text;
+                boolean valid = value != null && !condition.value.isParameter() && value.indexOf(' ') == -1;
+                if (valid) {
+                    try {
+                        DataTools.parseStr(table.getColumnType(condition.column), value);
+                    } catch (RuntimeException e) {
+                        valid = false;
+                    }
+                }
+                if (!valid) {
+                    throw new SqlException("Value " + (value == null ? "NULL" : value) + " is not valid for column "
+                            + condition.column, condition.value.position);
+                }
+            }
 
-        //create a new Table object for the specified table
-        Table table = new Table(commandTokens.get(2).toLowerCase(), true);
-        //create an index on the specified column
-        table.createIndex(commandTokens.get(4).toLowerCase());
+            String indexName = create.indexName == null ? String.join("_", columns) : create.indexName;
+
+            //create the index on the specified columns
+            IndexDefinition index = new IndexDefinition(tableName, indexName, columns, includeColumns, indexType,
+                    predicateConditions.isEmpty() ? null : String.join(" AND ", predicateConditions));
+            if (!(create.concurrently ? table.createIndexConcurrently(index) : table.createIndex(index))) {
+                System.out.println("Index " + indexName + " already exists.");
+            }
+        }
     }
 
-    //parses the create table command
-    public static void parseCreateTable(ArrayList<String> commandTokens) throws IOException {
+    //executes the create table command
+    public static void executeCreateTable(Statement.CreateTable create) throws IOException {
         //Arrays to store information about each column in the new table
 
         //store the column names in the new table where each element is a column name
@@ -107,8 +280,8 @@ public class Commands {
 		//each element corresponds to the column at the same index in columnNames and checks if null values are allowed
         ArrayList<Boolean> isNull = new ArrayList<>();
 
-        //Extract the table name from the command string token list
-        String tableFileName = commandTokens.get(2).toLowerCase();
+        //the table name from the statement
+        String tableFileName = create.tableName;
 
         //Create Table objects for metadata tables
         Table metatable = Table.tableTable;
@@ -120,601 +293,580 @@ public class Commands {
             return;
         }
 
-        //starting index for parsing column definitions in command tokens
-        int iter = 3;
-
-        //check the command structure is valid
-        if (!commandTokens.get(iter++).equals("(")) {
-            System.out.println("Invalid Syntax: \"(\" Expected. \nType \"help;\" to display supported commands.");
-            return;
+        for (Statement.ColumnDefinition column : create.columns) {
+            columnNames.add(column.name);
+            columnTypes.add(column.type);
+            //Add constraint flags to corresponding lists, a primary key can't be null
+            primaryKey.add(column.primaryKey);
+            unique.add(column.unique);
+            isNull.add(!column.primaryKey && !column.notNull);
         }
 
+        //create a .tbl file to contain table data
+        try (Table table = new Table(tableFileName, columnNames, columnTypes, isNull, true)) {
+
+            //insert an entry in the argonbase_tables meta-data for this new table.
+            metatable.insertRecord(new ArrayList<>(List.of(tableFileName)));
+
+            //Code to insert entries in the argonbase_columns meta data for each column in the new table.
+            ArrayList<String> schemaColumns = new ArrayList<>();
+            ArrayList<String> schemaKeys = new ArrayList<>();
+            for (int i = 0; i < columnTypes.size(); i++) {
+                String isNullable;
+                String columnKey;
+                //Determine the column key based on constraints
+                if (primaryKey.get(i)){
+                    //Primary key constraint
+                    columnKey = "PRI";
+                }
+                else if (unique.get(i)){
+                    //Unique constraint
+                    columnKey = "UNI";
+                }
 
-        while (!commandTokens.get(iter).equals(")")) {
-            //Temporary list to store column type and column name
-            ArrayList<String> temp = new ArrayList<>();
-
-            //Extract column type and column name until a comma or closing parenthesis is encountered
-            while (!commandTokens.get(iter).trim().equals(",") && !commandTokens.get(iter).trim().equals(")")) {
-                temp.add(commandTokens.get(iter));
-                iter++;
+                else {
+                    //No specific constraint, so Nullable
+                    columnKey = "NULL";
+                }
+                schemaColumns.add(columnNames.get(i).toLowerCase());
+                schemaKeys.add(columnKey.equals("NULL") ? null : columnKey);
+
+                //Determine whether the column is nullable or not
+                if (isNull.get(i))
+                    isNullable = "YES";
+                else
+                    isNullable = "NO";
+
+                //Insert metadata for the current column into argonbase_columns
+                metaColumns.insertRecord(
+                    new ArrayList<>(
+                        Arrays.asList(
+                            //table name
+                            tableFileName.toLowerCase(),
+                            //column name
+                            columnNames.get(i).toLowerCase(),
+                            //column type
+                            columnTypes.get(i).toString(),
+                            //ordinal position of the column
+                            (byte) (i + 1),
+                            //nullable info	
+                            isNullable,
+                            //PRI, UNI, or NULL
+                            columnKey
+                        )
+                    )
+                );
             }
-
-            //check if there are at least 2 elements in the temporary list
-            if (temp.size() < 2) {
-                System.out.println("Invalid Syntax: Both Type and Column name required. \nType \"help;\" to display supported commands.");
-                return;
+            //add the new table to the in-memory catalog before its first index is recorded there
+            Catalog.addTable(tableFileName, schemaColumns, columnTypes, isNull, schemaKeys);
+
+            //If there is at least one primary key, create an index for that key
+            if (primaryKey.contains(true)) {
+                //Get the name of the first column marked as Primary Key
+				//then create an index for the Primary Key column
+                table.createIndex(columnNames.get(primaryKey.indexOf(true)));
             }
+        }
+    }
 
-            //flags to track column constraints
-            boolean pri = false;
-            boolean uni = false;
-            boolean nullable = true;
-
-            //extract column type and column name from the temporary list
-            columnNames.add(temp.get(0).toLowerCase());
-            columnTypes.add(strDataTypes(temp.get(1)));
-
-            int it = 2;
-            // Loop through additional constraints specified for the column
-            while (it < temp.size()) {
-                String constraint = temp.get(it);
-                
-                //Check for various constraints and update flags accordingly
-                if (constraint.equalsIgnoreCase("PRIMARY_KEY")) { 
-                    pri = true;
-                    nullable = false;
-                    it++;
-                } else if (constraint.equalsIgnoreCase("UNIQUE")) {
-                    uni = true;
-                    it++;
-                } else if (constraint.equalsIgnoreCase("NOT_NULL")) {  
-                    nullable = false;
-                    it++;
-                } else {
-                    System.out.println("Invalid Syntax: Unknown table constraint " + constraint + ".\nType \"help;\" to display supported commands.");
-                    return;
-                }
-            }
+    //executes the show command to display information such as table names
+    public static void show() throws IOException {
+        //Get the metadata table for tables
+        Table table = Table.tableTable;
 
-            //Add constraint flags to corresponding lists
-            primaryKey.add(pri);
-            unique.add(uni);
-            isNull.add(nullable);
+        //Retrieve all records which are the table names
+        ArrayList<Record> result = table.searchTable(null, null, null);
 
-            //move to the next token
-            iter++;
+        //Display the result using the display method
+        Commands.displayRecords(table.columnNames, table.columnTypes, result);
+    }
 
-            //check if we have reached the end of command tokens list
-            if (iter >= commandTokens.size()){
-                break;
-            }
+    //executes INSERT queries to add a new row of data into a specified table
+    //without a column list the values are given for the first columns in order
+    public static void executeInsert(Statement.Insert insert, List<Statement.Literal> arguments) throws IOException {
+        //get the table name and check if it exists
+        String tableFileName = insert.tableName;
+        if (!Table.isTableExist(tableFileName)) {
+            System.out.println("Table " + tableFileName + " does not exist.");
+            return;
         }
 
-        //create a .tbl file to contain table data
-        Table table = new Table(tableFileName, columnNames, columnTypes, isNull, true);
-
-        //insert an entry in the argonbase_tables meta-data for this new table.
-        metatable.insertRecord(new ArrayList<>(List.of(tableFileName)));
-
-        //Code to insert entries in the argonbase_columns meta data for each column in the new table.
-        for (int i = 0; i < columnTypes.size(); i++) {
-            String isNullable;
-            String columnKey;
-            //Determine the column key based on constraints
-            if (primaryKey.get(i)){
-                //Primary key constraint
-                columnKey = "PRI";
-            }
-            else if (unique.get(i)){
-                //Unique constraint
-                columnKey = "UNI";
+        //initialize the table
+        try (Table table = new Table(tableFileName, true)) {
+            ArrayList<String> columns = insert.columns.isEmpty() ? table.columnNames : insert.columns;
+            if (insert.values.size() > columns.size()
+                    || (!insert.columns.isEmpty() && insert.values.size() != columns.size())) {
+                throw new SqlException("Column count doesn't match value count", insert.values.get(0).position);
             }
 
-            else {
-                //No specific constraint, so Nullable
-                columnKey = "NULL";
+            //place the values at the positions of their columns
+            Statement.Literal[] values = new Statement.Literal[table.columnNames.size()];
+            for (int i = 0; i < insert.values.size(); i++) {
+                int j = table.columnNames.indexOf(columns.get(i));
+                if (j == -1) {
+                    out.println("Column " + columns.get(i) + " does not exist.");
+                    return;
+                }
+                values[j] = argument(insert.values.get(i), arguments);
             }
 
-            //Determine whether the column is nullable or not
-            if (isNull.get(i))
-                isNullable = "YES";
-            else
-                isNullable = "NO";
-
-            //Insert metadata for the current column into argonbase_columns
-            metaColumns.insertRecord(
-                new ArrayList<>(
-                    Arrays.asList(
-                        //table name
-                        tableFileName.toLowerCase(),
-                        //column name
-                        columnNames.get(i).toLowerCase(),
-                        //column type
-                        columnTypes.get(i).toString(),
-                        //ordinal position of the column
-                        (byte) (i + 1),
-                        //nullable info	
-                        isNullable,
-                        //PRI, UNI, or NULL
-                        columnKey
-                    )
-                )
-            );
-        }
-        //If there is at least one primary key, create an index for that key
-        if (primaryKey.contains(true)) {
-            //Get the name of the first column marked as Primary Key
-			//then create an index for the Primary Key column
-            table.createIndex(columnNames.get(primaryKey.indexOf(true)));
-        }
-    }
-
-    //parses the show command to display information such as table names
-	//takes a commandTokens list parameter which is extracted from the user command
-    public static void show(ArrayList<String> commandTokens) throws IOException {
-        ArrayList<Record> result;
+            // check if each null value is nullable
+            for (int flag = 0; flag < values.length; flag++) {
+                if ((values[flag] == null || values[flag].isNull()) && !table.colIsNullable.get(flag)) {
+                    out.println(table.columnNames.get(flag) + " can not be NULL!");
+                    return;
+                }
+            }
 
-        //Check if the show command is for displaying tables
-        if (commandTokens.get(1).equalsIgnoreCase("tables")) {
-            //Get the metadata table for tables
-            Table table = Table.tableTable;
+            //parse values and perform insertion
+            ArrayList<Object> insertValues = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                insertValues.add(values[i] == null ? null : bindValue(table, table.columnNames.get(i), values[i], arguments));
+            }
 
-            //Retrieve all records which are the table names
-            result = table.searchTable(null, null, null);
-            
-            //Display the result using the display method
-            Commands.displayRecords(table, result, new ArrayList<>(), true);
-        } else {
-            //Display an error message if the show command is incorrect
-            System.out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
+            //perform insertion and display result
+            if (table.insertRecord(insertValues)) {
+                out.println("1 row inserted successfully.");
+            } else {
+                out.println("Insertion failed.");
+            }
         }
     }
 
-    //parses and executes INSERT queries to add a new row od data into a specified table
-	//input is the list of command tokens extracted from the user query
-    public static void parseInsert(ArrayList<String> commandTokens) throws IOException {
-        //check if the command has an adequate number of tokens
-        if (commandTokens.size() < 5) {
-            System.out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
-            return;
-        }
-
-        //check if the command starts with "INTO"
-        if (!commandTokens.get(1).equalsIgnoreCase("into")) {
-            System.out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
+    //executes DELETE queries to remove rows from a specified table based on an optional condition
+    public static void executeDelete(Statement.Delete delete, List<Statement.Literal> arguments) throws IOException {
+        //Get the table name and check if it exists
+        String tableName = delete.tableName;
+        if (!Table.isTableExist(tableName)) {
+            out.println("Table " + tableName + " does not exist.");
             return;
         }
 
-        //get the table name and check if it exists
-        String tableFileName = commandTokens.get(2).toLowerCase();
-        if (!Table.isTableExist(tableFileName)) {
-            System.out.println("Table " + tableFileName + " does not exist.");
-            return;
+        //Initialize the table
+        try (Table table = new Table(tableName, true)) {
+            //without a WHERE clause every row is deleted
+            Predicate predicate = bindWhere(table, delete.where, arguments);
+
+            //perform deletion and display result
+            int deletedRows = table.deleteRecord(predicate);
+            if (deletedRows > 0){
+                System.out.println(deletedRows + " rows are deleted!");
+            }
+            else{
+                System.out.println("delete failed!");
+            }
         }
+    }
 
-        //initialize the table
-        Table table = new Table(tableFileName, true);
-
-        //arrays to store column names and column values temorarily
-        String[] values = new String[table.columnNames.size()];
-        String[][] temp = new String[table.columnNames.size()][2];
+    //executes SELECT queries, retrieving data from the specific table based on given conditions
+    //the query is turned into a LogicalPlan, compiled into operators by Planner and its records displayed
+    public static void executeQuery(Statement.Select select, List<Statement.Literal> arguments) throws IOException {
+        executeQuery(select, arguments, false);
+    }
 
-        //check the command strcutre and populate temporary arrays
-        if (!commandTokens.get(3).equals("(") && !commandTokens.get(3).equalsIgnoreCase("values")) {
-            out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
+    //executes a SELECT query, with explain its plan is displayed instead of its records
+    //EXPLAIN shows one line for each operator with its inputs indented below it, access paths show the
+    //cost and the number of records Planner estimated for them
+    private static void executeQuery(Statement.Select select, List<Statement.Literal> arguments, boolean explain) throws IOException {
+        ArrayList<Table> tables = openTables(select);
+        if (tables == null) {
             return;
         }
-
-        //checks if a list of column names were provided starting with open parenthesis
-        if (commandTokens.get(3).equals("(")) {
-            //iterate tokens starting from fifth token in command tokens
-            int iter = 4;
-
-            //keep track of number of columns encountered thru parsing
-            int cptr = 0;
-
-            //extract column names
-            while (!commandTokens.get(iter).equals(")")) {
-                if (!commandTokens.get(iter).equals(",")) {
-                    temp[cptr++][0] = commandTokens.get(iter);
+        try {
+            Operator root = compileQuery(select, tables, arguments);
+            if (explain) {
+                ArrayList<String> lines = new ArrayList<>();
+                root.explain(lines, 0);
+                for (String line : lines) {
+                    System.out.println(line);
                 }
-                iter++;
-            }
-            //move to the "VALUES" part
-            iter++;
-            if (!commandTokens.get(iter).equalsIgnoreCase("values") ||
-                    !commandTokens.get(iter + 1).equals("(")) {
-                out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
                 return;
-            } else {
-                iter += 2;
-                cptr = 0;
-                while (!commandTokens.get(iter).equals(")")) {
-                    if (!commandTokens.get(iter).equals(",")) {
-                        temp[cptr++][1] = commandTokens.get(iter);
-                    }
-                    iter++;
-                }
             }
+            ArrayList<Record> result = root.collect();
+            displayRecords(root.columnNames, root.columnTypes, result);
+        } finally {
+            closeTables(tables);
+        }
+    }
 
-        } else if (commandTokens.get(3).equalsIgnoreCase("values")) {
-            int iter = 4, vptr = 0;
-            //check the command structure
-            if (!commandTokens.get(iter).equals("(")) {
-                out.println("Command is incorrect.\nType \"help;\" to display supported commands.");
+    //executes a prepared SELECT query, the plan compiled for it is kept with the statement together with
+    //its open tables and run again while the catalog is unchanged and its parameters have the same values
+    private static void executeQuery(PreparedStatement prepared, List<Statement.Literal> arguments) throws IOException {
+        Operator root = prepared.getPlan(arguments);
+        if (root == null) {
+            Statement.Select select = (Statement.Select) prepared.statement;
+            ArrayList<Table> tables = openTables(select);
+            if (tables == null) {
                 return;
-            } else {
-                iter++;
-                while (!commandTokens.get(iter).equals(")")) {
-                    if (!commandTokens.get(iter).equals(",")) {
-                        temp[vptr][0] = table.columnNames.get(vptr);
-                        temp[vptr++][1] = commandTokens.get(iter);
-                    }
-                    iter++;
+            }
+            boolean kept = false;
+            try {
+                root = compileQuery(select, tables, arguments);
+                prepared.setPlan(root, tables, arguments);
+                kept = true;
+            } finally {
+                if (!kept) {
+                    closeTables(tables);
                 }
             }
         }
+        ArrayList<Record> result = root.collect();
+        displayRecords(root.columnNames, root.columnTypes, result);
+    }
 
-        // create an array of values at appropriate positions
-        for (String[] strings : temp) {
-            if (strings[0] == null || strings[1] == null) {
-                continue;
-            }
-            int j = table.columnNames.indexOf(strings[0]);
-            if (j == -1) {
-                out.println("Column " + strings[0] + " does not exist.");
-                return;
+    //opens the table of the FROM clause followed by the joined tables, returns null if one does not exist
+    private static ArrayList<Table> openTables(Statement.Select select) throws IOException {
+        //get the names of the tables and check if they exist
+        ArrayList<String> tableNames = new ArrayList<>();
+        tableNames.add(select.tableName);
+        for (Statement.Join join : select.joins) {
+            if (tableNames.contains(join.tableName)) {
+                throw new SqlException("Table " + join.tableName + " is joined more than once", join.position);
             }
-            values[j] = strings[1];
+            tableNames.add(join.tableName);
         }
-
-        // check if each null value is nullable
-        for (int flag = 0; flag < values.length; flag++) {
-            if (values[flag] == null && !table.colIsNullable.get(flag)) {
-                out.println(table.columnNames.get(flag) + " can not be NULL!");
-                return;
+        for (String tableName : tableNames) {
+            if (!Table.isTableExist(tableName)) {
+                System.out.println("Table does not exist!");
+                return null;
             }
         }
 
-        //parse values and perform insertion
-        ArrayList<Object> insertValues = new ArrayList<>();
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] != null) {
-                Constants.DataTypes type = table.columnTypes.get(i);
-                Object value = DataTools.parseStr(type, values[i]);
-                insertValues.add(value);
-            } else
-                insertValues.add(null);
+        //Initialize the tables based on the table names
+        ArrayList<Table> tables = new ArrayList<>();
+        try {
+            for (String tableName : tableNames) {
+                tables.add(new Table(tableName, !isCatalogTable(tableName)));
+            }
+        } catch (IOException | RuntimeException e) {
+            closeTables(tables);
+            throw e;
         }
+        return tables;
+    }
 
-        //perform insertion and display result
-        if (table.insertRecord(insertValues)) {
-            out.println("1 row inserted successfully.");
-        } else {
-            out.println("Insertion failed.");
+    //closes the tables of a query
+    private static void closeTables(List<Table> tables) throws IOException {
+        for (Table table : tables) {
+            table.close();
         }
     }
 
-    //parses and executes DELETE queries to remove rows from a specified table based on specified conditions
-	//input is the list of command tokens extract from user command
-    public static void parseDelete(ArrayList<String> commandTokens) throws IOException {
-        String columnName;
-        Object value;
-        String operator;
-
-        //Check if the command is in the correct format
-        if (!commandTokens.get(0).equalsIgnoreCase("delete") || !commandTokens.get(1).equalsIgnoreCase("from")) {
-            out.println("Command is Invalid");
-            return;
+    //compiles a SELECT query over its tables, the table of the FROM clause followed by the joined tables,
+    //into the operators returning its records, see Planner
+    private static Operator compileQuery(Statement.Select select, List<Table> tables, List<Statement.Literal> arguments)
+            throws IOException {
+        //* selects all columns of the tables in order
+        ArrayList<Statement.SelectItem> items = new ArrayList<>();
+        if (select.allColumns) {
+            for (Table table : tables) {
+                for (String column : table.columnNames) {
+                    String name = tables.size() == 1 ? column : table.tableName + "." + column;
+                    items.add(new Statement.SelectItem(null, name, select.position));
+                }
+            }
         }
-
-        //Get the table name and check if it exists
-        String tableName = commandTokens.get(2).toLowerCase();
-        if (!Table.isTableExist(tableName)) {
-            out.println("Table " + tableName + " does not exist.");
-            return;
+        //the columns read from the tables, the items with their columns resolved, see resolveColumn
+        LinkedHashSet<String> neededColumns = new LinkedHashSet<>();
+        for (Statement.SelectItem item : select.items) {
+            items.add(checkItem(tables, item, neededColumns));
         }
-
-        //Initialize the table
-        Table table = new Table(tableName, true);
-        int queryLength = commandTokens.size();
-
-        //Check if a WHERE clause is present
-        if (queryLength > 3) {
-            if (!commandTokens.get(3).equalsIgnoreCase("where")) {
-                out.println("Command is InValid");
-                return;
+        ArrayList<Statement.SelectItem> groupBy = new ArrayList<>();
+        for (Statement.SelectItem item : select.groupBy) {
+            groupBy.add(checkItem(tables, item, neededColumns));
+        }
+        ArrayList<Statement.SelectItem> orderBy = new ArrayList<>();
+        for (Statement.SelectItem item : select.orderBy) {
+            orderBy.add(checkItem(tables, item, neededColumns));
+        }
+        if (select.allColumns) {
+            for (Statement.SelectItem item : items) {
+                neededColumns.add(item.column);
             }
+        }
 
-            //check if the query has the correct structure
-            if (queryLength != 7 && queryLength != 8) {
-                System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-                return;
-            }
+        //the WHERE clause, null without one
+        Predicate predicate = bindWhere(tables, select.where, arguments);
 
-            //parse the where clause
-            if (commandTokens.get(4).equalsIgnoreCase("not")) {
-                columnName = commandTokens.get(5).toLowerCase();
-                operator = inverseOperator(commandTokens.get(6));
-                Constants.DataTypes type = table.getColumnType(columnName);
-                value = DataTools.parseStr(type, commandTokens.get(7));
-            } else {
-                columnName = commandTokens.get(4).toLowerCase();
-                operator = commandTokens.get(5);
-                Constants.DataTypes type = table.getColumnType(columnName);
-                value = DataTools.parseStr(type, commandTokens.get(6));
+        //scan and join, group, sort, limit and project the records
+        LogicalPlan plan = tables.size() == 1 ? new LogicalPlan.Scan(tables.get(0), predicate, neededColumns)
+                : joinPlan(select, tables, predicate, neededColumns);
+        if (select.isAggregate()) {
+            plan = aggregatePlan(plan, items, groupBy, orderBy);
+        }
+        if (!orderBy.isEmpty()) {
+            ArrayList<String> sortColumns = new ArrayList<>();
+            ArrayList<Boolean> descending = new ArrayList<>();
+            for (Statement.SelectItem item : orderBy) {
+                sortColumns.add(item.getName());
+                descending.add(item.descending);
             }
-        } else {
-            //No WHERE clause, set values to null
-            columnName = null;
-            value = null;
-            operator = null;
-        }
-
-        //perform deletion and display result
-        int deletedRows = table.deleteRecord(columnName, value, operator);
-        if (deletedRows > 0){
-            System.out.println(deletedRows + " rows are deleted!");
-        }
-        else{
-            System.out.println("delete failed!");
-        }
-    }
-
-    //parses and executes SELECT queries, retrieving data from the specific table based on given conditions
-	//input parameter is the list of commandtokens extracted from the user command
-    public static void parseQuery(ArrayList<String> commandTokens) throws IOException {
-        //whether to return all columns of data or not
-        boolean allColumns = false;
-        String columnName;
-        String value;
-        String operator;
-        ArrayList<String> columns = new ArrayList<>();
-        String tableName;
-        ArrayList<Record> result = new ArrayList<>();
-
-        //check if the query is empty
-        int queryLength = commandTokens.size();
-        if (queryLength == 1) {
-            System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-            return;
+            plan = new LogicalPlan.Sort(plan, sortColumns, descending);
+        }
+        if (select.limit >= 0) {
+            plan = new LogicalPlan.Limit(plan, select.limit);
         }
+        ArrayList<String> outputColumns = new ArrayList<>();
+        for (Statement.SelectItem item : items) {
+            outputColumns.add(item.getName());
+        }
+        plan = new LogicalPlan.Project(plan, outputColumns);
+        return Planner.compile(plan);
+    }
 
-        int i = 1;
+    //checks that the column of a select item exists and that SUM and AVG are applied to a numeric column
+    //adds the column to the columns read from the tables, returns the item with its column resolved
+    private static Statement.SelectItem checkItem(List<Table> tables, Statement.SelectItem item, Set<String> neededColumns) {
+        if (item.column == null) {
+            return item;
+        }
+        String column = resolveColumn(tables, item.column, item.position);
+        if (("sum".equals(item.function) || "avg".equals(item.function))
+                && !Aggregate.isNumeric(tableOf(tables, column).getColumnType(columnOf(tables, column)))) {
+            throw new SqlException("Function " + item.function + " needs a numeric column", item.position);
+        }
+        neededColumns.add(column);
+        Statement.SelectItem resolved = new Statement.SelectItem(item.function, column, item.position);
+        resolved.descending = item.descending;
+        return resolved;
+    }
 
-        //check if all columns are selected using '*'
-        if (commandTokens.get(i).equals("*")) {
-            allColumns = true;
-            i++;
-        } else {
-            //parse selected column names until 'FROM' is encountered
-            while (i < queryLength && !(commandTokens.get(i).equalsIgnoreCase("from"))) {
-                if (!(commandTokens.get(i).equalsIgnoreCase(","))) columns.add(commandTokens.get(i));
-                i++;
-            }
-            //check if the query is incorrect
-            if (i == queryLength) {
-                System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-                return;
+    //returns the name a column of a query is known by: the column of a single table by its name, the
+    //column of a join qualified by its table, <table>.<column>
+    //a column may be written either way, an unqualified column of a join has to belong to one table only
+    private static String resolveColumn(List<Table> tables, String column, int position) {
+        int dot = column.indexOf('.');
+        String name = dot == -1 ? column : column.substring(dot + 1);
+        Table owner = null;
+        for (Table table : tables) {
+            if ((dot == -1 || column.substring(0, dot).equals(table.tableName)) && table.columnNames.contains(name)) {
+                if (owner != null) {
+                    throw new SqlException("Column " + column + " is ambiguous", position);
+                }
+                owner = table;
             }
         }
-
-        //move to the table name part of the query
-        i++;
-        if (i == queryLength) {
-            System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-            return;
+        if (owner == null) {
+            throw new SqlException("Column " + column + " does not exist", position);
         }
+        return tables.size() == 1 ? name : owner.tableName + "." + name;
+    }
 
-        //get the table name and check if it exists
-        tableName = commandTokens.get(i).toLowerCase();
-        if (!Table.isTableExist(tableName)) {
-            System.out.println("Table does not exist!");
-            return;
+    //returns the table a column resolved by resolveColumn belongs to
+    private static Table tableOf(List<Table> tables, String column) {
+        if (tables.size() == 1) {
+            return tables.get(0);
+        }
+        String tableName = column.substring(0, column.indexOf('.'));
+        for (Table table : tables) {
+            if (table.tableName.equals(tableName)) {
+                return table;
+            }
         }
+        return null;
+    }
 
-        //Initialize the table based on the table name
-        Table table;
-        try {
-            if (tableName.equals(Settings.argonBaseTables) || tableName.equals(Settings.argonBaseColumns))
-                table = new Table(tableName, false);
-            else
-                table = new Table(tableName, true);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        
-        //move to the next part of the query
-        i++;
-        if (queryLength == i) {
-            //if no additional conditions, then retrieve all records
-            try {
-                result = table.searchTable(null, null, null);
-                
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (commandTokens.get(i).equalsIgnoreCase("where")) {
-            //if WHERE clause is present
-            i++;
-
-            //check if the query length is correct for WHERE clause
-            if (i + 3 == queryLength || i + 4 == queryLength) {
-                if (commandTokens.get(i).equalsIgnoreCase("not")) {
-                    //Handle "NOT" condition
-                    columnName = commandTokens.get(i + 1);
-                    value = commandTokens.get(i + 3);
-                    operator = inverseOperator(commandTokens.get(i + 2));
-
-                    //Check if the operator is valid
-                    if (operator == null) {
-                        System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-                        return;
-                    }
+    //returns the name in its table of a column resolved by resolveColumn
+    private static String columnOf(List<Table> tables, String column) {
+        return tables.size() == 1 ? column : column.substring(column.indexOf('.') + 1);
+    }
+
+    //joins the tables in the order they are written, each joined table by the columns of its ON clause,
+    //one of them a column of the table and the other of a table before it
+    //the conjuncts of the WHERE clause on the columns of a single table are checked when the table is
+    //scanned, the rest once the tables are joined
+    //each table returns the columns read from it qualified by its name, <table>.<column>
+    private static LogicalPlan joinPlan(Statement.Select select, List<Table> tables, Predicate predicate,
+                                        Set<String> neededColumns) {
+        //the conjuncts on the columns of each table, and those on several tables
+        ArrayList<ArrayList<Predicate>> tablePredicates = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            tablePredicates.add(new ArrayList<>());
+        }
+        ArrayList<Predicate> joinPredicates = new ArrayList<>();
+        if (predicate != null) {
+            for (Predicate conjunct : predicate.conjuncts()) {
+                LinkedHashSet<String> columns = new LinkedHashSet<>();
+                conjunct.addColumns(columns);
+                HashSet<Table> owners = new HashSet<>();
+                for (String column : columns) {
+                    owners.add(tableOf(tables, column));
+                }
+                if (owners.size() == 1) {
+                    tablePredicates.get(tables.indexOf(owners.iterator().next())).add(conjunct);
                 } else {
-                    //Handle regular condition
-                    columnName = commandTokens.get(i);
-                    operator = commandTokens.get(i + 1);
-                    value = commandTokens.get(i + 2);
+                    joinPredicates.add(conjunct);
+                    neededColumns.addAll(columns);
                 }
-                //Get the column type and parse the value
-                Constants.DataTypes type = table.getColumnType(columnName);
-                Object valueObject = DataTools.parseStr(type, value);
+            }
+        }
 
-                //Search the table based on the condition
-                result = table.searchTable(columnName.toLowerCase(), valueObject, operator);
-            } else {
-                System.out.println("Query is incorrect.\nType \"help;\" to display supported commands.");
-                return;
+        //the columns of the ON clauses, the column of the joined table on the right
+        ArrayList<String> leftColumns = new ArrayList<>();
+        ArrayList<String> rightColumns = new ArrayList<>();
+        for (int i = 0; i < select.joins.size(); i++) {
+            Statement.Join join = select.joins.get(i);
+            Table table = tables.get(i + 1);
+            String leftColumn = resolveColumn(tables, join.leftColumn, join.leftPosition);
+            String rightColumn = resolveColumn(tables, join.rightColumn, join.rightPosition);
+            if (tableOf(tables, leftColumn) == table) {
+                String column = leftColumn;
+                leftColumn = rightColumn;
+                rightColumn = column;
+            }
+            if (tableOf(tables, rightColumn) != table || tables.indexOf(tableOf(tables, leftColumn)) > i) {
+                throw new SqlException("ON must compare a column of " + table.tableName
+                        + " with a column of a table before it", join.leftPosition);
             }
+            leftColumns.add(leftColumn);
+            rightColumns.add(rightColumn);
+            neededColumns.add(leftColumn);
+            neededColumns.add(rightColumn);
         }
 
-        //Display the result of the query
-        Commands.displayRecords(table, result, columns, allColumns);
+        LogicalPlan plan = null;
+        for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            //the conjuncts of the table are checked on the columns of the table, by their own names
+            HashMap<String, String> tableColumns = new HashMap<>();
+            for (String column : table.columnNames) {
+                tableColumns.put(table.tableName + "." + column, column);
+            }
+            Predicate tablePredicate = tablePredicates.get(i).isEmpty() ? null
+                    : Predicate.and(tablePredicates.get(i)).rename(tableColumns);
+            ArrayList<String> columns = new ArrayList<>();
+            ArrayList<String> names = new ArrayList<>();
+            for (String name : neededColumns) {
+                if (tableOf(tables, name) == table) {
+                    columns.add(tableColumns.get(name));
+                    names.add(name);
+                }
+            }
+            LogicalPlan scan = new LogicalPlan.Project(new LogicalPlan.Scan(table, tablePredicate, columns), columns, names);
+            plan = i == 0 ? scan : new LogicalPlan.Join(plan, scan, leftColumns.get(i - 1), rightColumns.get(i - 1));
+        }
+        if (!joinPredicates.isEmpty()) {
+            plan = new LogicalPlan.Filter(plan, Predicate.and(joinPredicates));
+        }
+        return plan;
+    }
 
+    //groups the records of the plan by the GROUP BY columns and computes the functions of the select list
+    //and of ORDER BY, a plain column of the select list or of ORDER BY has to be a GROUP BY column
+    private static LogicalPlan aggregatePlan(LogicalPlan plan, List<Statement.SelectItem> items,
+                                             List<Statement.SelectItem> groupBy, List<Statement.SelectItem> orderBy) {
+        ArrayList<String> groupColumns = new ArrayList<>();
+        for (Statement.SelectItem item : groupBy) {
+            groupColumns.add(item.column);
+        }
+        ArrayList<String> functions = new ArrayList<>();
+        ArrayList<String> functionColumns = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Statement.SelectItem> allItems = new ArrayList<>(items);
+        allItems.addAll(orderBy);
+        for (Statement.SelectItem item : allItems) {
+            if (!item.isAggregate()) {
+                if (!groupColumns.contains(item.column)) {
+                    throw new SqlException("Column " + item.column
+                            + " must appear in GROUP BY or be used in an aggregate function", item.position);
+                }
+            } else if (!names.contains(item.getName())) {
+                functions.add(item.function);
+                functionColumns.add(item.column);
+                names.add(item.getName());
+            }
+        }
+        return new LogicalPlan.Aggregate(plan, groupColumns, functions, functionColumns);
     }
 
     //Drops and deletes a table and its associated files from the database
-	//input the is list of command tokens extracted from the user command
-    public static void dropTable(ArrayList<String> commandTokens) throws IOException {
-        //check if the command is in the correct format
-        if (!commandTokens.get(1).equalsIgnoreCase("table")) {
-            out.println("Command is Invalid");
+    public static void dropTable(Statement.DropTable drop) throws IOException {
+        if (!Table.isTableExist(drop.tableName)) {
+            out.println("Table " + drop.tableName + " does not exist.");
             return;
         }
-        //Initialize the table to be dropped
-        Table table = new Table(commandTokens.get(2).toLowerCase(), true);
-
-        //Attempt to drop the table and display the result
-        if (table.dropTable()) {
-            
-        } else {
-            
+        //Initialize the table to be dropped and drop it
+        try (Table table = new Table(drop.tableName, true)) {
+            table.dropTable();
         }
     }
 
 
-    //parses and executes the update command, modifying data in the specified table
-	//input is the list of command tokens extracted from the user command
-    public static void parseUpdate(ArrayList<String> commandTokens) throws IOException {
-        //variables necessary under WHERE clause
-        String columnName;
-        Object value;
-        String operator;
-
-        //variables to store column name and column value under SET clause
-        String updateCol;
-        Object updateVal;
+    //executes the analyze command
+    //ANALYZE [<table_name>] computes the statistics of the columns of the table, or of all user tables
+    //without a table name, and records them in argonbase_statistics
+    public static void executeAnalyze(Statement.Analyze analyze) throws IOException {
+        ArrayList<String> tableNames = new ArrayList<>();
+        if (analyze.tableName == null) {
+            for (Record record : Table.tableTable.searchTable(null, null, null)) {
+                String tableName = (String) record.getValues().get(0);
+                if (!isCatalogTable(tableName)) {
+                    tableNames.add(tableName);
+                }
+            }
+        } else {
+            if (!Table.isTableExist(analyze.tableName)) {
+                System.out.println("Table " + analyze.tableName + " does not exist.");
+                return;
+            }
+            tableNames.add(analyze.tableName);
+        }
 
-        //Check if the command structure is in the correct format
-        if (!commandTokens.get(0).equalsIgnoreCase("update") || !commandTokens.get(2).equalsIgnoreCase("set")) {
-            out.println("Invalid Command Syntax");
-            return;
+        for (String tableName : tableNames) {
+            try (Table table = new Table(tableName, !isCatalogTable(tableName))) {
+                System.out.println("Table " + tableName + " analyzed, " + table.analyze() + " rows.");
+            }
         }
+    }
 
-        //Extract table name from the command
-        String tableName = commandTokens.get(1).toLowerCase();
+    //checks whether the table is one of the metadata tables stored in the catalog directory
+    public static boolean isCatalogTable(String tableName) {
+        return tableName.equals(Settings.argonBaseTables) || tableName.equals(Settings.argonBaseColumns)
+                || tableName.equals(Settings.argonBaseIndexes) || tableName.equals(Settings.argonBaseStatistics);
+    }
 
+    //executes the update command, modifying data in the specified table
+    public static void executeUpdate(Statement.Update update, List<Statement.Literal> arguments) throws IOException {
         //Check if the specified table exists
+        String tableName = update.tableName;
         if (!Table.isTableExist(tableName)) {
             out.println("Table " + tableName + " does not exist.");
             return;
         }
 
         //Initialize the table for update operations
-        Table table = new Table(commandTokens.get(1).toLowerCase(), true);
-
-        //Extract column name and value from the SET clause
-        updateCol = commandTokens.get(3);
-        Constants.DataTypes updateColType = table.getColumnType(updateCol);
-        updateVal = DataTools.parseStr(updateColType, commandTokens.get(5));
-
-        //Determine the length of the command tokens array
-        int queryLength = commandTokens.size();
-
-        //check for the WHERE clause and parse its components
-        if (queryLength > 6) {
-            //Check if the WHERE clause is present and if the command length is correct
-            if (!commandTokens.get(6).equalsIgnoreCase("where") && queryLength != 11 && queryLength != 10) {
-                out.println("Invalid Command Syntax");
-                return;
+        try (Table table = new Table(tableName, true)) {
+            //the column and value of the SET clause, NULL is only allowed for a nullable column
+            checkColumn(table, update.column, update.columnPosition);
+            Statement.Literal value = argument(update.value, arguments);
+            if (value.isNull() && !table.colIsNullable.get(table.columnNames.indexOf(update.column))) {
+                throw new SqlException(update.column + " can not be NULL", value.position);
             }
+            Object updateVal = bindValue(table, update.column, update.value, arguments);
 
-            //check for NOT in WHERE clause and extract column name, column value, and operator
-            if (commandTokens.get(5).equalsIgnoreCase("not")) {
-                columnName = commandTokens.get(8).toLowerCase();
-                Constants.DataTypes type = table.getColumnType(columnName);
-                value = DataTools.parseStr(type, commandTokens.get(10));
-                operator = inverseOperator(commandTokens.get(9));
-                
-                //check if the operator is valid
-                if (operator == null) {
-                    out.println("Invalid operator");
-                    return;
-                }
-            } else {
-                //extract column name, operator, and value from WHERE clause
-                columnName = commandTokens.get(7).toLowerCase();
-                Constants.DataTypes type = table.getColumnType(columnName);
-                operator = commandTokens.get(8);
-                value = DataTools.parseStr(type, commandTokens.get(9));
-            }
-        } else {
-            //No WHERE clause provided
-            columnName = null;
-            operator = null;
-            value = null;
-        }
-
-        //Perform the update operation and display the result
-        int updated = table.updateTable(columnName, value, operator, updateCol, updateVal);
-        if (updated > 0)
-            System.out.println(updated + " rows updated!");
-        else
-            System.out.println("update failed!");
-    }
-
-    public static ArrayList<String> commandStringToTokenList(String command) {
-        command = command.replaceAll("\n", " ");    // Remove newlines
-        command = command.replaceAll("\r", " ");    // Remove carriage returns
-        command = command.replaceAll(",", " , ");   // Tokenize commas
-        command = command.replaceAll("\\(", " ( "); // Tokenize left parentheses
-        command = command.replaceAll("\\)", " ) "); // Tokenize right parentheses
-        command = command.replaceAll("( )+", " ");  // Reduce multiple spaces to a single space
-        return new ArrayList<>(Arrays.asList(command.split(" ")));
-    }
-
-
-    //displays records return in a select query as a table
-	//table is the name of the table
-	//selectedColumns are the columns to be displayed as per the select query
-	//allColumns is a boolean to know if there is a '*' wildcard in select query
-    public static void displayRecords(Table table, ArrayList<Record> data, ArrayList<String> selColumns, boolean allColumns) {
-        //Lists to store column numbers and their corresponding sizes for display
-        ArrayList<Integer> columnNum = new ArrayList<>();
-        ArrayList<Integer> colSize = new ArrayList<>();
+            //the optional WHERE clause
+            Predicate predicate = bindWhere(table, update.where, arguments);
 
-        //determine which columns to display based on user input
-        if (allColumns) {
-            for (int i = 0; i < table.columnNames.size(); i++)
-                columnNum.add(i);
-        } else {
-            for (String column : selColumns) {
-                columnNum.add(table.columnNames.indexOf(column.toLowerCase()));
-            }
+            //Perform the update operation and display the result
+            int updated = table.updateTable(predicate, update.column, updateVal);
+            if (updated > 0)
+                System.out.println(updated + " rows updated!");
+            else
+                System.out.println("update failed!");
         }
-
-        //sort the column numbers for consistent display order
-        Collections.sort(columnNum);
+    }
 
 
+    //displays records as a table, the values of the records are named and typed by columnNames and columnTypes
+    public static void displayRecords(ArrayList<String> columnNames, ArrayList<Constants.DataTypes> columnTypes,
+                                      ArrayList<Record> data) {
         //determine the maximum size of each column for proper alignment
-        for (Integer i : columnNum) {
-            int maxLength = table.columnNames.get(i).length();
+        ArrayList<Integer> colSize = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            int maxLength = columnNames.get(i).length();
             
             //Adjust the max length for specific data types
-            Constants.DataTypes type = table.getColumnType(table.columnNames.get(i));
+            Constants.DataTypes type = columnTypes.get(i);
             switch (type) {
                 case YEAR:
                     //year stores 4 digits in YYYY
@@ -750,8 +902,7 @@ public class Commands {
         }
 
         //compute total length of the display, including separators
-        int totalLength = (columnNum.size() - 1) * 3 + 4;
-        //for (int i: colNum) - changed
+        int totalLength = (columnNames.size() - 1) * 3 + 4;
         for (Integer integer : colSize) {
             totalLength += integer;
         }
@@ -761,8 +912,8 @@ public class Commands {
 
         //print column names
         StringBuilder temp = new StringBuilder("|");
-        for (Integer i : columnNum) {
-            temp.append(" ").append(String.format("%-" + colSize.get(i) + "s", table.columnNames.get(i))).append(" |");
+        for (int i = 0; i < columnNames.size(); i++) {
+            temp.append(" ").append(String.format("%-" + colSize.get(i) + "s", columnNames.get(i))).append(" |");
         }
         System.out.println(temp);
 
@@ -773,11 +924,10 @@ public class Commands {
         //print data records
         for (Record datum : data) {
             temp = new StringBuilder("|");
-            for (Integer col : columnNum) {
-                Constants.DataTypes type = table.getColumnType(table.columnNames.get(col));
-                Object val = datum.getValues().get(col);
-                String dataVal = DataTools.toStr(type, val);
-                temp.append(" ").append(String.format("%-" + colSize.get(col) + "s", dataVal)).append(" |");
+            for (int i = 0; i < columnNames.size(); i++) {
+                Object val = datum.getValues().get(i);
+                String dataVal = DataTools.toStr(columnTypes.get(i), val);
+                temp.append(" ").append(String.format("%-" + colSize.get(i) + "s", dataVal)).append(" |");
             }
             System.out.println(temp);
         }
@@ -838,8 +988,9 @@ public class Commands {
         String invertedOperator;
 		switch(operator){
 			case "=":
-				invertedOperator = "!=";
+				invertedOperator = "<>";
 				break;
+			case "<>":
 			case "!=":
 				invertedOperator = "=";
 				break;
@@ -869,20 +1020,52 @@ public class Commands {
     public static void help() {
         out.println(Utils.printSeparator("*", 80));
         out.println("SUPPORTED COMMANDS\n");
-        out.println("All commands below are case insensitive\n");
+        out.println("All commands below are case insensitive");
+        out.println("Values holding spaces or symbols are written in single quotes, e.g. 'New York'\n");
         out.println("SHOW TABLES;");
         out.println("\tDisplay the names of all tables.\n");
         out.println("CREATE TABLE <table_name> ( <column_name> <data_type> [NOT_NULL] [UNIQUE] [PRIMARY_KEY]);\n");
         out.println("\tCreates a table with the columns, datatypes, and constraints \n");
+        out.println("CREATE INDEX <index_name> ON <table_name> [USING BTREE|HASH|BITMAP] ( <column_name>, ... ) [INCLUDE ( <column_name>, ... )];\n");
+        out.println("\tCreates an index on the columns, included columns are stored in the index \n");
+        out.println("CREATE INDEX <index_name> ON <table_name> ( <column_name>, ... ) WHERE <condition> [AND ...];\n");
+        out.println("\tCreates a partial index holding only the rows matching the conditions \n");
+        out.println("CREATE BITMAP INDEX <index_name> ON <table_name> ( <column_name> );\n");
+        out.println("\tCreates a bitmap index on a column with few distinct values \n");
+        out.println("CREATE [BITMAP] INDEX CONCURRENTLY <index_name> ON <table_name> ...;\n");
+        out.println("\tBuilds the index in the background while the table stays in use \n");
         out.println("SELECT column_list FROM table_name [WHERE condition];\n");
         out.println("\tDisplay table records whose optional condition \n");
-        out.println("\tis <column_name> = <value>.\n");
+        out.println("\tis <column_name> = <value>, conditions can be joined with AND and OR,");
+        out.println("\tgrouped in parentheses and negated with NOT. A condition may also be");
+        out.println("\t<column_name> IS [NOT] NULL, <column_name> [NOT] IN (value1, value2, ...)");
+        out.println("\tor <column_name> [NOT] BETWEEN value1 AND value2.\n");
+        out.println("SELECT COUNT(*) FROM table_name [WHERE condition];\n");
+        out.println("\tDisplay the number of table records matching the optional condition.\n");
+        out.println("SELECT column_list FROM table_name [WHERE condition] [GROUP BY column_list]");
+        out.println("    [ORDER BY column [ASC|DESC], ...] [LIMIT count];\n");
+        out.println("\tThe column list may hold COUNT(*), COUNT, SUM, MIN, MAX and AVG of a column,");
+        out.println("\tits other columns have to be GROUP BY columns. NULL sorts last.\n");
+        out.println("SELECT column_list FROM table1 [INNER] JOIN table2 ON table1.column = table2.column ...;\n");
+        out.println("\tJoin the records of the tables whose columns are equal, a column may be");
+        out.println("\tqualified by its table as table.column and has to be if both tables have it.\n");
         out.println("INSERT INTO (column1, column2, ...) table_name VALUES (value1, value2, ...);\n");
         out.println("\tInsert new record into the table. \n");
         out.println("INSERT INTO table_name VALUES (value1, value2, ...);\n");
         out.println("\tInsert new record into the table. \n");
         out.println("UPDATE <table_name> SET <column_name> = <value> [WHERE <condition>];");
         out.println("\tModify records data whose optional <condition> is\n");
+        out.println("EXPLAIN <select>;");
+        out.println("\tDisplay the plan of the query with the estimated cost of reading its table.\n");
+        out.println("PREPARE <name> AS <statement>;");
+        out.println("\tPrepare a SELECT, INSERT, UPDATE or DELETE whose values may be parameters ?.\n");
+        out.println("EXECUTE <name> [(value1, value2, ...)];");
+        out.println("\tExecute a prepared statement with the values of its parameters.\n");
+        out.println("DEALLOCATE [PREPARE] <name>;");
+        out.println("\tRemove a prepared statement.\n");
+        out.println("ANALYZE [table_name];");
+        out.println("\tCompute the statistics of the columns of the table, or of all tables,");
+        out.println("\tand record them in argonbase_statistics.\n");
         out.println("DROP TABLE table_name;");
         out.println("\tRemove table data (i.e. all records) and its schema.\n");
         out.println("DELETE FROM TABLE <table_name> [WHERE <condition>];\n");
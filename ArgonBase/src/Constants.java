@@ -13,6 +13,14 @@ public class Constants {
         TABLE_LEAF(0x0A),
         //page type for index leaf pages initialized with hexadecimal 0x0D 
         INDEX_LEAF(0x0D),
+        //page type for hash index directory pages initialized with hexadecimal 0x03
+        HASH_DIRECTORY(0x03),
+        //page type for hash index bucket pages initialized with hexadecimal 0x0B
+        HASH_BUCKET(0x0B),
+        //page type for index posting list pages initialized with hexadecimal 0x0E
+        INDEX_POSTING(0x0E),
+        //page type for bitmap index pages initialized with hexadecimal 0x0F
+        INDEX_BITMAP(0x0F),
         //page type for empty pages initialized with hexadecimal 0x00 
         EMPTY(0x00),
         //page type for invalid pages initialized with hexadecimal 0xF 
@@ -0,0 +1,352 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Estimates the number of records matching conditions and the cost of reading them, for Planner to choose
+ * between a table scan and the index searches that can answer the conditions
+ * A cost counts page reads: a page read in file order costs SEQUENTIAL_PAGE_COST, a page read out of order
+ * RANDOM_PAGE_COST, and each record handled adds ROW_COST
+ * Selectivities come from the statistics ANALYZE records, see ColumnStatistics: an equality matches the
+ * non-null rows spread over the distinct values and a range matches the part of the histogram it covers
+ * Without statistics an equality on a PRIMARY KEY or UNIQUE column matches one row, another equality
+ * DEFAULT_EQUAL_SELECTIVITY of the rows and a range DEFAULT_RANGE_SELECTIVITY of them
+ * Conditions on different columns are taken to be independent, so their selectivities are multiplied for
+ * AND, and an OR matches the rows not left out by every one of its operands, a lower and an upper bound
+ * on the same column searched as one range match the part of the histogram between them
+ * A join is costed on top of the costs of its inputs: a HashJoin handles each record once more and a
+ * build input spilled to partition files is written and read again, a MergeJoin only compares its
+ * sorted inputs, and an IndexNestedLoopJoin replaces reading its inner table by index lookups
+ */
+public class CostModel {
+    //cost of reading a page in file order and out of order
+    public static final double SEQUENTIAL_PAGE_COST = 1.0;
+    public static final double RANDOM_PAGE_COST = 4.0;
+    //cost of handling one record
+    public static final double ROW_COST = 0.01;
+    //fractions of the rows matched by an equality or a range condition on a column without statistics
+    public static final double DEFAULT_EQUAL_SELECTIVITY = 0.005;
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    //returns the number of rows of the table, row IDs are given in ascending order from 0 so the last one
+    //bounds the number of rows without reading the table
+    public static double rowCount(Table table) throws IOException {
+        return Math.max(0, table.tableFile.getLastRowId() + 1);
+    }
+
+    //returns the number of pages of the table file
+    public static double pageCount(Table table) throws IOException {
+        return (double) (table.tableFile.length() / Constants.PAGE_SIZE);
+    }
+
+    //returns the fraction of the rows of the table matching the predicate, 1 for a null predicate
+    //IS NULL matches the null fraction of the column, DEFAULT_EQUAL_SELECTIVITY without statistics
+    public static double selectivity(Table table, Predicate predicate) throws IOException {
+        if (predicate == null) {
+            return 1.0;
+        }
+        switch (predicate.kind) {
+            case COMPARISON:
+                return selectivity(table, predicate.column, predicate.operator, predicate.value);
+            case IS_NULL:
+            case IS_NOT_NULL:
+                ColumnStatistics statistics = Catalog.getStatistics(table.tableName, predicate.column);
+                double nulls = statistics == null ? DEFAULT_EQUAL_SELECTIVITY : statistics.nullFraction;
+                return predicate.kind == Predicate.Kind.IS_NULL ? nulls : 1.0 - nulls;
+            case AND:
+                //a lower and an upper bound on the same column are taken together, see rangeSelectivity
+                double selectivity = 1.0;
+                ArrayList<Predicate> operands = new ArrayList<>(predicate.operands);
+                while (!operands.isEmpty()) {
+                    Predicate operand = operands.remove(0);
+                    Predicate opposite = oppositeBound(operand, operands);
+                    if (opposite == null) {
+                        selectivity *= selectivity(table, operand);
+                    } else {
+                        operands.remove(opposite);
+                        selectivity *= rangeSelectivity(table, operand.column, operand.operator, operand.value,
+                                opposite.operator, opposite.value);
+                    }
+                }
+                return selectivity;
+            default:
+                double unmatched = 1.0;
+                for (Predicate operand : predicate.operands) {
+                    unmatched *= 1.0 - selectivity(table, operand);
+                }
+                return 1.0 - unmatched;
+        }
+    }
+
+    //returns the fraction of the rows of the table matching the condition <column> <operator> <value>
+    public static double selectivity(Table table, String column, String operator, Object value) throws IOException {
+        //a NULL value never matches
+        if (value == null) {
+            return 0.0;
+        }
+        ColumnStatistics statistics = Catalog.getStatistics(table.tableName, column);
+        double equal = equalSelectivity(table, column);
+        if (statistics == null) {
+            switch (operator) {
+                case "=":
+                    return equal;
+                case "<>":
+                    return 1.0 - equal;
+                default:
+                    return DEFAULT_RANGE_SELECTIVITY;
+            }
+        }
+
+        double nonNull = 1.0 - statistics.nullFraction;
+        double below = nonNull * fractionBelow(statistics, value);
+        //the bounds of a column with few distinct values list them all, a range only ends on a listed value
+        double bound = equal;
+        if (statistics.distinctValues <= statistics.histogramBounds.size()) {
+            bound = 0.0;
+            for (String histogramBound : statistics.histogramBounds) {
+                if (compareBound(histogramBound, value) == 0) {
+                    bound = equal;
+                }
+            }
+        }
+        double selectivity;
+        switch (operator) {
+            case "=":
+                selectivity = equal;
+                break;
+            case "<>":
+                selectivity = nonNull - equal;
+                break;
+            case "<":
+                selectivity = below;
+                break;
+            case "<=":
+                selectivity = below + bound;
+                break;
+            case ">":
+                selectivity = nonNull - below - bound;
+                break;
+            default:
+                selectivity = nonNull - below;
+                break;
+        }
+        return Math.min(1.0, Math.max(0.0, selectivity));
+    }
+
+    //returns the fraction of the rows of the table matching both range conditions on the column, a lower
+    //and an upper bound, which is what the two leave of the non-null rows
+    //without statistics the conditions are taken to be independent like those of an AND
+    public static double rangeSelectivity(Table table, String column, String operator1, Object value1,
+                                          String operator2, Object value2) throws IOException {
+        double selectivity1 = selectivity(table, column, operator1, value1);
+        double selectivity2 = selectivity(table, column, operator2, value2);
+        ColumnStatistics statistics = Catalog.getStatistics(table.tableName, column);
+        if (statistics == null || value1 == null || value2 == null) {
+            return selectivity1 * selectivity2;
+        }
+        return Math.max(0.0, selectivity1 + selectivity2 - (1.0 - statistics.nullFraction));
+    }
+
+    //returns the comparison among the operands bounding the column of the range comparison from the other
+    //side, null if there is none or the operand is no range comparison
+    private static Predicate oppositeBound(Predicate operand, List<Predicate> operands) {
+        if (!operand.isComparison() || operand.operator.equals("=") || operand.operator.equals("<>")) {
+            return null;
+        }
+        String opposite = operand.operator.startsWith(">") ? "<" : ">";
+        for (Predicate other : operands) {
+            if (other.isComparison() && other.column.equals(operand.column) && other.operator.startsWith(opposite)
+                    && !other.operator.equals("<>")) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    //returns the fraction of the rows of the table an equality on the column matches, whatever its value
+    public static double equalSelectivity(Table table, String column) throws IOException {
+        ColumnStatistics statistics = Catalog.getStatistics(table.tableName, column);
+        if (statistics == null) {
+            Catalog.TableSchema schema = Catalog.getTable(table.tableName);
+            if (schema != null && schema.getKeyColumns().contains(column)) {
+                return 1.0 / Math.max(1.0, rowCount(table));
+            }
+            return DEFAULT_EQUAL_SELECTIVITY;
+        }
+        return statistics.distinctValues == 0 ? 0.0 : (1.0 - statistics.nullFraction) / statistics.distinctValues;
+    }
+
+    //returns the fraction of the non-null values of the column smaller than the value
+    //the value is placed among the histogram bounds, within a bucket numbers are interpolated linearly
+    //a histogram of a column with few distinct values holds each value once, its values are counted
+    private static double fractionBelow(ColumnStatistics statistics, Object value) {
+        ArrayList<String> bounds = statistics.histogramBounds;
+        if (bounds.isEmpty()) {
+            return 0.5;
+        }
+        if (statistics.distinctValues <= bounds.size()) {
+            int smaller = 0;
+            while (smaller < bounds.size() && compareBound(bounds.get(smaller), value) < 0) {
+                smaller++;
+            }
+            return (double) smaller / bounds.size();
+        }
+
+        int buckets = bounds.size() - 1;
+        if (compareBound(bounds.get(0), value) >= 0) {
+            return 0.0;
+        }
+        if (compareBound(bounds.get(buckets), value) < 0) {
+            return 1.0;
+        }
+        //the bucket whose lower bound is below the value and whose upper bound is not
+        int bucket = 0;
+        while (compareBound(bounds.get(bucket + 1), value) < 0) {
+            bucket++;
+        }
+        double within = 0.5;
+        if (value instanceof Number) {
+            double low = Double.parseDouble(bounds.get(bucket));
+            double high = Double.parseDouble(bounds.get(bucket + 1));
+            if (high > low) {
+                within = (((Number) value).doubleValue() - low) / (high - low);
+            }
+        }
+        return (bucket + within) / buckets;
+    }
+
+    //compares a histogram bound with a value, numbers by their value and TEXT by its characters
+    private static int compareBound(String bound, Object value) {
+        if (value instanceof Number) {
+            return Double.compare(Double.parseDouble(bound), ((Number) value).doubleValue());
+        }
+        return bound.compareTo(value.toString());
+    }
+
+    //returns the cost of reading all records of the table in file order
+    public static double tableScanCost(Table table) throws IOException {
+        return pageCount(table) * SEQUENTIAL_PAGE_COST + rowCount(table) * ROW_COST;
+    }
+
+    //returns the cost of reading the records of the table matching a condition through the index, the
+    //condition matches the given fraction of the rows
+    //the index is searched from its root and its entries in range are read, a covering index ends there
+    //otherwise the records are fetched from the table by row ID, either in batches of IndexScan.BATCH_SIZE
+    //taken in index order, or, with sortedFetch, all at once in row ID order so no table page is read twice
+    public static double indexScanCost(Table table, IndexDefinition index, double selectivity, boolean covering,
+                                       boolean sortedFetch) throws IOException {
+        double rows = rowCount(table) * selectivity;
+        double cost = indexSearchCost(table, index, selectivity) + rows * ROW_COST;
+        if (covering) {
+            return cost;
+        }
+        double tablePages = pageCount(table);
+        if (sortedFetch) {
+            //the row IDs are sorted before the records are fetched
+            double sortCost = rows * ROW_COST * Math.log(Math.max(2.0, rows)) / Math.log(2);
+            return cost + sortCost + sortedFetchCost(tablePages, rows) + rows * ROW_COST;
+        }
+        //each batch is fetched in row ID order, but the pages of one batch are read again by the next
+        double batches = Math.ceil(rows / IndexScan.BATCH_SIZE);
+        return cost + batches * sortedFetchCost(tablePages, Math.min(rows, IndexScan.BATCH_SIZE)) + rows * ROW_COST;
+    }
+
+    //returns the cost of searching the index of every comparison of the predicate, combining the row IDs
+    //found into bitmaps, see BitmapScan, and fetching the records of the remaining row IDs in row ID order
+    public static double bitmapScanCost(Table table, Predicate predicate) throws IOException {
+        double rows = rowCount(table) * selectivity(table, predicate);
+        return bitmapSearchCost(table, predicate) + sortedFetchCost(pageCount(table), rows) + rows * ROW_COST;
+    }
+
+    //returns the cost of counting the rows matching the predicate from the row IDs the indexes of its
+    //comparisons find, see BitmapCount, no record is read
+    public static double bitmapCountCost(Table table, Predicate predicate) throws IOException {
+        return bitmapSearchCost(table, predicate);
+    }
+
+    //returns the cost of the index searches of the comparisons of the predicate, each adding the row IDs
+    //it finds to a bitmap
+    private static double bitmapSearchCost(Table table, Predicate predicate) throws IOException {
+        if (predicate.isComparison()) {
+            double selectivity = selectivity(table, predicate);
+            IndexDefinition index = table.findIndex(predicate.column, null, predicate.operator, predicate.value);
+            return indexSearchCost(table, index, selectivity) + rowCount(table) * selectivity * ROW_COST;
+        }
+        double cost = 0.0;
+        for (Predicate operand : predicate.operands) {
+            cost += bitmapSearchCost(table, operand);
+        }
+        return cost;
+    }
+
+    //returns the cost of a HashJoin of its inputs, without the cost of reading them
+    //a build record is hashed and a probe record looked up, a build input needing more memory than
+    //Settings.getJoinMemory() is written to partition files together with the probe input and read back
+    public static double hashJoinCost(double buildRows, int buildColumns, double probeRows, int probeColumns) {
+        double cost = (2 * buildRows + probeRows) * ROW_COST;
+        double buildMemory = HashJoin.estimateMemory(buildRows, buildColumns);
+        if (buildMemory > Settings.getJoinMemory()) {
+            double pages = (buildMemory + HashJoin.estimateMemory(probeRows, probeColumns)) / Constants.PAGE_SIZE;
+            cost += 2 * pages * SEQUENTIAL_PAGE_COST + (buildRows + probeRows) * ROW_COST;
+        }
+        return cost;
+    }
+
+    //returns the cost of a MergeJoin of inputs sorted by their join columns, without the cost of reading them
+    public static double mergeJoinCost(double leftRows, double rightRows) {
+        return (leftRows + rightRows) * ROW_COST;
+    }
+
+    //returns the cost of an IndexNestedLoopJoin looking up the join values of the outer rows in the index
+    //on the column of the table, without the cost of reading the outer rows
+    //the values of a batch of IndexNestedLoopJoin.BATCH_SIZE outer rows are looked up in sorted order, so
+    //a B-tree index is descended once and each of its leaf pages holding them is read once, a hash index
+    //reads a bucket for each value, the records found are then fetched in row ID order, at most
+    //IndexNestedLoopJoin.FETCH_SIZE of them at a time
+    public static double indexNestedLoopCost(Table table, IndexDefinition index, String column, double outerRows)
+            throws IOException {
+        double batches = Math.ceil(outerRows / IndexNestedLoopJoin.BATCH_SIZE);
+        double batchValues = Math.min(outerRows, IndexNestedLoopJoin.BATCH_SIZE);
+        double batchRows = batchValues * rowCount(table) * equalSelectivity(table, column);
+        double lookupCost;
+        try (IndexFile indexFile = table.getIndexFile(index)) {
+            double indexPages = (double) (indexFile.length() / Constants.PAGE_SIZE);
+            if (index.isHash()) {
+                lookupCost = batchValues * indexFile.getHeight() * RANDOM_PAGE_COST;
+            } else {
+                lookupCost = (indexFile.getHeight() + pagesFetched(indexPages, batchValues)) * RANDOM_PAGE_COST;
+            }
+        }
+        double fetches = Math.max(1, Math.ceil(batchRows / IndexNestedLoopJoin.FETCH_SIZE));
+        double fetchCost = fetches * sortedFetchCost(pageCount(table), Math.min(batchRows, IndexNestedLoopJoin.FETCH_SIZE))
+                + 2 * batchRows * ROW_COST;
+        return batches * (lookupCost + fetchCost) + outerRows * ROW_COST;
+    }
+
+    //returns the cost of descending the index and reading the part of its pages the condition covers
+    private static double indexSearchCost(Table table, IndexDefinition index, double selectivity) throws IOException {
+        try (IndexFile indexFile = table.getIndexFile(index)) {
+            double indexPages = (double) (indexFile.length() / Constants.PAGE_SIZE);
+            return indexFile.getHeight() * RANDOM_PAGE_COST + indexPages * selectivity * SEQUENTIAL_PAGE_COST;
+        }
+    }
+
+    //returns the cost of fetching rows spread over the pages in row ID order, reading few of the pages
+    //costs a random read each, reading most of them comes close to reading the file in order
+    private static double sortedFetchCost(double pages, double rows) {
+        double fetched = pagesFetched(pages, rows);
+        if (pages <= 0) {
+            return 0.0;
+        }
+        double pageCost = RANDOM_PAGE_COST - (RANDOM_PAGE_COST - SEQUENTIAL_PAGE_COST) * Math.sqrt(fetched / pages);
+        return fetched * pageCost;
+    }
+
+    //returns the expected number of distinct pages holding the given number of rows picked at random
+    //among the rows spread over the pages
+    public static double pagesFetched(double pages, double rows) {
+        if (pages <= 0 || rows <= 0) {
+            return 0.0;
+        }
+        return pages * (1.0 - Math.pow(1.0 - 1.0 / pages, rows));
+    }
+}
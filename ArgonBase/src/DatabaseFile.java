@@ -21,23 +21,39 @@ public abstract class DatabaseFile extends RandomAccessFile {
         }
     }
 
+    //a file shared through FileManager stays open, closing it releases the reference of the caller
+    @Override
+    public void close() throws IOException {
+        if (!FileManager.release(this)) {
+            closeFile();
+        }
+    }
+
+    //closes the file itself, used by FileManager
+    void closeFile() throws IOException {
+        super.close();
+    }
+
 
     //Creates a new page with the specified parent page and page type
     //return the index of the created page
     public int createPage(int parentPage, Constants.PageType pageType) throws IOException {
-        //iterate through existing pages to find any empty page slot
-        for (int p = 0; p < this.length() / pageSize; p++){
+        //by default the new page is appended after the last page of the file
+        int pageCount = (int) (this.length() / pageSize);
+        lastPageIndex = pageCount;
+
+        //iterate through existing pages to reuse the first empty page slot
+        for (int p = 0; p < pageCount; p++){
             if (getPageType(p) == Constants.PageType.EMPTY) {
-                //update lastPageIndex to the index of the last empty page found
-                lastPageIndex = p - 1;
+                lastPageIndex = p;
+                break;
             }
         }
 
-        //move to the next available page index
-        lastPageIndex++;
-
         //adjust file length to accomodate the new page
-        this.setLength((long) (lastPageIndex + 1) * pageSize);
+        if (lastPageIndex == pageCount) {
+            this.setLength((long) (lastPageIndex + 1) * pageSize);
+        }
 
         //move the file pointer to the beginning of the new page
         this.seek((long) lastPageIndex * pageSize);
@@ -70,6 +86,11 @@ public abstract class DatabaseFile extends RandomAccessFile {
         return lastPageIndex;
     }
 
+    //returns the size of the page header, the cell pointer array starts right after it
+    public int getHeaderSize() {
+        return 0x10;
+    }
+
     //returns the starting offset of the content on the specified page
     public short getStartContent(int page) throws IOException {
         //move the file pointer to the location of the content start in the page header
@@ -87,6 +108,15 @@ public abstract class DatabaseFile extends RandomAccessFile {
         return this.readInt();
     }
 
+    //Sets the parent page index of the specified page
+    public void setParentPage(int page, int parentPage) throws IOException {
+        //move the file pointer to the location of the parent page information in the page header
+        this.seek((long) page * pageSize + 0x0A);
+
+        //write the parent page index
+        this.writeInt(parentPage);
+    }
+
     //Retrieves the root page index by iteratively following parent page links until reaching the root
     public int getRootPage() throws IOException {
         //start from the first page
@@ -141,8 +171,8 @@ public abstract class DatabaseFile extends RandomAccessFile {
     public boolean split(int page, int cellSize) throws IOException {
         //retrieve the current number of cells on the page
         short numberOfCells = getCellCount(page);
-        //calculate the header size of the page
-        short headerSize = (short) (0x10 + (2 * numberOfCells + 1));
+        //calculate the header size of the page including the pointer of the new cell
+        short headerSize = (short) (getHeaderSize() + 2 * (numberOfCells + 1));
         //check if the available free space is less than the required space for the new cell
         return getStartContent(page) - cellSize < headerSize;
     }
@@ -154,7 +184,7 @@ public abstract class DatabaseFile extends RandomAccessFile {
             return getCellOffset(page, 0);
         }
         //move the file pointer to the location of the cell offset in the page header
-        this.seek((long) page * pageSize + 0x10 + (2L * cellNumber));
+        this.seek((long) page * pageSize + getHeaderSize() + (2L * cellNumber));
 
         //read and return the offset of the specified cell
         return this.readShort();
@@ -259,14 +289,14 @@ public abstract class DatabaseFile extends RandomAccessFile {
         int numberOfCells = getCellCount(page);
        
          //update offsets of shifted cells
-        this.seek((long) page * pageSize + 0x10 + (precedingCell + 1) * 2L);
+        this.seek((long) page * pageSize + getHeaderSize() + (precedingCell + 1) * 2L);
         byte[] oldOffsets = new byte[(numberOfCells - precedingCell - 1) * 2];
         this.read(oldOffsets);
 
          //if we are adding a new record, leave room for it's offset
         //if we are removing a record, remove it's offset
         //if we are not chaning the number of records, don't change the offsets
-        this.seek((long) page * pageSize + 0x10 + (precedingCell + 1 + newRecord) * 2L);
+        this.seek((long) page * pageSize + getHeaderSize() + (precedingCell + 1 + newRecord) * 2L);
 
         for (int i = 0; i < oldOffsets.length; i += 2) {
             short oldOffset = (short) ((oldOffsets[i] << 8) | (oldOffsets[i + 1] & 0xFF));
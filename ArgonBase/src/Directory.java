@@ -75,7 +75,7 @@ public class Directory {
 
 
 
-     //create new argonbase tables table and columns table
+     //create new argonbase tables table, columns table, indexes table and statistics table
     public static void createCatalogTables() throws IOException {
         //append the .tbl extension to all table files
         File argonBaseTablesFile = new File(Settings.getCatalogDirectory() + "/" + Settings.argonBaseTables + ".tbl");
@@ -87,6 +87,14 @@ public class Directory {
         //check if the argonBase_columns table exists
         boolean isColumnExist = argonBaseColumnsFile.exists();
 
+        File argonBaseIndexesFile = new File(Settings.getCatalogDirectory() + "/" + Settings.argonBaseIndexes + ".tbl");
+        //check if the argonBase_indexes table exists
+        boolean isIndexExist = argonBaseIndexesFile.exists();
+
+        File argonBaseStatisticsFile = new File(Settings.getCatalogDirectory() + "/" + Settings.argonBaseStatistics + ".tbl");
+        //check if the argonBase_statistics table exists
+        boolean isStatisticsExist = argonBaseStatisticsFile.exists();
+
 
         // create meta data tables
         Table argonBaseColumns = new Table(
@@ -130,8 +138,64 @@ public class Directory {
         );
         
 
+        Table argonBaseIndexes = new Table(
+             // table name
+            Settings.argonBaseIndexes,
+            // column names
+            new ArrayList<>(Arrays.asList(
+                "table_name",
+                "index_name",
+                "column_names",
+                "include_columns",
+                "index_type",
+                "predicate"
+            )),
+            // column types
+            new ArrayList<>(Arrays.asList(
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT
+            )),
+            // column is nullable
+            new ArrayList<>(Arrays.asList(false,false,false,true,true,true)),
+            // check if user table
+            false
+        );
+
+        Table argonBaseStatistics = new Table(
+             // table name
+            Settings.argonBaseStatistics,
+            // column names
+            new ArrayList<>(Arrays.asList(
+                "table_name",
+                "column_name",
+                "row_count",
+                "null_fraction",
+                "distinct_values",
+                "histogram_bounds"
+            )),
+            // column types
+            new ArrayList<>(Arrays.asList(
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.TEXT,
+                Constants.DataTypes.INT,
+                Constants.DataTypes.DOUBLE,
+                Constants.DataTypes.INT,
+                Constants.DataTypes.TEXT
+            )),
+            // column is nullable
+            new ArrayList<>(Arrays.asList(false,false,false,false,false,true)),
+            // check if user table
+            false
+        );
+
         Table.tableTable = argonBaseTables;
         Table.columnTable = argonBaseColumns;
+        Table.indexTable = argonBaseIndexes;
+        Table.statisticsTable = argonBaseStatistics;
 
         if (!isTableExist) {
             // insert into tables metadata
@@ -156,6 +220,43 @@ public class Directory {
             argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseColumns, "column_key",
                     "TEXT", (byte) 6, "No", null)));
         }
+
+        //data directories created before indexes were recorded get the indexes table added
+        if (!isIndexExist) {
+            argonBaseTables.insertRecord(new ArrayList<>(List.of(Settings.argonBaseIndexes)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "table_name",
+                    "TEXT", (byte) 1, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "index_name",
+                    "TEXT", (byte) 2, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "column_names",
+                    "TEXT", (byte) 3, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "include_columns",
+                    "TEXT", (byte) 4, "YES", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "index_type",
+                    "TEXT", (byte) 5, "YES", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseIndexes, "predicate",
+                    "TEXT", (byte) 6, "YES", null)));
+        }
+
+        //data directories created before ANALYZE get the statistics table added
+        if (!isStatisticsExist) {
+            argonBaseTables.insertRecord(new ArrayList<>(List.of(Settings.argonBaseStatistics)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "table_name",
+                    "TEXT", (byte) 1, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "column_name",
+                    "TEXT", (byte) 2, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "row_count",
+                    "INT", (byte) 3, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "null_fraction",
+                    "DOUBLE", (byte) 4, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "distinct_values",
+                    "INT", (byte) 5, "No", null)));
+            argonBaseColumns.insertRecord(new ArrayList<>(Arrays.asList(Settings.argonBaseStatistics, "histogram_bounds",
+                    "TEXT", (byte) 6, "YES", null)));
+        }
+
+        //read the schemas once, statements look them up in the in-memory catalog from now on
+        Catalog.load();
     }
 
 }
@@ -0,0 +1,133 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Keeps the table and index files open between statements
+ * Every file is opened once and its handle is shared by all users, each open counts a reference and
+ * close on the handle releases it again while the file stays open
+ * A handle is only closed for real once DDL invalidates it and its last reference is released, or on exit
+ * Statements and background index builds take turns on the shared files through LOCK
+ */
+public class FileManager {
+    //held by a statement while it runs and by an index build for each of its steps, the lock is fair
+    //so a waiting statement runs before the next step of a build
+    public static final ReentrantLock LOCK = new ReentrantLock(true);
+
+    //a shared file and the number of references to it
+    private static class Handle {
+        final DatabaseFile file;
+        int references;
+        //set once DDL removed the handle from the cache, the file is closed with its last reference
+        boolean invalidated;
+
+        Handle(DatabaseFile file) {
+            this.file = file;
+        }
+    }
+
+    //opens a file that has no handle yet
+    private interface Opener {
+        DatabaseFile open() throws IOException;
+    }
+
+    //open handles by the path of their file
+    private static final HashMap<String, Handle> handles = new HashMap<>();
+    //the same handles by their file, to find the handle released by close
+    private static final IdentityHashMap<DatabaseFile, Handle> files = new IdentityHashMap<>();
+
+    //returns the shared handle of the table file
+    public static TableFile openTableFile(String tableName, String path) throws IOException {
+        return (TableFile) acquire(path + "/" + tableName + ".tbl", () -> new TableFile(tableName, path));
+    }
+
+    //returns the shared handle of the index file
+    public static IndexFile openIndexFile(Table table, IndexDefinition index, String path) throws IOException {
+        return (IndexFile) acquire(path + "/" + index.getFileName(), () -> newIndexFile(table, index, path));
+    }
+
+    //opens the index file as the file class of the index type, the file is not shared
+    //a file written in an older format, see IndexFile.FORMAT_VERSION, is deleted and built again from the table,
+    //a file written in a newer format is refused
+    public static IndexFile newIndexFile(Table table, IndexDefinition index, String path) throws IOException {
+        IndexFile indexFile = openIndexFileOfType(table, index, path);
+        int version = indexFile.getFormatVersion();
+        if (version == IndexFile.FORMAT_VERSION) {
+            return indexFile;
+        }
+        indexFile.closeFile();
+        if (version > IndexFile.FORMAT_VERSION) {
+            throw new IOException("Index file " + index.getFileName() + " has format version " + version
+                    + ", this version of ArgonBase reads version " + IndexFile.FORMAT_VERSION);
+        }
+        new File(path + "/" + index.getFileName()).delete();
+        new File(path + "/" + index.getBloomFileName()).delete();
+        indexFile = openIndexFileOfType(table, index, path);
+        indexFile.populateIndex();
+        indexFile.rebuildBloomFilter();
+        return indexFile;
+    }
+
+    //opens the index file as the file class of the index type, creating it if it does not exist
+    private static IndexFile openIndexFileOfType(Table table, IndexDefinition index, String path) throws IOException {
+        if (index.isHash()) {
+            return new HashIndexFile(table, index, path);
+        }
+        if (index.isBitmap()) {
+            return new BitmapIndexFile(table, index, path);
+        }
+        return new BTreeIndexFile(table, index, path);
+    }
+
+    //returns the handle of the file, opening it if there is none, and counts a reference
+    private static DatabaseFile acquire(String key, Opener opener) throws IOException {
+        Handle handle = handles.get(key);
+        if (handle == null) {
+            handle = new Handle(opener.open());
+            handles.put(key, handle);
+            files.put(handle.file, handle);
+        }
+        handle.references++;
+        return handle.file;
+    }
+
+    //releases a reference to a shared file, an invalidated file is closed with its last reference
+    //returns false if the file is not shared through the manager
+    public static boolean release(DatabaseFile file) throws IOException {
+        Handle handle = files.get(file);
+        if (handle == null) {
+            return false;
+        }
+        if (handle.references > 0) {
+            handle.references--;
+        }
+        if (handle.invalidated && handle.references == 0) {
+            files.remove(file);
+            file.closeFile();
+        }
+        return true;
+    }
+
+    //removes the handle of a file after DDL changed or deleted it, the next open opens the file again
+    //the file is closed right away unless it is still referenced
+    public static void invalidate(String path, String fileName) throws IOException {
+        Handle handle = handles.remove(path + "/" + fileName);
+        if (handle == null) {
+            return;
+        }
+        handle.invalidated = true;
+        if (handle.references == 0) {
+            files.remove(handle.file);
+            handle.file.closeFile();
+        }
+    }
+
+    //closes all files, used on exit
+    public static void closeAll() throws IOException {
+        for (Handle handle : files.values()) {
+            handle.file.closeFile();
+        }
+        handles.clear();
+        files.clear();
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Passes on the records of its input matching a predicate, see Predicate
+ * A condition on a column the input does not have matches no record
+ */
+public class Filter extends Operator {
+    private final Operator input;
+    private final Predicate predicate;
+    //the predicate bound to the columns of the input
+    private Predicate bound;
+
+    //Creates a filter keeping the records of the input matching all conditions <column> <operator> <value>
+    public Filter(Operator input, ArrayList<String> columns, ArrayList<Object> values, ArrayList<String> operators) {
+        this(input, Predicate.and(columns, values, operators));
+    }
+
+    //Creates a filter keeping the records of the input matching the predicate
+    public Filter(Operator input, Predicate predicate) {
+        super(input.columnNames, input.columnTypes);
+        this.input = input;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        bound = predicate.bind(input.columnNames);
+        input.open();
+    }
+
+    @Override
+    public Record next() throws IOException {
+        Record record;
+        while ((record = input.next()) != null) {
+            if (bound.matches(record)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return input.isOrderedBy(columnName);
+    }
+
+    @Override
+    public String describe() {
+        return "Filter (" + predicate + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
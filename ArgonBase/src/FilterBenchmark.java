@@ -0,0 +1,159 @@
+import java.util.*;
+
+/*
+ * Compares the filter kernels with the scalar loops of VectorFilter on random INT, BIGINT and DOUBLE
+ * columns, for each operator
+ * Both paths must select the same rows, the time per row of each is printed
+ * USAGE: java FilterBenchmark [rows]
+ */
+public class FilterBenchmark {
+    private static final String[] OPERATORS = {"=", "<>", "<", "<=", ">", ">="};
+    //number of times each batch is filtered by each path
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int batchSize = ColumnBatch.BATCH_SIZE;
+        int batches = Math.max(1, rows / batchSize);
+        Random random = new Random(42);
+
+        int[][] ints = new int[batches][batchSize];
+        long[][] longs = new long[batches][batchSize];
+        double[][] doubles = new double[batches][batchSize];
+        boolean[][] nulls = new boolean[batches][batchSize];
+        int[] intExtremes = {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1};
+        long[] longExtremes = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1};
+        double[] doubleExtremes = {Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                -Double.MAX_VALUE, Double.MIN_VALUE};
+        for (int b = 0; b < batches; b++) {
+            for (int i = 0; i < batchSize; i++) {
+                //mostly values around the compared value, some extremes
+                ints[b][i] = random.nextInt(32) == 0 ? intExtremes[random.nextInt(intExtremes.length)] : random.nextInt(200) - 100;
+                longs[b][i] = random.nextInt(32) == 0 ? longExtremes[random.nextInt(longExtremes.length)] : random.nextInt(200) - 100;
+                doubles[b][i] = random.nextInt(32) == 0 ? doubleExtremes[random.nextInt(doubleExtremes.length)]
+                        : (random.nextInt(200) - 100) / 2.0;
+                nulls[b][i] = random.nextInt(16) == 0;
+            }
+        }
+
+        System.out.println("Filtering " + batches * batchSize + " rows " + ROUNDS + " times");
+        System.out.println(String.format("%-8s %-3s %12s %12s", "type", "op", "scalar ns/row", "kernel ns/row"));
+        int[] intMask = new int[batchSize];
+        long[] longMask = new long[batchSize];
+        long[] keys = new long[batchSize];
+        int[] selection = new int[batchSize];
+        long total = (long) batches * batchSize * ROUNDS;
+        for (String type : new String[]{"INT", "BIGINT", "DOUBLE"}) {
+            for (String operator : OPERATORS) {
+                int code = VectorFilter.operatorCode(operator);
+                long scalarCount = 0;
+                long kernelCount = 0;
+                long scalarTime = 0;
+                long kernelTime = 0;
+                //the first pass warms both paths up and is not counted
+                for (int pass = 0; pass < 2; pass++) {
+                    scalarCount = 0;
+                    kernelCount = 0;
+                    long start = System.nanoTime();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int b = 0; b < batches; b++) {
+                            selectAll(selection);
+                            switch (type) {
+                                case "INT":
+                                    scalarCount += VectorFilter.selectInts(ints[b], nulls[b], selection, batchSize, code, 0);
+                                    break;
+                                case "BIGINT":
+                                    scalarCount += VectorFilter.selectLongs(longs[b], nulls[b], selection, batchSize, code, 0);
+                                    break;
+                                default:
+                                    scalarCount += VectorFilter.selectDoubles(doubles[b], nulls[b], selection, batchSize, code, 0.0);
+                                    break;
+                            }
+                        }
+                    }
+                    scalarTime = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int b = 0; b < batches; b++) {
+                            selectAll(selection);
+                            switch (type) {
+                                case "INT":
+                                    FilterKernels.compareInts(ints[b], batchSize, code, 0, intMask);
+                                    kernelCount += FilterKernels.select(intMask, nulls[b], selection, batchSize);
+                                    break;
+                                case "BIGINT":
+                                    FilterKernels.compareLongs(longs[b], batchSize, code, 0, longMask);
+                                    kernelCount += FilterKernels.select(longMask, nulls[b], selection, batchSize);
+                                    break;
+                                default:
+                                    FilterKernels.compareDoubles(doubles[b], batchSize, code, 0.0, keys, longMask);
+                                    kernelCount += FilterKernels.select(longMask, nulls[b], selection, batchSize);
+                                    break;
+                            }
+                        }
+                    }
+                    kernelTime = System.nanoTime() - start;
+                }
+                if (scalarCount != kernelCount) {
+                    throw new IllegalStateException(type + " " + operator + " selected " + scalarCount
+                            + " rows by the scalar loop but " + kernelCount + " by the kernel");
+                }
+                System.out.println(String.format("%-8s %-3s %12.3f %12.3f", type, operator,
+                        (double) scalarTime / total, (double) kernelTime / total));
+            }
+        }
+        checkRows(ints, longs, doubles, nulls);
+    }
+
+    //selects all rows of a batch
+    private static void selectAll(int[] selection) {
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] = i;
+        }
+    }
+
+    //checks that both paths select exactly the same rows, for values taken from the columns themselves
+    private static void checkRows(int[][] ints, long[][] longs, double[][] doubles, boolean[][] nulls) {
+        int batchSize = ColumnBatch.BATCH_SIZE;
+        int[] intMask = new int[batchSize];
+        long[] longMask = new long[batchSize];
+        long[] keys = new long[batchSize];
+        int[] scalar = new int[batchSize];
+        int[] kernel = new int[batchSize];
+        for (int b = 0; b < Math.min(ints.length, 64); b++) {
+            for (int code = 0; code < OPERATORS.length; code++) {
+                for (int v = 0; v < batchSize; v += 61) {
+                    selectAll(scalar);
+                    selectAll(kernel);
+                    int scalarCount = VectorFilter.selectInts(ints[b], nulls[b], scalar, batchSize, code, ints[b][v]);
+                    FilterKernels.compareInts(ints[b], batchSize, code, ints[b][v], intMask);
+                    int kernelCount = FilterKernels.select(intMask, nulls[b], kernel, batchSize);
+                    check("INT", code, scalar, scalarCount, kernel, kernelCount);
+
+                    selectAll(scalar);
+                    selectAll(kernel);
+                    scalarCount = VectorFilter.selectLongs(longs[b], nulls[b], scalar, batchSize, code, longs[b][v]);
+                    FilterKernels.compareLongs(longs[b], batchSize, code, longs[b][v], longMask);
+                    kernelCount = FilterKernels.select(longMask, nulls[b], kernel, batchSize);
+                    check("BIGINT", code, scalar, scalarCount, kernel, kernelCount);
+
+                    selectAll(scalar);
+                    selectAll(kernel);
+                    scalarCount = VectorFilter.selectDoubles(doubles[b], nulls[b], scalar, batchSize, code, doubles[b][v]);
+                    FilterKernels.compareDoubles(doubles[b], batchSize, code, doubles[b][v], keys, longMask);
+                    kernelCount = FilterKernels.select(longMask, nulls[b], kernel, batchSize);
+                    check("DOUBLE", code, scalar, scalarCount, kernel, kernelCount);
+                }
+            }
+        }
+        System.out.println("Both paths selected the same rows");
+    }
+
+    //throws if the two selections differ
+    private static void check(String type, int code, int[] scalar, int scalarCount, int[] kernel, int kernelCount) {
+        if (scalarCount != kernelCount || !Arrays.equals(scalar, 0, scalarCount, kernel, 0, kernelCount)) {
+            throw new IllegalStateException(type + " " + OPERATORS[code] + " selected different rows");
+        }
+    }
+}
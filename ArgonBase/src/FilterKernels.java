@@ -0,0 +1,150 @@
+/*
+ * Filter kernels comparing a whole column vector with a value at once, the result is a mask holding 1 for
+ * each row whose value matches and 0 for the others
+ * The comparisons are written as integer arithmetic without branches or conditional moves: a signed
+ * x < y is the sign bit of (x - y) ^ ((x ^ y) & ((x - y) ^ x)), which is correct even when x - y
+ * overflows, and x != y is the sign bit of d | -d for d = x - y
+ * Loops made of subtractions, xors, ands and shifts over arrays are compiled by the JIT into SIMD
+ * instructions, so the kernels compare 4 to 16 values per instruction depending on the CPU
+ * Doubles are compared through sortable keys: flipping all bits but the sign of a negative double's bits
+ * gives longs that order like Double.compare, so -0.0 sorts before 0.0 and NaN after all other values
+ * NULL rows are not looked at by the kernels, they are dropped by select
+ * VectorFilter uses the kernels when most rows of a batch are selected and falls back to its scalar loops
+ * over the selection vector otherwise, FilterBenchmark compares both
+ */
+public class FilterKernels {
+
+    //sets mask[i] to 1 for the first size values of column matching <operator> value, to 0 for the others
+    //operator is one of the codes of VectorFilter
+    public static void compareInts(int[] column, int size, int operator, int value, int[] mask) {
+        switch (operator) {
+            case VectorFilter.EQUAL:
+                for (int i = 0; i < size; i++) {
+                    int difference = column[i] - value;
+                    mask[i] = ((difference | -difference) >>> 31) ^ 1;
+                }
+                break;
+            case VectorFilter.NOT_EQUAL:
+                for (int i = 0; i < size; i++) {
+                    int difference = column[i] - value;
+                    mask[i] = (difference | -difference) >>> 31;
+                }
+                break;
+            case VectorFilter.LESS:
+                //column[i] < value
+                for (int i = 0; i < size; i++) {
+                    int x = column[i];
+                    int difference = x - value;
+                    mask[i] = (difference ^ ((x ^ value) & (difference ^ x))) >>> 31;
+                }
+                break;
+            case VectorFilter.GREATER_EQUAL:
+                //not column[i] < value
+                for (int i = 0; i < size; i++) {
+                    int x = column[i];
+                    int difference = x - value;
+                    mask[i] = ((difference ^ ((x ^ value) & (difference ^ x))) >>> 31) ^ 1;
+                }
+                break;
+            case VectorFilter.GREATER:
+                //value < column[i]
+                for (int i = 0; i < size; i++) {
+                    int y = column[i];
+                    int difference = value - y;
+                    mask[i] = (difference ^ ((value ^ y) & (difference ^ value))) >>> 31;
+                }
+                break;
+            default:
+                //not value < column[i]
+                for (int i = 0; i < size; i++) {
+                    int y = column[i];
+                    int difference = value - y;
+                    mask[i] = ((difference ^ ((value ^ y) & (difference ^ value))) >>> 31) ^ 1;
+                }
+                break;
+        }
+    }
+
+    //sets mask[i] to 1 for the first size values of column matching <operator> value, to 0 for the others
+    public static void compareLongs(long[] column, int size, int operator, long value, long[] mask) {
+        switch (operator) {
+            case VectorFilter.EQUAL:
+                for (int i = 0; i < size; i++) {
+                    long difference = column[i] - value;
+                    mask[i] = ((difference | -difference) >>> 63) ^ 1;
+                }
+                break;
+            case VectorFilter.NOT_EQUAL:
+                for (int i = 0; i < size; i++) {
+                    long difference = column[i] - value;
+                    mask[i] = (difference | -difference) >>> 63;
+                }
+                break;
+            case VectorFilter.LESS:
+                for (int i = 0; i < size; i++) {
+                    long x = column[i];
+                    long difference = x - value;
+                    mask[i] = (difference ^ ((x ^ value) & (difference ^ x))) >>> 63;
+                }
+                break;
+            case VectorFilter.GREATER_EQUAL:
+                for (int i = 0; i < size; i++) {
+                    long x = column[i];
+                    long difference = x - value;
+                    mask[i] = ((difference ^ ((x ^ value) & (difference ^ x))) >>> 63) ^ 1;
+                }
+                break;
+            case VectorFilter.GREATER:
+                for (int i = 0; i < size; i++) {
+                    long y = column[i];
+                    long difference = value - y;
+                    mask[i] = (difference ^ ((value ^ y) & (difference ^ value))) >>> 63;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; i++) {
+                    long y = column[i];
+                    long difference = value - y;
+                    mask[i] = ((difference ^ ((value ^ y) & (difference ^ value))) >>> 63) ^ 1;
+                }
+                break;
+        }
+    }
+
+    //sets mask[i] to 1 for the first size values of column matching <operator> value like Double.compare,
+    //to 0 for the others, keys receives the sortable keys of the values
+    public static void compareDoubles(double[] column, int size, int operator, double value, long[] keys, long[] mask) {
+        for (int i = 0; i < size; i++) {
+            keys[i] = sortableKey(column[i]);
+        }
+        compareLongs(keys, size, operator, sortableKey(value), mask);
+    }
+
+    //returns the key of a double that orders like Double.compare, NaN is given the key of the canonical NaN
+    public static long sortableKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    //keeps the selected rows whose mask is 1 and whose value is not NULL, returns their number
+    public static int select(int[] mask, boolean[] nulls, int[] selection, int selected) {
+        int count = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            selection[count] = row;
+            count += mask[row] & (nulls[row] ? 0 : 1);
+        }
+        return count;
+    }
+
+    //keeps the selected rows whose mask is 1 and whose value is not NULL, returns their number
+    public static int select(long[] mask, boolean[] nulls, int[] selection, int selected) {
+        int count = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            selection[count] = row;
+            count += (int) mask[row] & (nulls[row] ? 0 : 1);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,442 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/*
+ * Represents a hash index file in the Argon database
+ * The index is an extendible hash table: the directory maps the lowest globalDepth bits of the hash
+ * of a key to a bucket page, several slots share a bucket until it is split
+ * The directory starts on page 0, its global depth is stored at 0x0F and its slots follow the header,
+ * the number of slots on a page is stored at 0x02 and further directory pages are chained at 0x06
+ * A bucket page stores its local depth at 0x0E and chains its overflow pages at 0x06, its cells have the
+ * format of leaf cells of the B+ tree but are not ordered
+ * Only equal keys can be searched, a lookup reads the directory slot and the bucket chain behind it
+ */
+public class HashIndexFile extends IndexFile {
+    //the directory stops doubling at 2^MAX_DEPTH slots, full buckets then grow overflow pages
+    public static final int MAX_DEPTH = 16;
+
+    //bucket page of each slot of the directory
+    private int[] directory;
+    //number of hash bits used to pick a slot
+    private int globalDepth;
+    //pages holding the directory, in slot order
+    private final ArrayList<Integer> directoryPages = new ArrayList<>();
+
+    //Creates a new HashIndexFile object, a new file gets a directory with a single empty bucket
+    public HashIndexFile(Table table, IndexDefinition definition, String path) throws IOException {
+        super(table, definition, path, Constants.PageType.HASH_DIRECTORY);
+        if (this.length() == pageSize) {
+            globalDepth = 0;
+            directory = new int[] {createBucketPage(0)};
+            directoryPages.add(0);
+            writeDirectory();
+        } else {
+            readDirectory();
+        }
+    }
+
+    //number of directory slots stored on one page
+    private int slotsPerPage() {
+        return (pageSize - getHeaderSize()) / 4;
+    }
+
+    //reads the global depth and the slots of the directory
+    private void readDirectory() throws IOException {
+        this.seek(0x0F);
+        globalDepth = this.readUnsignedByte();
+        directory = new int[1 << globalDepth];
+
+        int slot = 0;
+        int page = 0;
+        byte[] content = new byte[pageSize];
+        while (page != 0xFFFFFFFF && slot < directory.length) {
+            directoryPages.add(page);
+            this.seek((long) page * pageSize);
+            this.readFully(content);
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            int count = buffer.getShort(0x02);
+            for (int i = 0; i < count; i++) {
+                directory[slot++] = buffer.getInt(getHeaderSize() + 4 * i);
+            }
+            page = buffer.getInt(0x06);
+        }
+    }
+
+    //writes the global depth and all slots of the directory, adding directory pages as needed
+    private void writeDirectory() throws IOException {
+        this.seek(0x0F);
+        this.writeByte(globalDepth);
+
+        int perPage = slotsPerPage();
+        for (int start = 0, p = 0; start < directory.length; start += perPage, p++) {
+            if (p == directoryPages.size()) {
+                int page = createPage(0xFFFFFFFF, Constants.PageType.HASH_DIRECTORY);
+                this.seek((long) directoryPages.get(p - 1) * pageSize + 0x06);
+                this.writeInt(page);
+                directoryPages.add(page);
+            }
+            //number of slots on the page and the slots right after the header
+            int count = Math.min(perPage, directory.length - start);
+            this.seek((long) directoryPages.get(p) * pageSize + 0x02);
+            this.writeShort(count);
+            ByteBuffer buffer = ByteBuffer.allocate(4 * count);
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(directory[start + i]);
+            }
+            this.seek((long) directoryPages.get(p) * pageSize + getHeaderSize());
+            this.write(buffer.array());
+        }
+    }
+
+    //writes a single slot of the directory
+    private void writeSlot(int slot) throws IOException {
+        int perPage = slotsPerPage();
+        this.seek((long) directoryPages.get(slot / perPage) * pageSize + getHeaderSize() + 4L * (slot % perPage));
+        this.writeInt(directory[slot]);
+    }
+
+    //creates an empty bucket page with the given local depth
+    private int createBucketPage(int localDepth) throws IOException {
+        int page = createPage(0xFFFFFFFF, Constants.PageType.HASH_BUCKET);
+        setLocalDepth(page, localDepth);
+        return page;
+    }
+
+    //retrieves the number of hash bits shared by all keys of a bucket
+    private int getLocalDepth(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x0E);
+        return this.readShort();
+    }
+
+    //sets the number of hash bits shared by all keys of a bucket
+    private void setLocalDepth(int page, int localDepth) throws IOException {
+        this.seek((long) page * pageSize + 0x0E);
+        this.writeShort(localDepth);
+    }
+
+    //hashes the stored bytes of a key with FNV-1a, followed by the MurmurHash3 finalizer
+    //so the low bits used by the directory depend on every byte of the key
+    public int hash(Object key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeKey(new DataOutputStream(bytes), key);
+        int hash = 0x811C9DC5;
+        for (byte b : bytes.toByteArray()) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    //returns the directory slot of a key
+    private int slotOf(Object key) throws IOException {
+        return hash(key) & ((1 << globalDepth) - 1);
+    }
+
+    //returns the bucket page and its overflow pages
+    private ArrayList<Integer> readChain(int page) throws IOException {
+        ArrayList<Integer> chain = new ArrayList<>();
+        while (page != 0xFFFFFFFF) {
+            chain.add(page);
+            page = getNextLeafPage(page);
+        }
+        return chain;
+    }
+
+    //populate the index file by reading records from the associated table and adding them one at a time
+    @Override
+    public void populateIndex() throws IOException {
+        try (TableFile table = FileManager.openTableFile(tableName, path)) {
+            int page = table.getFirstLeafPage();
+            while (page != 0xFFFFFFFF) {
+                for (Record record : table.readPageRecords(page)) {
+                    addRecord(record.getValues(), record.getRowId());
+                }
+                page = table.getNextLeafPage(page);
+            }
+        }
+    }
+
+    //add an entry to the cell of the value in its bucket, the entries move to posting pages once they
+    //outgrow the cell, a value without a cell gets a new one
+    @Override
+    public void addItemToCell(Object value, byte[] entry) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        for (int page : readChain(directory[slotOf(value)])) {
+            int numberOfCells = getCellCount(page);
+            for (int i = 0; i < numberOfCells; i++) {
+                int offset = getCellOffset(page, i);
+                if (compareKeys(readData(page, offset), value) != 0) {
+                    continue;
+                }
+                if (isPostingList(page, offset)) {
+                    addToPostingList(page, offset, entry);
+                    return;
+                }
+
+                //add the new entry to the cell and keep the entries in row ID order
+                ArrayList<byte[]> entries = readEntries(page, offset);
+                addEntry(entries, entry);
+                byte[] cell = buildCell(value, entries, -1);
+                if (!fitsInline(cell.length, entries.size())) {
+                    int[] postingPages = writePostingList(entries);
+                    cell = buildPostingCell(value, postingPages[0], postingPages[1], entries.size());
+                }
+                ArrayList<byte[]> cells = readCells(page);
+                cells.set(i, cell);
+                if (fits(cells, false)) {
+                    writeCells(page, cells);
+                    return;
+                }
+
+                //the grown cell moves to another page of the bucket
+                cells.remove(i);
+                writeCells(page, cells);
+                placeCell(value, cell);
+                return;
+            }
+        }
+        placeCell(value, buildCell(value, Collections.singletonList(entry), -1));
+    }
+
+    //adds a cell of the value to a page of its bucket chain with room left, otherwise the bucket is split
+    //or, when splitting cannot separate its keys, an overflow page is added to the chain
+    private void placeCell(Object value, byte[] cell) throws IOException {
+        while (true) {
+            int slot = slotOf(value);
+            ArrayList<Integer> chain = readChain(directory[slot]);
+            for (int page : chain) {
+                ArrayList<byte[]> cells = readCells(page);
+                cells.add(cell);
+                if (fits(cells, false)) {
+                    writeCells(page, cells);
+                    return;
+                }
+            }
+
+            //split the bucket and try again when its keys can be told apart by more hash bits
+            if (getLocalDepth(chain.get(0)) < MAX_DEPTH && hasDistinctHashes(chain, value)) {
+                splitBucket(slot, chain);
+                continue;
+            }
+
+            //all keys of the bucket share their hash bits, so the cell goes to a new overflow page
+            int overflowPage = createBucketPage(getLocalDepth(chain.get(0)));
+            setNextLeafPage(chain.get(chain.size() - 1), overflowPage);
+            writeCells(overflowPage, Collections.singletonList(cell));
+            return;
+        }
+    }
+
+    //checks whether the keys of a bucket chain and the new value do not all have the same hash
+    private boolean hasDistinctHashes(ArrayList<Integer> chain, Object value) throws IOException {
+        int hash = hash(value);
+        for (int page : chain) {
+            for (byte[] cell : readCells(page)) {
+                if (hash(cellValue(cell, false)) != hash) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //splits the bucket of the slot in two by the next bit of the hash, doubling the directory when the
+    //bucket already uses all bits of the directory
+    //the overflow pages of the bucket are freed and its cells are written again to the two new chains
+    private void splitBucket(int slot, ArrayList<Integer> chain) throws IOException {
+        int bucketPage = chain.get(0);
+        int localDepth = getLocalDepth(bucketPage);
+
+        boolean doubled = localDepth == globalDepth;
+        if (doubled) {
+            //the new upper half of the directory repeats the lower half
+            int[] slots = Arrays.copyOf(directory, directory.length * 2);
+            System.arraycopy(directory, 0, slots, directory.length, directory.length);
+            directory = slots;
+            globalDepth++;
+        }
+
+        //partition the cells of the chain by the hash bit after the local depth
+        ArrayList<byte[]> lowCells = new ArrayList<>();
+        ArrayList<byte[]> highCells = new ArrayList<>();
+        for (int page : chain) {
+            for (byte[] cell : readCells(page)) {
+                if ((hash(cellValue(cell, false)) >>> localDepth & 1) == 0) {
+                    lowCells.add(cell);
+                } else {
+                    highCells.add(cell);
+                }
+            }
+        }
+        for (int i = 1; i < chain.size(); i++) {
+            deletePage(chain.get(i));
+        }
+
+        //the bucket page keeps the low half, a new bucket page takes the high half
+        setNextLeafPage(bucketPage, 0xFFFFFFFF);
+        setLocalDepth(bucketPage, localDepth + 1);
+        writeBucketCells(bucketPage, lowCells);
+        int newBucketPage = createBucketPage(localDepth + 1);
+        writeBucketCells(newBucketPage, highCells);
+
+        //point the slots of the bucket with the hash bit set to the new bucket
+        int step = 1 << localDepth;
+        for (int i = slot & (step - 1); i < directory.length; i += step) {
+            if ((i >>> localDepth & 1) == 1) {
+                directory[i] = newBucketPage;
+            }
+        }
+        if (doubled) {
+            writeDirectory();
+        } else {
+            for (int i = slot & (step - 1); i < directory.length; i += step) {
+                writeSlot(i);
+            }
+        }
+    }
+
+    //writes the cells of a bucket to its page, adding overflow pages for the cells that do not fit
+    private void writeBucketCells(int page, ArrayList<byte[]> cells) throws IOException {
+        ArrayList<byte[]> pageCells = new ArrayList<>();
+        for (byte[] cell : cells) {
+            pageCells.add(cell);
+            if (!fits(pageCells, false)) {
+                pageCells.remove(pageCells.size() - 1);
+                writeCells(page, pageCells);
+                int overflowPage = createBucketPage(getLocalDepth(page));
+                setNextLeafPage(page, overflowPage);
+                page = overflowPage;
+                pageCells = new ArrayList<>();
+                pageCells.add(cell);
+            }
+        }
+        writeCells(page, pageCells);
+    }
+
+    //remove a row ID from the cells of the value in its bucket
+    //a cell is deleted from its page once it has no entries left, on the cell or on its posting pages
+    @Override
+    public void removeItemFromCell(Object value, int rowId) throws IOException {
+        //null values are not indexed
+        if (value == null) {
+            return;
+        }
+
+        for (int page : readChain(directory[slotOf(value)])) {
+            int numberOfCells = getCellCount(page);
+            for (int i = 0; i < numberOfCells; i++) {
+                int offset = getCellOffset(page, i);
+                if (compareKeys(readData(page, offset), value) != 0) {
+                    continue;
+                }
+                if (isPostingList(page, offset)) {
+                    if (removeFromPostingList(page, offset, rowId) == 0) {
+                        ArrayList<byte[]> cells = readCells(page);
+                        cells.remove(i);
+                        writeCells(page, cells);
+                    }
+                    return;
+                }
+                ArrayList<byte[]> entries = readEntries(page, offset);
+                for (int e = 0; e < entries.size(); e++) {
+                    if (entryRowId(entries.get(e)) == rowId) {
+                        entries.remove(e);
+                        ArrayList<byte[]> cells = readCells(page);
+                        if (entries.isEmpty()) {
+                            cells.remove(i);
+                        } else {
+                            cells.set(i, buildCell(value, entries, -1));
+                        }
+                        writeCells(page, cells);
+                        return;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Row id not present in index");
+    }
+
+    //returns the pages and offsets of the cells of the value, as pairs
+    private ArrayList<int[]> findCells(Object value, String operator) throws IOException {
+        if (!operator.equals("=")) {
+            throw new IllegalArgumentException("Hash index only supports =");
+        }
+        ArrayList<int[]> found = new ArrayList<>();
+        if (value == null || isAbsent(value, operator)) {
+            return found;
+        }
+        for (int page : readChain(directory[slotOf(value)])) {
+            int numberOfCells = getCellCount(page);
+            for (int i = 0; i < numberOfCells; i++) {
+                int offset = getCellOffset(page, i);
+                if (compareKeys(readData(page, offset), value) == 0) {
+                    found.add(new int[] {page, offset});
+                }
+            }
+        }
+        return found;
+    }
+
+    //searches for the row IDs of the value, the operator has to be =
+    @Override
+    public ArrayList<Integer> search(Object value, String operator) throws IOException {
+        ArrayList<Integer> rowIds = new ArrayList<>();
+        for (int[] cell : findCells(value, operator)) {
+            rowIds.addAll(readRowIds(cell[0], cell[1]));
+        }
+        return rowIds;
+    }
+
+    //searches for the row IDs of the value and returns them as a bitmap, the operator has to be =
+    @Override
+    public RowIdBitmap searchBitmap(Object value, String operator) throws IOException {
+        return new RowIdBitmap(search(value, operator));
+    }
+
+    //searches for the rows of the value and returns them as records read from the index alone,
+    //the operator has to be =
+    @Override
+    public ArrayList<Record> searchRecords(Object value, String operator) throws IOException {
+        ArrayList<Record> records = new ArrayList<>();
+        for (int[] cell : findCells(value, operator)) {
+            records.addAll(readRecords(cell[0], cell[1]));
+        }
+        return records;
+    }
+
+    //returns the distinct keys in the index, bucket by bucket
+    @Override
+    public ArrayList<Object> readKeys() throws IOException {
+        //several slots share a bucket until it is split
+        LinkedHashSet<Integer> buckets = new LinkedHashSet<>();
+        for (int bucket : directory) {
+            buckets.add(bucket);
+        }
+        ArrayList<Object> keys = new ArrayList<>();
+        for (int bucket : buckets) {
+            for (int page : readChain(bucket)) {
+                int numberOfCells = getCellCount(page);
+                for (int i = 0; i < numberOfCells; i++) {
+                    keys.add(readData(page, getCellOffset(page, i)));
+                }
+            }
+        }
+        return keys;
+    }
+
+    //the directory is held in memory, a search reads the bucket page of its slot
+    @Override
+    public int getHeight() {
+        return 1;
+    }
+}
@@ -0,0 +1,388 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Joins the records of two inputs whose join columns are equal, NULL is equal to nothing
+ * The records of the build input, the one Planner estimates to be smaller, are put in a hash table by
+ * their join value, the records of the probe input are then read one at a time and looked up in it, so
+ * each input is read once and the result comes in the order of the probe input
+ * The hash table may take Settings.getJoinMemory() bytes, when the build input needs more the join turns
+ * into a grace hash join: both inputs are split by the hash of their join value into PARTITIONS temporary
+ * files in the data directory and the pairs of partitions are joined one after the other, a build
+ * partition that still does not fit is split again with another hash
+ * A record of the result holds the values of the left record followed by those of the right record,
+ * whichever input is hashed
+ */
+public class HashJoin extends Operator {
+    //number of partitions an input is split into when the build input does not fit in memory
+    static final int PARTITIONS = 16;
+    //number of times a partition is split again before it is joined in memory however large it is
+    static final int MAX_DEPTH = 4;
+    //estimated bytes a record takes in memory on top of its values
+    private static final int RECORD_OVERHEAD = 64;
+
+    /*
+     * A pair of partitions of the build and probe inputs, spilled to temporary files
+     */
+    private class Partition implements Closeable {
+        final File buildFile;
+        final File probeFile;
+        //number of times the inputs were split to get the partition
+        final int depth;
+        //number of records of each input and the memory the build records take
+        int buildCount;
+        int probeCount;
+        long buildMemory;
+        //streams writing the files while the partition is filled
+        DataOutputStream buildOut;
+        DataOutputStream probeOut;
+
+        Partition(int depth) throws IOException {
+            this.depth = depth;
+            File directory = new File(Settings.getUserDataDirectory());
+            buildFile = File.createTempFile("join_", ".build", directory);
+            probeFile = File.createTempFile("join_", ".probe", directory);
+            buildOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(buildFile)));
+            probeOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(probeFile)));
+        }
+
+        void addBuild(Record record) throws IOException {
+            writeRecord(buildOut, build.columnTypes, record);
+            buildCount++;
+            buildMemory += memoryOf(build.columnTypes, record);
+        }
+
+        void addProbe(Record record) throws IOException {
+            writeRecord(probeOut, probe.columnTypes, record);
+            probeCount++;
+        }
+
+        //closes the files once the partition is filled
+        void finish() throws IOException {
+            buildOut.close();
+            probeOut.close();
+        }
+
+        //closes and removes the files
+        @Override
+        public void close() throws IOException {
+            finish();
+            buildFile.delete();
+            probeFile.delete();
+        }
+    }
+
+    private final Operator left;
+    private final Operator right;
+    private final String leftColumn;
+    private final String rightColumn;
+    //whether the left input is hashed, otherwise the right one
+    private final boolean buildLeft;
+    //the hashed and the probing input and the positions of their join columns
+    private final Operator build;
+    private final Operator probe;
+    private int buildIndex;
+    private int probeIndex;
+
+    //records of the build input by join value, and the memory they take
+    private HashMap<Object, ArrayList<Record>> table = new HashMap<>();
+    private long memory;
+    //pairs of partitions left to join, none unless the build input was spilled
+    private ArrayDeque<Partition> partitions = new ArrayDeque<>();
+    private boolean spilled;
+    //the partition being joined and the number of its probe records left to read
+    private Partition partition;
+    private DataInputStream probeIn;
+    private int probeRemaining;
+    //current probe record, the build records with its join value and the position of the next one
+    private Record probeRecord;
+    private ArrayList<Record> matches;
+    private int position;
+    //row ID of the next record returned
+    private int rowId;
+
+    //Creates a join of the inputs on leftColumn = rightColumn, hashing the left input if buildLeft is true
+    public HashJoin(Operator left, Operator right, String leftColumn, String rightColumn, boolean buildLeft) {
+        super(new ArrayList<>(left.columnNames), new ArrayList<>(left.columnTypes));
+        columnNames.addAll(right.columnNames);
+        columnTypes.addAll(right.columnTypes);
+        this.left = left;
+        this.right = right;
+        this.leftColumn = leftColumn;
+        this.rightColumn = rightColumn;
+        this.buildLeft = buildLeft;
+        this.build = buildLeft ? left : right;
+        this.probe = buildLeft ? right : left;
+    }
+
+    @Override
+    public void open() throws IOException {
+        buildIndex = build.columnIndex(buildLeft ? leftColumn : rightColumn);
+        probeIndex = probe.columnIndex(buildLeft ? rightColumn : leftColumn);
+        table = new HashMap<>();
+        memory = 0;
+        partitions = new ArrayDeque<>();
+        spilled = false;
+        partition = null;
+        probeRemaining = 0;
+        probeRecord = null;
+        matches = null;
+        rowId = 1;
+
+        //hash the build input until it uses up the memory, then split it into partitions
+        ArrayList<Partition> spill = null;
+        build.open();
+        Record record;
+        while ((record = build.next()) != null) {
+            Object key = hashKey(record.getValues().get(buildIndex));
+            if (key == null) {
+                continue;
+            }
+            if (spill != null) {
+                spill.get(partitionOf(key, 0)).addBuild(record);
+                continue;
+            }
+            add(key, record);
+            if (memory > Settings.getJoinMemory()) {
+                spill = createPartitions(0);
+                partitions.addAll(spill);
+                for (Map.Entry<Object, ArrayList<Record>> entry : table.entrySet()) {
+                    Partition target = spill.get(partitionOf(entry.getKey(), 0));
+                    for (Record hashed : entry.getValue()) {
+                        target.addBuild(hashed);
+                    }
+                }
+                table = new HashMap<>();
+                memory = 0;
+            }
+        }
+        build.close();
+
+        probe.open();
+        if (spill != null) {
+            //the probe input is split like the build input, so matching records end up in the same pair
+            while ((record = probe.next()) != null) {
+                Object key = hashKey(record.getValues().get(probeIndex));
+                if (key != null) {
+                    spill.get(partitionOf(key, 0)).addProbe(record);
+                }
+            }
+            probe.close();
+            for (Partition filled : spill) {
+                filled.finish();
+            }
+            spilled = true;
+        }
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (true) {
+            if (matches != null && position < matches.size()) {
+                Record buildRecord = matches.get(position++);
+                ArrayList<Object> values = new ArrayList<>(buildLeft ? buildRecord.getValues() : probeRecord.getValues());
+                values.addAll(buildLeft ? probeRecord.getValues() : buildRecord.getValues());
+                return new Record(new ArrayList<>(columnTypes), values, rowId++);
+            }
+            probeRecord = nextProbe();
+            if (probeRecord == null) {
+                return null;
+            }
+            Object key = hashKey(probeRecord.getValues().get(probeIndex));
+            matches = key == null ? null : table.get(key);
+            position = 0;
+        }
+    }
+
+    //returns the next record of the probe input, from the partition being joined if the inputs were split
+    private Record nextProbe() throws IOException {
+        if (!spilled) {
+            return probe.next();
+        }
+        while (probeRemaining == 0) {
+            closePartition();
+            if (!loadPartition()) {
+                return null;
+            }
+        }
+        probeRemaining--;
+        return readRecord(probeIn, probe.columnTypes);
+    }
+
+    //hashes the build records of the next pair of partitions and opens its probe records, a build
+    //partition needing more than the memory is split again first
+    //returns false once every pair is joined
+    private boolean loadPartition() throws IOException {
+        while (!partitions.isEmpty()) {
+            Partition next = partitions.poll();
+            //a pair without records on one side joins nothing
+            if (next.buildCount == 0 || next.probeCount == 0) {
+                next.close();
+                continue;
+            }
+            if (next.buildMemory > Settings.getJoinMemory() && next.depth < MAX_DEPTH) {
+                split(next);
+                continue;
+            }
+            table = new HashMap<>();
+            memory = 0;
+            try (DataInputStream in = openFile(next.buildFile)) {
+                for (int i = 0; i < next.buildCount; i++) {
+                    Record record = readRecord(in, build.columnTypes);
+                    add(hashKey(record.getValues().get(buildIndex)), record);
+                }
+            }
+            partition = next;
+            probeIn = openFile(next.probeFile);
+            probeRemaining = next.probeCount;
+            return true;
+        }
+        return false;
+    }
+
+    //splits a pair of partitions into PARTITIONS smaller pairs with the hash of the next depth, which are
+    //joined before the remaining pairs
+    private void split(Partition parent) throws IOException {
+        ArrayList<Partition> children = createPartitions(parent.depth + 1);
+        try (DataInputStream in = openFile(parent.buildFile)) {
+            for (int i = 0; i < parent.buildCount; i++) {
+                Record record = readRecord(in, build.columnTypes);
+                children.get(partitionOf(hashKey(record.getValues().get(buildIndex)), parent.depth + 1)).addBuild(record);
+            }
+        }
+        try (DataInputStream in = openFile(parent.probeFile)) {
+            for (int i = 0; i < parent.probeCount; i++) {
+                Record record = readRecord(in, probe.columnTypes);
+                children.get(partitionOf(hashKey(record.getValues().get(probeIndex)), parent.depth + 1)).addProbe(record);
+            }
+        }
+        parent.close();
+        for (int i = children.size() - 1; i >= 0; i--) {
+            children.get(i).finish();
+            partitions.addFirst(children.get(i));
+        }
+    }
+
+    //creates PARTITIONS empty pairs of partitions for the given depth
+    private ArrayList<Partition> createPartitions(int depth) throws IOException {
+        ArrayList<Partition> created = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            created.add(new Partition(depth));
+        }
+        return created;
+    }
+
+    //removes the files of the partition being joined
+    private void closePartition() throws IOException {
+        if (partition != null) {
+            probeIn.close();
+            partition.close();
+            partition = null;
+        }
+    }
+
+    //adds a build record to the hash table
+    private void add(Object key, Record record) {
+        table.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+        memory += memoryOf(build.columnTypes, record);
+    }
+
+    //returns the value a join value is hashed by, null for NULL which joins nothing
+    //numbers are compared by value, so a whole number hashes as a long whatever its type and other
+    //floating point numbers as a double
+    static Object hashKey(Object value) {
+        if (value instanceof Float || value instanceof Double) {
+            double number = ((Number) value).doubleValue();
+            if (number == Math.rint(number) && Math.abs(number) < 0x1p62) {
+                return (long) number;
+            }
+            return number;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+
+    //returns the partition of a join value, each depth mixes the hash differently so a partition that is
+    //split again spreads over the new partitions
+    static int partitionOf(Object key, int depth) {
+        int hash = key.hashCode() ^ (depth * 0x9E3779B9);
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, PARTITIONS);
+    }
+
+    //returns the estimated bytes a record takes in memory
+    private static long memoryOf(List<Constants.DataTypes> types, Record record) {
+        long size = RECORD_OVERHEAD;
+        for (int i = 0; i < types.size(); i++) {
+            size += 16 + IndexFile.valueLength(types.get(i), record.getValues().get(i));
+        }
+        return size;
+    }
+
+    //returns the estimated bytes the given number of records of the given number of values take in the
+    //hash table, before the records are read, each value taken to be as long as a BIGINT
+    static double estimateMemory(double rows, int columns) {
+        return rows * (RECORD_OVERHEAD + columns * (16 + 8));
+    }
+
+    //writes the row ID and the values of a record to a partition file
+    private static void writeRecord(DataOutputStream out, List<Constants.DataTypes> types, Record record) throws IOException {
+        out.writeInt(record.getRowId());
+        for (int i = 0; i < types.size(); i++) {
+            IndexFile.writeValue(out, types.get(i), record.getValues().get(i));
+        }
+    }
+
+    //reads a record written by writeRecord
+    private static Record readRecord(DataInputStream in, List<Constants.DataTypes> types) throws IOException {
+        int recordRowId = in.readInt();
+        ArrayList<Object> values = new ArrayList<>(types.size());
+        for (Constants.DataTypes type : types) {
+            values.add(IndexFile.readValue(in, type));
+        }
+        return new Record(new ArrayList<>(types), values, recordRowId);
+    }
+
+    private static DataInputStream openFile(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    @Override
+    public String describe() {
+        return "Hash Join (" + leftColumn + " = " + rightColumn + ")";
+    }
+
+    //the build input is shown below a Hash line, after the probe input
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        probe.explain(lines, depth + 1);
+        lines.add(explainLine("Hash", depth + 1, -1, -1));
+        build.explain(lines, depth + 2);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (probeIn != null) {
+            probeIn.close();
+            probeIn = null;
+        }
+        if (partition != null) {
+            partition.close();
+            partition = null;
+        }
+        for (Partition remaining : partitions) {
+            remaining.close();
+        }
+        partitions = new ArrayDeque<>();
+        table = new HashMap<>();
+        matches = null;
+        probeRecord = null;
+        left.close();
+        right.close();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Estimates the number of distinct values in a stream with a fixed amount of memory
+ * Each value is hashed, the first PRECISION bits of the hash pick a register and the register keeps the
+ * longest run of leading zeros seen in the rest of the hash, the harmonic mean of the registers then gives
+ * the estimate with a standard error of about 2% for 2048 registers
+ * Few values are counted by the number of registers still empty instead, which is more accurate there
+ */
+public class HyperLogLog {
+    //number of hash bits picking the register
+    private static final int PRECISION = 11;
+    //number of registers
+    private static final int REGISTERS = 1 << PRECISION;
+
+    //longest run of leading zeros plus one seen by each register
+    private final byte[] registers = new byte[REGISTERS];
+
+    //adds a value given by its 64 bit hash
+    public void add(long hash) {
+        int register = (int) (hash >>> (64 - PRECISION));
+        //the bit set below the remaining bits ends the run of zeros of a hash that has no other bit set
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    //returns the estimated number of distinct values added
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte rank : registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                empty++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,27 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * The operations every index supports whatever the organization of its pages: searching the rows of a
+ * value, adding and removing the rows of the table, and telling from its Bloom filter that a value is absent
+ * Only the B-tree index keeps its keys in order, scanning a range of keys needs a BTreeIndexFile
+ */
+public interface Index extends Closeable {
+    //searches for the row IDs of the rows whose key matches the value with the operator
+    ArrayList<Integer> search(Object value, String operator) throws IOException;
+
+    //searches for row IDs like search and returns them as a bitmap
+    RowIdBitmap searchBitmap(Object value, String operator) throws IOException;
+
+    //searches for the rows whose key matches the value with the operator, as records read from the index alone
+    ArrayList<Record> searchRecords(Object value, String operator) throws IOException;
+
+    //checks whether a search of the value with the operator definitely finds nothing
+    boolean isAbsent(Object value, String operator) throws IOException;
+
+    //adds a row of the table to the index
+    void addRecord(ArrayList<Object> values, int rowId) throws IOException;
+
+    //removes a row of the table from the index
+    void removeRecord(ArrayList<Object> values, int rowId) throws IOException;
+}
@@ -0,0 +1,366 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Builds an index file bottom-up from a scan of its table
+ * The (value, entry) pairs, an entry being a row ID with the values of the included columns, are sorted with an external merge sort: pairs are sorted in memory until the
+ * index build memory in Settings is used up, then the sorted run is spilled to a temporary file and the
+ * runs are merged at the end. Leaf pages are filled left to right from the sorted pairs and the interior
+ * levels are built on top of them, so every page is written once and the table is read once.
+ */
+public class IndexBuilder {
+    //estimated bytes a pair takes in memory on top of its value
+    private static final int ENTRY_OVERHEAD = 48;
+    //maximum number of runs merged at once
+    private static final int MERGE_FAN_IN = 64;
+
+    //index being built and the table it is built from
+    private final BTreeIndexFile index;
+    private final TableFile table;
+
+    //pairs of the current in-memory run, in row ID order
+    private final ArrayList<Object> runValues = new ArrayList<>();
+    private final ArrayList<byte[]> runEntries = new ArrayList<>();
+    private long runMemory = 0;
+
+    //sorted runs spilled to disk, in row ID order
+    private ArrayList<File> runFiles = new ArrayList<>();
+
+    //value, entries and length of the leaf cell being filled
+    private Object cellValue = null;
+    private ArrayList<byte[]> cellEntries = new ArrayList<>();
+    private int cellLength = 0;
+
+    //posting pages of the value once its entries outgrow the leaf cell: the first page, the page being
+    //filled with its entries and their length, and the number of entries of the value
+    private int postingFirstPage = 0xFFFFFFFF;
+    private int postingPage = 0xFFFFFFFF;
+    private ArrayList<byte[]> postingEntries = new ArrayList<>();
+    private int postingLength = 0;
+    private int postingCount = 0;
+
+    //leaf page being filled and its cells
+    private int leafPage = 0;
+    private ArrayList<byte[]> leafCells = new ArrayList<>();
+
+    //interior page being filled and its cells on each level above the leaves
+    private final ArrayList<Integer> levelPages = new ArrayList<>();
+    private final ArrayList<ArrayList<byte[]>> levelCells = new ArrayList<>();
+
+    //Creates a builder filling the empty index file from the given table
+    public IndexBuilder(BTreeIndexFile index, TableFile table) {
+        this.index = index;
+        this.table = table;
+    }
+
+    //builds the index, the index file must only contain its empty first leaf page
+    public void build() throws IOException {
+        if (index.length() != index.pageSize || index.getCellCount(0) != 0) {
+            throw new IOException("Index " + index.tableName + " is not empty");
+        }
+
+        try {
+            //read the table one leaf page at a time
+            int page = table.getFirstLeafPage();
+            while (page != 0xFFFFFFFF) {
+                addRecords(table.readPageRecords(page));
+                page = table.getNextLeafPage(page);
+            }
+            write();
+        } finally {
+            deleteRuns();
+        }
+    }
+
+    //collects the pairs of the records with non null values, the records have to come in row ID order
+    //records not matching the predicate of a partial index are skipped
+    public void addRecords(List<Record> records) throws IOException {
+        for (Record record : records) {
+            if (!index.indexesRow(record.getValues())) {
+                continue;
+            }
+            Object value = index.getKey(record.getValues());
+            if (value != null) {
+                addPair(value, index.buildEntry(record.getRowId(), record.getValues()));
+            }
+        }
+    }
+
+    //writes the index pages from all pairs collected so far
+    public void write() throws IOException {
+        if (runFiles.isEmpty()) {
+            //all pairs fit in memory, write them straight from the sorted run
+            for (int i : sortRun()) {
+                writePair(runValues.get(i), runEntries.get(i));
+            }
+        } else {
+            spillRun();
+            mergeRuns();
+        }
+        finish();
+    }
+
+    //removes the temporary run files
+    public void deleteRuns() {
+        for (File runFile : runFiles) {
+            runFile.delete();
+        }
+    }
+
+    //adds a pair to the in-memory run, spilling the run to disk once it uses up its memory
+    private void addPair(Object value, byte[] entry) throws IOException {
+        runValues.add(value);
+        runEntries.add(entry);
+        runMemory += ENTRY_OVERHEAD + 2L * index.keyLength(value) + entry.length;
+        if (runMemory >= Settings.getIndexBuildMemory()) {
+            spillRun();
+        }
+    }
+
+    //returns the positions of the in-memory pairs in value order
+    //the sort is stable, so equal values keep their row ID order from the table scan
+    private Integer[] sortRun() {
+        Integer[] order = new Integer[runValues.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> index.compareKeys(runValues.get(a), runValues.get(b)));
+        return order;
+    }
+
+    //sorts the in-memory pairs and writes them to a new run file
+    private void spillRun() throws IOException {
+        File runFile = File.createTempFile(index.tableName + "_sort_", ".run", new File(index.path));
+        runFiles.add(runFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)))) {
+            out.writeInt(runValues.size());
+            for (int i : sortRun()) {
+                writePair(out, runValues.get(i), runEntries.get(i));
+            }
+        }
+        runValues.clear();
+        runEntries.clear();
+        runMemory = 0;
+    }
+
+    //merges the run files into the index pages
+    //when there are too many runs to open at once, neighbouring runs are merged into longer runs first
+    private void mergeRuns() throws IOException {
+        while (runFiles.size() > MERGE_FAN_IN) {
+            ArrayList<File> mergedRuns = new ArrayList<>();
+            for (int i = 0; i < runFiles.size(); i += MERGE_FAN_IN) {
+                List<File> group = runFiles.subList(i, Math.min(i + MERGE_FAN_IN, runFiles.size()));
+                File mergedRun = File.createTempFile(index.tableName + "_sort_", ".run", new File(index.path));
+                mergedRuns.add(mergedRun);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mergedRun)))) {
+                    merge(group, out);
+                }
+                for (File runFile : group) {
+                    runFile.delete();
+                }
+            }
+            runFiles = mergedRuns;
+        }
+        merge(runFiles, null);
+    }
+
+    //merges the given runs into a new run file, or into the index pages when out is null
+    private void merge(List<File> runs, DataOutputStream out) throws IOException {
+        ArrayList<RunReader> readers = new ArrayList<>();
+        //ties between equal values go to the earlier run, which holds the smaller row IDs
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> {
+            int comparison = index.compareKeys(a.value, b.value);
+            return comparison != 0 ? comparison : Integer.compare(a.order, b.order);
+        });
+        try {
+            long total = 0;
+            for (File run : runs) {
+                RunReader reader = new RunReader(run, readers.size());
+                readers.add(reader);
+                total += reader.remaining;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            if (out != null) {
+                out.writeInt((int) total);
+            }
+
+            //repeatedly take the smallest pair and refill from its run
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (out != null) {
+                    writePair(out, reader.value, reader.entry);
+                } else {
+                    writePair(reader.value, reader.entry);
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    //writes a pair to a run file
+    private void writePair(DataOutputStream out, Object value, byte[] entry) throws IOException {
+        index.writeKey(out, value);
+        out.writeShort(entry.length);
+        out.write(entry);
+    }
+
+    //adds a pair in sorted order to the leaf cell being filled
+    //a value keeps all its entries in one cell until the cell is full, then they move to posting pages
+    //the entries of a value arrive in row ID order
+    private void writePair(Object value, byte[] entry) throws IOException {
+        if (cellValue != null && index.compareKeys(cellValue, value) == 0) {
+            if (postingFirstPage == 0xFFFFFFFF) {
+                int length = cellLength + IndexFile.encodedLength(IndexFile.entryRowId(cellEntries.get(cellEntries.size() - 1)), entry);
+                if (IndexFile.fitsInline(length, cellEntries.size() + 1)) {
+                    cellEntries.add(entry);
+                    cellLength = length;
+                    return;
+                }
+                for (byte[] cellEntry : cellEntries) {
+                    addPosting(cellEntry);
+                }
+                cellEntries = new ArrayList<>();
+            }
+            addPosting(entry);
+            return;
+        }
+        flushCell();
+        cellValue = value;
+        cellEntries.add(entry);
+        cellLength = 3 + index.keyLength(value) + IndexFile.encodedLength(0, entry);
+    }
+
+    //adds an entry of the value to its posting pages, starting a new posting page when the page is full
+    private void addPosting(byte[] entry) throws IOException {
+        int previousRowId = postingEntries.isEmpty() ? 0 : IndexFile.entryRowId(postingEntries.get(postingEntries.size() - 1));
+        int length = IndexFile.encodedLength(previousRowId, entry);
+        if (postingFirstPage == 0xFFFFFFFF) {
+            postingFirstPage = index.createPage(0xFFFFFFFF, Constants.PageType.INDEX_POSTING);
+            postingPage = postingFirstPage;
+        } else if (postingLength + length > index.postingCapacity()) {
+            int newPage = index.createPage(0xFFFFFFFF, Constants.PageType.INDEX_POSTING);
+            index.writePostingPage(postingPage, postingEntries);
+            index.setNextLeafPage(postingPage, newPage);
+            postingPage = newPage;
+            postingEntries = new ArrayList<>();
+            postingLength = 0;
+            length = IndexFile.encodedLength(0, entry);
+        }
+        postingEntries.add(entry);
+        postingLength += length;
+        postingCount++;
+    }
+
+    //moves the leaf cell being filled to the leaf page, starting a new leaf page when it is full
+    private void flushCell() throws IOException {
+        if (cellValue == null) {
+            return;
+        }
+        byte[] cell;
+        if (postingFirstPage != 0xFFFFFFFF) {
+            index.writePostingPage(postingPage, postingEntries);
+            cell = index.buildPostingCell(cellValue, postingFirstPage, postingPage, postingCount);
+            postingFirstPage = 0xFFFFFFFF;
+            postingPage = 0xFFFFFFFF;
+            postingEntries = new ArrayList<>();
+            postingLength = 0;
+            postingCount = 0;
+        } else {
+            cell = index.buildCell(cellValue, cellEntries, -1);
+        }
+        leafCells.add(cell);
+        if (!index.fits(leafCells, false)) {
+            //the full leaf page is written and the cell starts its right sibling
+            leafCells.remove(leafCells.size() - 1);
+            int newLeafPage = index.createPage(0xFFFFFFFF, Constants.PageType.INDEX_LEAF);
+            index.writeCells(leafPage, leafCells);
+            index.setNextLeafPage(leafPage, newLeafPage);
+            index.setPreviousLeafPage(newLeafPage, leafPage);
+            Object lastValue = index.cellValue(leafCells.get(leafCells.size() - 1), false);
+            addSeparator(0, index.shortestSeparator(lastValue, cellValue), leafPage, newLeafPage);
+            leafPage = newLeafPage;
+            leafCells = new ArrayList<>();
+            leafCells.add(cell);
+        }
+        cellValue = null;
+        cellEntries = new ArrayList<>();
+    }
+
+    //adds a separator pointing to rightPage to the interior page being filled on the given level
+    //leftPage is the page before rightPage and becomes the leftmost pointer when the level is new
+    private void addSeparator(int level, Object value, int leftPage, int rightPage) throws IOException {
+        //the first split on a level creates the level above it
+        if (levelPages.size() == level) {
+            int page = index.createPage(0xFFFFFFFF, Constants.PageType.INDEX_INTERIOR);
+            ArrayList<byte[]> cells = new ArrayList<>();
+            cells.add(index.buildPointerCell(leftPage));
+            levelPages.add(page);
+            levelCells.add(cells);
+            index.setParentPage(leftPage, page);
+        }
+
+        ArrayList<byte[]> cells = levelCells.get(level);
+        cells.add(index.buildCell(value, Collections.emptyList(), rightPage));
+        if (!index.fits(cells, true)) {
+            //the full interior page is written and a new one starts with rightPage as its leftmost pointer
+            //the separator moves up to the level above
+            cells.remove(cells.size() - 1);
+            int page = levelPages.get(level);
+            int newPage = index.createPage(0xFFFFFFFF, Constants.PageType.INDEX_INTERIOR);
+            index.writeCells(page, cells);
+            addSeparator(level + 1, value, page, newPage);
+            cells = new ArrayList<>();
+            cells.add(index.buildPointerCell(rightPage));
+            levelPages.set(level, newPage);
+            levelCells.set(level, cells);
+        }
+        index.setParentPage(rightPage, levelPages.get(level));
+    }
+
+    //writes the pages still being filled, the last interior level is the root
+    private void finish() throws IOException {
+        flushCell();
+        index.writeCells(leafPage, leafCells);
+        for (int level = 0; level < levelPages.size(); level++) {
+            index.writeCells(levelPages.get(level), levelCells.get(level));
+        }
+    }
+
+    /*
+     * Reads the pairs of a run file one at a time
+     */
+    private class RunReader {
+        //position of the run, used to keep equal values in row ID order
+        final int order;
+        final DataInputStream in;
+        int remaining;
+        Object value;
+        byte[] entry;
+
+        RunReader(File run, int order) throws IOException {
+            this.order = order;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+            this.remaining = in.readInt();
+        }
+
+        //reads the next pair, returns false at the end of the run
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            value = index.readKey(in);
+            entry = new byte[in.readUnsignedShort()];
+            in.readFully(entry);
+            return true;
+        }
+    }
+}
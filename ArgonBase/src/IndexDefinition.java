@@ -0,0 +1,204 @@
+import java.util.*;
+
+/*
+ * Describes an index on a table as recorded in the argonbase_indexes catalog table
+ * The index file of an index is named <table_name>.<index_name>.ndx, its Bloom filter
+ * <table_name>.<index_name>.blm
+ * A partial index only holds the rows matching its predicate, conditions <column> <operator> <value>
+ * joined by AND, and is only used by searches whose conditions imply the predicate
+ */
+public class IndexDefinition {
+    //name of the index, unique within its table
+    String indexName;
+    //name of the indexed table
+    String tableName;
+    //columns making up the key of the index
+    ArrayList<String> columnNames;
+    //columns whose values are stored next to each row ID so queries can be answered from the index alone
+    ArrayList<String> includeColumns;
+    //structure of the index file, BTREE, HASH or BITMAP
+    String indexType;
+    //predicate of a partial index as written in the command, null if every row is indexed
+    String predicate;
+    //columns, operators and values of the conditions of the predicate
+    ArrayList<String> predicateColumns = new ArrayList<>();
+    ArrayList<String> predicateOperators = new ArrayList<>();
+    ArrayList<String> predicateValues = new ArrayList<>();
+
+    //Creates a definition of a B+ tree index
+    public IndexDefinition(String tableName, String indexName, ArrayList<String> columnNames, ArrayList<String> includeColumns) {
+        this(tableName, indexName, columnNames, includeColumns, "BTREE");
+    }
+
+    //Creates a definition of an index of the given type
+    public IndexDefinition(String tableName, String indexName, ArrayList<String> columnNames, ArrayList<String> includeColumns,
+                           String indexType) {
+        this(tableName, indexName, columnNames, includeColumns, indexType, null);
+    }
+
+    //Creates a definition of an index of the given type holding the rows matching the predicate,
+    //a null predicate indexes every row
+    public IndexDefinition(String tableName, String indexName, ArrayList<String> columnNames, ArrayList<String> includeColumns,
+                           String indexType, String predicate) {
+        this.tableName = tableName;
+        this.indexName = indexName;
+        this.columnNames = columnNames;
+        this.includeColumns = includeColumns;
+        this.indexType = indexType;
+        this.predicate = predicate;
+        if (predicate != null) {
+            //the conditions are separated by AND and each has three tokens
+            String[] tokens = predicate.split(" ");
+            for (int i = 0; i + 2 < tokens.length; i += 4) {
+                predicateColumns.add(tokens[i]);
+                predicateOperators.add(tokens[i + 1]);
+                predicateValues.add(tokens[i + 2]);
+            }
+        }
+    }
+
+    //Creates the definition from a record of the argonbase_indexes table
+    public static IndexDefinition fromRecord(Record record) {
+        ArrayList<Object> values = record.getValues();
+        return new IndexDefinition(
+            (String) values.get(0),
+            (String) values.get(1),
+            splitColumns((String) values.get(2)),
+            splitColumns(values.size() > 3 ? (String) values.get(3) : null),
+            values.size() > 4 && values.get(4) != null ? (String) values.get(4) : "BTREE",
+            values.size() > 5 ? (String) values.get(5) : null
+        );
+    }
+
+    //returns the values of the record of this index in the argonbase_indexes table
+    public ArrayList<Object> toValues() {
+        return new ArrayList<>(Arrays.asList(
+            tableName,
+            indexName,
+            String.join(",", columnNames),
+            includeColumns.isEmpty() ? null : String.join(",", includeColumns),
+            indexType,
+            predicate
+        ));
+    }
+
+    //returns the name of the index file
+    public String getFileName() {
+        return tableName + "." + indexName + ".ndx";
+    }
+
+    //returns the name of the file holding the Bloom filter of the index
+    public String getBloomFileName() {
+        return tableName + "." + indexName + ".blm";
+    }
+
+    //checks whether the index is a hash index
+    public boolean isHash() {
+        return indexType.equals("HASH");
+    }
+
+    //checks whether the index is a bitmap index
+    public boolean isBitmap() {
+        return indexType.equals("BITMAP");
+    }
+
+    //checks whether a condition on the first key column with the given operator can be searched in the index
+    //a hash index only finds equal values of its whole key, null stands for any operator
+    public boolean supports(String operator) {
+        if (!isHash() || operator == null) {
+            return true;
+        }
+        return operator.equals("=") && columnNames.size() == 1;
+    }
+
+    //checks whether the values of all given columns are stored in the index
+    public boolean covers(Collection<String> columns) {
+        for (String column : columns) {
+            if (!columnNames.contains(column) && !includeColumns.contains(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //checks whether the index only holds the rows matching a predicate
+    public boolean isPartial() {
+        return predicate != null;
+    }
+
+    //checks whether changing the column changes the entries of the index, as the column is stored
+    //in the index or decides whether a row matches its predicate
+    public boolean dependsOn(String column) {
+        return covers(List.of(column)) || predicateColumns.contains(column);
+    }
+
+    //checks whether every row matching all conditions <column> <operator> <value> matches the predicate,
+    //the index then holds all rows a search of the conditions can find
+    //each condition of the predicate has to follow from a single condition on its column
+    public boolean isImpliedBy(Table table, List<String> columns, List<Object> values, List<String> operators) {
+        for (int p = 0; p < predicateColumns.size(); p++) {
+            String column = predicateColumns.get(p);
+            Constants.DataTypes type = table.getColumnType(column);
+            Object predicateValue = DataTools.parseStr(type, predicateValues.get(p));
+            boolean implied = false;
+            for (int i = 0; i < columns.size() && !implied; i++) {
+                implied = columns.get(i).equals(column) && values.get(i) != null
+                        && implies(type, operators.get(i), values.get(i), predicateOperators.get(p), predicateValue);
+            }
+            if (!implied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //checks whether every value satisfying <operator> <value> satisfies <predicateOperator> <predicateValue>
+    private static boolean implies(Constants.DataTypes type, String operator, Object value,
+                                   String predicateOperator, Object predicateValue) {
+        //a single value satisfies the predicate if it matches it
+        if (operator.equals("=")) {
+            return DataTools.compare(type, value, predicateValue, predicateOperator);
+        }
+        int comparison = DataTools.compareTo(type, value, predicateValue);
+        switch (operator) {
+            case "<>":
+                return predicateOperator.equals("<>") && comparison == 0;
+            case ">":
+            case ">=":
+                //the values from the bound up stay above the predicate value or away from it
+                boolean strict = operator.equals(">");
+                switch (predicateOperator) {
+                    case ">":
+                    case "<>":
+                        return comparison > 0 || (comparison == 0 && strict);
+                    case ">=":
+                        return comparison >= 0;
+                    default:
+                        return false;
+                }
+            case "<":
+            case "<=":
+                //the values from the bound down stay below the predicate value or away from it
+                strict = operator.equals("<");
+                switch (predicateOperator) {
+                    case "<":
+                    case "<>":
+                        return comparison < 0 || (comparison == 0 && strict);
+                    case "<=":
+                        return comparison <= 0;
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    //splits a comma separated list of column names
+    private static ArrayList<String> splitColumns(String columns) {
+        if (columns == null || columns.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(columns.split(",")));
+    }
+}
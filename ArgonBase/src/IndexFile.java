@@ -3,84 +3,139 @@ import java.util.*;
 
 /*
  * Represents an Index File in the Argon database
- * Extends DatabaseFile class and handles indexing for a specific column of a table
+ * Extends DatabaseFile class and handles indexing for a specific column, or list of columns, of a table
+ * How the pages are organized depends on the index type, see BTreeIndexFile and HashIndexFile, this class
+ * holds what they share: cells of keys and their entries, posting pages and the Bloom filter
+ * Each row ID in a leaf cell is followed by the values of the included columns of the index,
+ * so queries that only need those columns never have to read the table
+ * The row IDs of a cell are kept in order and stored as varint differences to the row ID before them
+ * Once the entries of a value outgrow its cell they move to a chain of posting pages and the cell only
+ * keeps the first and last posting page and the number of entries, new rows are appended to the last page
+ * The key of a composite index over several columns is the list of their values, stored one after
+ * the other and compared column by column, see compareKeys
+ * TEXT keys of a single column index are prefix compressed: the prefix shared by all keys of a page is
+ * stored once at the end of the page, its length at 0x01, and the cells only hold the rest of their key
+ * A Bloom filter over the keys, see BloomFilter, lets an equality search of a key that is definitely
+ * absent return without reading the pages of the index
+ * The first page stores the format version of the file at 0x0E, a file of another version is not read,
+ * see FileManager.newIndexFile
  */
-public class IndexFile extends DatabaseFile{
-    //datatype of the indexed column
+public abstract class IndexFile extends DatabaseFile implements Index {
+    //a leaf cell may use at most a quarter of the page, longer row ID lists move to posting pages
+    public static final int MAX_CELL_SIZE = Constants.PAGE_SIZE / 4;
+    //version of the format of index files: the 0x14 byte header with the left sibling of a leaf, entries
+    //with included columns and varint row ID differences, posting pages and prefix compressed keys
+    //files written before the version was stored have 0 at its place
+    public static final int FORMAT_VERSION = 1;
+
+    //datatype of the (first) indexed column
     Constants.DataTypes dataType;
     //length of the indexed column value
     short valueSize;
+    //indexes and datatypes of the key columns
+    ArrayList<Integer> keyIndexes = new ArrayList<>();
+    ArrayList<Constants.DataTypes> keyTypes = new ArrayList<>();
+    //whether the key has more than one column, the key is then a list of values
+    boolean composite;
+    //whether the keys are TEXT values stored without the prefix shared by the keys of their page
+    boolean compressed;
     //name of the table associated with the index
     String tableName;
     //index of the column being indexed
     int columnIndex;
+    //indexes and datatypes of the included columns
+    ArrayList<Integer> includeIndexes = new ArrayList<>();
+    ArrayList<Constants.DataTypes> includeTypes = new ArrayList<>();
+    //datatypes of all columns of the table, used to build records from the index alone
+    ArrayList<Constants.DataTypes> tableColumnTypes;
+    //definition of the index
+    IndexDefinition definition;
+    //indexes of the columns and values of the conditions of the predicate of a partial index
+    ArrayList<Integer> predicateIndexes = new ArrayList<>();
+    ArrayList<Object> predicateValues = new ArrayList<>();
     //file path for the index file
     String path;
+    //Bloom filter over the keys, read from its file on first use
+    private BloomFilter bloomFilter;
 
-    //Creates a new IndexFile object
-    public IndexFile(Table table, String columnName, String path) throws IOException {
-        super(table.tableName + "." + columnName + ".ndx", Constants.PageType.INDEX_LEAF, path);
+    //Creates a new IndexFile object whose first page has the given type
+    protected IndexFile(Table table, IndexDefinition definition, String path, Constants.PageType firstPageType) throws IOException {
+        super(definition.getFileName(), firstPageType, path);
+        String columnName = definition.columnNames.get(0);
         this.tableName = table.tableName;
+        this.definition = definition;
         this.columnIndex = table.columnNames.indexOf(columnName);
         this.path = path;
         this.dataType = table.getColumnType(columnName);
-        //determine the size of the values based on data type
-        switch(dataType){
-            case TINYINT:
-                this.valueSize = 1;
-                break;
-            
-            case SMALLINT:
-                this.valueSize = 2;
-                break;
-            
-            case INT:
-                this.valueSize = 4;
-                break;
-            
-            case TIME:
-                this.valueSize = 4;
-                break;
-            
-            case FLOAT:
-                this.valueSize = 4;
-                break;
-            
-            case BIGINT:
-                this.valueSize = 8;
-                break;
-            
-            case DATE:
-                this.valueSize = 8;
-                break;
-            
-            case DATETIME:
-                this.valueSize = 8;
-                break;
-            
-            case DOUBLE:
-                this.valueSize = 8;
-                break;
-            
-            case TEXT:
-                this.valueSize = -1;
-                break;
-            
-            case NULL:
-                this.valueSize = 0;
-                break;
+        //determine the size of the values based on data type, -1 for variable length TEXT
+        this.valueSize = (short) DataTools.typeSize(dataType);
+        this.tableColumnTypes = table.columnTypes;
+        for (String keyColumn : definition.columnNames) {
+            keyIndexes.add(table.columnNames.indexOf(keyColumn));
+            keyTypes.add(table.getColumnType(keyColumn));
+        }
+        this.composite = keyIndexes.size() > 1;
+        this.compressed = !composite && dataType == Constants.DataTypes.TEXT;
+        for (String includeColumn : definition.includeColumns) {
+            includeIndexes.add(table.columnNames.indexOf(includeColumn));
+            includeTypes.add(table.getColumnType(includeColumn));
+        }
+        for (int p = 0; p < definition.predicateColumns.size(); p++) {
+            String predicateColumn = definition.predicateColumns.get(p);
+            predicateIndexes.add(table.columnNames.indexOf(predicateColumn));
+            predicateValues.add(DataTools.parseStr(table.getColumnType(predicateColumn), definition.predicateValues.get(p)));
+        }
+    }
+
+    //index pages have a 0x14 byte header, the left sibling page of a leaf is stored at 0x10
+    @Override
+    public int getHeaderSize() {
+        return 0x14;
+    }
+
+    //Creates a new page with the specified parent page and page type, without a left sibling
+    //the first page of the file also gets the format version
+    @Override
+    public int createPage(int parentPage, Constants.PageType pageType) throws IOException {
+        int page = super.createPage(parentPage, pageType);
+
+        //left sibling page 0x10
+        this.seek((long) page * pageSize + 0x10);
+        this.writeInt(0xFFFFFFFF);
+
+        //format version 0x0E of the first page
+        if (page == 0) {
+            this.seek(0x0E);
+            this.writeByte(FORMAT_VERSION);
         }
+        return page;
+    }
+
+    //retrieves the format version the index file was written in, 0 for files older than the version
+    public int getFormatVersion() throws IOException {
+        this.seek(0x0E);
+        return this.readUnsignedByte();
     }
 
     //Reads the data from the specified page and offset in the index file
-    public Object readData(int page, int offset) throws IOException{
+    public Object readData(int page, int offset) throws IOException {
+        Object key = readStoredKey(page, offset);
+        if (key == null || !compressed) {
+            return key;
+        }
+        String prefix = getPagePrefix(page);
+        return prefix.isEmpty() ? key : prefix + key;
+    }
+
+    //Reads the key of a cell as it is stored on its page, without the prefix of the page
+    protected Object readStoredKey(int page, int offset) throws IOException{
          //determine the page type of the specified page
         Constants.PageType pageType = getPageType(page);
 
         //set the file pointer to the specified location in the file based on the page number and offset
         this.seek((long) page * pageSize + offset);
 
-        //if the page is index interior, skip 4 bytes which is possibly a page pointer
+        //if the page is index interior, skip 4 bytes which is the child page pointer
         if (pageType == Constants.PageType.INDEX_INTERIOR) {
             this.skipBytes(4);
         }
@@ -88,896 +143,917 @@ public class IndexFile extends DatabaseFile{
         //read the payload size which is the length of the data
         int payloadSize = this.readShort();
 
-        //if the payload size is 0, return null which contains no valid data
+        //if the payload size is 0, return null, this is the leftmost pointer of an interior page
         if (payloadSize == 0) {
             return null;
         }
 
-        //skip 1 byte which additional information, possibly a record flag
+        //skip 1 byte which is the number of row IDs in the cell
         this.skipBytes(1);
 
-        //read the record type
-        byte recordType = this.readByte();
+        //read the record types and the values of the key
+        return readKey(this);
+    }
 
-        //if the record type is 0, return null which is no valid data
-        if (recordType == 0) {
-            return null;
+    //reads a key, the values of the key columns each preceded by its record type byte
+    public Object readKey(DataInput in) throws IOException {
+        if (!composite) {
+            return readValue(in, dataType);
         }
-
-        //read the data based on the specified data type
-        switch(dataType){
-            case TINYINT:
-                return this.readByte();
-            case YEAR:
-                return this.readByte();
-            
-            case SMALLINT:
-                return this.readShort();
-
-            case INT:
-                return this.readInt();
-
-            case TIME:
-                return this.readInt();
-
-            case BIGINT:
-                return this.readLong();
-            
-            case DATE:
-                return this.readLong();
-            
-            case DATETIME:
-                return this.readLong();
-            
-            case FLOAT:
-                return this.readFloat();
-
-            case DOUBLE:
-                return this.readDouble();
-            
-            case TEXT:
-                //for TEXT, calculate text length and read the corresponding bytes
-                int textLength = recordType - 0x0C;
-                byte[] text = new byte[textLength];
-                this.read(text);
-                return new String(text);
-            
-            default:
-                //return null for unsupported data types
-                return null;
-            
+        ArrayList<Object> key = new ArrayList<>(keyTypes.size());
+        for (Constants.DataTypes keyType : keyTypes) {
+            key.add(readValue(in, keyType));
         }
+        return key;
     }
 
-    //split the page into two pages where we move half of the records to the new page
-    //middle record of original page belongs to parent page and updated necessary pointers
-    public int pageSplit(int pageNumber, Object splittingValue) throws IOException {
-        //get the type of the current page index leaf or index interior
-        Constants.PageType pageType = getPageType(pageNumber);
-
-        //get the parent page number
-        int parentPage = getParentPage(pageNumber);
-
-        //if the current page is the root, create a new root page
-        if (parentPage == 0xFFFFFFFF) {
-            parentPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_INTERIOR);
-
-            //write the size of the payload to the leftmost page pointer entry
-            this.seek((long) parentPage * pageSize + 0x10);
-            this.writeShort(pageSize - 6);
-
-            //write the page pointer and payload size for the rightmost page pointer entry
-            this.seek((long) (parentPage + 1) * pageSize - 6);
-            //pointer to leftmost page has no corresponding cell payload
-            this.writeInt(pageNumber);
-            this.writeByte(0);
-
-            //update the number of cells in the parent page and set the content start pointer
-            this.seek((long) parentPage * pageSize + 0x02);
-            this.writeShort(1);
-            this.writeShort(pageSize - 6);
-
-            //set parent page number in the original page header
-            this.seek((long) pageNumber * pageSize + 0x0A);
-            this.writeInt(parentPage);
+    //writes a key, the values of the key columns each preceded by its record type byte
+    public void writeKey(DataOutput out, Object key) throws IOException {
+        if (!composite) {
+            writeValue(out, dataType, key);
+            return;
         }
-
-        //create a new page for the right half of the records
-        int newPage = createPage(parentPage, pageType);
-        //find the middle record of the original page
-        int middleRecord = getCellCount(pageNumber) / 2;
-        int middleRecordOffset = getCellOffset(pageNumber, middleRecord);
-
-        //read the middle record and write it to parent page
-        this.seek((long) pageNumber * pageSize + middleRecordOffset);
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            this.readInt();
+        List<?> values = (List<?>) key;
+        for (int i = 0; i < keyTypes.size(); i++) {
+            writeValue(out, keyTypes.get(i), values.get(i));
         }
+    }
 
-         //read payload size, record length, value, and associated row IDs
-        short payloadSize = this.readShort();
-        byte middleRecordSize = this.readByte();
-        Object middleRecordValue = readData(pageNumber, middleRecordOffset);
-        ArrayList<Integer> middleRecordPointers = new ArrayList<>();
-        for (int i = 0; i < middleRecordSize; i++) {
-            middleRecordPointers.add(this.readInt());
+    //returns the number of bytes a key takes including its record type bytes
+    public int keyLength(Object key) {
+        if (!composite) {
+            return 1 + valueLength(dataType, key);
         }
-
-        //write the middle record to the parent page
-        this.writeCell(middleRecordValue, middleRecordPointers, parentPage, newPage);
-
-        //fill space where middle record was with zeroes
-        this.seek((long) pageNumber * pageSize + middleRecordOffset);
-        int cellSize = payloadSize + 2 + (pageType == Constants.PageType.INDEX_INTERIOR ? 4: 0);
-        for (int i = 0; i < cellSize; i++) {
-            this.writeByte(0);
-        }
-
-        //move the cells after the middle record to new page
-        this.cellsToPage(pageNumber, newPage, middleRecord);
-
-        //overwrite the offset of the middle record in old page's offsets array
-        this.seek((long) pageNumber * pageSize + 0x10 + middleRecord * 2);
-        this.writeShort(0);
-
-        //get the offset of the remaining cell after the middle record
-        int remainingCellOffset = getCellOffset(pageNumber, middleRecord - 1);
-        this.seek((long) pageNumber * pageSize + 0x02);
-
-
-         //update the number of cells in original page
-        this.writeShort(middleRecord);
-        
-        //update the content start pointer in the original page
-        this.writeShort(remainingCellOffset);
-
-        //return the page number of the new page or the original page based on the split value comparison
-        if (DataTools.compareTo(dataType, splittingValue, middleRecordValue) > 0) {
-            return newPage;
-        } else {
-            return pageNumber;
+        List<?> values = (List<?>) key;
+        int length = 0;
+        for (int i = 0; i < keyTypes.size(); i++) {
+            length += 1 + valueLength(keyTypes.get(i), values.get(i));
         }
+        return length;
     }
 
-   //find the index of last cell on the page that has value <= given value
-    public int findValueIndex(Object value, int page) throws IOException {
-        //get the total number of cells on the specified page
-        int numberOfCells = getCellCount(page);
-
-        //if there are no cells on the page, return -1 because value is not found
-        if (numberOfCells == 0) {
-            return -1;
+    //compares two keys column by column
+    //a key of a composite index may be a prefix holding only the first columns,
+    //it then compares equal to every key starting with the same values
+    public int compareKeys(Object key1, Object key2) {
+        if (!composite) {
+            return DataTools.compareTo(dataType, key1, key2);
         }
-        
-        //perform binary search
-
-        //midpoint
-        int mid = numberOfCells / 2;
-
-        //left
-        int low = -1;
-
-        //right
-        int high = numberOfCells - 1;
-
-        //offset of the current cell
-        int currentOffset = getCellOffset(page, mid);
-
-        while (low < high) {
-            //read the value at the current offset
-            Object currentValue = readData(page, currentOffset);
-
-            //compare the current value with the target value
-            int comparison = DataTools.compareTo(dataType, currentValue, value);
-
-            //if the current value is null, consider it smaller than the target value
-            if (currentValue == null) {
-                comparison = -1;
-            }
-
-            //check the result of the comparison
-            if (comparison == 0) {
-                //target value found, return the current index
-                return mid;
-            } else if (comparison < 0) {
-                //current value is less than target value, adjust the left boundary 
-                low = mid;
-            } else {
-                //current value is greater than the target value, adjust the right boundary 
-                high = mid - 1;
+        List<?> values1 = toKey(key1);
+        List<?> values2 = toKey(key2);
+        int length = Math.min(values1.size(), values2.size());
+        for (int i = 0; i < length; i++) {
+            int comparison = DataTools.compareTo(keyTypes.get(i), values1.get(i), values2.get(i));
+            if (comparison != 0) {
+                return comparison;
             }
-
-            //update the midpoint and current offset for the next iteration
-            mid = (int) Math.floor((float) (low + high + 1) / 2f);
-            currentOffset = getCellOffset(page, mid);
         }
-
-        //if the loop completes without finding the value, return the last known midpoint
-        return mid;
+        return 0;
     }
 
-    //move all cells after preceding cell on source page to destination page
-    public void cellsToPage(int sourcePage, int destinationPage, int precedingCell) throws IOException {
-        int cellOffset = getCellOffset(sourcePage, precedingCell);
-        int numberOfCells = getCellCount(sourcePage);
-        int numberOfCellsToMove = numberOfCells - precedingCell - 1;
-        int contentStart = getStartContent(sourcePage);
-
-        //read the bytes to be moved
-        byte[] cellBytes = new byte[cellOffset - contentStart];
-        this.seek((long) sourcePage * pageSize + contentStart);
-        this.read(cellBytes);
-
-        //read the offsets of the cells to be moved
-        byte[] cellOffsets = new byte[(getCellCount(sourcePage) - precedingCell - 1) * 2];
-        this.seek((long) sourcePage * pageSize + 0x10 + (precedingCell + 1) * 2L);
-        this.read(cellOffsets);
-
-        //overwrite the old cell offsets with zeroes
-        this.seek((long) sourcePage * pageSize + 0x10 + (precedingCell + 1) * 2L);
-        byte[] zeros = new byte[cellOffsets.length];
-        this.write(zeros);
-
-        //write the bytes to be moved
-        int newContentStart = getStartContent(destinationPage) - (cellBytes.length);
-        this.seek((long) destinationPage * pageSize + newContentStart);
-        this.write(cellBytes);
-
-        //write the new content start pointer in the destination page
-        this.seek((long) destinationPage * pageSize + 0x04);
-        this.writeShort(newContentStart);
-
-        //write the cell offsets that that need to be moved
-        int offsetDiff = contentStart - newContentStart;
-        this.seek((long) destinationPage * pageSize + 0x10);
-        for (int i = 0; i < cellOffsets.length; i += 2) {
-            short offset = (short) ((cellOffsets[i] << 8) | (cellOffsets[i + 1] & 0xFF));
-            this.writeShort(offset - offsetDiff);
+    //turns a search value of a composite index into a key, a single value is a prefix of one column
+    protected List<?> toKey(Object value) {
+        if (value instanceof List) {
+            return (List<?>) value;
         }
-
-        //write the number of cells to destination page
-        this.seek((long) destinationPage * pageSize + 0x02);
-        this.writeShort(numberOfCellsToMove);
-
-
-        //fill left space with zeroes by the moved cells
-        zeros = new byte[cellOffset - contentStart];
-        this.seek((long) sourcePage * pageSize + contentStart);
-        this.write(zeros);
+        return Collections.singletonList(value);
     }
 
+    //reads a value of the given datatype preceded by its record type byte, as stored in cells and sorted runs
+    public static Object readValue(DataInput in, Constants.DataTypes dataType) throws IOException {
+        //read the record type
+        int recordType = in.readUnsignedByte();
 
-    //populate the index file by reading records from the associated table and creating index entries
-    //retrieve all records from the table, extracts values for the specified column,
-    //and creates index entries based on unique values
-    public void populateIndex() throws IOException {
-        try (TableFile table = new TableFile(tableName, path)) {
-            //get all records from the table
-            ArrayList<Record> records = table.search(-1, null, null);
-            
-            //initialize data structures to store unique values and corresponding row IDs
-            Set<Object> values = new HashSet<>();
-            Map<Object, ArrayList<Integer>> valueToRowId = new HashMap<>();
-
-            //iterate through records and extract values for the specified column
-            for (Record record : records) {
-                Object value = record.getValues().get(this.columnIndex);
-                 //skip null values
-                if (value == null) {
-                    continue;
-                }
-
-                //check if the value is encountered for the first time
-                if (!values.contains(value)) {
-                    values.add(value);
+        //if the record type is 0, return null which is no valid data
+        if (recordType == 0) {
+            return null;
+        }
 
-                    //initialize the list of row IDs for the value if not present
-                    if (!valueToRowId.containsKey(value)) {
-                        valueToRowId.put(value, new ArrayList<>());
-                    }
+        //read the data based on the specified data type
+        switch(dataType){
+            case TINYINT:
+                return in.readByte();
+            case YEAR:
+                return in.readByte();
 
-                    //add the current record's row ID to the list for the value
-                    valueToRowId.get(value).add(record.getRowId());
-                }
-            }
+            case SMALLINT:
+                return in.readShort();
 
-            //convert unique values to an array and sort them
-            Object[] sortedValues = values.toArray();
-            Arrays.sort(sortedValues, (o1, o2) -> DataTools.compareTo(dataType, o1, o2));
+            case INT:
+                return in.readInt();
 
-            //iterate through sorted values and write index entries
-            for (Object value : sortedValues) {
-                //find the page and index for the current value in the index
-                int[] pageAndIndex = this.findPageAndIndex(value);
-                int page = pageAndIndex[0];
+            case TIME:
+                return in.readInt();
 
-                //write the index entry for the current value
-                this.writeCell(value, valueToRowId.get(value), page, -1);
-            }
-        }
-    }
-    
+            case BIGINT:
+                return in.readLong();
 
-    //writes a cell to the specified page in the index file, containing the given value, associated row IDS,
-    //and optional child page pointer for index interior pages
-    public void writeCell(Object value, ArrayList<Integer> rowIds, int page, int childPage) throws IOException {
-        
-        //determine the page type if it's index leaf or index interior
-        Constants.PageType pageType = getPageType(page);
+            case DATE:
+                return in.readLong();
 
-        //calculate payload and cell sizes based on the value type
-        short payloadSize = (short) (2 + valueSize + 4 * rowIds.size());
+            case DATETIME:
+                return in.readLong();
 
+            case FLOAT:
+                return in.readFloat();
 
-        if (valueSize == -1) {
-            payloadSize += ((String) value).length() + 1;
-        }
+            case DOUBLE:
+                return in.readDouble();
 
-        short cellSize = (short) (2 + payloadSize);
+            case TEXT:
+                //for TEXT, calculate text length and read the corresponding bytes
+                int textLength = recordType - 0x0C;
+                byte[] text = new byte[textLength];
+                in.readFully(text);
+                return new String(text);
 
-        //adjust cell size for index interior pages
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            cellSize += 4;
-        }
+            default:
+                //return null for unsupported data types
+                return null;
 
-        //check if splitting is required and perform split if needed
-        if (split(page, cellSize)) {
-            page = pageSplit(page, value);
         }
+    }
 
-        //find the index where the cell should be inserted
-        int insertionPoint = findValueIndex(value, page);
-        int offset;
-        //if the insert point is the last cell, set the offset to the start of the content
-        if (insertionPoint == getCellCount(page) - 1) {
-            offset = setStartContent(page, cellSize);
+    //writes a value of the given datatype preceded by its record type byte, 0 for a null value
+    public static void writeValue(DataOutput out, Constants.DataTypes dataType, Object value) throws IOException {
+        //write data type, TEXT also encodes the length of the value
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        } else if (dataType == Constants.DataTypes.TEXT){
+            out.writeByte(((String) value).length() + 0x0C);
         } else {
-            //otherwise, shift cells to accomodate the new cell and get the offset
-            offset = cellShift(page, insertionPoint, cellSize, 1);
-        }
-
-        //increment the cell count for the page
-        incrementCellCount(page);
-
-        //write cell start to cell pointer array
-        this.seek((long) page * pageSize + 0x10 + 2L * (insertionPoint + 1));
-        this.writeShort(offset);
-
-        //write number of records, data type, and optional child page pointer for index interior pages
-        this.seek((long) page * pageSize + offset);
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            if (childPage == -1) {
-                throw new IOException("Child page not specified");
-            }
-            this.writeInt(childPage);
+            out.writeByte(dataType.ordinal());
         }
 
-
-        this.writeShort(payloadSize);
-        this.writeByte(rowIds.size());
-
-
-        //write data type
-        if (dataType.ordinal() == 0x0C){
-            this.writeByte(((String) value).length() + 0x0C);
-        } else {
-            this.writeByte(dataType.ordinal());
-        }
-        
         //write the actual value based on the data type
         switch(dataType){
             case TINYINT:
-                this.writeByte((Byte) value);
+                out.writeByte((Byte) value);
                 break;
             case YEAR:
-                this.writeByte((Byte) value);
+                out.writeByte((Byte) value);
                 break;
             case SMALLINT:
-                this.writeShort((Short) value);
+                out.writeShort((Short) value);
                 break;
             case INT:
-                this.writeInt((Integer) value);
+                out.writeInt((Integer) value);
                 break;
             case TIME:
-                this.writeInt((Integer) value);
+                out.writeInt((Integer) value);
                 break;
             case BIGINT:
-                this.writeLong((Long) value);
+                out.writeLong((Long) value);
                 break;
             case DATE:
-                this.writeLong((Long) value);
+                out.writeLong((Long) value);
                 break;
             case DATETIME:
-                this.writeLong((Long) value);
+                out.writeLong((Long) value);
                 break;
              case FLOAT:
-                this.writeFloat((Float) value);
+                out.writeFloat((Float) value);
                 break;
              case DOUBLE:
-                this.writeDouble((Double) value);
+                out.writeDouble((Double) value);
                 break;
              case TEXT:
-                this.writeBytes((String) value);
+                out.writeBytes((String) value);
                 break;
         }
-        
-        //write row IDs associated with the value
-        for (int rowId : rowIds) {
-            this.writeInt(rowId);
-        }
     }
 
-
-    //remove a record from a cell using a specified row ID from the index entry associated with given value
-    //first identifies the page and index of the index entry containing the value
-    //then remove the specified row ID from the index entry
-    //val is the the value for which the row ID needs to be removed from the index
-    //rowID is the row id to be removed from the index entry
-    public void removeItemFromCell(Object value, int rowId) throws IOException {
-        //find the page, index, and existence status of the specified value in the index
-        int[] pageAndIndex = this.findPageAndIndex(value);
-        int page = pageAndIndex[0];
-        int index = pageAndIndex[1];
-        int exists = pageAndIndex[2];
-
-        //check if the record with the specified value exists in the index
-        if (exists == 0) {
-            throw new IllegalArgumentException("Record does not exist");
+    //returns the number of bytes a value of the given datatype takes, without its record type byte
+    public static int valueLength(Constants.DataTypes dataType, Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (dataType == Constants.DataTypes.TEXT) {
+            return ((String) value).length();
         }
+        return DataTools.typeSize(dataType);
+    }
 
-        //remove the specified row ID from the index entry
-        removeItemFromCell(page, index, rowId);
+    //returns the number of pages a search reads to reach the cells of a value
+    public abstract int getHeight() throws IOException;
+
+    //retrieves the right sibling of a leaf page, 0xFFFFFFFF after the last leaf page
+    public int getNextLeafPage(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x06);
+        return this.readInt();
     }
 
-    //remove a record from a cell using a specified rowID from a cell within an index page
-    public void removeItemFromCell(int page, int index, int rowId) throws IOException {
-        //retrieve the offset of the specified index within the page and read the existing row IDs in the cell
-        int offset = getCellOffset(page, index);
-        ArrayList<Integer> rowIds = this.readRowIds(page, offset);
-       
-        //check whether row id exists in the cell
-        if (!rowIds.contains(rowId)) {
-            throw new IllegalArgumentException("Row id not present in cell");
-        }
-        this.seek((long) page * pageSize + offset);
-       
-        //remove the specified row ID from the list of existing row IDs
-        rowIds.remove((Integer) rowId);
-        
-        //update the cell with the modified row IDs and adjust the space accordingly
-        Constants.PageType pageType = getPageType(page);
-        this.seek((long) page * pageSize + offset);
+    //sets the right sibling of a leaf page
+    public void setNextLeafPage(int page, int nextPage) throws IOException {
+        this.seek((long) page * pageSize + 0x06);
+        this.writeInt(nextPage);
+    }
 
-        //if the page is an interior index page, skip the child page pointer
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            this.skipBytes(4);
+    //builds a cell holding the value and its entries in the format
+    //[child page, interior only][payload size][number of entries][record type][value][entries]
+    //an entry is a row ID followed by the values of the included columns, the entries have to be
+    //in row ID order and are stored as written by encodeEntries
+    //separator cells of interior pages carry no entries
+    public byte[] buildCell(Object value, List<byte[]> entries, int childPage) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream cell = new DataOutputStream(bytes);
+        if (childPage != -1) {
+            cell.writeInt(childPage);
         }
+        byte[] encoded = encodeEntries(entries);
+        cell.writeShort(1 + keyLength(value) + encoded.length);
+        cell.writeByte(entries.size());
+        writeKey(cell, value);
+        cell.write(encoded);
+        return bytes.toByteArray();
+    }
 
-        //read the existing payload size and write the new number of row IDs
-        int payloadSize = this.readShort();
-        this.writeByte(rowIds.size());
+    //builds the leftmost cell of an interior page, a child pointer without a value
+    public byte[] buildPointerCell(int childPage) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream cell = new DataOutputStream(bytes);
+        cell.writeInt(childPage);
+        cell.writeShort(0);
+        return bytes.toByteArray();
+    }
 
-        //skip to the end of existing row IDs and rewrite the modified list
-        this.skipBytes(payloadSize - 4 * (rowIds.size() + 1) - 1);
-        for (int i : rowIds) {
-            this.writeInt(i);
+    //returns the key of a row of the table, the value of the indexed column or the list of values
+    //of the key columns of a composite index
+    //returns null if a key column is null, such rows are not indexed
+    public Object getKey(ArrayList<Object> values) {
+        if (!composite) {
+            return values.get(columnIndex);
+        }
+        ArrayList<Object> key = new ArrayList<>(keyIndexes.size());
+        for (int keyIndex : keyIndexes) {
+            if (values.get(keyIndex) == null) {
+                return null;
+            }
+            key.add(values.get(keyIndex));
         }
-        this.cellShift(page, index - 1, -4, 0);
+        return key;
+    }
 
-        //shift the subsequent cells to fill the empty space created by the removal
-        if (rowIds.size() == 0) {
-            this.deleteCell(page, index);
+    //builds the entry of a row of the table, its row ID followed by the values of the included columns
+    public byte[] buildEntry(int rowId, ArrayList<Object> values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream entry = new DataOutputStream(bytes);
+        entry.writeInt(rowId);
+        for (int i = 0; i < includeIndexes.size(); i++) {
+            writeValue(entry, includeTypes.get(i), values.get(includeIndexes.get(i)));
         }
+        return bytes.toByteArray();
     }
 
-    //delete cell from specified index page and cannot have no row id's associated with it
-    public void deleteCell(int page, int index) throws IOException {
-        //retrieve the offset of the specified index within the page
-        int offset = getCellOffset(page, index);
+    //reads the row ID at the start of an entry
+    public static int entryRowId(byte[] entry) {
+        return ((entry[0] & 0xFF) << 24) | ((entry[1] & 0xFF) << 16) | ((entry[2] & 0xFF) << 8) | (entry[3] & 0xFF);
+    }
 
-        //read the row IDs associated with the cell
-        ArrayList<Integer> rowIds = this.readRowIds(page, offset);
+    //checks whether a leaf cell of the given length can keep its entryCount entries itself
+    //a leaf cell may grow up to MAX_CELL_SIZE bytes and 255 entries, but always keeps its first entry,
+    //longer lists of entries move to posting pages
+    public static boolean fitsInline(int cellLength, int entryCount) {
+        return entryCount <= 1 || (entryCount <= 0xFF && cellLength <= MAX_CELL_SIZE);
+    }
 
-        //check if the cell has existing row IDs, and if so, throw an exception
-        if (rowIds.size() != 0) {
-            throw new IllegalArgumentException("Cannot delete cell with row ids");
+    //reads the value of a cell built by buildCell
+    public Object cellValue(byte[] cell, boolean interior) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(cell));
+        if (interior) {
+            in.skipBytes(4);
         }
-        
-        //check if the page is not the root page, and if so, return because deletion is not allowed here
-        if (page > 0) {
-            return;
+        if (in.readShort() == 0) {
+            return null;
         }
+        in.skipBytes(1);
+        return readKey(in);
+    }
 
-        //if the page is leaf and has more than once cell remove the cell from the leaf
-        //if the page is an interior page, then check
-        //if the page's left child is more than half full, take the last cell from it
-        //otherwise if the page's right child is more than half full, take the first cell from it
-        //otherwise merge the right child into the left child
+    //reads the child page pointer of an interior cell
+    public int cellChild(byte[] cell) {
+        return ((cell[0] & 0xFF) << 24) | ((cell[1] & 0xFF) << 16) | ((cell[2] & 0xFF) << 8) | (cell[3] & 0xFF);
+    }
 
-        //determine the page type (leaf or interior) to apply the appropriate deletion strategy
-        Constants.PageType pageType = getPageType(page);
+    //reads the prefix shared by the keys of a prefix compressed page, empty if there is none
+    public String getPagePrefix(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x01);
+        int prefixLength = this.readUnsignedByte();
+        if (prefixLength == 0) {
+            return "";
+        }
+        byte[] prefix = new byte[prefixLength];
+        this.seek((long) page * pageSize + pageSize - prefixLength);
+        this.readFully(prefix);
+        return new String(prefix);
+    }
 
+    //position of the record type byte of the key in a cell built by buildCell
+    private static int keyStart(boolean interior) {
+        return interior ? 7 : 3;
+    }
 
-        if (pageType == Constants.PageType.INDEX_LEAF) {
-            deleteFromLeaf(page, index);
-        } else {
-            deleteFromInterior(page, index);
+    //returns the longest prefix shared by the keys of the cells, empty unless the keys are compressed
+    //the leftmost pointer cell of an interior page has no key
+    private byte[] commonPrefix(List<byte[]> cells, boolean interior) {
+        if (!compressed) {
+            return new byte[0];
+        }
+        int start = keyStart(interior) + 1;
+        byte[] first = null;
+        int length = 0;
+        for (byte[] cell : cells) {
+            if (cell.length < start) {
+                continue;
+            }
+            int keyLength = (cell[start - 1] & 0xFF) - 0x0C;
+            if (first == null) {
+                first = cell;
+                length = keyLength;
+                continue;
+            }
+            int common = 0;
+            while (common < length && common < keyLength && cell[start + common] == first[start + common]) {
+                common++;
+            }
+            length = common;
         }
+        return first == null ? new byte[0] : Arrays.copyOfRange(first, start, start + length);
     }
 
-    //deletes a cell from an interior index page
-    //if the deletion causes the left or right child to be less than half,
-    //it may trigger a merge or redistribution of cells
-    public void deleteFromInterior(int page, int index) throws IOException {
-        //retrieve the offset of the specified index within the page
-        int offset = getCellOffset(page, index);
-
-        //read information about the left child
-        this.seek((long) page * pageSize + offset);
-        int leftChildPage = this.readInt();
-        int thisPayloadSize = this.readShort();
-        int leftChildSize = getStartContent(leftChildPage);
-        int leftChildCells = getCellCount(leftChildPage);
-
-        //read information about the right child
-        int rightOffset = getCellOffset(page, index + 1);
-        this.seek((long) page * pageSize + rightOffset);
-        int rightChildPage = this.readInt();
-        int rightChildSize = getStartContent(rightChildPage);
-        int rightChildCells = getCellCount(rightChildPage);
-
-        //used for replacement cell information
-        int payloadSize;
-        int replacementPage;
-        int replacementIndex;
-        byte[] cell;
-
-        //determine which child's cell to replace based on cell count and available space
-        if (leftChildSize > (pageSize - 0xF + leftChildCells * 2) / 2 && leftChildCells > 1) {
-            replacementPage = leftChildPage;
-            replacementIndex = leftChildCells - 1;
-        } else if (rightChildSize > (pageSize - 0xF + rightChildCells * 2) / 2 && rightChildCells > 1) {
-            replacementPage = rightChildPage;
-            replacementIndex = 0;
+    //removes the prefix from the key of a cell, or puts it back in front of the key when restore is true
+    //the record type byte and the payload size of the cell are adjusted to the new key length
+    private byte[] applyPrefix(byte[] cell, boolean interior, byte[] prefix, boolean restore) {
+        int start = keyStart(interior);
+        if (prefix.length == 0 || cell.length <= start) {
+            return cell;
+        }
+        int change = restore ? prefix.length : -prefix.length;
+        byte[] result = new byte[cell.length + change];
+        System.arraycopy(cell, 0, result, 0, start);
+        result[start] = (byte) ((cell[start] & 0xFF) + change);
+        if (restore) {
+            System.arraycopy(prefix, 0, result, start + 1, prefix.length);
+            System.arraycopy(cell, start + 1, result, start + 1 + prefix.length, cell.length - start - 1);
         } else {
-            //merge right child into left child if neither child has enough space
-            //take the middle cell and move all cells from right child to left child
-            cellsToPage(rightChildPage, leftChildPage, -1);
-            deletePage(rightChildPage);
-
-            //update the parent page's information and return
-            this.seek((long) page * pageSize + rightOffset);
-            this.writeInt(leftChildPage);
-            this.cellShift(page, leftChildPage, -4 - thisPayloadSize, 0);
-            return;
+            System.arraycopy(cell, start + 1 + prefix.length, result, start + 1, result.length - start - 1);
         }
+        int payloadStart = interior ? 4 : 0;
+        int payload = ((cell[payloadStart] & 0xFF) << 8 | (cell[payloadStart + 1] & 0xFF)) + change;
+        result[payloadStart] = (byte) (payload >> 8);
+        result[payloadStart + 1] = (byte) payload;
+        return result;
+    }
 
-        //perform the deletion of the cell from the specified child
-        deleteCell(replacementPage, replacementIndex);
-
-        //retrieve information about the replacement cell
-        int replacementOffset = getCellOffset(replacementPage, replacementIndex);
-        Constants.PageType replacementPageType = getPageType(replacementPage);
-        this.seek((long) leftChildPage * pageSize + replacementOffset);
-
-        //adjust the replacement cell's information in the parent page
-        if (replacementPageType == Constants.PageType.INDEX_INTERIOR) {
-            this.skipBytes(4);
+    //reads all cells of a page in order as raw bytes, with the prefix of the page put back into their keys
+    public ArrayList<byte[]> readCells(int page) throws IOException {
+        boolean interior = getPageType(page) == Constants.PageType.INDEX_INTERIOR;
+        byte[] prefix = compressed ? getPagePrefix(page).getBytes() : new byte[0];
+        int numberOfCells = getCellCount(page);
+        ArrayList<byte[]> cells = new ArrayList<>(numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            int offset = getCellOffset(page, i);
+            this.seek((long) page * pageSize + offset + (interior ? 4 : 0));
+            int cellSize = 2 + this.readShort() + (interior ? 4 : 0);
+            byte[] cell = new byte[cellSize];
+            this.seek((long) page * pageSize + offset);
+            this.readFully(cell);
+            cells.add(applyPrefix(cell, interior, prefix, true));
         }
+        return cells;
+    }
 
-        //read the payload size and cell data
-        payloadSize = this.readShort();
-        cell = new byte[payloadSize];
-        this.read(cell);
-
-        //write the replacement cell's information to the parent page
-        this.seek((long) page * pageSize + replacementOffset + 4);
-        this.writeInt(payloadSize);
-        if (thisPayloadSize != payloadSize) {
-            this.cellShift(page, index, payloadSize - thisPayloadSize, 0);
+    //checks whether the cells fit on a single leaf or interior page together with the header,
+    //cell pointer array and the prefix shared by their keys
+    public boolean fits(List<byte[]> cells, boolean interior) {
+        byte[] prefix = commonPrefix(cells, interior);
+        int size = getHeaderSize() + 2 * cells.size() + prefix.length;
+        for (byte[] cell : cells) {
+            size += cell.length;
+            if (cell.length > keyStart(interior)) {
+                size -= prefix.length;
+            }
         }
-
-        //write the replacement cell data to the parent page
-        this.write(cell);
+        return size <= pageSize;
     }
 
-    //delets an entry from a leaf type index page and performs necessary adjustments to maintain page integrity
-    public void deleteFromLeaf(int page, int index) throws IOException {
-        //check if the content start pointer is greater than half of the available space
-        if (getStartContent(page) > (pageSize - 0xF + getCellCount(page) * 2) / 2) {
-            //retrieve the offset of the specified index within the page
-            int offset = getCellOffset(page, index);
-
-            //move the file pointer to the beginning of the specified index entry
-            this.seek((long) page * pageSize + offset);
+    //rewrites the cell pointer array and content of a page with the given cells
+    //the prefix shared by the keys is written at the end of the page and the cells are laid out
+    //from there towards the header without it, the rest is zeroed
+    //page type, sibling and parent pointers are left unchanged
+    //cells that do not fit, see fits, are refused before the page is changed
+    public void writeCells(int page, List<byte[]> cells) throws IOException {
+        boolean interior = getPageType(page) == Constants.PageType.INDEX_INTERIOR;
+        if (!fits(cells, interior)) {
+            throw new IOException("Cells do not fit on page " + page + " of index file " + definition.getFileName());
+        }
+        byte[] prefix = commonPrefix(cells, interior);
+        byte[] content = new byte[pageSize - getHeaderSize()];
+        int contentStart = pageSize - prefix.length;
+        System.arraycopy(prefix, 0, content, contentStart - getHeaderSize(), prefix.length);
+        for (int i = 0; i < cells.size(); i++) {
+            byte[] cell = applyPrefix(cells.get(i), interior, prefix, false);
+            contentStart -= cell.length;
+            System.arraycopy(cell, 0, content, contentStart - getHeaderSize(), cell.length);
+            content[2 * i] = (byte) (contentStart >> 8);
+            content[2 * i + 1] = (byte) contentStart;
+        }
 
-            //read the payload size of the index entry
-            int payloadSize = this.readShort();
+        //length of the prefix, number of cells and start of the content
+        this.seek((long) page * pageSize + 0x01);
+        this.writeByte(prefix.length);
+        this.writeShort(cells.size());
+        this.writeShort(contentStart);
 
-            //shifts the cells in the page to remove the specified index entry
-            this.cellShift(page, index, -payloadSize - 4, 0);
+        //cell pointer array and cell content
+        this.seek((long) page * pageSize + getHeaderSize());
+        this.write(content);
+    }
 
-            //check if the page is empty after deletion, and if so, delete the page
-            if (getCellCount(page) == 0) {
-                deletePage(page);
+    //populate the index file by reading records from the associated table and creating index entries
+    public abstract void populateIndex() throws IOException;
+
+    //checks whether a row of the table belongs in the index, a partial index only holds the rows
+    //matching its predicate
+    public boolean indexesRow(ArrayList<Object> values) {
+        for (int p = 0; p < predicateIndexes.size(); p++) {
+            int predicateIndex = predicateIndexes.get(p);
+            if (!DataTools.compare(tableColumnTypes.get(predicateIndex), values.get(predicateIndex), predicateValues.get(p),
+                    definition.predicateOperators.get(p))) {
+                return false;
             }
         }
-
+        return true;
     }
 
-    //add record to cell using the specified row ID associated with specific value in index page
-    public void addItemToCell(Object value, int rowId) throws IOException {
-        //find the index page and cell index where the record should be added
-        int[] pageAndIndex = findPageAndIndex(value);
-        int page = pageAndIndex[0];
-        int index = pageAndIndex[1];
-        int exists = pageAndIndex[2];
-
-
-        //if the cell does not exist, create it and add the row ID
-        if (exists == 0) {
-            writeCell(value, new ArrayList<>(Collections.singletonList(rowId)), page, -1);
+    //adds a row of the table to the index and its key to the Bloom filter
+    //a filter holding more keys than it was sized for is rebuilt twice as large
+    //a row not matching the predicate of a partial index is left out
+    public void addRecord(ArrayList<Object> values, int rowId) throws IOException {
+        if (!indexesRow(values)) {
             return;
         }
-
-        //check if a split is required and perform the split if necessary
-        if (split(page, 4)) {
-            page = pageSplit(page, value);
-            index = findValueIndex(value, page);
+        Object key = getKey(values);
+        addItemToCell(key, buildEntry(rowId, values));
+        if (key != null) {
+            BloomFilter filter = getBloomFilter();
+            filter.add(keyHash(key));
+            if (filter.isFull()) {
+                rebuildBloomFilter();
+            }
         }
+    }
 
-        Constants.PageType pageType = getPageType(page);
+    //removes a row of the table from the index, a row not matching the predicate of a partial index
+    //is not in the index
+    public void removeRecord(ArrayList<Object> values, int rowId) throws IOException {
+        if (!indexesRow(values)) {
+            return;
+        }
+        removeItemFromCell(getKey(values), rowId);
+    }
 
-        //make space for the new row id within the cell
-        this.cellShift(page, index - 1, 4, 0);
+    //remove a row ID from the index entry associated with given value
+    public abstract void removeItemFromCell(Object value, int rowId) throws IOException;
 
-        //obtain the offset of the new cell after the shift
-        int newOffset = getCellOffset(page, index);
+    //add an entry to the cells of the value in the index, null values are not indexed
+    public abstract void addItemToCell(Object value, byte[] entry) throws IOException;
 
-        //read the existing row IDs, add the new row ID, and sort the list
-        ArrayList<Integer> rowIds = readRowIds(page, newOffset);
-        rowIds.add(rowId);
-        Collections.sort(rowIds);
+    //moves the file pointer from the value of a leaf cell to its first entry, or to the posting list
+    //fields of a cell whose entries are on posting pages
+    //returns the number of entries in the cell, 0 for a posting list
+    protected int seekEntries(int page, int offset) throws IOException {
+        //move the file pointer to the number of entries of the leaf cell
+        this.seek((long) page * pageSize + offset + 2);
 
-        //update the cell content with the modified row IDs
-        this.seek((long) page * pageSize + newOffset);
+        //read the number of entries stored in the cell
+        int numEntries = this.readUnsignedByte();
 
-        //if the page is an interior index page, skip the child page pointer
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            this.skipBytes(4);
-        }
+        //skip the key
+        skipValues(keyIndexes.size());
+        return numEntries;
+    }
 
-        //update the payload size with the addition of the new row ID
-        int payloadSize = this.readShort();
-        this.seek((long) page * pageSize + newOffset);
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            this.skipBytes(4);
+    //skips the given number of values, each preceded by its record type byte
+    private void skipValues(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int recordType = this.readUnsignedByte();
+            if (recordType >= 0x0C) {
+                this.skipBytes(recordType - 0x0C);
+            } else if (recordType != 0) {
+                this.skipBytes(DataTools.typeSize(Constants.DataTypes.values()[recordType]));
+            }
         }
-        this.writeShort(payloadSize + 4);
+    }
 
-        //update the number of row ids in the cell
-        this.writeByte(rowIds.size());
+    //checks whether the entries of a leaf cell are stored on posting pages
+    public boolean isPostingList(int page, int offset) throws IOException {
+        this.seek((long) page * pageSize + offset + 2);
+        return this.readUnsignedByte() == 0;
+    }
 
-        //skip bytes based on the data type of the cell value
-        int dataType = this.readByte();
-        if (dataType >= 0x0C) {
-            this.skipBytes(dataType - 0x0C);
-        } else {
-            this.skipBytes(valueSize);
+    //Reads and retrieves the list of row IDS associated with the specified page and offset in the index file
+    public ArrayList<Integer> readRowIds(int page, int offset) throws IOException {
+        //separator cells of interior pages have no row IDs
+        if (getPageType(page) == Constants.PageType.INDEX_INTERIOR) {
+            return new ArrayList<>();
         }
-        
-        //write the modified list of row IDs to the cell
-        for (int rowid : rowIds) {
-            this.writeInt(rowid);
+
+        ArrayList<byte[]> entries = readEntries(page, offset);
+        ArrayList<Integer> rowIds = new ArrayList<>(entries.size());
+        for (byte[] entry : entries) {
+            rowIds.add(entryRowId(entry));
         }
+        return rowIds;
     }
 
-    //finds the page and index of a specified value in the index file
-    //if the cell exists, last element is 1, else the page and index
-    //mark the cell that should be before it and last element is 0
-    public int[] findPageAndIndex(Object value) throws IOException {
-         //start the search from the root page
-        int currentPage = getRootPage();
-        
-        //continue the search until the value is found or the appropriate insert position is determined
-        while (true) {
-            //get the type of the current page index leaf or index interior
-            Constants.PageType pageType = getPageType(currentPage);
-
-            //find the index of the value in the current page
-            int index = findValueIndex(value, currentPage);
+    //reads the row IDs of a leaf cell as a bitmap
+    public RowIdBitmap readBitmap(int page, int offset) throws IOException {
+        return new RowIdBitmap(readRowIds(page, offset));
+    }
 
-            //if the value is not found, return the current page, insert position, and flag indicating not found
-            if (index == -1) {
-                return new int[]{currentPage, 0, 0};
+    //reads the entries of a leaf cell as raw bytes, from the cell itself or from its posting pages
+    public ArrayList<byte[]> readEntries(int page, int offset) throws IOException {
+        int numEntries = seekEntries(page, offset);
+        if (numEntries == 0) {
+            ArrayList<byte[]> entries = new ArrayList<>();
+            int postingPage = this.readInt();
+            while (postingPage != 0xFFFFFFFF) {
+                entries.addAll(readPostingPage(postingPage));
+                postingPage = getNextLeafPage(postingPage);
             }
+            return entries;
+        }
 
-            //get the offset of the cell in the current page
-            int offset = getCellOffset(currentPage, index);
-
-            //read the value stored in the cell
-            Object cellValue = readData(currentPage, offset);
+        //read the rest of the cell at once and decode it in memory
+        long entriesStart = this.getFilePointer();
+        this.seek((long) page * pageSize + offset);
+        int cellEnd = 2 + this.readUnsignedShort();
+        byte[] encoded = new byte[cellEnd - (int) (entriesStart - (long) page * pageSize - offset)];
+        this.seek(entriesStart);
+        this.readFully(encoded);
+        return decodeEntries(new DataInputStream(new ByteArrayInputStream(encoded)), numEntries);
+    }
 
-            //compare the value in the cell with the target value
-            if (DataTools.compareTo(dataType, value, cellValue) == 0) {
-                //if the values match, return the current page, index, and flag indicating value found
-                return new int[] {currentPage, index, 1};
-            } else if (pageType == Constants.PageType.INDEX_LEAF) {
-                //if the current page is a leaf page and values don't match
-                //return the current page, index, and flag indicating not found
-                return new int[] {currentPage, index, 0};
+    //reads the entries of a leaf cell as records of the table
+    //only the indexed and included columns have values, the other columns are null
+    public ArrayList<Record> readRecords(int page, int offset) throws IOException {
+        Object value = readData(page, offset);
+        ArrayList<byte[]> entries = readEntries(page, offset);
+        ArrayList<Record> records = new ArrayList<>(entries.size());
+        for (byte[] entry : entries) {
+            ArrayList<Object> values = new ArrayList<>(Collections.nCopies(tableColumnTypes.size(), null));
+            if (composite) {
+                for (int k = 0; k < keyIndexes.size(); k++) {
+                    values.set(keyIndexes.get(k), ((List<?>) value).get(k));
+                }
             } else {
-                //if the current page is an interior page, update the current page to the child page
-                //pointed to by the cell
-                this.seek((long) currentPage * pageSize + offset);
-                currentPage = this.readInt();
+                values.set(columnIndex, value);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+            int rowId = in.readInt();
+            for (int c = 0; c < includeIndexes.size(); c++) {
+                values.set(includeIndexes.get(c), readValue(in, includeTypes.get(c)));
             }
+            records.add(new Record(new ArrayList<>(tableColumnTypes), values, rowId));
         }
+        return records;
+    }
 
+    //writes a non negative number in 7 bit groups, lowest group first, the high bit marks that more follow
+    public static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
     }
 
-    //Reads and retrieves the list of row IDS associated with the specified page and offset in the index file
-    //interprets the index entry structure to extract the relevant row IDs
-    public ArrayList<Integer> readRowIds(int page, int offset) throws IOException {
-        //determine the page type whether its index leaf or index interior
-        Constants.PageType pageType = getPageType(page);
-        
-        //move the file pointer to the specified position within the index file
-        this.seek((long) page * pageSize + offset);
+    //reads a number written by writeVarint
+    public static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
 
-        //skip additional bytes if the page type is index interior
-        if (pageType == Constants.PageType.INDEX_INTERIOR) {
-            this.skipBytes(4);
+    //returns the number of bytes writeVarint uses for the value
+    public static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
         }
+        return length;
+    }
 
-        //initialize an arraylist to store the row IDs
-        ArrayList<Integer> rowIds = new ArrayList<>();
+    //returns the number of bytes an entry takes when it follows an entry with the given row ID
+    public static int encodedLength(int previousRowId, byte[] entry) {
+        return varintLength(entryRowId(entry) - previousRowId) + entry.length - 4;
+    }
 
-        //read the payload size of the index entry
-        int payloadSize = this.readShort();
+    //encodes entries in row ID order, each row ID is stored as the varint difference to the row ID
+    //of the entry before it, the first one as the difference to 0, followed by the included values
+    public static byte[] encodeEntries(List<byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int previousRowId = 0;
+        for (byte[] entry : entries) {
+            int rowId = entryRowId(entry);
+            writeVarint(out, rowId - previousRowId);
+            out.write(entry, 4, entry.length - 4);
+            previousRowId = rowId;
+        }
+        return bytes.toByteArray();
+    }
 
-        //if the payload size is zero, return an empty arraylist with no row IDs
-        if (payloadSize == 0) {
-            return new ArrayList<>();
+    //decodes the given number of entries written by encodeEntries back into raw entries
+    private ArrayList<byte[]> decodeEntries(DataInput in, int count) throws IOException {
+        ArrayList<byte[]> entries = new ArrayList<>(count);
+        int rowId = 0;
+        for (int i = 0; i < count; i++) {
+            rowId += readVarint(in);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream entry = new DataOutputStream(bytes);
+            entry.writeInt(rowId);
+            for (Constants.DataTypes includeType : includeTypes) {
+                writeValue(entry, includeType, readValue(in, includeType));
+            }
+            entries.add(bytes.toByteArray());
         }
+        return entries;
+    }
 
-        //read the number of row IDs stored in the index entry
-        int numRowIds = this.readByte();
+    //adds an entry to entries in row ID order
+    public static void addEntry(List<byte[]> entries, byte[] entry) {
+        int position = entries.size();
+        while (position > 0 && entryRowId(entries.get(position - 1)) > entryRowId(entry)) {
+            position--;
+        }
+        entries.add(position, entry);
+    }
 
-        //read the data type information
-        int dataType = this.readByte();
+    //builds a leaf cell whose entries are on posting pages, in the format
+    //[payload size][0][record type][value][first posting page][last posting page][number of entries]
+    public byte[] buildPostingCell(Object value, int firstPage, int lastPage, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream cell = new DataOutputStream(bytes);
+        cell.writeShort(1 + keyLength(value) + 12);
+        cell.writeByte(0);
+        writeKey(cell, value);
+        cell.writeInt(firstPage);
+        cell.writeInt(lastPage);
+        cell.writeInt(count);
+        return bytes.toByteArray();
+    }
 
-        //skip bytes based on the data type to reach the start of the row IDs
-        if (dataType >= 0x0C) {
-            this.skipBytes(dataType - 0x0C);
-        } else {
-            this.skipBytes(valueSize);
-        }
+    //number of bytes of entries a posting page holds
+    public int postingCapacity() {
+        return pageSize - getHeaderSize();
+    }
 
-        //read each row ID and add it to the arraylist
-        for (int i = 0; i < numRowIds; i++) {
-            rowIds.add(this.readInt());
-        }
+    //reads the entries stored on a posting page
+    //a posting page stores its number of entries at 0x02, the end of its entries at 0x04, the next posting
+    //page at 0x06 and its last row ID at 0x10, its entries follow the header as written by encodeEntries
+    private ArrayList<byte[]> readPostingPage(int page) throws IOException {
+        byte[] content = new byte[pageSize];
+        this.seek((long) page * pageSize);
+        this.readFully(content);
+        int count = ((content[0x02] & 0xFF) << 8) | (content[0x03] & 0xFF);
+        int end = ((content[0x04] & 0xFF) << 8) | (content[0x05] & 0xFF);
+        return decodeEntries(new DataInputStream(new ByteArrayInputStream(content, getHeaderSize(), end - getHeaderSize())), count);
+    }
 
-        //return the arraylist containing the extracted row IDs
-        return rowIds;
+    //writes entries in row ID order to a posting page, the next posting page is left unchanged
+    public void writePostingPage(int page, List<byte[]> entries) throws IOException {
+        byte[] encoded = encodeEntries(entries);
+        byte[] content = new byte[postingCapacity()];
+        System.arraycopy(encoded, 0, content, 0, encoded.length);
+
+        this.seek((long) page * pageSize + 0x02);
+        this.writeShort(entries.size());
+        this.writeShort(getHeaderSize() + encoded.length);
+        this.seek((long) page * pageSize + 0x10);
+        this.writeInt(entries.isEmpty() ? 0xFFFFFFFF : entryRowId(entries.get(entries.size() - 1)));
+        this.write(content);
     }
 
-    //traverse the index pages and retrieve the row IDs within a specified range and direction 
-    public ArrayList<Integer> traverse(int page, int start, int end, int direction) throws IOException {
-        //if the starting index is greater than the ending index, return an empty list
-        if (start > end) {
-            return new ArrayList<>();
+    //retrieves the last row ID on a posting page
+    private int getPostingLastRowId(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x10);
+        return this.readInt();
+    }
+
+    //writes entries in row ID order to a new chain of posting pages, each page filled as far as it goes
+    //returns the first and the last page of the chain
+    public int[] writePostingList(List<byte[]> entries) throws IOException {
+        int firstPage = 0xFFFFFFFF;
+        int lastPage = 0xFFFFFFFF;
+        int start = 0;
+        while (start < entries.size()) {
+            //take entries while they fit, the first entry of a page is stored as its full row ID
+            int end = start;
+            int length = 0;
+            int previousRowId = 0;
+            while (end < entries.size() && (end == start || length + encodedLength(previousRowId, entries.get(end)) <= postingCapacity())) {
+                length += encodedLength(previousRowId, entries.get(end));
+                previousRowId = entryRowId(entries.get(end));
+                end++;
+            }
+            int page = createPage(0xFFFFFFFF, Constants.PageType.INDEX_POSTING);
+            writePostingPage(page, entries.subList(start, end));
+            if (lastPage == 0xFFFFFFFF) {
+                firstPage = page;
+            } else {
+                setNextLeafPage(lastPage, page);
+            }
+            lastPage = page;
+            start = end;
         }
+        return new int[] {firstPage, lastPage};
+    }
 
-        //initialize an empty arraylist to store the retrieved row IDs
-        ArrayList<Integer> rowIds = new ArrayList<>();
+    //adds an entry to the posting list of the leaf cell at the offset
+    //an entry with a row ID after all others, as for a new row, is appended to the last posting page in place,
+    //otherwise the posting page of the row ID is rewritten and split in two when it is full
+    public void addToPostingList(int page, int offset, byte[] entry) throws IOException {
+        seekEntries(page, offset);
+        long fields = this.getFilePointer();
+        int firstPage = this.readInt();
+        int lastPage = this.readInt();
+        int count = this.readInt();
+        int rowId = entryRowId(entry);
+
+        int lastRowId = getPostingLastRowId(lastPage);
+        if (rowId > lastRowId) {
+            this.seek((long) lastPage * pageSize + 0x02);
+            int pageCount = this.readShort();
+            int end = this.readShort();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream encoded = new DataOutputStream(bytes);
+            writeVarint(encoded, rowId - lastRowId);
+            encoded.write(entry, 4, entry.length - 4);
+
+            if (end + bytes.size() <= pageSize) {
+                //append the entry behind the last entry of the last page
+                this.seek((long) lastPage * pageSize + end);
+                this.write(bytes.toByteArray());
+                this.seek((long) lastPage * pageSize + 0x02);
+                this.writeShort(pageCount + 1);
+                this.writeShort(end + bytes.size());
+                this.seek((long) lastPage * pageSize + 0x10);
+                this.writeInt(rowId);
+            } else {
+                //the last page is full, the entry starts a new last page
+                int newPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_POSTING);
+                writePostingPage(newPage, Collections.singletonList(entry));
+                setNextLeafPage(lastPage, newPage);
+                lastPage = newPage;
+            }
+        } else {
+            //find the first page whose last row ID comes after the row ID
+            int postingPage = firstPage;
+            while (getPostingLastRowId(postingPage) < rowId) {
+                postingPage = getNextLeafPage(postingPage);
+            }
+            ArrayList<byte[]> entries = readPostingPage(postingPage);
+            addEntry(entries, entry);
+            if (encodeEntries(entries).length <= postingCapacity()) {
+                writePostingPage(postingPage, entries);
+            } else {
+                //move the upper half of the entries to a new page after the page
+                int newPage = createPage(0xFFFFFFFF, Constants.PageType.INDEX_POSTING);
+                setNextLeafPage(newPage, getNextLeafPage(postingPage));
+                setNextLeafPage(postingPage, newPage);
+                int middle = entries.size() / 2;
+                writePostingPage(postingPage, entries.subList(0, middle));
+                writePostingPage(newPage, entries.subList(middle, entries.size()));
+                if (postingPage == lastPage) {
+                    lastPage = newPage;
+                }
+            }
+        }
 
-        //obtain the page type of the current index page
-        Constants.PageType pageType = getPageType(page);
+        this.seek(fields);
+        this.writeInt(firstPage);
+        this.writeInt(lastPage);
+        this.writeInt(count + 1);
+    }
 
-        //initialize the current cell index to the starting index
-        int currentCell = start;
+    //removes the entry of a row ID from the posting list of the leaf cell at the offset
+    //posting pages are freed once they are empty
+    //returns the number of entries left
+    public int removeFromPostingList(int page, int offset, int rowId) throws IOException {
+        seekEntries(page, offset);
+        long fields = this.getFilePointer();
+        int firstPage = this.readInt();
+        int lastPage = this.readInt();
+        int count = this.readInt();
+
+        //find the first page whose last row ID is not before the row ID
+        int previousPage = 0xFFFFFFFF;
+        int postingPage = firstPage;
+        while (postingPage != 0xFFFFFFFF && getPostingLastRowId(postingPage) < rowId) {
+            previousPage = postingPage;
+            postingPage = getNextLeafPage(postingPage);
+        }
+        if (postingPage == 0xFFFFFFFF) {
+            throw new IllegalArgumentException("Row id not present in index");
+        }
+
+        ArrayList<byte[]> entries = readPostingPage(postingPage);
+        int position = 0;
+        while (position < entries.size() && entryRowId(entries.get(position)) != rowId) {
+            position++;
+        }
+        if (position == entries.size()) {
+            throw new IllegalArgumentException("Row id not present in index");
+        }
+        entries.remove(position);
 
-        //get the offset of the current cell within the page
-        int offset = getCellOffset(page, currentCell);
+        if (entries.isEmpty()) {
+            //unlink the empty page from the chain
+            int nextPage = getNextLeafPage(postingPage);
+            if (previousPage == 0xFFFFFFFF) {
+                firstPage = nextPage;
+            } else {
+                setNextLeafPage(previousPage, nextPage);
+            }
+            if (postingPage == lastPage) {
+                lastPage = previousPage;
+            }
+            deletePage(postingPage);
+        } else {
+            writePostingPage(postingPage, entries);
+        }
 
-        //traverse through the cells within the specified range
-        while (currentCell <= end) {
-            //recompute the offset for each cell
-            offset = getCellOffset(page, currentCell);
+        this.seek(fields);
+        this.writeInt(firstPage);
+        this.writeInt(lastPage);
+        this.writeInt(count - 1);
+        return count - 1;
+    }
 
-            //read and add the row IDs from the current cell to the list
-            rowIds.addAll(readRowIds(page, offset));
+    //returns the hash of a key for the Bloom filter, taken over the key as it is stored
+    public long keyHash(Object key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeKey(new DataOutputStream(bytes), key);
+        return BloomFilter.hash(bytes.toByteArray());
+    }
 
-            //if the page type is index interior, recursively traverse the child page
-            if (pageType == Constants.PageType.INDEX_INTERIOR) {
-                this.seek((long) page * pageSize + offset);
-                int nextPage = this.readInt();
-                rowIds.addAll(traverse(nextPage, 0, getCellCount(nextPage) - 1, direction));
+    //returns the Bloom filter of the index, an index without a filter file gets one built from its keys
+    private BloomFilter getBloomFilter() throws IOException {
+        if (bloomFilter == null) {
+            bloomFilter = BloomFilter.open(new File(path + "/" + definition.getBloomFileName()));
+            if (bloomFilter == null) {
+                rebuildBloomFilter();
             }
+        }
+        return bloomFilter;
+    }
 
-            //move to the next cell
-            currentCell++;
+    //builds the Bloom filter anew from the keys in the index, sized for twice their number
+    //this drops the keys of removed rows, which the filter keeps until then
+    public void rebuildBloomFilter() throws IOException {
+        ArrayList<Object> keys = readKeys();
+        long[] hashes = new long[keys.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = keyHash(keys.get(i));
         }
+        if (bloomFilter != null) {
+            bloomFilter.close();
+        }
+        bloomFilter = BloomFilter.create(new File(path + "/" + definition.getBloomFileName()), 2 * hashes.length);
+        bloomFilter.addAll(hashes);
+    }
 
-        //obtain the parent page of the current page
-        int parentPage = getParentPage(page);
+    //returns the distinct keys in the index
+    public abstract ArrayList<Object> readKeys() throws IOException;
 
-        //if the parent page is not present when equal to -1, return the accumulated row IDs
-        if (parentPage == -1) {
-            return rowIds;
+    //checks with the Bloom filter whether a search of the value with the operator definitely finds nothing
+    //only an equality search of a whole key can be answered, a composite prefix cannot
+    public boolean isAbsent(Object value, String operator) throws IOException {
+        if (!operator.equals("=") || value == null) {
+            return false;
         }
-
-         //find the index of the current cell within the parent page
-        int parentIndex = findValueIndex(readData(page, offset), parentPage);
-        if (direction == -1) {
-            //traverse to the left of the parent page up to the identified index
-            rowIds.addAll(traverse(parentPage, 0, parentIndex - 1, direction));
-            //add the row IDs from the identified cell in the parent page
-            rowIds.addAll(readRowIds(parentPage, getCellOffset(parentPage, parentIndex)));
-        } else if (direction == 1) {
-            //traverse to the right of the parent page starting from the identified index + 1
-            rowIds.addAll(traverse(parentPage, parentIndex + 1, getCellCount(parentPage) - 1, direction));
-        } else if (direction == 0) {
-            //traverse both sides of the parent page
-            rowIds.addAll(traverse(parentPage, 0, getCellCount(parentPage) - 1, direction));
-        } else {
-            //invalid direction
-            throw new IllegalArgumentException("Direction must be -1, 0, or 1");
+        if (composite && (!(value instanceof List) || ((List<?>) value).size() < keyTypes.size())) {
+            return false;
         }
-        //return the accumulated row IDs from the traversal
-        return rowIds;
+        return !getBloomFilter().mightContain(keyHash(value));
     }
 
-    //searches for row IDs in a specified range based on the given value and operator
-    public ArrayList<Integer> search(Object value, String operator) throws IOException {
-        //finds the page and index information for the given value
-        ArrayList<Integer> rowIds;
-        int[] pageAndIndex = findPageAndIndex(value);
-        int page = pageAndIndex[0];
-        int index = pageAndIndex[1];
-        int exists = pageAndIndex[2];
-        int offset = getCellOffset(page, index);
-
-        //perform the search operation based on the specified operator
-        switch(operator){
-            case "=":
-            //if the value exists, return the row IDs associated with the cell
-                if(exists == 1){
-                    rowIds = readRowIds(page, offset);
-                }else{
-                    //if the value does not exist, return an empty list
-                    rowIds = new ArrayList<>();
-                }
-                break;
-            case "<>":
-                //for the not equal operator, retrieve row IDs from both sides of the specified index
-                var temp = traverse(page, 0, index - 1, -1);
-                temp.addAll(traverse(page, index + 1, getCellCount(page) - 1, 1));
-                rowIds = temp;
-                break;
-            
-            case "<":
-                //for the less than operator, retrieve row IDs from the left side of the specified index
-                rowIds = traverse(page, 0, index - 1, -1);
-                break;
-            case "<=":
-                //for the less than or equal operator, retrieve row IDs from the left side including the specified index
-                rowIds = traverse(page, 0, index, -1);
-                break;
-            case ">":
-                //for the greater than operator, retrieve row IDs from the right side of the specified index
-                rowIds = traverse(page, index + 1, getCellCount(page) - 1, 1);
-                break;
-            case ">=":
-                //for the greater than or equal operator, retrieve row IDs from the right side including the specified index
-                rowIds = traverse(page, index, getCellCount(page) - 1, 1);
-                break;
-            default:
-                throw new IllegalArgumentException("Operator must be =, <>, <, <=, >, or >=");
+    //closes the file of the Bloom filter together with the index file
+    @Override
+    void closeFile() throws IOException {
+        if (bloomFilter != null) {
+            bloomFilter.close();
+            bloomFilter = null;
         }
-
-        return rowIds;
+        super.closeFile();
     }
 }
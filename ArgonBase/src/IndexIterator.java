@@ -0,0 +1,165 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Iterates over the leaf cells of an index whose values lie between a lower and an upper bound
+ * The iterator descends the tree once to the first cell in range and then walks the leaf pages
+ * through their sibling pointers, in ascending or descending order of the values
+ * A null bound leaves that side of the range open, a bound of a composite index may be a key prefix
+ */
+public class IndexIterator {
+    //index being scanned
+    private final BTreeIndexFile index;
+
+    //bounds of the range and whether the bound values themselves are included
+    private final Object lower;
+    private final boolean lowerInclusive;
+    private final Object upper;
+    private final boolean upperInclusive;
+
+    //whether the values are returned from the upper bound down to the lower bound
+    private final boolean descending;
+
+    //leaf page and cell index of the next cell to read, page is 0xFFFFFFFF once the scan is done
+    private int page;
+    private int cell;
+
+    //value, leaf page and offset of the current cell
+    private Object value;
+    private int valuePage;
+    private int valueOffset;
+
+    //Creates an iterator positioned before the first cell in range
+    public IndexIterator(BTreeIndexFile index, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive, boolean descending) throws IOException {
+        this.index = index;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+        this.descending = descending;
+
+        if (!descending) {
+            if (lower == null) {
+                //start at the first cell of the index
+                page = index.getFirstLeafPage();
+                cell = 0;
+            } else {
+                //start right after the last cell below the range
+                page = index.findLeafPage(lower, lowerInclusive);
+                cell = index.findValueIndex(lower, page, lowerInclusive) + 1;
+            }
+        } else {
+            if (upper == null) {
+                //start at the last cell of the index
+                page = index.getLastLeafPage();
+                cell = index.getCellCount(page) - 1;
+            } else {
+                //start at the last cell within the upper bound
+                page = index.findLeafPage(upper, !upperInclusive);
+                cell = index.findValueIndex(upper, page, !upperInclusive);
+            }
+        }
+    }
+
+    //moves to the next cell in range, returns false once the range is exhausted
+    public boolean next() throws IOException {
+        while (page != 0xFFFFFFFF) {
+            //continue on the neighbouring leaf page once the current one is used up
+            if (cell < 0) {
+                page = index.getPreviousLeafPage(page);
+                if (page != 0xFFFFFFFF) {
+                    cell = index.getCellCount(page) - 1;
+                }
+                continue;
+            }
+            if (cell >= index.getCellCount(page)) {
+                page = index.getNextLeafPage(page);
+                cell = 0;
+                continue;
+            }
+
+            int offset = index.getCellOffset(page, cell);
+            Object cellValue = index.readData(page, offset);
+
+            //the scan ends at the first value past the far bound
+            if (descending ? belowLower(cellValue) : aboveUpper(cellValue)) {
+                page = 0xFFFFFFFF;
+                return false;
+            }
+
+            value = cellValue;
+            valuePage = page;
+            valueOffset = offset;
+            cell += descending ? -1 : 1;
+            return true;
+        }
+        return false;
+    }
+
+    //moves an ascending iterator to the first cell whose value is >= the target, the next call of next
+    //returns it
+    //searching sorted targets one after the other reuses the leaf page of the last one: a target above the
+    //first value of the current leaf page and up to its last value is found on it, any other target
+    //descends from the root again, as cells of a key prefix equal to the first value may start on an
+    //earlier page
+    public void seek(Object target) throws IOException {
+        if (page != 0xFFFFFFFF) {
+            int count = index.getCellCount(page);
+            if (count > 0 && index.compareKeys(index.readData(page, index.getCellOffset(page, 0)), target) < 0
+                    && index.compareKeys(index.readData(page, index.getCellOffset(page, count - 1)), target) >= 0) {
+                cell = index.findValueIndex(target, page, true) + 1;
+                return;
+            }
+        }
+        page = index.findLeafPage(target, true);
+        cell = index.findValueIndex(target, page, true) + 1;
+    }
+
+    //returns the value of the current cell
+    public Object getValue() {
+        return value;
+    }
+
+    //returns the row IDs of the current cell
+    public ArrayList<Integer> getRowIds() throws IOException {
+        return index.readRowIds(valuePage, valueOffset);
+    }
+
+    //returns the row IDs of the current cell as a bitmap
+    public RowIdBitmap getBitmap() throws IOException {
+        return index.readBitmap(valuePage, valueOffset);
+    }
+
+    //returns the leaf page of the current cell
+    public int getPage() {
+        return valuePage;
+    }
+
+    //returns the offset of the current cell on its leaf page
+    public int getOffset() {
+        return valueOffset;
+    }
+
+    //returns the entries of the current cell as records holding the indexed and included columns
+    public ArrayList<Record> getRecords() throws IOException {
+        return index.readRecords(valuePage, valueOffset);
+    }
+
+    //checks whether the value lies below the lower bound
+    private boolean belowLower(Object cellValue) {
+        if (lower == null) {
+            return false;
+        }
+        int comparison = index.compareKeys(cellValue, lower);
+        return comparison < 0 || (!lowerInclusive && comparison == 0);
+    }
+
+    //checks whether the value lies above the upper bound
+    private boolean aboveUpper(Object cellValue) {
+        if (upper == null) {
+            return false;
+        }
+        int comparison = index.compareKeys(cellValue, upper);
+        return comparison > 0 || (!upperInclusive && comparison == 0);
+    }
+}
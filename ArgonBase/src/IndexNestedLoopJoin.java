@@ -0,0 +1,282 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Joins the records of an outer input with the records of a table whose join column equals theirs, NULL
+ * is equal to nothing, the records of the table are found through an index on the join column instead of
+ * reading the whole table
+ * The outer records are read in batches of BATCH_SIZE, the distinct join values of a batch are sorted and
+ * looked up one after the other: a B-tree index is walked forward with a single IndexIterator, so the
+ * values falling into the same leaf page are found without descending the tree again, a hash index finds
+ * each value in its bucket
+ * Only the row IDs found are kept for the batch, the batch is then split into runs of outer records
+ * whose matches add up to at most FETCH_SIZE records, the matches of a run are fetched from the table in
+ * one pass in row ID order, like IndexScan does, and checked against the predicate on the table
+ * The records of a run are joined one outer record at a time as they are pulled, so no more than
+ * FETCH_SIZE records of the table are held, the matches of an outer record with more of them are fetched
+ * in several runs
+ * The result comes in the order of the outer input, a record of the result holds the values of the left
+ * record followed by those of the right record, whichever side the table is on
+ */
+public class IndexNestedLoopJoin extends Operator {
+    //number of outer records whose join values are looked up at once
+    public static final int BATCH_SIZE = IndexScan.BATCH_SIZE;
+    //largest number of records of the table fetched at once
+    public static final int FETCH_SIZE = IndexScan.BATCH_SIZE;
+
+    private final Operator outer;
+    private final String outerColumn;
+    private final Table table;
+    private final IndexDefinition index;
+    //the join column of the table and the name it is returned under
+    private final String innerColumn;
+    private final String innerName;
+    //the conditions on the records of the table, null if there are none
+    private final Predicate predicate;
+    //positions of the columns returned from the records of the table
+    private final int[] columnIndexes;
+    //whether the outer input is the left input of the join, otherwise the table is
+    private final boolean outerLeft;
+
+    private int outerIndex;
+    private Constants.DataTypes keyType;
+    private Predicate boundPredicate;
+    private IndexFile indexFile;
+    //walks a B-tree index in the order of the values looked up, null for a hash index
+    private IndexIterator iterator;
+    //whether the outer input is exhausted
+    private boolean outerDone;
+    //outer records of the current batch, the row IDs matching each of their join values, the position of
+    //the first outer record not in a run yet and how many of its matches earlier runs already fetched
+    private ArrayList<Record> outerRecords = new ArrayList<>();
+    private HashMap<Object, ArrayList<Integer>> rowIdsByValue = new HashMap<>();
+    private int outerPosition;
+    private int rowIdOffset;
+    //outer records of the current run with the row IDs they are joined with, the values of the records
+    //fetched for the run by row ID, and the position of the next record to join
+    private final ArrayList<Record> run = new ArrayList<>();
+    private final ArrayList<List<Integer>> runRowIds = new ArrayList<>();
+    private HashMap<Integer, ArrayList<Object>> innerValues = new HashMap<>();
+    private int runIndex;
+    private int rowIdIndex;
+    //row ID of the next record returned
+    private int rowId;
+
+    //Creates a join of the outer input with the records of the table matching the predicate whose
+    //innerColumn equals outerColumn, found through the index whose first key column is innerColumn
+    //the columns of the table are returned under the given names
+    public IndexNestedLoopJoin(Operator outer, String outerColumn, Table table, IndexDefinition index, String innerColumn,
+                               Predicate predicate, List<String> columns, List<String> names, boolean outerLeft) {
+        super(new ArrayList<>(), new ArrayList<>());
+        ArrayList<Constants.DataTypes> types = new ArrayList<>();
+        this.columnIndexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndexes[i] = table.columnNames.indexOf(columns.get(i));
+            types.add(table.columnTypes.get(columnIndexes[i]));
+        }
+        columnNames.addAll(outerLeft ? outer.columnNames : names);
+        columnNames.addAll(outerLeft ? names : outer.columnNames);
+        columnTypes.addAll(outerLeft ? outer.columnTypes : types);
+        columnTypes.addAll(outerLeft ? types : outer.columnTypes);
+        this.outer = outer;
+        this.outerColumn = outerColumn;
+        this.table = table;
+        this.index = index;
+        this.innerColumn = innerColumn;
+        this.innerName = names.get(columns.indexOf(innerColumn));
+        this.predicate = predicate;
+        this.outerLeft = outerLeft;
+    }
+
+    @Override
+    public void open() throws IOException {
+        outerIndex = outer.columnIndex(outerColumn);
+        keyType = table.getColumnType(innerColumn);
+        boundPredicate = predicate == null ? null : predicate.bind(table.columnNames);
+        indexFile = table.getIndexFile(index);
+        iterator = index.isHash() ? null : new IndexIterator((BTreeIndexFile) indexFile, null, true, null, true, false);
+        outerDone = false;
+        outerRecords = new ArrayList<>();
+        rowIdsByValue = new HashMap<>();
+        outerPosition = 0;
+        rowIdOffset = 0;
+        clearRun();
+        rowId = 1;
+        outer.open();
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (true) {
+            if (runIndex < run.size()) {
+                List<Integer> rowIds = runRowIds.get(runIndex);
+                while (rowIdIndex < rowIds.size()) {
+                    ArrayList<Object> inner = innerValues.get(rowIds.get(rowIdIndex++));
+                    if (inner != null) {
+                        Record outerRecord = run.get(runIndex);
+                        ArrayList<Object> values = new ArrayList<>(outerLeft ? outerRecord.getValues() : inner);
+                        values.addAll(outerLeft ? inner : outerRecord.getValues());
+                        return new Record(new ArrayList<>(columnTypes), values, rowId++);
+                    }
+                }
+                runIndex++;
+                rowIdIndex = 0;
+                continue;
+            }
+            if (outerPosition == outerRecords.size()) {
+                if (outerDone) {
+                    return null;
+                }
+                readBatch();
+            }
+            fetchRun();
+        }
+    }
+
+    //reads the next batch of outer records and looks up the row IDs matching their join values
+    private void readBatch() throws IOException {
+        outerRecords = new ArrayList<>();
+        Record record;
+        while (outerRecords.size() < BATCH_SIZE && (record = outer.next()) != null) {
+            outerRecords.add(record);
+        }
+        outerDone = outerRecords.size() < BATCH_SIZE;
+        outerPosition = 0;
+        rowIdOffset = 0;
+
+        //the distinct join values of the batch, in the order of the index
+        rowIdsByValue = new HashMap<>();
+        ArrayList<Object> values = new ArrayList<>();
+        for (Record outerRecord : outerRecords) {
+            Object value = outerRecord.getValues().get(outerIndex);
+            if (value != null && !rowIdsByValue.containsKey(HashJoin.hashKey(value))) {
+                rowIdsByValue.put(HashJoin.hashKey(value), new ArrayList<>());
+                values.add(value);
+            }
+        }
+        values.sort((value1, value2) -> DataTools.compareTo(keyType, value1, value2));
+
+        for (Object value : values) {
+            rowIdsByValue.put(HashJoin.hashKey(value), lookup(value));
+        }
+    }
+
+    //gathers the next run of outer records of the batch and fetches the records they are joined with
+    //a run takes outer records until their matches would go past FETCH_SIZE, the matches of a value are
+    //fetched once per run, an outer record with more matches than that makes up runs on its own
+    private void fetchRun() throws IOException {
+        clearRun();
+        HashSet<Object> fetchedValues = new HashSet<>();
+        ArrayList<Integer> rowIds = new ArrayList<>();
+        while (outerPosition < outerRecords.size()) {
+            Record outerRecord = outerRecords.get(outerPosition);
+            Object value = outerRecord.getValues().get(outerIndex);
+            if (value == null) {
+                outerPosition++;
+                continue;
+            }
+            Object key = HashJoin.hashKey(value);
+            List<Integer> found = rowIdsByValue.get(key);
+            if (!fetchedValues.contains(key)) {
+                int remaining = found.size() - rowIdOffset;
+                if (!run.isEmpty() && rowIds.size() + remaining > FETCH_SIZE) {
+                    break;
+                }
+                if (remaining > FETCH_SIZE) {
+                    //the rest of the matches of the record are fetched by the following runs
+                    List<Integer> part = found.subList(rowIdOffset, rowIdOffset + FETCH_SIZE);
+                    run.add(outerRecord);
+                    runRowIds.add(part);
+                    rowIds.addAll(part);
+                    rowIdOffset += FETCH_SIZE;
+                    break;
+                }
+                //only the rest of the matches are fetched when earlier runs took the first ones
+                if (rowIdOffset == 0) {
+                    fetchedValues.add(key);
+                }
+                found = found.subList(rowIdOffset, found.size());
+                rowIdOffset = 0;
+                rowIds.addAll(found);
+            }
+            run.add(outerRecord);
+            runRowIds.add(found);
+            outerPosition++;
+        }
+
+        //the records found, fetched in row ID order
+        for (Record innerRecord : table.tableFile.getRecords(rowIds)) {
+            if (boundPredicate != null && !boundPredicate.matches(innerRecord)) {
+                continue;
+            }
+            ArrayList<Object> projected = new ArrayList<>(columnIndexes.length);
+            for (int columnIndex : columnIndexes) {
+                projected.add(innerRecord.getValues().get(columnIndex));
+            }
+            innerValues.put(innerRecord.getRowId(), projected);
+        }
+    }
+
+    //drops the outer records and fetched records of the current run
+    private void clearRun() {
+        run.clear();
+        runRowIds.clear();
+        innerValues = new HashMap<>();
+        runIndex = 0;
+        rowIdIndex = 0;
+    }
+
+    //returns the row IDs of the records of the table whose join column equals the value
+    //the values of a batch are looked up in ascending order, see IndexIterator.seek
+    private ArrayList<Integer> lookup(Object value) throws IOException {
+        if (iterator == null) {
+            return indexFile.search(value, "=");
+        }
+        ArrayList<Integer> found = new ArrayList<>();
+        if (indexFile.isAbsent(value, "=")) {
+            return found;
+        }
+        iterator.seek(value);
+        while (iterator.next() && indexFile.compareKeys(iterator.getValue(), value) == 0) {
+            found.addAll(iterator.getRowIds());
+        }
+        return found;
+    }
+
+    //the result comes in the order of the outer input
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return outer.columnIndex(columnName) != -1 && outer.isOrderedBy(columnName);
+    }
+
+    @Override
+    public String describe() {
+        return "Index Nested Loop Join (" + (outerLeft ? outerColumn + " = " + innerName : innerName + " = " + outerColumn) + ")";
+    }
+
+    //the lookups in the table are shown below the outer input, under the predicate checked on them
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        outer.explain(lines, depth + 1);
+        int lookupDepth = depth + 1;
+        if (predicate != null) {
+            lines.add(explainLine("Filter (" + predicate + ")", lookupDepth++, -1, -1));
+        }
+        lines.add(explainLine("Index Lookup using " + index.indexName + " on " + table.tableName + " ("
+                + innerColumn + " = " + outerColumn + ")", lookupDepth, -1, -1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (indexFile != null) {
+            indexFile.close();
+            indexFile = null;
+        }
+        iterator = null;
+        outerRecords = new ArrayList<>();
+        rowIdsByValue = new HashMap<>();
+        clearRun();
+        outer.close();
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Reads the records matching a condition <column> <operator> <value> through an index on the column,
+ * in the order of the index, a lower bound may be closed by an upper bound on the same column so a
+ * B-tree index is read from one bound to the other
+ * A B-tree index is walked cell by cell with an IndexIterator, the row IDs of the cells are gathered into
+ * batches of BATCH_SIZE and each batch is fetched from the table in one pass over its leaf pages
+ * A covering index returns its records without reading the table, only the columns stored in the index
+ * have values then
+ * Hash and bitmap indexes find their row IDs in one search, which are then fetched batch by batch
+ * With sorted fetch all row IDs in range are gathered and sorted first, the records then come in row ID
+ * order and each table page is read once, which pays off when they are spread over many batches
+ * A full scan without a condition walks all cells of a B-tree index, it returns the rows whose key is not
+ * null in the order of the key, as the input of a MergeJoin
+ */
+public class IndexScan extends Operator {
+    //number of row IDs fetched from the table at once
+    public static final int BATCH_SIZE = 1024;
+
+    private final Table table;
+    private final IndexDefinition index;
+    //the condition, both null for a full scan
+    private final Object value;
+    private final String operator;
+    //the upper bound closing a lower bound given as condition, both null if there is none
+    private final Object upperValue;
+    private final String upperOperator;
+    //whether the records are read from the index alone
+    private final boolean covering;
+    //whether all row IDs are sorted before their records are fetched
+    private final boolean sortedFetch;
+
+    private IndexFile indexFile;
+    //cells in range of a B-tree index, null for hash and bitmap indexes
+    private IndexIterator iterator;
+    //row IDs found by a hash or bitmap index and the position of the next batch
+    private ArrayList<Integer> rowIds;
+    private int rowIdPosition;
+    //whether no more records are left
+    private boolean exhausted;
+
+    //records of the current batch and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates a scan of the records of the table matching the condition through the index
+    public IndexScan(Table table, IndexDefinition index, Object value, String operator, boolean covering) {
+        this(table, index, value, operator, covering, false);
+    }
+
+    //Creates a full scan of the records of the table in the order of the B-tree index
+    public IndexScan(Table table, IndexDefinition index, boolean covering) {
+        this(table, index, null, null, covering, false);
+    }
+
+    //Creates a scan of the records of the table matching the condition through the index, with sortedFetch
+    //the records are fetched in row ID order
+    public IndexScan(Table table, IndexDefinition index, Object value, String operator, boolean covering,
+                     boolean sortedFetch) {
+        this(table, index, value, operator, null, null, covering, sortedFetch);
+    }
+
+    //Creates a scan of the records of the table between a lower bound > or >= and an upper bound < or <=
+    //through the B-tree index, with sortedFetch the records are fetched in row ID order
+    public IndexScan(Table table, IndexDefinition index, Object lower, String lowerOperator, Object upper,
+                     String upperOperator, boolean covering, boolean sortedFetch) {
+        super(table.columnNames, table.columnTypes);
+        this.table = table;
+        this.index = index;
+        this.value = lower;
+        this.operator = lowerOperator;
+        this.upperValue = upper;
+        this.upperOperator = upperOperator;
+        this.covering = covering;
+        this.sortedFetch = sortedFetch && !covering;
+    }
+
+    @Override
+    public void open() throws IOException {
+        indexFile = table.getIndexFile(index);
+        records = new ArrayList<>();
+        position = 0;
+        iterator = null;
+        rowIds = null;
+        rowIdPosition = 0;
+        if (operator == null) {
+            iterator = new IndexIterator((BTreeIndexFile) indexFile, null, true, null, true, false);
+            exhausted = false;
+            return;
+        }
+        //the Bloom filter may tell that no row can match
+        exhausted = indexFile.isAbsent(value, operator);
+        if (exhausted) {
+            return;
+        }
+        if (index.isHash() || index.isBitmap()) {
+            if (covering) {
+                records = indexFile.searchRecords(value, operator);
+                exhausted = true;
+            } else {
+                rowIds = indexFile.search(value, operator);
+            }
+        } else if (upperOperator != null) {
+            iterator = ((BTreeIndexFile) indexFile).rangeIterator(value, operator, upperValue, upperOperator);
+        } else {
+            iterator = ((BTreeIndexFile) indexFile).rangeIterator(value, operator);
+        }
+        if (sortedFetch) {
+            if (rowIds == null) {
+                rowIds = readRowIds();
+                iterator = null;
+            }
+            Collections.sort(rowIds);
+            exhausted = rowIds.isEmpty();
+        }
+    }
+
+    //reads the row IDs of all cells in range of the B-tree index
+    private ArrayList<Integer> readRowIds() throws IOException {
+        ArrayList<Integer> found = new ArrayList<>();
+        while (iterator.next()) {
+            if (!operator.equals("<>") || indexFile.compareKeys(iterator.getValue(), value) != 0) {
+                found.addAll(iterator.getRowIds());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (position == records.size()) {
+            if (exhausted) {
+                return null;
+            }
+            records = readBatch();
+            position = 0;
+        }
+        return records.get(position++);
+    }
+
+    //reads the next batch of records, sets exhausted once the last batch is read
+    private ArrayList<Record> readBatch() throws IOException {
+        if (rowIds != null) {
+            int end = Math.min(rowIds.size(), rowIdPosition + BATCH_SIZE);
+            List<Integer> batch = rowIds.subList(rowIdPosition, end);
+            rowIdPosition = end;
+            exhausted = end == rowIds.size();
+            return table.tableFile.getRecords(batch);
+        }
+
+        ArrayList<Integer> batch = new ArrayList<>();
+        while (batch.size() < BATCH_SIZE) {
+            if (!iterator.next()) {
+                exhausted = true;
+                break;
+            }
+            //<> scans the whole range, the cells of the value itself are skipped
+            if ("<>".equals(operator) && indexFile.compareKeys(iterator.getValue(), value) == 0) {
+                continue;
+            }
+            if (covering) {
+                return iterator.getRecords();
+            }
+            batch.addAll(iterator.getRowIds());
+        }
+        return batch.isEmpty() ? new ArrayList<>() : table.tableFile.getRecords(batch);
+    }
+
+    //the cells of a B-tree index are walked in the order of the key, whose first column is the column
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return !sortedFetch && !index.isHash() && !index.isBitmap() && index.columnNames.get(0).equals(columnName);
+    }
+
+    @Override
+    public String describe() {
+        if (operator == null) {
+            return (covering ? "Index Only Full Scan" : "Index Full Scan") + " using " + index.indexName
+                    + " on " + table.tableName;
+        }
+        String scan;
+        if (covering) {
+            scan = "Index Only Scan";
+        } else if (sortedFetch) {
+            scan = "Index Scan with Batched Fetch";
+        } else {
+            scan = index.isHash() || index.isBitmap() ? "Index Scan" : "Index Range Scan";
+        }
+        //a key of several columns is matched by equality up to its last value
+        ArrayList<Object> values = value instanceof List ? new ArrayList<>((List<?>) value) : new ArrayList<>(Collections.singletonList(value));
+        ArrayList<String> operators = new ArrayList<>(Collections.nCopies(values.size() - 1, "="));
+        operators.add(operator);
+        ArrayList<String> columns = new ArrayList<>(index.columnNames.subList(0, values.size()));
+        if (upperOperator != null) {
+            columns.add(columns.get(columns.size() - 1));
+            values.add(upperValue instanceof List ? ((List<?>) upperValue).get(values.size() - 1) : upperValue);
+            operators.add(upperOperator);
+        }
+        return scan + " using " + index.indexName + " on " + table.tableName + " ("
+                + Predicate.and(columns, values, operators) + ")";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (indexFile != null) {
+            indexFile.close();
+            indexFile = null;
+        }
+        iterator = null;
+        rowIds = null;
+        records = new ArrayList<>();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Splits a command into tokens in a single pass over its characters
+ * A token is a word, a quoted string or a symbol: ( ) , * ; ? or a comparison operator, ? stands for a
+ * parameter of a prepared statement
+ * Words are runs of characters that are neither white space nor symbols, so names, numbers, dates
+ * like 2023-01-05 and times like 12:30:00 are single words, keywords are words as well
+ * Strings are enclosed in single quotes and may hold any character, a quote inside a string is doubled
+ * Each token records the position of its first character in the command, counted from 1
+ */
+public class Lexer {
+
+    //kinds of tokens
+    public enum TokenType {
+        WORD,
+        STRING,
+        SYMBOL,
+        END
+    }
+
+    /*
+     * A token of the command
+     */
+    public static class Token {
+        final TokenType type;
+        //text of the token, without the quotes of a string
+        final String text;
+        //position of the first character of the token in the command, counted from 1
+        final int position;
+
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        //checks whether the token is the given keyword, ignoring case
+        public boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        //checks whether the token is the given symbol
+        public boolean isSymbol(String symbol) {
+            return type == TokenType.SYMBOL && text.equals(symbol);
+        }
+
+        //returns the token as it is shown in error messages
+        public String describe() {
+            switch (type) {
+                case END:
+                    return "end of command";
+                case STRING:
+                    return "'" + text + "'";
+                default:
+                    return "\"" + text + "\"";
+            }
+        }
+    }
+
+    //command being split
+    private final String command;
+    //position of the next character to read
+    private int offset = 0;
+
+    //Creates a lexer reading the command
+    public Lexer(String command) {
+        this.command = command;
+    }
+
+    //reads the next token, the END token once the command is used up
+    public Token next() {
+        //skip white space
+        while (offset < command.length() && Character.isWhitespace(command.charAt(offset))) {
+            offset++;
+        }
+        if (offset == command.length()) {
+            return new Token(TokenType.END, "", offset + 1);
+        }
+
+        int start = offset;
+        char c = command.charAt(offset);
+        switch (c) {
+            case '(':
+            case ')':
+            case ',':
+            case '*':
+            case ';':
+            case '?':
+            case '=':
+                offset++;
+                return new Token(TokenType.SYMBOL, String.valueOf(c), start + 1);
+            case '<':
+            case '>':
+            case '!':
+                //<, >, <=, >=, <> and !=
+                offset++;
+                if (offset < command.length() && (command.charAt(offset) == '='
+                        || (c == '<' && command.charAt(offset) == '>'))) {
+                    offset++;
+                }
+                return new Token(TokenType.SYMBOL, command.substring(start, offset), start + 1);
+            case '\'':
+                return readString(start);
+            default:
+                while (offset < command.length() && !isDelimiter(command.charAt(offset))) {
+                    offset++;
+                }
+                return new Token(TokenType.WORD, command.substring(start, offset), start + 1);
+        }
+    }
+
+    //reads a string starting with the quote at the given position, two quotes stand for one
+    private Token readString(int start) {
+        StringBuilder text = new StringBuilder();
+        offset++;
+        while (true) {
+            if (offset == command.length()) {
+                throw new SqlException("String is not terminated", start + 1);
+            }
+            char c = command.charAt(offset++);
+            if (c == '\'') {
+                if (offset < command.length() && command.charAt(offset) == '\'') {
+                    offset++;
+                } else {
+                    return new Token(TokenType.STRING, text.toString(), start + 1);
+                }
+            }
+            text.append(c);
+        }
+    }
+
+    //checks whether the character ends a word
+    private static boolean isDelimiter(char c) {
+        switch (c) {
+            case '(':
+            case ')':
+            case ',':
+            case '*':
+            case ';':
+            case '?':
+            case '=':
+            case '<':
+            case '>':
+            case '!':
+            case '\'':
+                return true;
+            default:
+                return Character.isWhitespace(c);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Passes on at most a given number of records of its input, the input is not read any further
+ */
+public class Limit extends Operator {
+    private final Operator input;
+    private final long limit;
+    //number of records returned so far
+    private long count;
+
+    //Creates a limit of the input to the given number of records
+    public Limit(Operator input, long limit) {
+        super(input.columnNames, input.columnTypes);
+        this.input = input;
+        this.limit = limit;
+    }
+
+    @Override
+    public void open() throws IOException {
+        count = 0;
+        input.open();
+    }
+
+    @Override
+    public Record next() throws IOException {
+        if (count == limit) {
+            return null;
+        }
+        Record record = input.next();
+        if (record != null) {
+            count++;
+        }
+        return record;
+    }
+
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return input.isOrderedBy(columnName);
+    }
+
+    @Override
+    public String describe() {
+        return "Limit (" + limit + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
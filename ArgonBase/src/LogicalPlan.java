@@ -0,0 +1,121 @@
+import java.util.*;
+
+/*
+ * Logical plan of a query, a tree of relational steps saying what the query computes but not how
+ * Each kind of step is a subclass, Planner compiles the tree into a tree of physical Operators and picks
+ * the access path of each Scan, so a new feature of queries adds a step here and an operator to compile
+ * it into, without changing how the other steps are executed
+ */
+public abstract class LogicalPlan {
+
+    /*
+     * The records of a table matching a predicate, all records if it is null
+     */
+    public static class Scan extends LogicalPlan {
+        final Table table;
+        final Predicate predicate;
+        //columns read from the records above the scan, null for all columns
+        final Collection<String> neededColumns;
+
+        Scan(Table table, Predicate predicate, Collection<String> neededColumns) {
+            this.table = table;
+            this.predicate = predicate;
+            this.neededColumns = neededColumns;
+        }
+    }
+
+    /*
+     * The records of the input matching a predicate
+     */
+    public static class Filter extends LogicalPlan {
+        final LogicalPlan input;
+        final Predicate predicate;
+
+        Filter(LogicalPlan input, Predicate predicate) {
+            this.input = input;
+            this.predicate = predicate;
+        }
+    }
+
+    /*
+     * The given columns of the records of the input, renamed to the given names
+     */
+    public static class Project extends LogicalPlan {
+        final LogicalPlan input;
+        final ArrayList<String> columns;
+        final ArrayList<String> names;
+
+        Project(LogicalPlan input, ArrayList<String> columns) {
+            this(input, columns, columns);
+        }
+
+        Project(LogicalPlan input, ArrayList<String> columns, ArrayList<String> names) {
+            this.input = input;
+            this.columns = columns;
+            this.names = names;
+        }
+    }
+
+    /*
+     * The records of the input ordered by the given columns
+     */
+    public static class Sort extends LogicalPlan {
+        final LogicalPlan input;
+        final ArrayList<String> columns;
+        final ArrayList<Boolean> descending;
+
+        Sort(LogicalPlan input, ArrayList<String> columns, ArrayList<Boolean> descending) {
+            this.input = input;
+            this.columns = columns;
+            this.descending = descending;
+        }
+    }
+
+    /*
+     * The first records of the input
+     */
+    public static class Limit extends LogicalPlan {
+        final LogicalPlan input;
+        final long limit;
+
+        Limit(LogicalPlan input, long limit) {
+            this.input = input;
+            this.limit = limit;
+        }
+    }
+
+    /*
+     * The groups of records of the input with equal group columns and the functions computed over them
+     */
+    public static class Aggregate extends LogicalPlan {
+        final LogicalPlan input;
+        final ArrayList<String> groupColumns;
+        final ArrayList<String> functions;
+        //column of each function, null for COUNT(*)
+        final ArrayList<String> arguments;
+
+        Aggregate(LogicalPlan input, ArrayList<String> groupColumns, ArrayList<String> functions, ArrayList<String> arguments) {
+            this.input = input;
+            this.groupColumns = groupColumns;
+            this.functions = functions;
+            this.arguments = arguments;
+        }
+    }
+
+    /*
+     * The pairs of records of two inputs whose join columns are equal
+     */
+    public static class Join extends LogicalPlan {
+        final LogicalPlan left;
+        final LogicalPlan right;
+        final String leftColumn;
+        final String rightColumn;
+
+        Join(LogicalPlan left, LogicalPlan right, String leftColumn, String rightColumn) {
+            this.left = left;
+            this.right = right;
+            this.leftColumn = leftColumn;
+            this.rightColumn = rightColumn;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Joins the records of two inputs whose join columns are equal, NULL is equal to nothing, both inputs have
+ * to return their records in ascending order of their join columns, see Operator.isOrderedBy
+ * The inputs are read once side by side, the one with the smaller join value moves on, on equal values the
+ * right records of the value are gathered and joined with each left record of the value, so only the right
+ * records of one value are held in memory
+ * NULL sorts last, so once either input reaches a NULL join value nothing more can match
+ * The result comes in the order of the join columns, a record of the result holds the values of the left
+ * record followed by those of the right record
+ */
+public class MergeJoin extends Operator {
+    private final Operator left;
+    private final Operator right;
+    private final String leftColumn;
+    private final String rightColumn;
+    private int leftIndex;
+    private int rightIndex;
+    //type of the join columns, which is the same on both sides
+    private Constants.DataTypes type;
+
+    //current left record and the next right record not gathered yet
+    private Record leftRecord;
+    private Record rightRecord;
+    //right records whose join value equals that of the current left record, and the position of the next
+    //one to join with it
+    private ArrayList<Record> group = new ArrayList<>();
+    private int position;
+    //row ID of the next record returned
+    private int rowId;
+
+    //Creates a join of the inputs on leftColumn = rightColumn, the inputs have to be sorted by them
+    public MergeJoin(Operator left, Operator right, String leftColumn, String rightColumn) {
+        super(new ArrayList<>(left.columnNames), new ArrayList<>(left.columnTypes));
+        columnNames.addAll(right.columnNames);
+        columnTypes.addAll(right.columnTypes);
+        this.left = left;
+        this.right = right;
+        this.leftColumn = leftColumn;
+        this.rightColumn = rightColumn;
+    }
+
+    @Override
+    public void open() throws IOException {
+        leftIndex = left.columnIndex(leftColumn);
+        rightIndex = right.columnIndex(rightColumn);
+        type = left.columnTypes.get(leftIndex);
+        left.open();
+        right.open();
+        leftRecord = left.next();
+        rightRecord = right.next();
+        group = new ArrayList<>();
+        position = 0;
+        rowId = 1;
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (true) {
+            if (position < group.size()) {
+                ArrayList<Object> values = new ArrayList<>(leftRecord.getValues());
+                values.addAll(group.get(position++).getValues());
+                return new Record(new ArrayList<>(columnTypes), values, rowId++);
+            }
+            if (!group.isEmpty()) {
+                //the next left record joins the same right records if it has the same value
+                Object groupValue = group.get(0).getValues().get(rightIndex);
+                leftRecord = left.next();
+                position = 0;
+                if (leftRecord != null && leftRecord.getValues().get(leftIndex) != null
+                        && DataTools.compareTo(type, leftRecord.getValues().get(leftIndex), groupValue) == 0) {
+                    continue;
+                }
+                group = new ArrayList<>();
+            }
+
+            if (leftRecord == null || rightRecord == null) {
+                return null;
+            }
+            Object leftValue = leftRecord.getValues().get(leftIndex);
+            Object rightValue = rightRecord.getValues().get(rightIndex);
+            if (leftValue == null || rightValue == null) {
+                return null;
+            }
+            int comparison = DataTools.compareTo(type, leftValue, rightValue);
+            if (comparison < 0) {
+                leftRecord = left.next();
+            } else if (comparison > 0) {
+                rightRecord = right.next();
+            } else {
+                //gather the right records of the value
+                while (rightRecord != null && rightRecord.getValues().get(rightIndex) != null
+                        && DataTools.compareTo(type, rightRecord.getValues().get(rightIndex), rightValue) == 0) {
+                    group.add(rightRecord);
+                    rightRecord = right.next();
+                }
+                position = 0;
+            }
+        }
+    }
+
+    //the result comes in the order of both join columns
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return columnName.equals(leftColumn) || columnName.equals(rightColumn);
+    }
+
+    @Override
+    public String describe() {
+        return "Merge Join (" + leftColumn + " = " + rightColumn + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        left.explain(lines, depth + 1);
+        right.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        group = new ArrayList<>();
+        leftRecord = null;
+        rightRecord = null;
+        left.close();
+        right.close();
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Builds an index while statements keep using its table, for CREATE INDEX ... CONCURRENTLY
+ * The build runs on its own thread and reads the table a few leaf pages at a time, taking turns with the
+ * statements through FileManager.LOCK. The rows up to the last row ID of the table at the start of the
+ * build go into a private index file that no statement uses yet.
+ * Changes that statements make to rows the scan has already passed, or to rows after the last row ID, are
+ * logged in a side buffer. Rows the scan has not reached are read in their current state anyway.
+ * Once the scan is done the logged changes are applied and the index is recorded in the catalog in a
+ * single turn, so a statement either sees the complete index or no index at all.
+ */
+public class OnlineIndexBuild implements Runnable {
+    //number of table leaf pages read in one turn
+    private static final int STEP_PAGES = 16;
+
+    //builds in progress by the path of their table
+    private static final HashMap<String, ArrayList<OnlineIndexBuild>> builds = new HashMap<>();
+    //threads of the builds started, to wait for them on exit
+    private static final ArrayList<Thread> threads = new ArrayList<>();
+
+    //a change to a row logged while the build runs, the row is added to or removed from the index
+    private static class Change {
+        final boolean add;
+        final ArrayList<Object> values;
+        final int rowId;
+
+        Change(boolean add, ArrayList<Object> values, int rowId) {
+            this.add = add;
+            this.values = values;
+            this.rowId = rowId;
+        }
+    }
+
+    //table of the index, opened for the build
+    private final Table table;
+    //index being built
+    private final IndexDefinition definition;
+    //private file of the index until it is published
+    private final IndexFile indexFile;
+    //bulk builder of a B+ tree index, other index types take the rows straight into their file
+    private final IndexBuilder builder;
+
+    //last row ID of the table when the build started
+    private final int snapshotRowId;
+    //highest row ID the scan has indexed, every row ID once the scan is done
+    private int scannedRowId = -1;
+    //next leaf page to scan
+    private int nextPage;
+    //changes logged while the build runs, in the order they were made
+    private final ArrayList<Change> changes = new ArrayList<>();
+    //set when the table is dropped, the build then stops at its next step
+    private boolean cancelled = false;
+
+    //Creates the build of the index, the table is opened again so the build outlives the statement
+    private OnlineIndexBuild(Table table, IndexDefinition definition) throws IOException {
+        this.table = new Table(table.tableName, true);
+        this.definition = definition;
+        this.indexFile = FileManager.newIndexFile(this.table, definition, this.table.path);
+        this.builder = definition.isHash() || definition.isBitmap() ? null : new IndexBuilder((BTreeIndexFile) indexFile, this.table.tableFile);
+        this.snapshotRowId = this.table.tableFile.getLastRowId();
+        this.nextPage = this.table.tableFile.getFirstLeafPage();
+    }
+
+    //starts building the index on its own thread, the statement starting it holds FileManager.LOCK
+    //returns false if the table is already building an index with the same name
+    public static boolean start(Table table, IndexDefinition definition) throws IOException {
+        if (isBuilding(table, definition.indexName)) {
+            return false;
+        }
+
+        OnlineIndexBuild build = new OnlineIndexBuild(table, definition);
+        builds.computeIfAbsent(table.path + "/" + table.tableName, k -> new ArrayList<>()).add(build);
+        Thread thread = new Thread(build, "index-build-" + table.tableName + "-" + definition.indexName);
+        threads.add(thread);
+        thread.start();
+        return true;
+    }
+
+    //checks whether an index with the given name is being built on the table
+    public static boolean isBuilding(Table table, String indexName) {
+        for (OnlineIndexBuild build : builds.getOrDefault(table.path + "/" + table.tableName, new ArrayList<>())) {
+            if (build.definition.indexName.equals(indexName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //logs a row inserted into the table for the builds on the table
+    public static void logInsert(Table table, ArrayList<Object> values, int rowId) {
+        for (OnlineIndexBuild build : builds.getOrDefault(table.path + "/" + table.tableName, new ArrayList<>())) {
+            if (build.tracks(rowId)) {
+                build.changes.add(new Change(true, values, rowId));
+            }
+        }
+    }
+
+    //logs a row deleted from the table for the builds on the table
+    public static void logDelete(Table table, ArrayList<Object> values, int rowId) {
+        for (OnlineIndexBuild build : builds.getOrDefault(table.path + "/" + table.tableName, new ArrayList<>())) {
+            if (build.tracks(rowId)) {
+                build.changes.add(new Change(false, values, rowId));
+            }
+        }
+    }
+
+    //logs an update of a column of a row for the builds of indexes depending on the column
+    public static void logUpdate(Table table, String column, ArrayList<Object> oldValues, ArrayList<Object> newValues, int rowId) {
+        for (OnlineIndexBuild build : builds.getOrDefault(table.path + "/" + table.tableName, new ArrayList<>())) {
+            if (build.definition.dependsOn(column) && build.tracks(rowId)) {
+                build.changes.add(new Change(false, oldValues, rowId));
+                build.changes.add(new Change(true, newValues, rowId));
+            }
+        }
+    }
+
+    //stops the builds on a table that is dropped
+    public static void cancel(Table table) {
+        for (OnlineIndexBuild build : builds.getOrDefault(table.path + "/" + table.tableName, new ArrayList<>())) {
+            build.cancelled = true;
+        }
+    }
+
+    //waits for all builds to finish, used on exit
+    public static void awaitAll() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    //checks whether a change to the row has to be logged, rows the scan has not reached yet are read
+    //by the scan in their state at that time
+    private boolean tracks(int rowId) {
+        return rowId <= scannedRowId || rowId > snapshotRowId;
+    }
+
+    //scans the table in steps, writes the index pages and publishes the index
+    public void run() {
+        boolean published = false;
+        try {
+            boolean scanning = true;
+            while (scanning) {
+                FileManager.LOCK.lock();
+                try {
+                    if (cancelled) {
+                        return;
+                    }
+                    scanning = step();
+                } finally {
+                    FileManager.LOCK.unlock();
+                }
+            }
+
+            //the index file is private to the build, so its pages are written without taking a turn
+            if (builder != null) {
+                builder.write();
+            }
+            indexFile.rebuildBloomFilter();
+
+            FileManager.LOCK.lock();
+            try {
+                if (!cancelled) {
+                    publish();
+                    published = true;
+                }
+            } finally {
+                FileManager.LOCK.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Index " + definition.indexName + " could not be built: " + e.getMessage());
+        } finally {
+            FileManager.LOCK.lock();
+            try {
+                finish(published);
+            } finally {
+                FileManager.LOCK.unlock();
+            }
+        }
+    }
+
+    //indexes the rows of the next leaf pages, returns false once the scan is done
+    private boolean step() throws IOException {
+        for (int p = 0; p < STEP_PAGES && nextPage != 0xFFFFFFFF; p++) {
+            //a page split by an update may bring back rows the scan has already passed
+            ArrayList<Record> records = new ArrayList<>();
+            for (Record record : table.tableFile.readPageRecords(nextPage)) {
+                if (record.getRowId() > scannedRowId && record.getRowId() <= snapshotRowId) {
+                    records.add(record);
+                }
+            }
+            if (builder != null) {
+                builder.addRecords(records);
+            } else {
+                for (Record record : records) {
+                    indexFile.addRecord(record.getValues(), record.getRowId());
+                }
+            }
+            if (!records.isEmpty()) {
+                scannedRowId = records.get(records.size() - 1).getRowId();
+            }
+            nextPage = table.tableFile.getNextLeafPage(nextPage);
+        }
+
+        if (nextPage == 0xFFFFFFFF || scannedRowId >= snapshotRowId) {
+            //from now on every change is logged, also to rows appended with reused row IDs
+            scannedRowId = Integer.MAX_VALUE;
+            return false;
+        }
+        return true;
+    }
+
+    //applies the logged changes to the index and records it in the catalog
+    private void publish() throws IOException {
+        for (Change change : changes) {
+            if (change.add) {
+                indexFile.addRecord(change.values, change.rowId);
+            } else {
+                indexFile.removeRecord(change.values, change.rowId);
+            }
+        }
+        changes.clear();
+        indexFile.close();
+
+        Table.indexTable.insertRecord(definition.toValues());
+        ArrayList<IndexDefinition> indexes = Catalog.getIndexes(table.tableName);
+        indexes.add(definition);
+        Catalog.setIndexes(table.tableName, indexes);
+    }
+
+    //unregisters the build and releases its files, the file of an index that was not published is deleted
+    private void finish(boolean published) {
+        String key = table.path + "/" + table.tableName;
+        builds.get(key).remove(this);
+        if (builds.get(key).isEmpty()) {
+            builds.remove(key);
+        }
+        try {
+            if (builder != null) {
+                builder.deleteRuns();
+            }
+            if (!published) {
+                indexFile.close();
+                new File(table.path + "/" + definition.getFileName()).delete();
+                new File(table.path + "/" + definition.getBloomFileName()).delete();
+            }
+            table.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * A physical operator of a query plan, operators are chained into a tree that is pulled from its root
+ * open prepares the operator and its inputs, next returns one record at a time and null once the operator
+ * is exhausted, close releases the files the operator holds
+ * Records flow through the tree one at a time, only Sort, Aggregate and the joins hold part of their input
+ * in memory, every other operator passes a record on as soon as it is read
+ * The schema of an operator names and types the values of the records it returns, in order
+ * Plans are compiled from a LogicalPlan by Planner, EXPLAIN shows the tree of operators instead of running it
+ */
+public abstract class Operator implements Closeable {
+    //names and data types of the values of the records returned
+    final ArrayList<String> columnNames;
+    final ArrayList<Constants.DataTypes> columnTypes;
+    //cost and number of records Planner estimated for an access path, -1 if it was not estimated
+    double estimatedCost = -1;
+    double estimatedRows = -1;
+
+    Operator(ArrayList<String> columnNames, ArrayList<Constants.DataTypes> columnTypes) {
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+    }
+
+    //prepares the operator to return its first record
+    public abstract void open() throws IOException;
+
+    //returns the next record, null once there are no more records
+    public abstract Record next() throws IOException;
+
+    //releases the resources of the operator and its inputs
+    public abstract void close() throws IOException;
+
+    //returns the line showing the operator in the output of EXPLAIN
+    public abstract String describe();
+
+    //adds the line of the operator to the output of EXPLAIN, followed by the lines of its inputs indented
+    //one level deeper
+    public void explain(ArrayList<String> lines, int depth) {
+        lines.add(explainLine(describe(), depth, estimatedCost, estimatedRows));
+    }
+
+    //returns a line of the output of EXPLAIN, indented by its depth and followed by the estimates if any
+    static String explainLine(String description, int depth, double cost, double rows) {
+        String line = "  ".repeat(depth) + description;
+        if (rows >= 0) {
+            line += String.format("  (cost=%.2f rows=%.0f)", cost, rows);
+        }
+        return line;
+    }
+
+    //checks whether the records are returned in ascending order of the column with its null values left
+    //out or last, as a MergeJoin needs them, false unless the operator guarantees it
+    public boolean isOrderedBy(String columnName) {
+        return false;
+    }
+
+    //returns the position of the column in the records returned, -1 if there is no such column
+    public int columnIndex(String columnName) {
+        return columnNames.indexOf(columnName);
+    }
+
+    //returns the data type of the column in the records returned
+    public Constants.DataTypes getColumnType(String columnName) {
+        return columnTypes.get(columnIndex(columnName));
+    }
+
+    //opens the operator, reads all of its records and closes it
+    public ArrayList<Record> collect() throws IOException {
+        ArrayList<Record> records = new ArrayList<>();
+        try (Operator operator = this) {
+            operator.open();
+            Record record;
+            while ((record = operator.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    //compares two values of a column of the given type, null sorts after every value
+    public static int compareValues(Constants.DataTypes type, Object value1, Object value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : 1) : -1;
+        }
+        return DataTools.compareTo(type, value1, value2);
+    }
+}
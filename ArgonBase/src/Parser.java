@@ -0,0 +1,582 @@
+import java.util.*;
+
+/*
+ * Recursive descent parser turning a command into a Statement
+ * There is a method for each rule of the grammar, it reads the tokens of its rule from the Lexer one at a
+ * time and looks at most one token ahead, so a command is parsed in time linear in its length
+ * A token that does not fit the grammar raises a SqlException with its position
+ */
+public class Parser {
+    //comparison operators of conditions
+    private static final List<String> OPERATORS = List.of("=", "<>", "!=", "<", "<=", ">", ">=");
+
+    //command being parsed
+    private final String command;
+    private final Lexer lexer;
+    //token at the current position
+    private Lexer.Token token;
+    //number of parameters ? read so far
+    private int parameterCount = 0;
+
+    //Creates a parser reading the command
+    public Parser(String command) {
+        this.command = command;
+        this.lexer = new Lexer(command);
+        this.token = lexer.next();
+    }
+
+    //returns the number of parameters ? in the parsed command
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    //parses the command, returns null if it does not start with the keyword of a statement
+    public Statement parse() {
+        Statement statement = parseStatement();
+        if (statement == null) {
+            return null;
+        }
+
+        //a single semicolon may end the command
+        acceptSymbol(";");
+        if (token.type != Lexer.TokenType.END) {
+            throw error("end of command");
+        }
+        return statement;
+    }
+
+    //parses a statement, returns null if the current token is not the keyword of a statement
+    private Statement parseStatement() {
+        Lexer.Token first = token;
+        if (first.type != Lexer.TokenType.WORD) {
+            return null;
+        }
+        Statement statement;
+        switch (first.text.toLowerCase()) {
+            case "select":
+                statement = parseSelect();
+                break;
+            case "insert":
+                statement = parseInsert();
+                break;
+            case "update":
+                statement = parseUpdate();
+                break;
+            case "delete":
+                statement = parseDelete();
+                break;
+            case "create":
+                statement = parseCreate();
+                break;
+            case "drop":
+                statement = parseDrop();
+                break;
+            case "show":
+                advance();
+                expectKeyword("tables");
+                statement = new Statement.ShowTables(first.position);
+                break;
+            case "analyze":
+                advance();
+                Statement.Analyze analyze = new Statement.Analyze(first.position);
+                if (token.type == Lexer.TokenType.WORD) {
+                    analyze.tableName = identifier("table name");
+                }
+                statement = analyze;
+                break;
+            case "explain":
+                advance();
+                if (!token.isKeyword("select")) {
+                    throw error("SELECT");
+                }
+                statement = new Statement.Explain(parseSelect(), first.position);
+                break;
+            case "prepare":
+                statement = parsePrepare();
+                break;
+            case "execute":
+                statement = parseExecute();
+                break;
+            case "deallocate":
+                advance();
+                Statement.Deallocate deallocate = new Statement.Deallocate(first.position);
+                acceptKeyword("prepare");
+                deallocate.name = identifier("statement name");
+                statement = deallocate;
+                break;
+            case "help":
+            case "version":
+            case "exit":
+                advance();
+                statement = new Statement.Utility(first.text.toLowerCase(), first.position);
+                break;
+            default:
+                return null;
+        }
+        return statement;
+    }
+
+    //PREPARE <name> AS <statement>
+    private Statement.Prepare parsePrepare() {
+        Statement.Prepare prepare = new Statement.Prepare(token.position);
+        advance();
+        prepare.name = identifier("statement name");
+        expectKeyword("as");
+        Lexer.Token first = token;
+        prepare.statement = parseStatement();
+        if (prepare.statement == null || !prepare.statement.isPreparable()) {
+            throw new SqlException("Only SELECT, INSERT, UPDATE and DELETE can be prepared", first.position);
+        }
+        prepare.text = command.substring(first.position - 1, token.position - 1).trim();
+        return prepare;
+    }
+
+    //EXECUTE <name> [( <value>, ... )]
+    private Statement.Execute parseExecute() {
+        Statement.Execute execute = new Statement.Execute(token.position);
+        advance();
+        execute.name = identifier("statement name");
+        if (acceptSymbol("(")) {
+            do {
+                if (token.isSymbol("?")) {
+                    throw error("value");
+                }
+                execute.arguments.add(literal());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+        }
+        return execute;
+    }
+
+    //SELECT * | <item>, ... FROM <table> [<join> ...] [WHERE <expression>] [GROUP BY <column>, ...]
+    //    [ORDER BY <item> [ASC | DESC], ...] [LIMIT <count>]
+    private Statement.Select parseSelect() {
+        Statement.Select select = new Statement.Select(token.position);
+        advance();
+        if (acceptSymbol("*")) {
+            select.allColumns = true;
+        } else {
+            do {
+                select.items.add(parseSelectItem());
+            } while (acceptSymbol(","));
+        }
+        expectKeyword("from");
+        select.tableName = identifier("table name");
+        while (token.isKeyword("join") || token.isKeyword("inner")) {
+            select.joins.add(parseJoin());
+        }
+        select.where = parseWhere();
+        if (acceptKeyword("group")) {
+            expectKeyword("by");
+            do {
+                int position = token.position;
+                select.groupBy.add(new Statement.SelectItem(null, identifier("column name"), position));
+            } while (acceptSymbol(","));
+        }
+        if (acceptKeyword("order")) {
+            expectKeyword("by");
+            do {
+                Statement.SelectItem item = parseSelectItem();
+                if (acceptKeyword("desc")) {
+                    item.descending = true;
+                } else {
+                    acceptKeyword("asc");
+                }
+                select.orderBy.add(item);
+            } while (acceptSymbol(","));
+        }
+        if (acceptKeyword("limit")) {
+            select.limit = count();
+        }
+        return select;
+    }
+
+    //[INNER] JOIN <table> ON <column> = <column>
+    private Statement.Join parseJoin() {
+        acceptKeyword("inner");
+        expectKeyword("join");
+        Statement.Join join = new Statement.Join(token.position);
+        join.tableName = identifier("table name");
+        expectKeyword("on");
+        join.leftPosition = token.position;
+        join.leftColumn = identifier("column name");
+        expectSymbol("=");
+        join.rightPosition = token.position;
+        join.rightColumn = identifier("column name");
+        return join;
+    }
+
+    //<column> | <function> ( <column> ) | COUNT(*), the functions are COUNT, SUM, MIN, MAX and AVG
+    private Statement.SelectItem parseSelectItem() {
+        int position = token.position;
+        String name = identifier("column name");
+        if (!Aggregate.FUNCTIONS.contains(name) || !acceptSymbol("(")) {
+            return new Statement.SelectItem(null, name, position);
+        }
+        String column = null;
+        if (!name.equals("count") || !acceptSymbol("*")) {
+            column = identifier("column name");
+        }
+        expectSymbol(")");
+        return new Statement.SelectItem(name, column, position);
+    }
+
+    //reads a number of records, a whole number that is not negative
+    private long count() {
+        if (token.type != Lexer.TokenType.WORD || !token.text.matches("[0-9]{1,18}")) {
+            throw error("number of records");
+        }
+        long count = Long.parseLong(token.text);
+        advance();
+        return count;
+    }
+
+    //INSERT INTO <table> [( <column>, ... )] VALUES ( <value>, ... )
+    private Statement.Insert parseInsert() {
+        Statement.Insert insert = new Statement.Insert(token.position);
+        advance();
+        expectKeyword("into");
+        insert.tableName = identifier("table name");
+        if (acceptSymbol("(")) {
+            do {
+                insert.columnPositions.add(token.position);
+                insert.columns.add(identifier("column name"));
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+        }
+        expectKeyword("values");
+        expectSymbol("(");
+        do {
+            insert.values.add(literal());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        return insert;
+    }
+
+    //UPDATE <table> SET <column> = <value> [WHERE <expression>]
+    private Statement.Update parseUpdate() {
+        Statement.Update update = new Statement.Update(token.position);
+        advance();
+        update.tableName = identifier("table name");
+        expectKeyword("set");
+        update.columnPosition = token.position;
+        update.column = identifier("column name");
+        expectSymbol("=");
+        update.value = literal();
+        update.where = parseWhere();
+        return update;
+    }
+
+    //DELETE FROM [TABLE] <table> [WHERE <expression>]
+    private Statement.Delete parseDelete() {
+        Statement.Delete delete = new Statement.Delete(token.position);
+        advance();
+        expectKeyword("from");
+        delete.tableName = identifier("table name");
+        //DELETE FROM TABLE <table> is accepted as well
+        if (delete.tableName.equals("table") && token.type == Lexer.TokenType.WORD && !token.isKeyword("where")) {
+            delete.tableName = identifier("table name");
+        }
+        delete.where = parseWhere();
+        return delete;
+    }
+
+    //CREATE TABLE ... or CREATE [BITMAP] INDEX ...
+    private Statement parseCreate() {
+        int position = token.position;
+        advance();
+        if (acceptKeyword("table")) {
+            return parseCreateTable(position);
+        }
+        String indexType = null;
+        if (acceptKeyword("bitmap")) {
+            indexType = "BITMAP";
+        }
+        expectKeyword("index");
+        Statement.CreateIndex create = parseCreateIndex(position);
+        if (indexType != null) {
+            create.indexType = indexType;
+        }
+        return create;
+    }
+
+    //CREATE TABLE <table> ( <column> <data_type> [NOT_NULL] [UNIQUE] [PRIMARY_KEY], ... )
+    //NOT NULL and PRIMARY KEY may also be written as two words
+    private Statement.CreateTable parseCreateTable(int position) {
+        Statement.CreateTable create = new Statement.CreateTable(position);
+        create.tableName = identifier("table name");
+        expectSymbol("(");
+        do {
+            String name = identifier("column name");
+            Lexer.Token typeToken = token;
+            Constants.DataTypes type = Commands.strDataTypes(identifier("data type"));
+            if (type == Constants.DataTypes.NULL) {
+                throw new SqlException("Unknown data type " + typeToken.text, typeToken.position);
+            }
+            Statement.ColumnDefinition column = new Statement.ColumnDefinition(name, type);
+            while (token.type == Lexer.TokenType.WORD) {
+                if (acceptKeyword("primary_key")) {
+                    column.primaryKey = true;
+                } else if (acceptKeyword("primary")) {
+                    expectKeyword("key");
+                    column.primaryKey = true;
+                } else if (acceptKeyword("unique")) {
+                    column.unique = true;
+                } else if (acceptKeyword("not_null")) {
+                    column.notNull = true;
+                } else if (acceptKeyword("not")) {
+                    expectKeyword("null");
+                    column.notNull = true;
+                } else {
+                    throw new SqlException("Unknown column constraint " + token.text, token.position);
+                }
+            }
+            create.columns.add(column);
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        return create;
+    }
+
+    //CREATE [BITMAP] INDEX [CONCURRENTLY] [<index> ON] <table> [USING <type>] ( <column>, ... )
+    //    [INCLUDE ( <column>, ... )] [USING <type>] [WHERE <conditions>]
+    private Statement.CreateIndex parseCreateIndex(int position) {
+        Statement.CreateIndex create = new Statement.CreateIndex(position);
+        create.concurrently = acceptKeyword("concurrently");
+        String name = identifier("index name");
+        if (acceptKeyword("on")) {
+            create.indexName = name;
+            create.tableName = identifier("table name");
+        } else {
+            create.tableName = name;
+        }
+        parseUsing(create);
+        parseColumnList(create.columns);
+        if (acceptKeyword("include")) {
+            parseColumnList(create.includeColumns, create.includePositions);
+        }
+        parseUsing(create);
+        parseConditions(create.conditions);
+        return create;
+    }
+
+    //[USING <index_type>]
+    private void parseUsing(Statement.CreateIndex create) {
+        if (acceptKeyword("using")) {
+            create.indexType = identifier("index type").toUpperCase();
+        }
+    }
+
+    //( <column>, ... )
+    private void parseColumnList(ArrayList<String> columns) {
+        parseColumnList(columns, new ArrayList<>());
+    }
+
+    //( <column>, ... ), adding the position of each column to positions
+    private void parseColumnList(ArrayList<String> columns, ArrayList<Integer> positions) {
+        expectSymbol("(");
+        do {
+            positions.add(token.position);
+            columns.add(identifier("column name"));
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+    }
+
+    //DROP TABLE <table>
+    private Statement.DropTable parseDrop() {
+        Statement.DropTable drop = new Statement.DropTable(token.position);
+        advance();
+        expectKeyword("table");
+        drop.tableName = identifier("table name");
+        return drop;
+    }
+
+    //[WHERE <condition> [AND <condition> ...]], the predicate of a partial index
+    private void parseConditions(ArrayList<Statement.Condition> conditions) {
+        if (!acceptKeyword("where")) {
+            return;
+        }
+        do {
+            conditions.add(parseCondition());
+        } while (acceptKeyword("and"));
+    }
+
+    //[WHERE <expression>], null without a WHERE clause
+    private Statement.Expression parseWhere() {
+        return acceptKeyword("where") ? parseOr(false) : null;
+    }
+
+    //<and> [OR <and> ...]
+    //not negates the expression, which by De Morgan's laws makes it an AND of the negated operands
+    private Statement.Expression parseOr(boolean not) {
+        int position = token.position;
+        ArrayList<Statement.Expression> operands = new ArrayList<>();
+        do {
+            operands.add(parseAnd(not));
+        } while (acceptKeyword("or"));
+        return junction(!not, operands, position);
+    }
+
+    //<not> [AND <not> ...], negated it becomes an OR of the negated operands
+    private Statement.Expression parseAnd(boolean not) {
+        int position = token.position;
+        ArrayList<Statement.Expression> operands = new ArrayList<>();
+        do {
+            operands.add(parseNot(not));
+        } while (acceptKeyword("and"));
+        return junction(not, operands, position);
+    }
+
+    //[NOT ...] <primary>, each NOT flips the negation
+    private Statement.Expression parseNot(boolean not) {
+        while (acceptKeyword("not")) {
+            not = !not;
+        }
+        return parsePrimary(not);
+    }
+
+    //( <expression> ) | <column> IS [NOT] NULL | <column> [NOT] IN ( <value>, ... )
+    //    | <column> [NOT] BETWEEN <value> AND <value> | <column> <operator> <value>
+    //IN is rewritten into equalities joined by OR and BETWEEN into >= and <= joined by AND, a negation
+    //is applied to their conditions
+    private Statement.Expression parsePrimary(boolean not) {
+        if (acceptSymbol("(")) {
+            Statement.Expression expression = parseOr(not);
+            expectSymbol(")");
+            return expression;
+        }
+        int position = token.position;
+        String column = identifier("column name");
+        if (acceptKeyword("is")) {
+            boolean negated = acceptKeyword("not") != not;
+            expectKeyword("null");
+            return new Statement.NullTest(column, negated, position);
+        }
+        boolean notKeyword = acceptKeyword("not");
+        boolean negated = notKeyword != not;
+        if (acceptKeyword("in")) {
+            //NOT IN holds when the column differs from every value
+            ArrayList<Statement.Expression> operands = new ArrayList<>();
+            expectSymbol("(");
+            do {
+                operands.add(new Statement.Condition(column, negated ? "<>" : "=", literal(), position));
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return junction(!negated, operands, position);
+        }
+        if (acceptKeyword("between")) {
+            //NOT BETWEEN holds when the column is below the low value or above the high value
+            Statement.Literal low = literal();
+            expectKeyword("and");
+            Statement.Literal high = literal();
+            ArrayList<Statement.Expression> operands = new ArrayList<>();
+            operands.add(new Statement.Condition(column, negated ? "<" : ">=", low, position));
+            operands.add(new Statement.Condition(column, negated ? ">" : "<=", high, position));
+            return junction(negated, operands, position);
+        }
+        if (notKeyword) {
+            throw error("IN or BETWEEN");
+        }
+        return parseComparison(column, position, not);
+    }
+
+    //returns the operands joined by OR or by AND, the operand itself if there is only one
+    private static Statement.Expression junction(boolean or, ArrayList<Statement.Expression> operands, int position) {
+        return operands.size() == 1 ? operands.get(0) : new Statement.Junction(or, operands, position);
+    }
+
+    //[NOT] <column> <operator> <value>, NOT is applied to the operator
+    private Statement.Condition parseCondition() {
+        boolean not = acceptKeyword("not");
+        int position = token.position;
+        return parseComparison(identifier("column name"), position, not);
+    }
+
+    //<operator> <value> following the column at the given position, a negated comparison gets the
+    //inverse operator
+    private Statement.Condition parseComparison(String column, int position, boolean not) {
+        Lexer.Token operatorToken = token;
+        if (operatorToken.type != Lexer.TokenType.SYMBOL || !OPERATORS.contains(operatorToken.text)) {
+            throw error("comparison operator");
+        }
+        advance();
+        //!= is another way to write <>
+        String operator = operatorToken.text.equals("!=") ? "<>" : operatorToken.text;
+        if (not) {
+            operator = Commands.inverseOperator(operator);
+            if (operator == null) {
+                throw new SqlException("Operator " + operatorToken.text + " can not be negated", operatorToken.position);
+            }
+        }
+        return new Statement.Condition(column, operator, literal(), position);
+    }
+
+    //a word, a string, NULL or a parameter ?
+    private Statement.Literal literal() {
+        Lexer.Token value = token;
+        if (value.isSymbol("?")) {
+            advance();
+            return new Statement.Literal(value.text, value.position, parameterCount++);
+        }
+        if (value.type == Lexer.TokenType.STRING) {
+            advance();
+            return new Statement.Literal(value.text, value.position);
+        }
+        if (value.type == Lexer.TokenType.WORD) {
+            advance();
+            return new Statement.Literal(value.isKeyword("null") ? null : value.text, value.position);
+        }
+        throw error("value");
+    }
+
+    //reads a name, in lower case
+    private String identifier(String expected) {
+        if (token.type != Lexer.TokenType.WORD) {
+            throw error(expected);
+        }
+        String name = token.text.toLowerCase();
+        advance();
+        return name;
+    }
+
+    //moves to the next token
+    private void advance() {
+        token = lexer.next();
+    }
+
+    //skips the keyword if it is the current token
+    private boolean acceptKeyword(String keyword) {
+        if (token.isKeyword(keyword)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    //skips the symbol if it is the current token
+    private boolean acceptSymbol(String symbol) {
+        if (token.isSymbol(symbol)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    //skips the keyword, which has to be the current token
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error(keyword.toUpperCase());
+        }
+    }
+
+    //skips the symbol, which has to be the current token
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("\"" + symbol + "\"");
+        }
+    }
+
+    //returns the error for a current token that is not the expected one
+    private SqlException error(String expected) {
+        return new SqlException("Expected " + expected + " but found " + token.describe(), token.position);
+    }
+}
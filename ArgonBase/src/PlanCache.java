@@ -0,0 +1,93 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Least recently used cache of prepared statements by their normalized text, so a statement that is
+ * issued again is not parsed again
+ * The text is normalized token by token: white space between tokens and a final semicolon are dropped,
+ * keywords, names and values keep their case, so only statements differing in spacing share an entry
+ * Only SELECT, INSERT, UPDATE and DELETE are cached, at most Settings.getPlanCacheSize() of them
+ * The entry of a SELECT also keeps the plan compiled for it, see PreparedStatement.getPlan, so a query
+ * issued again is neither parsed nor planned again
+ * An entry prepared against an older version of the catalog is stale, it is parsed and planned again on its
+ * next use, the plan of an entry that is replaced or dropped from the cache is released
+ */
+public class PlanCache {
+    //entries by normalized text, in the order of their last use
+    private static final LinkedHashMap<String, PreparedStatement> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= Settings.getPlanCacheSize()) {
+                return false;
+            }
+            release(eldest.getValue());
+            return true;
+        }
+    };
+
+    //returns the statement prepared from the text, from the cache if it holds a current entry
+    //returns null if the text does not start with the keyword of a statement
+    public static PreparedStatement get(String sql) {
+        String key = normalize(sql);
+        PreparedStatement prepared = entries.get(key);
+        if (prepared != null && prepared.catalogVersion == Catalog.getVersion()) {
+            return prepared;
+        }
+
+        if (prepared != null) {
+            release(prepared);
+        }
+
+        Parser parser = new Parser(sql);
+        Statement statement = parser.parse();
+        if (statement == null) {
+            return null;
+        }
+        prepared = new PreparedStatement(key, statement, parser.getParameterCount());
+        if (statement.isPreparable()) {
+            entries.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    //returns the text of the statement as a single space separated list of its tokens
+    public static String normalize(String sql) {
+        Lexer lexer = new Lexer(sql);
+        StringBuilder text = new StringBuilder();
+        Lexer.Token token = lexer.next();
+        while (token.type != Lexer.TokenType.END) {
+            Lexer.Token next = lexer.next();
+            //the semicolon ending the statement is left out
+            if (token.isSymbol(";") && next.type == Lexer.TokenType.END) {
+                break;
+            }
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            if (token.type == Lexer.TokenType.STRING) {
+                text.append('\'').append(token.text.replace("'", "''")).append('\'');
+            } else {
+                text.append(token.text);
+            }
+            token = next;
+        }
+        return text.toString();
+    }
+
+    //removes all entries and closes the tables their plans read
+    public static void clear() {
+        for (PreparedStatement prepared : entries.values()) {
+            release(prepared);
+        }
+        entries.clear();
+    }
+
+    //releases the plan kept by an entry leaving the cache
+    private static void release(PreparedStatement prepared) {
+        try {
+            prepared.releasePlan();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
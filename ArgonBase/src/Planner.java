@@ -0,0 +1,565 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Compiles a LogicalPlan into a tree of physical Operators
+ * The access path of a scan is chosen here by estimated cost, see CostModel: all records are read with a
+ * TableScan, or a VectorScan in the vectorized mode, unless an index search costs less, a BitmapScan
+ * intersecting and uniting the row IDs indexes find for the comparisons of the WHERE clause, or an IndexScan
+ * of the index matching the longest key prefix, whose records are fetched in index order or, for wide
+ * ranges, in row ID order, a lower and an upper bound on the same key column are searched as one range
+ * The part of the WHERE clause the access path does not answer is checked by a Filter above it
+ * COUNT(*) alone over a table is counted from the row IDs indexes find when the WHERE clause can be
+ * searched in indexes and that costs less than reading its records, see BitmapCount
+ * A join is compiled into the cheapest of a HashJoin, a MergeJoin of inputs in the order of their join
+ * columns and an IndexNestedLoopJoin looking up the join values in an index of a table, see join
+ */
+public class Planner {
+
+    //compiles the logical plan into operators, the operators are not opened yet
+    public static Operator compile(LogicalPlan plan) throws IOException {
+        if (plan instanceof LogicalPlan.Scan) {
+            LogicalPlan.Scan scan = (LogicalPlan.Scan) plan;
+            return accessPath(scan.table, scan.predicate, scan.neededColumns);
+        } else if (plan instanceof LogicalPlan.Filter) {
+            LogicalPlan.Filter filter = (LogicalPlan.Filter) plan;
+            return new Filter(compile(filter.input), filter.predicate);
+        } else if (plan instanceof LogicalPlan.Project) {
+            LogicalPlan.Project project = (LogicalPlan.Project) plan;
+            return new Project(compile(project.input), project.columns, project.names);
+        } else if (plan instanceof LogicalPlan.Sort) {
+            LogicalPlan.Sort sort = (LogicalPlan.Sort) plan;
+            return new Sort(compile(sort.input), sort.columns, sort.descending);
+        } else if (plan instanceof LogicalPlan.Limit) {
+            LogicalPlan.Limit limit = (LogicalPlan.Limit) plan;
+            return new Limit(compile(limit.input), limit.limit);
+        } else if (plan instanceof LogicalPlan.Aggregate) {
+            LogicalPlan.Aggregate aggregate = (LogicalPlan.Aggregate) plan;
+            Operator input = compile(aggregate.input);
+            Operator count = bitmapCount(aggregate, input);
+            if (count != null) {
+                return count;
+            }
+            //a vectorized input is aggregated batch by batch
+            if (input instanceof BatchToRows) {
+                return new VectorAggregate(((BatchToRows) input).input, aggregate.groupColumns, aggregate.functions,
+                        aggregate.arguments);
+            }
+            return new Aggregate(input, aggregate.groupColumns, aggregate.functions, aggregate.arguments);
+        }
+        return join((LogicalPlan.Join) plan);
+    }
+
+    //chooses how the inputs are joined by estimated cost, see CostModel
+    //a HashJoin hashes the input estimated to return fewer records
+    //a MergeJoin needs both inputs in the order of their join columns, as they are compiled or read through
+    //a B-tree index on the join column of their table, see orderedInput, tables are kept in row ID order so
+    //a table scan is in the order of no column
+    //an IndexNestedLoopJoin reads one input and looks up its join values in an index on the join column of
+    //the table of the other input, which has to be a single table
+    //the last two compare join values by their type, so the join columns need the same type
+    private static Operator join(LogicalPlan.Join join) throws IOException {
+        Operator left = compile(join.left);
+        Operator right = compile(join.right);
+        double leftRows = estimateRows(join.left);
+        double rightRows = estimateRows(join.right);
+        double leftCost = costOf(left);
+        double rightCost = costOf(right);
+
+        boolean buildLeft = leftRows < rightRows;
+        Operator best = new HashJoin(left, right, join.leftColumn, join.rightColumn, buildLeft);
+        best.estimatedCost = leftCost + rightCost + (buildLeft
+                ? CostModel.hashJoinCost(leftRows, left.columnNames.size(), rightRows, right.columnNames.size())
+                : CostModel.hashJoinCost(rightRows, right.columnNames.size(), leftRows, left.columnNames.size()));
+
+        if (left.getColumnType(join.leftColumn) == right.getColumnType(join.rightColumn)) {
+            Operator orderedLeft = orderedInput(join.left, left, join.leftColumn);
+            Operator orderedRight = orderedInput(join.right, right, join.rightColumn);
+            if (orderedLeft != null && orderedRight != null) {
+                double cost = costOf(orderedLeft) + costOf(orderedRight) + CostModel.mergeJoinCost(leftRows, rightRows);
+                if (cost < best.estimatedCost) {
+                    best = new MergeJoin(orderedLeft, orderedRight, join.leftColumn, join.rightColumn);
+                    best.estimatedCost = cost;
+                }
+            }
+            best = cheaper(best, indexNestedLoopJoin(left, leftRows, join.leftColumn, join.right, join.rightColumn, true));
+            best = cheaper(best, indexNestedLoopJoin(right, rightRows, join.rightColumn, join.left, join.leftColumn, false));
+        }
+        best.estimatedRows = estimateRows(join);
+        return best;
+    }
+
+    //returns the join looking up the join values of the outer input in an index on the join column of the
+    //table of the inner plan, null if the inner plan is not a single table or the column has no index
+    private static Operator indexNestedLoopJoin(Operator outer, double outerRows, String outerColumn, LogicalPlan inner,
+                                                String innerName, boolean outerLeft) throws IOException {
+        LogicalPlan.Scan scan = tableScanOf(inner);
+        if (scan == null) {
+            return null;
+        }
+        LogicalPlan.Project project = (LogicalPlan.Project) inner;
+        String innerColumn = project.columns.get(project.names.indexOf(innerName));
+        IndexDefinition index = scan.table.findIndex(innerColumn, null, "=");
+        if (index == null) {
+            return null;
+        }
+        Operator join = new IndexNestedLoopJoin(outer, outerColumn, scan.table, index, innerColumn, scan.predicate,
+                project.columns, project.names, outerLeft);
+        join.estimatedCost = costOf(outer) + CostModel.indexNestedLoopCost(scan.table, index, innerColumn, outerRows);
+        return join;
+    }
+
+    //returns the input in the order of the column, null if it can't be
+    //an input that is not ordered already is read through a full scan of a B-tree index whose key starts
+    //with the column, if it is a single table, which leaves out the rows whose join value is null
+    private static Operator orderedInput(LogicalPlan plan, Operator compiled, String column) throws IOException {
+        if (compiled.isOrderedBy(column)) {
+            return compiled;
+        }
+        LogicalPlan.Scan scan = tableScanOf(plan);
+        if (scan == null) {
+            return null;
+        }
+        LogicalPlan.Project project = (LogicalPlan.Project) plan;
+        String tableColumn = project.columns.get(project.names.indexOf(column));
+        //the index also has to provide the columns of the predicate, a covering one is preferred
+        LinkedHashSet<String> searchColumns = null;
+        if (scan.neededColumns != null) {
+            searchColumns = new LinkedHashSet<>(scan.neededColumns);
+            if (scan.predicate != null) {
+                scan.predicate.addColumns(searchColumns);
+            }
+        }
+        IndexDefinition found = null;
+        for (IndexDefinition index : scan.table.indexes) {
+            if (index.isHash() || index.isBitmap() || index.isPartial() || !index.columnNames.get(0).equals(tableColumn)) {
+                continue;
+            }
+            if (found == null || (searchColumns != null && index.covers(searchColumns) && !found.covers(searchColumns))) {
+                found = index;
+            }
+        }
+        if (found == null) {
+            return null;
+        }
+        boolean covering = searchColumns != null && found.covers(searchColumns);
+        double selectivity = CostModel.selectivity(scan.table, Predicate.isNull(tableColumn, true));
+        Operator input = new IndexScan(scan.table, found, covering);
+        input.estimatedCost = CostModel.indexScanCost(scan.table, found, selectivity, covering, false);
+        input.estimatedRows = CostModel.rowCount(scan.table) * selectivity;
+        if (scan.predicate != null) {
+            Operator filter = new Filter(input, scan.predicate);
+            filter.estimatedCost = input.estimatedCost + input.estimatedRows * CostModel.ROW_COST;
+            filter.estimatedRows = estimateRows(scan);
+            input = filter;
+        }
+        return new Project(input, project.columns, project.names);
+    }
+
+    //returns a count of the row IDs indexes find for COUNT(*) alone over a table whose predicate indexes can
+    //answer in full, when it is estimated to cost less than aggregating the records of the compiled input
+    //returns null otherwise
+    private static Operator bitmapCount(LogicalPlan.Aggregate aggregate, Operator input) throws IOException {
+        if (!aggregate.groupColumns.isEmpty() || aggregate.functions.size() != 1 || !aggregate.functions.get(0).equals("count")
+                || aggregate.arguments.get(0) != null || !(aggregate.input instanceof LogicalPlan.Scan)) {
+            return null;
+        }
+        LogicalPlan.Scan scan = (LogicalPlan.Scan) aggregate.input;
+        if (scan.predicate == null || indexedPart(scan.table, scan.predicate) != scan.predicate) {
+            return null;
+        }
+        Operator count = new BitmapCount(scan.table, scan.predicate);
+        count.estimatedCost = CostModel.bitmapCountCost(scan.table, scan.predicate);
+        count.estimatedRows = 1;
+        double aggregateCost = costOf(input) + estimateRows(scan) * CostModel.ROW_COST;
+        return count.estimatedCost < aggregateCost ? count : null;
+    }
+
+    //returns the scan of the single table the plan reads, as Commands plans each table of a join, null if
+    //the plan is not a projection of a scan
+    private static LogicalPlan.Scan tableScanOf(LogicalPlan plan) {
+        if (plan instanceof LogicalPlan.Project && ((LogicalPlan.Project) plan).input instanceof LogicalPlan.Scan) {
+            return (LogicalPlan.Scan) ((LogicalPlan.Project) plan).input;
+        }
+        return null;
+    }
+
+    //returns the candidate if it is estimated to cost less than the best operator so far
+    private static Operator cheaper(Operator best, Operator candidate) {
+        return candidate != null && candidate.estimatedCost < best.estimatedCost ? candidate : best;
+    }
+
+    //returns the estimated cost of a compiled input of a join, a join or the access path of a table below
+    //a Project, the cost of a vectorized scan is kept by its batches
+    private static double costOf(Operator operator) {
+        if (operator instanceof Project) {
+            return costOf(((Project) operator).input);
+        }
+        if (operator instanceof BatchToRows) {
+            return Math.max(0, ((BatchToRows) operator).input.estimatedCost);
+        }
+        return Math.max(0, operator.estimatedCost);
+    }
+
+    //returns the number of records the plan is estimated to return, from the sizes of its tables and the
+    //selectivities of their predicates, see CostModel
+    //a join of analyzed join columns matches each record of one input with the records of the other having
+    //its value, |left| * |right| / max(distinct left values, distinct right values), without statistics
+    //it is taken to match each record of its larger input about once
+    static double estimateRows(LogicalPlan plan) throws IOException {
+        if (plan instanceof LogicalPlan.Scan) {
+            LogicalPlan.Scan scan = (LogicalPlan.Scan) plan;
+            return CostModel.rowCount(scan.table) * CostModel.selectivity(scan.table, scan.predicate);
+        } else if (plan instanceof LogicalPlan.Filter) {
+            return estimateRows(((LogicalPlan.Filter) plan).input);
+        } else if (plan instanceof LogicalPlan.Project) {
+            return estimateRows(((LogicalPlan.Project) plan).input);
+        } else if (plan instanceof LogicalPlan.Sort) {
+            return estimateRows(((LogicalPlan.Sort) plan).input);
+        } else if (plan instanceof LogicalPlan.Limit) {
+            LogicalPlan.Limit limit = (LogicalPlan.Limit) plan;
+            return Math.min(limit.limit, estimateRows(limit.input));
+        } else if (plan instanceof LogicalPlan.Aggregate) {
+            return estimateRows(((LogicalPlan.Aggregate) plan).input);
+        }
+        LogicalPlan.Join join = (LogicalPlan.Join) plan;
+        double leftRows = estimateRows(join.left);
+        double rightRows = estimateRows(join.right);
+        double leftDistinct = distinctValues(join.left, join.leftColumn);
+        double rightDistinct = distinctValues(join.right, join.rightColumn);
+        if (leftDistinct == 0 || rightDistinct == 0) {
+            return Math.max(leftRows, rightRows);
+        }
+        return leftRows * rightRows / Math.max(leftDistinct, rightDistinct);
+    }
+
+    //returns the number of distinct values of the column of the plan in the statistics of the table it is
+    //read from, 0 if the table was never analyzed
+    private static double distinctValues(LogicalPlan plan, String column) {
+        if (plan instanceof LogicalPlan.Join) {
+            LogicalPlan.Join join = (LogicalPlan.Join) plan;
+            return Math.max(distinctValues(join.left, column), distinctValues(join.right, column));
+        }
+        LogicalPlan.Scan scan = tableScanOf(plan);
+        if (scan == null) {
+            return 0;
+        }
+        LogicalPlan.Project project = (LogicalPlan.Project) plan;
+        int position = project.names.indexOf(column);
+        if (position == -1) {
+            return 0;
+        }
+        ColumnStatistics statistics = Catalog.getStatistics(scan.table.tableName, project.columns.get(position));
+        return statistics == null ? 0 : statistics.distinctValues;
+    }
+
+    //chooses how the records of the table matching all conditions <column> <operator> <value> are read
+    public static Operator accessPath(Table table, ArrayList<String> columns, ArrayList<Object> values,
+                                      ArrayList<String> operators, Collection<String> neededColumns) throws IOException {
+        return accessPath(table, Predicate.and(columns, values, operators), neededColumns);
+    }
+
+    //chooses how the records of the table matching the predicate are read, all records if it is null
+    //neededColumns are the columns read from the records, null for all columns, when an index stores all
+    //of them and the columns of the predicate the records are read from the index alone
+    //the comparisons of the top level AND are candidates for the key of an index search, see indexScan,
+    //and the part of the predicate indexes can answer for a BitmapScan, see indexedPart
+    //the cheapest search is compared with a scan of the whole table, see CostModel, and the table is
+    //scanned unless the search costs less, see tableScan
+    public static Operator accessPath(Table table, Predicate predicate, Collection<String> neededColumns)
+            throws IOException {
+        double rows = CostModel.rowCount(table) * CostModel.selectivity(table, predicate);
+        double tableCost = CostModel.tableScanCost(table);
+        if (predicate == null) {
+            return tableScan(table, null, tableCost, rows);
+        }
+
+        //the comparisons joined by the top level AND
+        ArrayList<String> columns = new ArrayList<>();
+        ArrayList<Object> values = new ArrayList<>();
+        ArrayList<String> operators = new ArrayList<>();
+        for (Predicate conjunct : predicate.conjuncts()) {
+            if (conjunct.isComparison()) {
+                columns.add(conjunct.column);
+                values.add(conjunct.value);
+                operators.add(conjunct.operator);
+            }
+        }
+        //the index search also has to provide the columns of the predicate
+        LinkedHashSet<String> searchColumns = null;
+        if (neededColumns != null) {
+            searchColumns = new LinkedHashSet<>(neededColumns);
+            predicate.addColumns(searchColumns);
+        }
+        Operator scan = indexScan(table, columns, values, operators, searchColumns);
+
+        //two or more comparisons indexes can answer are answered by intersecting and uniting the row IDs
+        //the indexes find, the records of the row IDs left are read in row ID order
+        Predicate indexed = indexedPart(table, predicate);
+        if (indexed != null && comparisonCount(indexed) >= 2) {
+            double cost = CostModel.bitmapScanCost(table, indexed);
+            if (scan == null || cost < scan.estimatedCost) {
+                scan = new BitmapScan(table, indexed);
+                scan.estimatedCost = cost;
+                scan.estimatedRows = CostModel.rowCount(table) * CostModel.selectivity(table, indexed);
+            }
+        }
+
+        if (scan == null || scan.estimatedCost >= tableCost) {
+            return tableScan(table, predicate, tableCost, rows);
+        }
+        if (predicate.isComparison() || (scan instanceof BitmapScan && indexed == predicate)) {
+            return scan;
+        }
+        //an index search answers only part of the predicate
+        Operator filter = new Filter(scan, predicate);
+        filter.estimatedCost = scan.estimatedCost + scan.estimatedRows * CostModel.ROW_COST;
+        filter.estimatedRows = rows;
+        return filter;
+    }
+
+    //returns the part of the predicate whose comparisons can each be searched in an index, the predicate
+    //itself if all of it can, null if none of it can
+    //an AND keeps the operands that can be searched, the records matching them include those matching the
+    //AND, while an OR needs all of its operands, a NULL test is never searched
+    private static Predicate indexedPart(Table table, Predicate predicate) {
+        switch (predicate.kind) {
+            case COMPARISON:
+                return table.findIndex(predicate.column, null, predicate.operator, predicate.value) == null
+                        ? null : predicate;
+            case AND:
+                ArrayList<Predicate> operands = new ArrayList<>();
+                for (Predicate operand : predicate.operands) {
+                    Predicate part = indexedPart(table, operand);
+                    if (part != null) {
+                        operands.add(part);
+                    }
+                }
+                if (operands.isEmpty()) {
+                    return null;
+                }
+                return operands.equals(predicate.operands) ? predicate : Predicate.and(operands);
+            case OR:
+                for (Predicate operand : predicate.operands) {
+                    if (indexedPart(table, operand) != operand) {
+                        return null;
+                    }
+                }
+                return predicate;
+            default:
+                return null;
+        }
+    }
+
+    //returns the number of comparisons in the predicate
+    private static int comparisonCount(Predicate predicate) {
+        if (predicate.operands == null) {
+            return predicate.isComparison() ? 1 : 0;
+        }
+        int count = 0;
+        for (Predicate operand : predicate.operands) {
+            count += comparisonCount(operand);
+        }
+        return count;
+    }
+
+    //chooses the cheapest index search for the conditions, null if no index can be searched for them
+    //candidates are the index whose key is matched the furthest by equality conditions, optionally
+    //followed by one range condition on the next key column, which a range condition on the same column
+    //from the other side closes in a B-tree index, and otherwise the search of a single condition
+    //a hash index is only used when all of its key columns have equality conditions, a partial index
+    //when the conditions imply its predicate
+    //the other conditions are checked on the records
+    private static Operator indexScan(Table table, ArrayList<String> columns, ArrayList<Object> values,
+                                      ArrayList<String> operators, Collection<String> neededColumns) throws IOException {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        if (columns.size() == 1) {
+            //an index on the column, see Table.findIndex
+            IndexDefinition index = table.findIndex(columns.get(0), neededColumns, operators.get(0), values.get(0));
+            if (index == null) {
+                return null;
+            }
+            return indexScan(table, index, values.get(0), operators.get(0),
+                    neededColumns != null && index.covers(neededColumns),
+                    CostModel.selectivity(table, columns.get(0), operators.get(0), values.get(0)));
+        }
+
+        //the index search also has to provide the columns of the conditions
+        Collection<String> searchColumns = null;
+        if (neededColumns != null) {
+            searchColumns = new LinkedHashSet<>(neededColumns);
+            searchColumns.addAll(columns);
+        }
+
+        //find the index matching the longest key prefix
+        IndexDefinition bestIndex = null;
+        ArrayList<Integer> bestPrefix = new ArrayList<>();
+        String bestOperator = null;
+        int bestUpper = -1;
+        for (IndexDefinition index : table.indexes) {
+            if (index.isPartial() && !index.isImpliedBy(table, columns, values, operators)) {
+                continue;
+            }
+            //the conditions matching the key columns in order
+            ArrayList<Integer> prefix = new ArrayList<>();
+            String operator = "=";
+            for (String keyColumn : index.columnNames) {
+                int condition = findCondition(columns, operators, keyColumn, true);
+                if (condition == -1) {
+                    condition = findCondition(columns, operators, keyColumn, false);
+                    if (condition != -1) {
+                        prefix.add(condition);
+                        operator = operators.get(condition);
+                    }
+                    break;
+                }
+                prefix.add(condition);
+            }
+            if (index.isHash() && (prefix.size() < index.columnNames.size() || !operator.equals("="))) {
+                continue;
+            }
+            //the condition bounding the range of the last key column from the other side
+            int upper = -1;
+            if (!operator.equals("=") && !index.isBitmap()) {
+                upper = findOppositeCondition(columns, operators, columns.get(prefix.get(prefix.size() - 1)), operator);
+            }
+            //a range bounded on both sides matches further than one bounded on one side
+            //on a tie a covering index wins, then a hash index, then a partial index
+            boolean better = prefix.size() > bestPrefix.size()
+                    || (prefix.size() == bestPrefix.size() && upper != -1 && bestUpper == -1);
+            if (prefix.size() == bestPrefix.size() && !prefix.isEmpty() && (upper != -1) == (bestUpper != -1)) {
+                boolean covers = searchColumns != null && index.covers(searchColumns);
+                boolean bestCovers = searchColumns != null && bestIndex.covers(searchColumns);
+                better = (covers && !bestCovers) || (covers == bestCovers && index.isHash() && !bestIndex.isHash())
+                        || (covers == bestCovers && index.isHash() == bestIndex.isHash() && index.isPartial() && !bestIndex.isPartial());
+            }
+            if (better) {
+                bestIndex = index;
+                bestPrefix = prefix;
+                bestOperator = operator;
+                bestUpper = upper;
+            }
+        }
+
+        Operator best = null;
+        if (bestIndex != null) {
+            ArrayList<Object> key = new ArrayList<>();
+            double selectivity = 1.0;
+            for (int condition : bestPrefix.subList(0, bestPrefix.size() - (bestUpper == -1 ? 0 : 1))) {
+                key.add(values.get(condition));
+                selectivity *= CostModel.selectivity(table, columns.get(condition), operators.get(condition), values.get(condition));
+            }
+            boolean covering = searchColumns != null && bestIndex.covers(searchColumns);
+            if (bestUpper == -1) {
+                best = indexScan(table, bestIndex, bestIndex.columnNames.size() > 1 ? key : key.get(0), bestOperator,
+                        covering, selectivity);
+            } else {
+                //the key ends with the lower bound, the upper bound replaces it in the upper key
+                int lower = bestPrefix.get(bestPrefix.size() - 1);
+                if (bestOperator.startsWith("<")) {
+                    int swap = lower;
+                    lower = bestUpper;
+                    bestUpper = swap;
+                }
+                selectivity *= CostModel.rangeSelectivity(table, columns.get(lower), operators.get(lower), values.get(lower),
+                        operators.get(bestUpper), values.get(bestUpper));
+                ArrayList<Object> upperKey = new ArrayList<>(key);
+                key.add(values.get(lower));
+                upperKey.add(values.get(bestUpper));
+                boolean composite = bestIndex.columnNames.size() > 1;
+                best = indexScan(table, bestIndex, composite ? key : key.get(0), operators.get(lower),
+                        composite ? upperKey : upperKey.get(0), operators.get(bestUpper), covering, selectivity);
+            }
+        }
+
+        if (best != null) {
+            return best;
+        }
+
+        //otherwise the cheapest index search of a single condition
+        for (int i = 0; i < columns.size(); i++) {
+            Operator scan = indexScan(table, new ArrayList<>(columns.subList(i, i + 1)), new ArrayList<>(values.subList(i, i + 1)),
+                    new ArrayList<>(operators.subList(i, i + 1)), searchColumns);
+            if (scan != null && (best == null || scan.estimatedCost < best.estimatedCost)) {
+                best = scan;
+            }
+        }
+        return best;
+    }
+
+    //creates the search of the index for the key, with the records fetched in row ID order when that is
+    //estimated to cost less than fetching them batch by batch in index order
+    //the search matches the given fraction of the rows of the table
+    private static IndexScan indexScan(Table table, IndexDefinition index, Object key, String operator,
+                                       boolean covering, double selectivity) throws IOException {
+        return indexScan(table, index, key, operator, null, null, covering, selectivity);
+    }
+
+    //creates the search of the index for the keys between a lower key and an upper key, see indexScan
+    //above, without an upper key only the lower key and its operator bound the search
+    private static IndexScan indexScan(Table table, IndexDefinition index, Object key, String operator,
+                                       Object upperKey, String upperOperator, boolean covering, double selectivity)
+            throws IOException {
+        double cost = CostModel.indexScanCost(table, index, selectivity, covering, false);
+        double sortedCost = covering ? cost : CostModel.indexScanCost(table, index, selectivity, false, true);
+        IndexScan scan = new IndexScan(table, index, key, operator, upperKey, upperOperator, covering, sortedCost < cost);
+        scan.estimatedCost = Math.min(cost, sortedCost);
+        scan.estimatedRows = CostModel.rowCount(table) * selectivity;
+        return scan;
+    }
+
+    //scans the whole table for the records matching the predicate, all records if it is null, the scan is
+    //estimated to cost the given cost and to return the given number of rows
+    //in the vectorized mode the table is read into batches of column vectors which are filtered by tight
+    //loops over primitive arrays, see VectorScan and VectorFilter
+    private static Operator tableScan(Table table, Predicate predicate, double cost, double rows) {
+        if (Settings.isVectorized()) {
+            BatchOperator scan = new VectorScan(table);
+            if (predicate != null) {
+                scan = new VectorFilter(scan, predicate);
+            }
+            scan.estimatedCost = cost;
+            scan.estimatedRows = rows;
+            return new BatchToRows(scan);
+        }
+        Operator scan = new TableScan(table);
+        if (predicate != null) {
+            scan = new Filter(scan, predicate);
+        }
+        scan.estimatedCost = cost;
+        scan.estimatedRows = rows;
+        return scan;
+    }
+
+    //find the condition on the column that can bound an index search
+    //equality conditions when equal is true, otherwise range conditions
+    //returns -1 if there is none
+    private static int findCondition(ArrayList<String> columns, ArrayList<String> operators, String columnName, boolean equal) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).equals(columnName)) {
+                continue;
+            }
+            String operator = operators.get(i);
+            if (equal ? operator.equals("=") : (!operator.equals("=") && !operator.equals("<>"))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //find the range condition on the column bounding it from the other side than the given operator,
+    //an upper bound < or <= for a lower bound > or >= and the other way round
+    //returns -1 if there is none
+    private static int findOppositeCondition(ArrayList<String> columns, ArrayList<String> operators, String columnName,
+                                             String operator) {
+        String opposite = operator.startsWith(">") ? "<" : ">";
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equals(columnName) && operators.get(i).startsWith(opposite) && !operators.get(i).equals("<>")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.*;
+
+/*
+ * A WHERE clause bound to the columns of a table: comparisons <column> <operator> <value> and IS [NOT] NULL
+ * tests combined with AND and OR
+ * NOT, IN and BETWEEN are rewritten by Parser into these, NOT is pushed down to the comparisons by
+ * inverting their operators, IN becomes an OR of equalities and BETWEEN an AND of two range conditions
+ * A comparison with a NULL value or on a column the records do not have matches no record, so a NOT
+ * comparison keeps the SQL meaning that NULL is neither equal nor unequal to anything
+ * A predicate is bound to the columns of the records it checks before it is evaluated, see bind
+ * Planner splits the conjuncts of the top level AND into the comparisons an index search can answer and
+ * the rest, which Filter and VectorFilter check on the records
+ */
+public class Predicate {
+
+    //kinds of predicates
+    public enum Kind {
+        COMPARISON,
+        IS_NULL,
+        IS_NOT_NULL,
+        AND,
+        OR
+    }
+
+    final Kind kind;
+    //column, operator and value of a comparison, column of a NULL test
+    final String column;
+    final String operator;
+    final Object value;
+    //operands of AND and OR
+    final ArrayList<Predicate> operands;
+    //position of the column in the records checked, -1 until the predicate is bound or if they lack it
+    private final int columnIndex;
+
+    private Predicate(Kind kind, String column, String operator, Object value, ArrayList<Predicate> operands) {
+        this(kind, column, operator, value, operands, -1);
+    }
+
+    private Predicate(Kind kind, String column, String operator, Object value, ArrayList<Predicate> operands,
+                      int columnIndex) {
+        this.kind = kind;
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+        this.operands = operands;
+        this.columnIndex = columnIndex;
+    }
+
+    //returns the comparison <column> <operator> <value>
+    public static Predicate comparison(String column, String operator, Object value) {
+        return new Predicate(Kind.COMPARISON, column, operator, value, null);
+    }
+
+    //returns the test <column> IS NULL, or IS NOT NULL when negated
+    public static Predicate isNull(String column, boolean negated) {
+        return new Predicate(negated ? Kind.IS_NOT_NULL : Kind.IS_NULL, column, null, null, null);
+    }
+
+    //returns the AND of the operands, the operand itself if there is only one
+    //nested ANDs are flattened, so the operands of an AND are never ANDs
+    public static Predicate and(List<Predicate> operands) {
+        return junction(Kind.AND, operands);
+    }
+
+    //returns the OR of the operands, the operand itself if there is only one
+    //nested ORs are flattened, so the operands of an OR are never ORs
+    public static Predicate or(List<Predicate> operands) {
+        return junction(Kind.OR, operands);
+    }
+
+    //returns the AND of the comparisons <column> <operator> <value>, null if there are none
+    public static Predicate and(List<String> columns, List<Object> values, List<String> operators) {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        ArrayList<Predicate> comparisons = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            comparisons.add(comparison(columns.get(i), operators.get(i), values.get(i)));
+        }
+        return and(comparisons);
+    }
+
+    private static Predicate junction(Kind kind, List<Predicate> operands) {
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+        ArrayList<Predicate> flattened = new ArrayList<>();
+        for (Predicate operand : operands) {
+            if (operand.kind == kind) {
+                flattened.addAll(operand.operands);
+            } else {
+                flattened.add(operand);
+            }
+        }
+        return new Predicate(kind, null, null, null, flattened);
+    }
+
+    //checks whether the predicate is a comparison <column> <operator> <value>
+    public boolean isComparison() {
+        return kind == Kind.COMPARISON;
+    }
+
+    //returns the operands of the predicate if it is an AND, otherwise the predicate itself
+    public List<Predicate> conjuncts() {
+        return kind == Kind.AND ? operands : List.of(this);
+    }
+
+    //adds the columns the predicate reads to the set
+    public void addColumns(Set<String> columns) {
+        if (column != null) {
+            columns.add(column);
+        }
+        if (operands != null) {
+            for (Predicate operand : operands) {
+                operand.addColumns(columns);
+            }
+        }
+    }
+
+    //returns the predicate bound to records whose columns are named by columnNames
+    public Predicate bind(List<String> columnNames) {
+        ArrayList<Predicate> boundOperands = null;
+        if (operands != null) {
+            boundOperands = new ArrayList<>();
+            for (Predicate operand : operands) {
+                boundOperands.add(operand.bind(columnNames));
+            }
+        }
+        return new Predicate(kind, column, operator, value, boundOperands,
+                column == null ? -1 : columnNames.indexOf(column));
+    }
+
+    //returns the predicate with its columns renamed by the map, a column not in the map keeps its name
+    public Predicate rename(Map<String, String> names) {
+        ArrayList<Predicate> renamedOperands = null;
+        if (operands != null) {
+            renamedOperands = new ArrayList<>();
+            for (Predicate operand : operands) {
+                renamedOperands.add(operand.rename(names));
+            }
+        }
+        return new Predicate(kind, column == null ? null : names.getOrDefault(column, column), operator, value,
+                renamedOperands);
+    }
+
+    //checks whether the record matches the bound predicate
+    public boolean matches(Record record) {
+        switch (kind) {
+            case COMPARISON:
+                return columnIndex != -1 && record.compare(columnIndex, value, operator);
+            case IS_NULL:
+                return columnIndex != -1 && record.getValues().get(columnIndex) == null;
+            case IS_NOT_NULL:
+                return columnIndex != -1 && record.getValues().get(columnIndex) != null;
+            case AND:
+                for (Predicate operand : operands) {
+                    if (!operand.matches(record)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                for (Predicate operand : operands) {
+                    if (operand.matches(record)) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    //returns the predicate as written in a WHERE clause, as shown by EXPLAIN
+    public String toString() {
+        switch (kind) {
+            case COMPARISON:
+                return column + " " + operator + " "
+                        + (value instanceof String ? "'" + value + "'" : String.valueOf(value).toUpperCase());
+            case IS_NULL:
+                return column + " IS NULL";
+            case IS_NOT_NULL:
+                return column + " IS NOT NULL";
+            default:
+                StringJoiner text = new StringJoiner(kind == Kind.AND ? " AND " : " OR ");
+                for (Predicate operand : operands) {
+                    //an OR inside an AND needs parentheses
+                    boolean parentheses = kind == Kind.AND && operand.kind == Kind.OR;
+                    text.add(parentheses ? "(" + operand + ")" : operand.toString());
+                }
+                return text.toString();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * A statement parsed once and executed any number of times, the values of its parameters ? are given on
+ * each execution
+ * PREPARE <name> AS <statement> and EXECUTE <name> ( <value>, ... ) use it from the prompt, Java code
+ * prepares and executes statements directly:
+ *     PreparedStatement insert = PreparedStatement.prepare("INSERT INTO t VALUES (?, ?)");
+ *     insert.execute(1, "first");
+ * Prepared statements are shared through the PlanCache, a statement prepared before the catalog changed
+ * is prepared again before it is executed
+ * A SELECT keeps the plan Planner compiled for it together with the tables the plan reads, which stay
+ * open, an execution with the same values of the parameters against the same catalog runs that plan again
+ * instead of compiling it, other values compile a new plan in its place
+ */
+public class PreparedStatement {
+    //normalized text of the statement
+    final String sql;
+    final Statement statement;
+    //number of parameters ? of the statement
+    final int parameterCount;
+    //version of the catalog the statement was prepared against
+    final long catalogVersion;
+    //the plan compiled for a SELECT, the tables it reads and the values of the parameters it was compiled
+    //for, null while no plan is kept
+    private Operator plan;
+    private List<Table> planTables;
+    private List<String> planArguments;
+
+    //Creates a prepared statement from its parsed text
+    PreparedStatement(String sql, Statement statement, int parameterCount) {
+        this.sql = sql;
+        this.statement = statement;
+        this.parameterCount = parameterCount;
+        this.catalogVersion = Catalog.getVersion();
+    }
+
+    //prepares the statement, taking it from the plan cache if it was prepared before
+    //only SELECT, INSERT, UPDATE and DELETE on an existing table can be prepared
+    public static PreparedStatement prepare(String sql) {
+        PreparedStatement prepared = PlanCache.get(sql);
+        if (prepared == null || !prepared.statement.isPreparable()) {
+            throw new SqlException("Only SELECT, INSERT, UPDATE and DELETE can be prepared", 1);
+        }
+        String tableName = prepared.getTableName();
+        if (!Table.isTableExist(tableName)) {
+            throw new SqlException("Table " + tableName + " does not exist", prepared.statement.position);
+        }
+        return prepared;
+    }
+
+    //returns the name of the table the statement works on
+    public String getTableName() {
+        if (statement instanceof Statement.Select) {
+            return ((Statement.Select) statement).tableName;
+        } else if (statement instanceof Statement.Insert) {
+            return ((Statement.Insert) statement).tableName;
+        } else if (statement instanceof Statement.Update) {
+            return ((Statement.Update) statement).tableName;
+        }
+        return ((Statement.Delete) statement).tableName;
+    }
+
+    //returns the statement prepared against the current catalog, itself if the catalog did not change
+    //the plan kept by a statement prepared against an older catalog is released
+    public PreparedStatement refresh() throws IOException {
+        if (catalogVersion == Catalog.getVersion()) {
+            return this;
+        }
+        releasePlan();
+        return prepare(sql);
+    }
+
+    //returns the plan kept for the SELECT if it was compiled for the same values of the parameters and
+    //the catalog did not change since, null otherwise
+    Operator getPlan(List<Statement.Literal> arguments) {
+        if (plan == null || catalogVersion != Catalog.getVersion() || !planArguments.equals(texts(arguments))) {
+            return null;
+        }
+        return plan;
+    }
+
+    //keeps the plan compiled for the values of the parameters in place of the plan kept before, the
+    //tables the plan reads are closed once it is released
+    void setPlan(Operator plan, List<Table> tables, List<Statement.Literal> arguments) throws IOException {
+        releasePlan();
+        this.plan = plan;
+        this.planTables = new ArrayList<>(tables);
+        this.planArguments = texts(arguments);
+    }
+
+    //drops the kept plan and closes the tables it reads
+    void releasePlan() throws IOException {
+        if (plan == null) {
+            return;
+        }
+        List<Table> tables = planTables;
+        plan = null;
+        planTables = null;
+        planArguments = null;
+        for (Table table : tables) {
+            table.close();
+        }
+    }
+
+    //returns the texts of the values of the parameters, null for NULL
+    private static List<String> texts(List<Statement.Literal> arguments) {
+        ArrayList<String> texts = new ArrayList<>();
+        for (Statement.Literal argument : arguments) {
+            texts.add(argument.text);
+        }
+        return texts;
+    }
+
+    //executes the statement with the values of its parameters in order, null stands for NULL and
+    //other values are given by their text
+    public void execute(Object... arguments) throws IOException {
+        if (arguments.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " values but found " + arguments.length);
+        }
+        ArrayList<Statement.Literal> literals = new ArrayList<>();
+        for (Object argument : arguments) {
+            literals.add(new Statement.Literal(argument == null ? null : String.valueOf(argument), 1));
+        }
+        execute(literals);
+    }
+
+    //executes the statement with the values of its parameters given as literals
+    public void execute(List<Statement.Literal> arguments) throws IOException {
+        FileManager.LOCK.lock();
+        try {
+            Commands.execute(refresh(), arguments);
+        } finally {
+            FileManager.LOCK.unlock();
+        }
+    }
+}
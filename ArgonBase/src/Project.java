@@ -0,0 +1,68 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Returns the given columns of the records of its input, in the given order, optionally renamed
+ */
+public class Project extends Operator {
+    final Operator input;
+    //positions of the columns in the records of the input
+    private final int[] columnIndexes;
+
+    //Creates a projection of the input onto the columns, which the input has to have
+    public Project(Operator input, List<String> columns) {
+        this(input, columns, columns);
+    }
+
+    //Creates a projection of the input onto the columns, returned under the given names
+    public Project(Operator input, List<String> columns, List<String> names) {
+        super(new ArrayList<>(names), new ArrayList<>());
+        this.input = input;
+        this.columnIndexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndexes[i] = input.columnIndex(columns.get(i));
+            columnTypes.add(input.columnTypes.get(columnIndexes[i]));
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        input.open();
+    }
+
+    @Override
+    public Record next() throws IOException {
+        Record record = input.next();
+        if (record == null) {
+            return null;
+        }
+        ArrayList<Object> values = new ArrayList<>(columnIndexes.length);
+        for (int columnIndex : columnIndexes) {
+            values.add(record.getValues().get(columnIndex));
+        }
+        return new Record(new ArrayList<>(columnTypes), values, record.getRowId());
+    }
+
+    //a renamed column is ordered like the column of the input it is taken from
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        int column = columnIndex(columnName);
+        return column != -1 && input.isOrderedBy(input.columnNames.get(columnIndexes[column]));
+    }
+
+    @Override
+    public String describe() {
+        return "Project (" + String.join(", ", columnNames) + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * A set of row IDs stored as a compressed bitmap in the style of roaring bitmaps
+ * The row IDs are split into chunks of 2048 by their upper bits, a chunk holding few row IDs keeps the
+ * lower bits of its row IDs as a sorted array and a fuller chunk keeps a bitmap of 2048 bits
+ * A chunk is stored as [chunk number int][number of row IDs short][array of shorts or 32 longs]
+ */
+public class RowIdBitmap {
+    //number of lower row ID bits within a chunk
+    public static final int CHUNK_BITS = 11;
+    //number of row IDs a chunk covers
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    //a chunk with more row IDs than this keeps a bitmap, which then takes no more space than the array
+    private static final int ARRAY_LIMIT = CHUNK_SIZE / 16;
+
+    //chunks by their chunk number
+    private final TreeMap<Integer, Chunk> chunks = new TreeMap<>();
+
+    //Creates an empty bitmap
+    public RowIdBitmap() {
+    }
+
+    //Creates a bitmap holding the given row IDs
+    public RowIdBitmap(Collection<Integer> rowIds) {
+        for (int rowId : rowIds) {
+            add(rowId);
+        }
+    }
+
+    //adds a row ID, returns false if it was already present
+    public boolean add(int rowId) {
+        Chunk chunk = chunks.computeIfAbsent(rowId >>> CHUNK_BITS, c -> new Chunk());
+        return chunk.add(rowId & (CHUNK_SIZE - 1));
+    }
+
+    //removes a row ID, returns false if it was not present
+    public boolean remove(int rowId) {
+        Chunk chunk = chunks.get(rowId >>> CHUNK_BITS);
+        if (chunk == null || !chunk.remove(rowId & (CHUNK_SIZE - 1))) {
+            return false;
+        }
+        if (chunk.cardinality == 0) {
+            chunks.remove(rowId >>> CHUNK_BITS);
+        }
+        return true;
+    }
+
+    //checks whether the row ID is present
+    public boolean contains(int rowId) {
+        Chunk chunk = chunks.get(rowId >>> CHUNK_BITS);
+        return chunk != null && chunk.contains(rowId & (CHUNK_SIZE - 1));
+    }
+
+    //returns the number of row IDs
+    public int cardinality() {
+        int cardinality = 0;
+        for (Chunk chunk : chunks.values()) {
+            cardinality += chunk.cardinality;
+        }
+        return cardinality;
+    }
+
+    //checks whether there are no row IDs
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+
+    //returns the row IDs present in both bitmaps
+    public RowIdBitmap and(RowIdBitmap other) {
+        RowIdBitmap result = new RowIdBitmap();
+        for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+            Chunk otherChunk = other.chunks.get(entry.getKey());
+            if (otherChunk != null) {
+                long[] words = entry.getValue().toWords();
+                long[] otherWords = otherChunk.toWords();
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= otherWords[i];
+                }
+                result.putWords(entry.getKey(), words);
+            }
+        }
+        return result;
+    }
+
+    //returns the row IDs present in either bitmap
+    public RowIdBitmap or(RowIdBitmap other) {
+        RowIdBitmap result = new RowIdBitmap();
+        TreeSet<Integer> chunkNumbers = new TreeSet<>(chunks.keySet());
+        chunkNumbers.addAll(other.chunks.keySet());
+        for (int chunkNumber : chunkNumbers) {
+            Chunk chunk = chunks.get(chunkNumber);
+            Chunk otherChunk = other.chunks.get(chunkNumber);
+            long[] words = chunk == null ? new long[CHUNK_SIZE / 64] : chunk.toWords();
+            if (otherChunk != null) {
+                long[] otherWords = otherChunk.toWords();
+                for (int i = 0; i < words.length; i++) {
+                    words[i] |= otherWords[i];
+                }
+            }
+            result.putWords(chunkNumber, words);
+        }
+        return result;
+    }
+
+    //returns the row IDs of this bitmap that are not in the other bitmap
+    public RowIdBitmap andNot(RowIdBitmap other) {
+        RowIdBitmap result = new RowIdBitmap();
+        for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+            long[] words = entry.getValue().toWords();
+            Chunk otherChunk = other.chunks.get(entry.getKey());
+            if (otherChunk != null) {
+                long[] otherWords = otherChunk.toWords();
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= ~otherWords[i];
+                }
+            }
+            result.putWords(entry.getKey(), words);
+        }
+        return result;
+    }
+
+    //returns the row IDs in ascending order
+    public ArrayList<Integer> toRowIds() {
+        ArrayList<Integer> rowIds = new ArrayList<>(cardinality());
+        for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+            entry.getValue().addRowIds(entry.getKey() << CHUNK_BITS, rowIds);
+        }
+        return rowIds;
+    }
+
+    //returns the chunk numbers in ascending order
+    public NavigableSet<Integer> chunkNumbers() {
+        return chunks.navigableKeySet();
+    }
+
+    //returns a bitmap sharing the chunks with numbers from fromChunk up to but not including toChunk
+    public RowIdBitmap chunkRange(int fromChunk, int toChunk) {
+        RowIdBitmap result = new RowIdBitmap();
+        result.chunks.putAll(chunks.subMap(fromChunk, toChunk));
+        return result;
+    }
+
+    //returns the number of bytes the chunk takes when written
+    public int chunkLength(int chunkNumber) {
+        return 6 + chunks.get(chunkNumber).dataLength();
+    }
+
+    //returns the number of bytes all chunks take when written
+    public int length() {
+        int length = 0;
+        for (int chunkNumber : chunks.keySet()) {
+            length += chunkLength(chunkNumber);
+        }
+        return length;
+    }
+
+    //writes all chunks in ascending order
+    public void write(DataOutput out) throws IOException {
+        for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+            Chunk chunk = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeShort(chunk.cardinality);
+            if (chunk.words != null) {
+                for (long word : chunk.words) {
+                    out.writeLong(word);
+                }
+            } else {
+                for (int i = 0; i < chunk.cardinality; i++) {
+                    out.writeShort(chunk.values[i]);
+                }
+            }
+        }
+    }
+
+    //reads the given number of chunks written by write and adds them to the bitmap
+    public void read(DataInput in, int chunkCount) throws IOException {
+        for (int c = 0; c < chunkCount; c++) {
+            int chunkNumber = in.readInt();
+            int cardinality = in.readUnsignedShort();
+            Chunk chunk = new Chunk();
+            chunk.cardinality = cardinality;
+            if (cardinality > ARRAY_LIMIT) {
+                chunk.words = new long[CHUNK_SIZE / 64];
+                for (int i = 0; i < chunk.words.length; i++) {
+                    chunk.words[i] = in.readLong();
+                }
+            } else {
+                chunk.values = new short[Math.max(cardinality, 4)];
+                for (int i = 0; i < cardinality; i++) {
+                    chunk.values[i] = in.readShort();
+                }
+            }
+            chunks.put(chunkNumber, chunk);
+        }
+    }
+
+    //stores a chunk given as bitmap words, in the representation matching its number of row IDs
+    private void putWords(int chunkNumber, long[] words) {
+        Chunk chunk = Chunk.fromWords(words);
+        if (chunk.cardinality > 0) {
+            chunks.put(chunkNumber, chunk);
+        }
+    }
+
+    /*
+     * The row IDs of one chunk, as a sorted array of their lower bits or as a bitmap
+     */
+    private static class Chunk {
+        //number of row IDs in the chunk
+        int cardinality;
+        //sorted lower bits while the chunk is an array, null once it is a bitmap
+        short[] values = new short[4];
+        //bitmap of the lower bits once the chunk is a bitmap, null while it is an array
+        long[] words;
+
+        //creates the chunk of the row IDs set in the words
+        static Chunk fromWords(long[] words) {
+            Chunk chunk = new Chunk();
+            for (long word : words) {
+                chunk.cardinality += Long.bitCount(word);
+            }
+            if (chunk.cardinality > ARRAY_LIMIT) {
+                chunk.values = null;
+                chunk.words = words;
+            } else {
+                chunk.values = new short[Math.max(chunk.cardinality, 4)];
+                int i = 0;
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        chunk.values[i++] = (short) (w * 64 + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+            return chunk;
+        }
+
+        //returns the lower bits as bitmap words
+        long[] toWords() {
+            if (words != null) {
+                return words.clone();
+            }
+            long[] result = new long[CHUNK_SIZE / 64];
+            for (int i = 0; i < cardinality; i++) {
+                result[values[i] >>> 6] |= 1L << values[i];
+            }
+            return result;
+        }
+
+        boolean contains(int low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (short) low) >= 0;
+        }
+
+        boolean add(int low) {
+            if (words != null) {
+                if ((words[low >>> 6] & (1L << low)) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= 1L << low;
+                cardinality++;
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, (short) low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (cardinality == ARRAY_LIMIT) {
+                //the array is full, the chunk becomes a bitmap
+                words = toWords();
+                values = null;
+                words[low >>> 6] |= 1L << low;
+            } else {
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_LIMIT));
+                }
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = (short) low;
+            }
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(int low) {
+            if (!contains(low)) {
+                return false;
+            }
+            if (words != null) {
+                words[low >>> 6] &= ~(1L << low);
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    //the chunk is sparse again and goes back to an array
+                    Chunk chunk = fromWords(words);
+                    values = chunk.values;
+                    words = null;
+                }
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, (short) low);
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+            return true;
+        }
+
+        //number of bytes of the array or bitmap when written
+        int dataLength() {
+            return words != null ? CHUNK_SIZE / 8 : 2 * cardinality;
+        }
+
+        //adds the row IDs of the chunk to the list in ascending order
+        void addRowIds(int base, List<Integer> rowIds) {
+            if (words != null) {
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        rowIds.add(base + w * 64 + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    rowIds.add(base + values[i]);
+                }
+            }
+        }
+    }
+}
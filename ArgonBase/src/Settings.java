@@ -8,6 +8,17 @@ public class Settings {
 
     static String argonBaseTables = "argonbase_tables";
     static String argonBaseColumns = "argonbase_columns";
+    static String argonBaseIndexes = "argonbase_indexes";
+    static String argonBaseStatistics = "argonbase_statistics";
+
+    //memory in bytes an index build may use to sort values before spilling sorted runs to disk
+    static long indexBuildMemory = 16L * 1024 * 1024;
+    //memory in bytes a hash join may use for the records it hashes before partitioning its inputs to disk
+    static long joinMemory = 16L * 1024 * 1024;
+    //number of statements kept in the plan cache
+    static int planCacheSize = 256;
+    //whether scans of whole tables run in the vectorized mode, on batches of column vectors
+    static boolean vectorized = true;
 
 
     public static boolean isExit() {
@@ -49,6 +60,38 @@ public class Settings {
         return catalogDir;
     }
 
+    public static long getIndexBuildMemory() {
+        return indexBuildMemory;
+    }
+
+    public static void setIndexBuildMemory(long bytes) {
+        indexBuildMemory = bytes;
+    }
+
+    public static long getJoinMemory() {
+        return joinMemory;
+    }
+
+    public static void setJoinMemory(long bytes) {
+        joinMemory = bytes;
+    }
+
+    public static int getPlanCacheSize() {
+        return planCacheSize;
+    }
+
+    public static void setPlanCacheSize(int size) {
+        planCacheSize = size;
+    }
+
+    public static boolean isVectorized() {
+        return vectorized;
+    }
+
+    public static void setVectorized(boolean v) {
+        vectorized = v;
+    }
+
     /** ***********************************************************************
 	 *  Static method definitions
 	 */
@@ -0,0 +1,89 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Returns the records of its input ordered by the given columns, records with equal values keep the
+ * order of the input
+ * NULL sorts after all values in ascending order and before them in descending order
+ * The whole input is read into memory when the sort is opened
+ */
+public class Sort extends Operator {
+    private final Operator input;
+    private final ArrayList<String> columns;
+    //whether each column is sorted in descending order
+    private final ArrayList<Boolean> descending;
+
+    //sorted records and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates a sort of the input by the columns, which the input has to have
+    public Sort(Operator input, ArrayList<String> columns, ArrayList<Boolean> descending) {
+        super(input.columnNames, input.columnTypes);
+        this.input = input;
+        this.columns = columns;
+        this.descending = descending;
+    }
+
+    @Override
+    public void open() throws IOException {
+        int[] columnIndexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndexes[i] = input.columnIndex(columns.get(i));
+        }
+
+        records = new ArrayList<>();
+        input.open();
+        Record record;
+        while ((record = input.next()) != null) {
+            records.add(record);
+        }
+        input.close();
+
+        //List.sort is a stable merge sort
+        records.sort((record1, record2) -> {
+            for (int i = 0; i < columnIndexes.length; i++) {
+                int columnIndex = columnIndexes[i];
+                int comparison = compareValues(columnTypes.get(columnIndex),
+                        record1.getValues().get(columnIndex), record2.getValues().get(columnIndex));
+                if (comparison != 0) {
+                    return descending.get(i) ? -comparison : comparison;
+                }
+            }
+            return 0;
+        });
+        position = 0;
+    }
+
+    @Override
+    public Record next() {
+        return position < records.size() ? records.get(position++) : null;
+    }
+
+    //null sorts after every value, see compareValues
+    @Override
+    public boolean isOrderedBy(String columnName) {
+        return columns.get(0).equals(columnName) && !descending.get(0);
+    }
+
+    @Override
+    public String describe() {
+        StringJoiner text = new StringJoiner(", ");
+        for (int i = 0; i < columns.size(); i++) {
+            text.add(columns.get(i) + (descending.get(i) ? " DESC" : ""));
+        }
+        return "Sort (" + text + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        records = new ArrayList<>();
+        input.close();
+    }
+}
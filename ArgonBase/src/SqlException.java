@@ -0,0 +1,16 @@
+/*
+ * An error in a command found while it is parsed or bound to the schema of its table
+ * The position of the token causing the error is counted in characters from the start of the command
+ */
+public class SqlException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    //position of the token causing the error, counted from 1
+    final int position;
+
+    //Creates an error at the given position of the command
+    public SqlException(String message, int position) {
+        super(message);
+        this.position = position;
+    }
+}
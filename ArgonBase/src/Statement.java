@@ -0,0 +1,392 @@
+import java.util.*;
+
+/*
+ * Abstract syntax tree of a command, built by Parser and executed by Commands
+ * Each kind of statement is a subclass holding the parts of its command, names of tables and columns are
+ * lower case, values are kept as literals and only parsed once the types of their columns are known
+ * Every node keeps the position of its first token, so errors found while executing can point at it
+ */
+public abstract class Statement {
+    //position of the first token of the statement, counted from 1
+    final int position;
+
+    Statement(int position) {
+        this.position = position;
+    }
+
+    //checks whether the statement can be prepared and cached, only SELECT, INSERT, UPDATE and DELETE can
+    public boolean isPreparable() {
+        return this instanceof Select || this instanceof Insert || this instanceof Update || this instanceof Delete;
+    }
+
+    /*
+     * A value written in the command, NULL has no text
+     * A parameter ? of a prepared statement is a literal whose value is given when the statement is executed
+     */
+    public static class Literal {
+        //text of the value, without the quotes of a string, null for NULL
+        final String text;
+        final int position;
+        //number of the parameter counted from 0, -1 if the literal is a value
+        final int parameter;
+
+        Literal(String text, int position) {
+            this(text, position, -1);
+        }
+
+        Literal(String text, int position, int parameter) {
+            this.text = text;
+            this.position = position;
+            this.parameter = parameter;
+        }
+
+        //checks whether the literal is NULL
+        public boolean isNull() {
+            return text == null;
+        }
+
+        //checks whether the literal is a parameter
+        public boolean isParameter() {
+            return parameter >= 0;
+        }
+    }
+
+    /*
+     * A WHERE clause: a condition, a NULL test, or expressions joined by AND or OR
+     * Parser pushes NOT down to the conditions and NULL tests and rewrites IN and BETWEEN into conditions,
+     * so no other kinds of expressions are needed
+     */
+    public abstract static class Expression {
+        //position of the first token of the expression
+        final int position;
+
+        Expression(int position) {
+            this.position = position;
+        }
+    }
+
+    /*
+     * A condition <column> <operator> <value>, a NOT in front of it is applied to the operator
+     */
+    public static class Condition extends Expression {
+        final String column;
+        final String operator;
+        final Literal value;
+
+        Condition(String column, String operator, Literal value, int position) {
+            super(position);
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        //returns the condition as written in a predicate, <column> <operator> <value>
+        public String toString() {
+            return column + " " + operator + " " + value.text;
+        }
+    }
+
+    /*
+     * <column> IS [NOT] NULL
+     */
+    public static class NullTest extends Expression {
+        final String column;
+        //whether the test is IS NOT NULL
+        final boolean negated;
+
+        NullTest(String column, boolean negated, int position) {
+            super(position);
+            this.column = column;
+            this.negated = negated;
+        }
+    }
+
+    /*
+     * Two or more expressions joined by AND, or by OR
+     */
+    public static class Junction extends Expression {
+        //whether the operands are joined by OR
+        final boolean or;
+        final ArrayList<Expression> operands;
+
+        Junction(boolean or, ArrayList<Expression> operands, int position) {
+            super(position);
+            this.or = or;
+            this.operands = operands;
+        }
+    }
+
+    /*
+     * A column or an aggregate function over a column in the select list, GROUP BY or ORDER BY
+     */
+    public static class SelectItem {
+        //aggregate function in lower case, null for a plain column
+        final String function;
+        //the column, null for the * of COUNT(*)
+        final String column;
+        final int position;
+        //whether an ORDER BY item sorts in descending order
+        boolean descending;
+
+        SelectItem(String function, String column, int position) {
+            this.function = function;
+            this.column = column;
+            this.position = position;
+        }
+
+        //checks whether the item is an aggregate function
+        public boolean isAggregate() {
+            return function != null;
+        }
+
+        //returns the name of the item in the result, the column or a function like count(*) or max(age)
+        public String getName() {
+            return function == null ? column : Aggregate.name(function, column);
+        }
+    }
+
+    /*
+     * [INNER] JOIN <table> ON <column> = <column>, a column may be qualified by its table, <table>.<column>
+     */
+    public static class Join {
+        String tableName;
+        String leftColumn;
+        String rightColumn;
+        //positions of the table and the columns
+        final int position;
+        int leftPosition;
+        int rightPosition;
+
+        Join(int position) {
+            this.position = position;
+        }
+    }
+
+    /*
+     * SELECT * | <item>, ... FROM <table> [<join> ...] [WHERE <expression>] [GROUP BY <column>, ...]
+     *     [ORDER BY <item> [ASC | DESC], ...] [LIMIT <count>]
+     */
+    public static class Select extends Statement {
+        boolean allColumns;
+        //selected columns and functions, empty for *
+        final ArrayList<SelectItem> items = new ArrayList<>();
+        String tableName;
+        //tables joined to the table, in order
+        final ArrayList<Join> joins = new ArrayList<>();
+        //the WHERE clause, null without one
+        Expression where;
+        final ArrayList<SelectItem> groupBy = new ArrayList<>();
+        final ArrayList<SelectItem> orderBy = new ArrayList<>();
+        //number of records to return at most, -1 without a LIMIT clause
+        long limit = -1;
+
+        Select(int position) {
+            super(position);
+        }
+
+        //checks whether the records are grouped, by GROUP BY or by an aggregate function
+        public boolean isAggregate() {
+            if (!groupBy.isEmpty()) {
+                return true;
+            }
+            for (SelectItem item : items) {
+                if (item.isAggregate()) {
+                    return true;
+                }
+            }
+            for (SelectItem item : orderBy) {
+                if (item.isAggregate()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     * INSERT INTO <table> [( <column>, ... )] VALUES ( <value>, ... )
+     */
+    public static class Insert extends Statement {
+        String tableName;
+        //columns the values are given for, empty if they are given for all columns in order
+        final ArrayList<String> columns = new ArrayList<>();
+        final ArrayList<Integer> columnPositions = new ArrayList<>();
+        final ArrayList<Literal> values = new ArrayList<>();
+
+        Insert(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * UPDATE <table> SET <column> = <value> [WHERE <expression>]
+     */
+    public static class Update extends Statement {
+        String tableName;
+        String column;
+        int columnPosition;
+        Literal value;
+        //the WHERE clause, null without one
+        Expression where;
+
+        Update(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * DELETE FROM [TABLE] <table> [WHERE <expression>]
+     */
+    public static class Delete extends Statement {
+        String tableName;
+        //the WHERE clause, null without one
+        Expression where;
+
+        Delete(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * A column of CREATE TABLE, <column> <data_type> [NOT_NULL] [UNIQUE] [PRIMARY_KEY]
+     */
+    public static class ColumnDefinition {
+        final String name;
+        final Constants.DataTypes type;
+        boolean primaryKey;
+        boolean unique;
+        boolean notNull;
+
+        ColumnDefinition(String name, Constants.DataTypes type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    /*
+     * CREATE TABLE <table> ( <column_definition>, ... )
+     */
+    public static class CreateTable extends Statement {
+        String tableName;
+        final ArrayList<ColumnDefinition> columns = new ArrayList<>();
+
+        CreateTable(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * CREATE [BITMAP] INDEX [CONCURRENTLY] [<index> ON] <table> [USING <type>] ( <column>, ... )
+     *     [INCLUDE ( <column>, ... )] [USING <type>] [WHERE <conditions>]
+     */
+    public static class CreateIndex extends Statement {
+        //name of the index, null if it is named after its columns
+        String indexName;
+        String tableName;
+        String indexType = "BTREE";
+        boolean concurrently;
+        final ArrayList<String> columns = new ArrayList<>();
+        final ArrayList<String> includeColumns = new ArrayList<>();
+        final ArrayList<Integer> includePositions = new ArrayList<>();
+        //predicate of a partial index, empty if every row is indexed
+        final ArrayList<Condition> conditions = new ArrayList<>();
+
+        CreateIndex(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * DROP TABLE <table>
+     */
+    public static class DropTable extends Statement {
+        String tableName;
+
+        DropTable(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * SHOW TABLES
+     */
+    public static class ShowTables extends Statement {
+        ShowTables(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * ANALYZE [<table>]
+     */
+    public static class Analyze extends Statement {
+        //table to analyze, null for all user tables
+        String tableName;
+
+        Analyze(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * EXPLAIN <select>, shows the plan of the query instead of running it
+     */
+    public static class Explain extends Statement {
+        final Select select;
+
+        Explain(Select select, int position) {
+            super(position);
+            this.select = select;
+        }
+    }
+
+    /*
+     * PREPARE <name> AS <statement>, the statement may hold parameters ?
+     */
+    public static class Prepare extends Statement {
+        String name;
+        //the prepared statement and its text
+        Statement statement;
+        String text;
+
+        Prepare(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * EXECUTE <name> [( <value>, ... )], the values are given for the parameters in order
+     */
+    public static class Execute extends Statement {
+        String name;
+        final ArrayList<Literal> arguments = new ArrayList<>();
+
+        Execute(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * DEALLOCATE [PREPARE] <name>
+     */
+    public static class Deallocate extends Statement {
+        String name;
+
+        Deallocate(int position) {
+            super(position);
+        }
+    }
+
+    /*
+     * A command without arguments: HELP, VERSION or EXIT
+     */
+    public static class Utility extends Statement {
+        //the command in lower case
+        final String command;
+
+        Utility(String command, int position) {
+            super(position);
+            this.command = command;
+        }
+    }
+}
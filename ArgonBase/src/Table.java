@@ -4,8 +4,10 @@ import java.util.*;
 
 /*
  * This class represents a table from a database and tools with working with tables.
+ * The table and index files are shared handles of FileManager, close releases the table file
+ * The schema of the table comes from the in-memory catalog, see Catalog
  */
-public class Table {
+public class Table implements Closeable {
     //Lists to store column information
     ArrayList<String> columnNames;
     ArrayList<Constants.DataTypes> columnTypes;
@@ -13,24 +15,26 @@ public class Table {
     String tableName;
     TableFile tableFile; //handles table file operations
     String path;
+    //indexes on the table
+    ArrayList<IndexDefinition> indexes = new ArrayList<>();
 
     //tables for managing metadata table_Table
     public static Table tableTable;
     public static Table columnTable;
+    public static Table indexTable;
+    public static Table statisticsTable;
 
     //constructor to create a table instance
     public Table(String tableName, boolean userTable) throws IOException {
         this.tableName = tableName;
         //set tableFile and path based on userTable flag
         if (userTable) {
-            this.tableFile = new TableFile(tableName, Settings.getUserDataDirectory());
             this.path = Settings.getUserDataDirectory();
         } else {
-            this.tableFile = new TableFile(tableName, Settings.getCatalogDirectory());
             this.path = Settings.getCatalogDirectory();
         }
-        //load the table settings from metadata tables
-        //search for the table in the metadata
+        this.tableFile = FileManager.openTableFile(tableName, this.path);
+        //load the table settings from the catalog
         loadTable(tableName);
     }
 
@@ -56,7 +60,7 @@ public class Table {
         }
         //Initialize tableFile
         try {
-            tableFile = new TableFile(tableName, this.path);
+            tableFile = FileManager.openTableFile(tableName, this.path);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -64,74 +68,169 @@ public class Table {
 
     //Check if a table with the given name exists
     public static boolean isTableExist(String tableName) {
-        ArrayList<Record> tables;
-        try {
-            //search for the table in the table metadata
-            tables = tableTable.searchTable("table_name", tableName, "=");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        return !tables.isEmpty();
+        return Catalog.exists(tableName);
     }
 
-    //loads table settings from metadata tables
-    public void loadTable(String tableName) throws IOException {
-        ArrayList<Record> tables = tableTable.searchTable("table_name", tableName, "=");
-        if (tables.size() == 0) {
+    //loads table settings from the in-memory catalog
+    public void loadTable(String tableName) {
+        Catalog.TableSchema schema = Catalog.getTable(tableName);
+        if (schema == null) {
             return;
         }
-        if (tables.size() > 1) {
-            throw new RuntimeException("More than one table with the same name");
+        columnNames = new ArrayList<>(schema.columnNames);
+        columnTypes = new ArrayList<>(schema.columnTypes);
+        colIsNullable = new ArrayList<>(schema.nullable);
+        indexes = Catalog.getIndexes(tableName);
+    }
+
+    //get the index with the given name, null if there is none
+    public IndexDefinition getIndex(String indexName) {
+        for (IndexDefinition index : indexes) {
+            if (index.indexName.equals(indexName)) {
+                return index;
+            }
         }
-        ArrayList<Record> columns = columnTable.searchTable("table_name", tableName, "=");
-        columnNames = new ArrayList<>();
-        columnTypes = new ArrayList<>();
-        colIsNullable = new ArrayList<>();
-        for (Record column : columns) {
-            columnNames.add((String) column.getValues().get(1));
-            columnTypes.add(Constants.DataTypes.valueOf((String) column.getValues().get(2)));
-            colIsNullable.add(column.getValues().get(4) == "YES");
+        return null;
+    }
+
+    //find an index whose key starts with the given column, null if there is none
+    public IndexDefinition findIndex(String columnName, Collection<String> neededColumns) {
+        return findIndex(columnName, neededColumns, null);
+    }
+
+    //find an index whose key starts with the given column and that can search it with the operator,
+    //null if there is none, a null operator accepts every index, a partial index is never returned
+    public IndexDefinition findIndex(String columnName, Collection<String> neededColumns, String operator) {
+        return findIndex(columnName, neededColumns, operator, null);
+    }
+
+    //find an index whose key starts with the given column and that can search it with the operator,
+    //null if there is none, a null operator accepts every index
+    //a partial index is only returned if the condition <column> <operator> <value> implies its predicate
+    //an index storing all needed columns is preferred so the search can skip the table, then a hash index
+    //which finds equal values without descending a tree, then a partial index which holds fewer rows,
+    //otherwise the index with the shortest key
+    public IndexDefinition findIndex(String columnName, Collection<String> neededColumns, String operator, Object value) {
+        IndexDefinition found = null;
+        int foundRank = 0;
+        for (IndexDefinition index : indexes) {
+            if (!index.columnNames.get(0).equals(columnName) || !index.supports(operator)) {
+                continue;
+            }
+            if (index.isPartial() && (value == null
+                    || !index.isImpliedBy(this, List.of(columnName), List.of(value), List.of(operator)))) {
+                continue;
+            }
+            int rank = -index.columnNames.size();
+            if (neededColumns != null && index.covers(neededColumns)) {
+                rank += 1000;
+            }
+            if (index.isHash()) {
+                rank += 100;
+            }
+            if (index.isPartial()) {
+                rank += 10;
+            }
+            if (found == null || rank > foundRank) {
+                found = index;
+                foundRank = rank;
+            }
         }
+        return found;
     }
 
      //search table based on column, value and operator
     public ArrayList<Record> searchTable(String columnName, Object value, String operator) throws IOException {
-        //check if index exists for column name and if it does, use index to search
-        //if index does not exist, use tableFile to search
-        if (isIndexExist(columnName)) {
-            IndexFile indexFile = getIndexFile(columnName);
-            ArrayList<Integer> recordIds = indexFile.search(value, operator);
-            ArrayList<Record> records = new ArrayList<>();
-            for (int recordId : recordIds) {
-                records.add(tableFile.getRecord(recordId));
+        return searchTable(columnName, value, operator, null);
+    }
+
+    //search table based on column, value and operator
+    //neededColumns are the columns the caller reads from the records, null for all columns
+    //when an index on the column stores all of them the records are read from the index alone
+    //and only the columns of the index have values
+    //a null column returns all records
+    public ArrayList<Record> searchTable(String columnName, Object value, String operator,
+                                         Collection<String> neededColumns) throws IOException {
+        ArrayList<String> columns = new ArrayList<>();
+        ArrayList<Object> values = new ArrayList<>();
+        ArrayList<String> operators = new ArrayList<>();
+        if (columnName != null) {
+            columns.add(columnName);
+            values.add(value);
+            operators.add(operator);
+        }
+        return searchTable(columns, values, operators, neededColumns);
+    }
+
+    //search table for the records matching all conditions <column> <operator> <value>
+    //neededColumns are the columns the caller reads from the records, null for all columns
+    //the records are read by the access path Planner chooses for the conditions
+    public ArrayList<Record> searchTable(ArrayList<String> columns, ArrayList<Object> values, ArrayList<String> operators,
+                                         Collection<String> neededColumns) throws IOException {
+        return searchTable(Predicate.and(columns, values, operators), neededColumns);
+    }
+
+    //search table for the records matching the predicate, all records if it is null
+    //neededColumns are the columns the caller reads from the records, null for all columns
+    //the records are read by the access path Planner chooses for the predicate
+    public ArrayList<Record> searchTable(Predicate predicate, Collection<String> neededColumns) throws IOException {
+        return Planner.accessPath(this, predicate, neededColumns).collect();
+    }
+
+    //combine the row IDs matching the comparisons of the predicate with and and or as the predicate joins
+    //them, each comparison is searched in the index Table.findIndex finds for it, which has to exist
+    //a comparison with a NULL value matches no row
+    RowIdBitmap searchBitmap(Predicate predicate) throws IOException {
+        if (predicate.isComparison()) {
+            if (predicate.value == null) {
+                return new RowIdBitmap();
             }
-            return records;
-        } else {
-            int columnIndex;
-            if (columnName != null && columnNames.contains(columnName)) {
-                columnIndex = columnNames.indexOf(columnName);
-            } else if (columnName == null) {
-                columnIndex = -1;
-            } else {
-                return new ArrayList<>();
+            IndexDefinition index = findIndex(predicate.column, null, predicate.operator, predicate.value);
+            try (Index indexFile = getIndexFile(index)) {
+                return indexFile.searchBitmap(predicate.value, predicate.operator);
+            }
+        }
+        boolean and = predicate.kind == Predicate.Kind.AND;
+        RowIdBitmap bitmap = null;
+        for (Predicate operand : predicate.operands) {
+            RowIdBitmap operandBitmap = searchBitmap(operand);
+            bitmap = bitmap == null ? operandBitmap : and ? bitmap.and(operandBitmap) : bitmap.or(operandBitmap);
+            //no row can match the remaining operands of an AND
+            if (and && bitmap.isEmpty()) {
+                break;
             }
-            return tableFile.search(columnIndex, value, operator);
         }
+        return bitmap;
     }
 
-    //get the index file if it exists
-    public IndexFile getIndexFile(String columnName){
-        File indexFile = new File(path + "/" + tableName + "." + columnName + ".ndx");
-        if (indexFile.exists()) {
-            try {
-                return new IndexFile(this, columnName, path);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    //find the bitmap index on the column holding all rows, null if there is none
+    public IndexDefinition findBitmapIndex(String columnName) {
+        for (IndexDefinition index : indexes) {
+            if (index.isBitmap() && !index.isPartial() && index.columnNames.get(0).equals(columnName)) {
+                return index;
             }
         }
         return null;
     }
 
+    //get the index file of an index on the column if it exists
+    public IndexFile getIndexFile(String columnName){
+        IndexDefinition index = findIndex(columnName, null);
+        if (index != null) {
+            return getIndexFile(index);
+        }
+        return null;
+    }
+
+    //get the shared index file of the given index, closing it releases the handle
+    public IndexFile getIndexFile(IndexDefinition index){
+        try {
+            return FileManager.openIndexFile(this, index, path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     //get the type of column such as PRI, UNI, or NULL
     public Constants.DataTypes getColumnType(String columnName) {
         return columnTypes.get(columnNames.indexOf(columnName));
@@ -141,20 +240,17 @@ public class Table {
     //insert values into the table and handle rowid generation
     //return true if insertion is successful, otherwise return false
     public boolean insertRecord(ArrayList<Object> values) throws IOException {
-        //check for duplicate entries in primary or unique columns
-        ArrayList<Record> primaryKeySearch = columnTable.searchTable("column_key", "PRI", "=");
-        primaryKeySearch.addAll(columnTable.searchTable("column_key", "UNI", "="));
-        if (primaryKeySearch.size() > 0) {
-            for (Record record : primaryKeySearch) {
-                if (record.getValues().get(0).equals(tableName)) {
-                    String columnName = (String) record.getValues().get(1);
-                    int columnIndex = columnNames.indexOf(columnName);
-                    ArrayList<Record> search = searchTable(columnName, values.get(columnIndex), "=");
-                    if (search.size() > 0) {
-                        //duplicate entry found
-                        System.out.println("Duplicate entry '" + values.get(columnIndex) + "' for key '" + columnName + "'");
-                        return false;
-                    }
+        //check for duplicate entries in primary or unique columns, the key columns come from the catalog
+        //the index of a key column answers most of these checks from its Bloom filter alone
+        Catalog.TableSchema schema = Catalog.getTable(tableName);
+        if (schema != null) {
+            for (String columnName : schema.getKeyColumns()) {
+                int columnIndex = columnNames.indexOf(columnName);
+                ArrayList<Record> search = searchTable(columnName, values.get(columnIndex), "=");
+                if (search.size() > 0) {
+                    //duplicate entry found
+                    System.out.println("Duplicate entry '" + values.get(columnIndex) + "' for key '" + columnName + "'");
+                    return false;
                 }
             }
         }
@@ -176,11 +272,12 @@ public class Table {
         tableFile.appendRecord(rec);
 
         //update indexes
-        for (int i = 0; i < columnNames.size(); i++) {
-            if (isIndexExist(columnNames.get(i))) {
-                getIndexFile(columnNames.get(i)).addItemToCell(values.get(i), nextRowId);
+        for (IndexDefinition index : indexes) {
+            try (Index indexFile = getIndexFile(index)) {
+                indexFile.addRecord(values, nextRowId);
             }
         }
+        OnlineIndexBuild.logInsert(this, values, nextRowId);
 
         //insertion successful
         return true;
@@ -192,16 +289,23 @@ public class Table {
     //op is the operator to use in search
     //return the number of deleted rows
     public int deleteRecord(String columnName, Object value, String operator) throws IOException {
+        return deleteRecord(columnName == null ? null : Predicate.comparison(columnName, operator, value));
+    }
+
+    //Deletes the rows of the table matching the predicate, all rows if it is null
+    //return the number of deleted rows
+    public int deleteRecord(Predicate predicate) throws IOException {
         //Search for records to delete
-        ArrayList<Record> records = searchTable(columnName, value, operator);
+        ArrayList<Record> records = searchTable(predicate, null);
         //Delete each record and update indexes
         for (Record record : records) {
             tableFile.deleteRecord(record.getRowId());
-            for (int i = 0; i < columnNames.size(); i++) {
-                if (isIndexExist(columnNames.get(i))) {
-                    getIndexFile(columnNames.get(i)).removeItemFromCell(record.getValues().get(i), record.getRowId());
+            for (IndexDefinition index : indexes) {
+                try (Index indexFile = getIndexFile(index)) {
+                    indexFile.removeRecord(record.getValues(), record.getRowId());
                 }
             }
+            OnlineIndexBuild.logDelete(this, record.getValues(), record.getRowId());
         }
         return records.size();
     }
@@ -215,6 +319,15 @@ public class Table {
     //return the number of rows updated
     public int updateTable(String searchColumn, Object searchValue, String operator,
                       String updateColumn, Object updateValue) throws IOException {
+        return updateTable(searchColumn == null ? null : Predicate.comparison(searchColumn, operator, searchValue),
+                updateColumn, updateValue);
+    }
+
+    //update the rows of the table matching the predicate, all rows if it is null
+    //updateCol is the column to update
+    //updateVal is the new value to write
+    //return the number of rows updated
+    public int updateTable(Predicate predicate, String updateColumn, Object updateValue) throws IOException {
 
         int columnIndex;
         if (columnNames.contains(updateColumn)) {
@@ -222,14 +335,22 @@ public class Table {
         } else {
             return 0;
         }
-        ArrayList<Record> records = searchTable(searchColumn, searchValue, operator);
+        ArrayList<Record> records = searchTable(predicate, null);
         for (Record record : records) {
-            tableFile.updateRecord(record.getRowId(), columnIndex, updateValue);
-            if (isIndexExist(updateColumn)) {
-                IndexFile indexFile = getIndexFile(updateColumn);
-                indexFile.addItemToCell(updateValue, record.getRowId());
-                indexFile.removeItemFromCell(record.getValues().get(columnIndex), record.getRowId());
+            tableFile.updateRecord(record.getRowId(), columnIndex, columnTypes.get(columnIndex), updateValue);
+
+            //replace the entry of the row in every index storing the updated column or filtering rows by it
+            ArrayList<Object> newValues = new ArrayList<>(record.getValues());
+            newValues.set(columnIndex, updateValue);
+            for (IndexDefinition index : indexes) {
+                if (index.dependsOn(updateColumn)) {
+                    try (Index indexFile = getIndexFile(index)) {
+                        indexFile.removeRecord(record.getValues(), record.getRowId());
+                        indexFile.addRecord(newValues, record.getRowId());
+                    }
+                }
             }
+            OnlineIndexBuild.logUpdate(this, updateColumn, record.getValues(), newValues, record.getRowId());
         }
         return records.size();
     }
@@ -237,36 +358,95 @@ public class Table {
     //drop table and delete corresponding metadata and indexes
     //return true if the table is dropped, false otherwise
     public boolean dropTable() {
-        //Delete metadata entries for the table
+        //Delete metadata entries for the table and close its files
+        OnlineIndexBuild.cancel(this);
         try {
             tableTable.deleteRecord("table_name", this.tableName, "=");
             columnTable.deleteRecord("table_name", this.tableName, "=");
+            indexTable.deleteRecord("table_name", this.tableName, "=");
+            statisticsTable.deleteRecord("table_name", this.tableName, "=");
+            close();
+            FileManager.invalidate(path, tableName + ".tbl");
+            for (IndexDefinition index : indexes) {
+                FileManager.invalidate(path, index.getFileName());
+            }
+            Catalog.removeTable(tableName);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        //Delete the index files
+        for (IndexDefinition index : indexes) {
+            new File(path + "/" + index.getFileName()).delete();
+            new File(path + "/" + index.getBloomFileName()).delete();
+        }
         //Delete the table file
         File tableFile = new File(path + "/" + tableName + ".tbl");
         return tableFile.delete();
     }
 
-    //check if the index file exists for a given column
-    //return true if the index file exists, false otherwise
+    //check if an index exists for a given column
+    //return true if the index exists, false otherwise
     public boolean isIndexExist(String columnName) {
-        File file = new File(path + "/" + tableName + "." + columnName + ".ndx");
-        return file.exists();
+        return findIndex(columnName, null) != null;
     }
 
 
-    //create index file for a column
+    //create index file for a column, the index is named after the column
     public void createIndex(String columnName) {
         if (isIndexExist(columnName)) {
             return;
         }
-        try (IndexFile indexFile = new IndexFile(this, columnName, path)) {
+        createIndex(new IndexDefinition(tableName, columnName, new ArrayList<>(List.of(columnName)), new ArrayList<>()));
+    }
+
+    //create the index file of the given index, build it from the table and record it in the index metadata
+    //return false if the table already has an index with the same name
+    public boolean createIndex(IndexDefinition index) {
+        if (getIndex(index.indexName) != null || OnlineIndexBuild.isBuilding(this, index.indexName)) {
+            return false;
+        }
+        try (IndexFile indexFile = getIndexFile(index)) {
             indexFile.populateIndex();
+            indexFile.rebuildBloomFilter();
+            if (indexTable != null) {
+                indexTable.insertRecord(index.toValues());
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        indexes.add(index);
+        Catalog.setIndexes(tableName, indexes);
+        return true;
+    }
+
+    //start building the index on a background thread while statements keep using the table
+    //the index is recorded in the index metadata once it is complete, see OnlineIndexBuild
+    //return false if the table already has or is building an index with the same name
+    public boolean createIndexConcurrently(IndexDefinition index) throws IOException {
+        if (getIndex(index.indexName) != null) {
+            return false;
+        }
+        return OnlineIndexBuild.start(this, index);
+    }
+
+    //compute the statistics of the columns and replace the records of the table in the statistics metadata
+    //return the number of rows of the table
+    public int analyze() throws IOException {
+        ArrayList<ColumnStatistics> statistics = ColumnStatistics.analyze(this);
+        statisticsTable.deleteRecord("table_name", tableName, "=");
+        for (ColumnStatistics column : statistics) {
+            statisticsTable.insertRecord(column.toValues());
+        }
+        Catalog.setStatistics(tableName, statistics);
+        return statistics.get(0).rowCount;
+    }
+
+    //release the table file, the table can't be used afterwards
+    public void close() throws IOException {
+        if (tableFile != null) {
+            tableFile.close();
+            tableFile = null;
+        }
     }
 
 
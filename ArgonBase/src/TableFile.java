@@ -1,5 +1,6 @@
 import java.util.*;
 import java.io.*;
+import java.nio.*;
 
 
 /*
@@ -8,6 +9,14 @@ import java.io.*;
  */
 public class TableFile extends DatabaseFile{
 
+    //in-memory directory from row ID ranges to leaf pages, ordered by row ID
+    //leafRowIds[i] is the smallest row ID stored on leafPages[i], empty leaves are left out
+    private int[] leafRowIds = new int[16];
+    private int[] leafPages = new int[16];
+
+    //number of entries in the leaf directory, -1 when it has to be rebuilt from the file
+    private int leafCount = -1;
+
     //constructor to create table file instance 
     public TableFile(String tableName, String path) throws IOException {
         super(tableName + ".tbl", Constants.PageType.TABLE_LEAF, path);
@@ -91,12 +100,30 @@ public class TableFile extends DatabaseFile{
 
         //create a new page of the same type as the original page and link to the parent
         int newPage = createPage(parentPage, pageType);
-        writePagePtr(parentPage, newPage, splittingRowId);
+        int pointerPage = writePagePtr(parentPage, newPage, splittingRowId);
+
+        //the parent may have been split while writing the pointer
+        if (pointerPage != parentPage) {
+            setParentPage(newPage, pointerPage);
+        }
 
         //update the page pointers if the original page is a leaf apge
         if (pageType == Constants.PageType.TABLE_LEAF) {
+            //the new page takes over the old right sibling so the leaf chain stays intact
+            this.seek((long) pageNumber * pageSize + 0x06);
+            int rightSibling = this.readInt();
+            this.seek((long) newPage * pageSize + 0x06);
+            this.writeInt(rightSibling);
+
             this.seek((long) pageNumber * pageSize + 0x06);
             this.writeInt(newPage);
+
+            //splitting the last leaf only appends a new row ID range, anything else is rebuilt on next lookup
+            if (rightSibling == 0xFFFFFFFF) {
+                addLeafEntry(splittingRowId, newPage);
+            } else {
+                leafCount = -1;
+            }
         }
 
         //return the page number of the newly created page after the split
@@ -108,7 +135,8 @@ public class TableFile extends DatabaseFile{
     //responsible for maintaining the structure of interior pages in the table file.
     //It ensures that page pointers and corresponding row IDs are correctly inserted, taking care of
     //page splits when needed to maintain the B-tree structure.
-    public void writePagePtr(int page, int pointer, int rowId) throws IOException {
+    //returns the interior page the pointer was written to
+    public int writePagePtr(int page, int pointer, int rowId) throws IOException {
         //determine the size of the cell to be written (page pointer + row ID)
         short cellSize = 8;
 
@@ -118,26 +146,47 @@ public class TableFile extends DatabaseFile{
             page = pageSplit(page, rowId);
         }
 
-        //set the start content pointer and get the incremement cell count
-        short contentStart = setStartContent(page, cellSize);
-        int numCells = incrementCellCount(page);
+        //find the cell the new pointer goes after, pointers are kept in row ID order
+        int numCells = getCellCount(page);
+        int precedingCell = numCells - 1;
+        if (numCells > 0 && getRowId(page, precedingCell) > rowId) {
+            precedingCell = findPageRecord(page, rowId);
+            if (getRowId(page, precedingCell) > rowId) {
+                precedingCell--;
+            }
+        }
 
-        //write the page pointer to the rightmost child in the header
-        this.seek((long) page * pageSize + 0x06);
-        this.writeInt(pointer); 
+        if (precedingCell == numCells - 1) {
+            //set the start content pointer and get the incremement cell count
+            short contentStart = setStartContent(page, cellSize);
+            numCells = incrementCellCount(page);
 
-        //write to the cell pointer array, updating the array with the start content pointer
-        this.seek((long) page * pageSize + 0x0E + numCells * 2);
-        this.writeShort(contentStart); 
+            //write the page pointer to the rightmost child in the header
+            this.seek((long) page * pageSize + 0x06);
+            this.writeInt(pointer); 
 
-        //move to the start content pointer and write the cell data (page pointer + row ID)
-        this.seek((long) page * pageSize + contentStart);
+            //write to the cell pointer array, updating the array with the start content pointer
+            this.seek((long) page * pageSize + 0x0E + numCells * 2);
+            this.writeShort(contentStart); 
+
+            //move to the start content pointer and write the cell data (page pointer + row ID)
+            this.seek((long) page * pageSize + contentStart);
+        } else {
+            //shift the later cells to make room for the pointer in the middle of the page
+            int offset = cellShift(page, precedingCell, cellSize, 1);
+            incrementCellCount(page);
+            this.seek((long) page * pageSize + 0x10 + 2L * (precedingCell + 1));
+            this.writeShort(offset);
+            this.seek((long) page * pageSize + offset);
+        }
         this.writeInt(pointer); 
         this.writeInt(rowId);
+        return page;
     }
 
      //writes a record to the specified page in the table file, does page splitting if necessary
-    public void writeRecord(Record record, int page) throws IOException {
+    //returns the page the record was written to
+    public int writeRecord(Record record, int page) throws IOException {
         //calculate the total cell size, including the record length and additional metadata
         short recordSize = record.getRecordLength();
 
@@ -178,6 +227,18 @@ public class TableFile extends DatabaseFile{
         for (int i = 0; i < columns.size(); i++){
             writeData(columns.get(i), values.get(i));
         }
+
+        //register the page in the leaf directory if this is the first record written to it
+        if (leafCount == 0) {
+            addLeafEntry(record.getRowId(), page);
+        } else if (leafCount > 0 && leafPages[leafCount - 1] != page) {
+            if (leafRowIds[leafCount - 1] < record.getRowId()) {
+                addLeafEntry(record.getRowId(), page);
+            } else {
+                leafCount = -1;
+            }
+        }
+        return page;
     }
 
 
@@ -240,7 +301,8 @@ public class TableFile extends DatabaseFile{
     }
 
     //updates the specified record with a new value at the specified column index
-    public void updateRecord(int rowId, int columnIndex, Object newValue) throws IOException {
+    //columnType is the type of the column in the schema, a null value is stored as NULL
+    public void updateRecord(int rowId, int columnIndex, Constants.DataTypes columnType, Object newValue) throws IOException {
         //find the record information on the page
         int[] pageAndIndex = findRecord(rowId);
         int page = pageAndIndex[0];
@@ -258,34 +320,42 @@ public class TableFile extends DatabaseFile{
         //read the existing record from the specified page and offset
         Record record = readRecord(page, offset);
 
-        //handle TEXT column type separately due to variable length
-        if (record.getColumns().get(columnIndex) == Constants.DataTypes.TEXT) {
-            int oldSize = ((String) record.getValues().get(columnIndex)).length();
-            int newSize = ((String) newValue).length();
-
-            //check if splitting is required to accomodate the new TEXT value
-            if (split(page, (short) (newSize - oldSize))) {
-                //split the page and update the page information
-                pageSplit(page, rowId);
-                int[] newPageAndIndex = findRecord(rowId);
-                page = newPageAndIndex[0];
-                index = newPageAndIndex[1];
+        //update the values of the record with the new value at the specified column index
+        //the stored type of a column that was null is NULL, so the type comes from the schema
+        ArrayList<Object> values = new ArrayList<>(record.getValues());
+        values.set(columnIndex, newValue);
+        ArrayList<Constants.DataTypes> columns = new ArrayList<>(record.getColumns());
+        columns.set(columnIndex, newValue == null ? Constants.DataTypes.NULL : columnType);
+        Record newRecord = new Record(columns, values, record.getRowId());
+
+        //variable length values such as TEXT can change the size of the cell
+        int sizeChange = newRecord.getRecordLength() - record.getRecordLength();
+        if (sizeChange > 0 && split(page, sizeChange)) {
+            //make room by moving the records after this one to a new leaf page
+            if (index + 1 < getCellCount(page)) {
+                moveRecordsToNewPage(page, index + 1);
             }
+            //if that is still not enough, the record itself moves to a new leaf page
+            if (split(page, sizeChange)) {
+                moveRecordsToNewPage(page, index);
+            }
+            int[] newPageAndIndex = findRecord(rowId);
+            page = newPageAndIndex[0];
+            index = newPageAndIndex[1];
+        }
 
-            //adjust the cell pointers after splitting
-            this.cellShift(page, index -1, oldSize - newSize, 0);
-
-            //update the cell offset after splitting
-            offset = getCellOffset(page, index);
+        //grow or shrink the cell in place, cells before it keep their position
+        if (sizeChange != 0) {
+            this.cellShift(page, index - 1, sizeChange, 0);
         }
 
-        //update the values of the record with the new value at the specified column index
-        ArrayList<Object> values = record.getValues();
-        values.set(columnIndex, newValue);
-        Record newRecord = new Record(record.getColumns(), values, record.getRowId());
+        //update the cell offset after shifting
+        offset = getCellOffset(page, index);
 
         //write the updated record to the specified page and offset
-        this.seek((long) page * pageSize + offset + 6);
+        this.seek((long) page * pageSize + offset);
+        this.writeShort(newRecord.getRecordLength());
+        this.writeInt(newRecord.getRowId());
         byte[] header = newRecord.getPageHeader();
         this.write(header);
         for (int i = 0; i < newRecord.getColumns().size(); i++){
@@ -293,6 +363,32 @@ public class TableFile extends DatabaseFile{
         }
     }
 
+    //moves the records from firstCell to the end of the page into a new leaf page
+    //that is linked in as the right sibling of the page
+    private void moveRecordsToNewPage(int page, int firstCell) throws IOException {
+        //read the records that are moved
+        int numberOfCells = getCellCount(page);
+        ArrayList<Record> records = new ArrayList<>();
+        for (int i = firstCell; i < numberOfCells; i++) {
+            records.add(readRecord(page, getCellOffset(page, i)));
+        }
+
+        //cut the records off the page and fill the freed space with zeroes
+        int contentStart = getStartContent(page);
+        int newContentStart = firstCell == 0 ? pageSize : getCellOffset(page, firstCell - 1);
+        this.seek((long) page * pageSize + 0x10 + 2L * firstCell);
+        this.write(new byte[newContentStart - 0x10 - 2 * firstCell]);
+        this.seek((long) page * pageSize + 0x02);
+        this.writeShort(firstCell);
+        this.writeShort(newContentStart);
+
+        //write the records to the new right sibling in row ID order
+        int newPage = pageSplit(page, records.get(0).getRowId());
+        for (Record record : records) {
+            newPage = writeRecord(record, newPage);
+        }
+    }
+
     //deletes the record with the specified rowID from the table
     public void deleteRecord(int rowId) throws IOException {
         //find the record information on the page
@@ -318,11 +414,8 @@ public class TableFile extends DatabaseFile{
         //shift the cells to remove the space occupied by the deleted record
         this.cellShift(page, index - 1, -payloadSize - 6, -1);
 
-        //update the page pointer if the deleted record was the leftmost record
-        if (index == 0 && getParentPage(page) != 0xFFFFFFFF) {
-            updatePagePtr(getParentPage(page), index, getSmallestRowId(page));
-        }
-
+        //the row ID of the page pointer in the parent is left as it is even when the leftmost
+        //record was deleted, it stays a valid lower bound for the row IDs on the page
 
         //decrement cell count of the page
         int numCells = getCellCount(page);
@@ -337,6 +430,18 @@ public class TableFile extends DatabaseFile{
         for (int i = cellPointerArrayEnd; i < contentStart; i++) {
             this.writeByte(0x00);
         }
+
+        //keep the leaf directory in step with the new smallest row ID on the page
+        if (index == 0 && leafCount > 0) {
+            int entry = findLeafEntry(rowId);
+            if (leafPages[entry] == page) {
+                if (numCells - 1 == 0) {
+                    removeLeafEntry(entry);
+                } else {
+                    leafRowIds[entry] = getSmallestRowId(page);
+                }
+            }
+        }
     }
 
     //updates the row ID of a page pointer at the specified index within a cell on a given page
@@ -414,6 +519,50 @@ public class TableFile extends DatabaseFile{
         return readRecord(page, offset);
     }
 
+    //retrieves the records with the given row IDs, in the order of the row IDs given
+    //the row IDs are sorted and the leaf pages holding them are visited once each in chain order, the
+    //cells of a page are merged with the row IDs falling into it, row IDs without a record are skipped
+    public ArrayList<Record> getRecords(List<Integer> rowIds) throws IOException {
+        int[] sorted = new int[rowIds.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = rowIds.get(i);
+        }
+        Arrays.sort(sorted);
+
+        HashMap<Integer, Record> found = new HashMap<>();
+        loadLeafDirectory();
+        int next = 0;
+        while (next < sorted.length && leafCount > 0) {
+            //the leaf page holding the next row ID and the first row ID of the page after it
+            int entry = findLeafEntry(sorted[next]);
+            int page = leafPages[entry];
+            int end = entry + 1 < leafCount ? leafRowIds[entry + 1] : Integer.MAX_VALUE;
+
+            int numberOfCells = getCellCount(page);
+            int cell = 0;
+            int cellRowId = numberOfCells > 0 ? getRowId(page, 0) : Integer.MAX_VALUE;
+            while (next < sorted.length && sorted[next] < end) {
+                int rowId = sorted[next++];
+                while (cellRowId < rowId) {
+                    cell++;
+                    cellRowId = cell < numberOfCells ? getRowId(page, cell) : Integer.MAX_VALUE;
+                }
+                if (cellRowId == rowId && !found.containsKey(rowId)) {
+                    found.put(rowId, readRecord(page, getCellOffset(page, cell)));
+                }
+            }
+        }
+
+        ArrayList<Record> records = new ArrayList<>(rowIds.size());
+        for (int rowId : rowIds) {
+            Record record = found.get(rowId);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
     //performs a binary search to find the index of the cell on a specified page
     //that contains the given rowID or the closest one to it
     public int findPageRecord(int page, int rowId) throws IOException {
@@ -465,39 +614,79 @@ public class TableFile extends DatabaseFile{
         //index 1: the index of the cell containing the record on the page
         //index 2: an boolean specifying whether the record was found (1) or not (0)
 
+        //jump straight to the leaf page through the in-memory leaf directory
+        loadLeafDirectory();
 
-        //start the search from the root page of the table file
-        int currentPage = getRootPage();
+        //an empty table has no leaf that can hold the record
+        if (leafCount == 0) {
+            return new int[] {getLastLeafPage(), 0, 0};
+        }
+        int currentPage = leafPages[findLeafEntry(rowId)];
 
-        while (true) {
-            //determine the type of the current page (leaf or interior)
-            Constants.PageType pageType = getPageType(currentPage);
+        //find the index of the cell containing the record with the given row ID on the leaf page
+        int currentCell = findPageRecord(currentPage, rowId);
 
-            //find the index of the cell containing the record with the given row ID on the current page
-            int currentCell = findPageRecord(currentPage, rowId);
+        //check if the row ID stored in the found cell matches the target row ID
+        if (getRowId(currentPage, currentCell) == rowId) {
+            //record found on the leaf page
+            return new int[] {currentPage, currentCell, 1};
+        }
+        //record not found on the leaf page
+        return new int[] {currentPage, currentCell, 0};
+    }
 
-            //get the actual row ID stored in the cell at the found index
-            int currentRowId = getRowId(currentPage, currentCell);
+    //builds the leaf directory by walking the leaf chain once, unless it is already up to date
+    public void loadLeafDirectory() throws IOException {
+        if (leafCount != -1) {
+            return;
+        }
+        leafCount = 0;
 
-            //check if the current page is a leaf page
-            if (pageType == Constants.PageType.TABLE_LEAF) {
-                //check if the found Row ID matches the target Row ID
-                if (currentRowId == rowId) {
-                    //record found on the leaf page
-                    return new int[] {currentPage, currentCell, 1};
-                } else {
-                    //record not found on the leaf page
-                    return new int[] {currentPage, currentCell, 0};
-                }
-            } else if (pageType == Constants.PageType.TABLE_INTERIOR) {
-                //if the current page is an interior page, navigate to the child page indicated by the found cell
-                int offset = getCellOffset(currentPage, currentCell);
-                this.seek((long) currentPage * pageSize + offset);
+        //record the smallest row ID of every non-empty leaf page in chain order
+        int currentPage = getFirstLeafPage();
+        while (currentPage != 0xFFFFFFFF) {
+            if (getCellCount(currentPage) > 0) {
+                addLeafEntry(getSmallestRowId(currentPage), currentPage);
+            }
+            currentPage = getNextLeafPage(currentPage);
+        }
+    }
 
-                //move to the child page for further searching
-                currentPage = this.readInt();
+    //returns the directory entry whose row ID range covers the given row ID
+    //row IDs below the first range map to the first entry
+    private int findLeafEntry(int rowId) {
+        int low = 0;
+        int high = leafCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (leafRowIds[mid] <= rowId) {
+                low = mid;
+            } else {
+                high = mid - 1;
             }
         }
+        return low;
+    }
+
+    //appends a row ID range to the end of the leaf directory, growing the arrays when full
+    private void addLeafEntry(int rowId, int page) {
+        if (leafCount == -1) {
+            return;
+        }
+        if (leafCount == leafPages.length) {
+            leafRowIds = Arrays.copyOf(leafRowIds, leafCount * 2);
+            leafPages = Arrays.copyOf(leafPages, leafCount * 2);
+        }
+        leafRowIds[leafCount] = rowId;
+        leafPages[leafCount] = page;
+        leafCount++;
+    }
+
+    //removes the entry of a leaf page that no longer holds any records
+    private void removeLeafEntry(int entry) {
+        System.arraycopy(leafRowIds, entry + 1, leafRowIds, entry, leafCount - entry - 1);
+        System.arraycopy(leafPages, entry + 1, leafPages, entry, leafCount - entry - 1);
+        leafCount--;
     }
 
     //retrieves the Row ID associated with a specific record on the given page and index
@@ -616,52 +805,116 @@ public class TableFile extends DatabaseFile{
         //initialize an arraylist to store the records that satisfy the condition
         ArrayList<Record> records = new ArrayList<>();
 
-        //get the page number of the root page
-        int currentPage = getRootPage();
-        Constants.PageType pageType = getPageType(currentPage);
-        
-        //traverse down to the first leaf page
-        while (pageType != Constants.PageType.TABLE_LEAF) {
-             //get the offset of the first cell in the current page
-            int offset = getCellOffset(currentPage, 0);
-            this.seek((long) currentPage * pageSize + offset);
-
-            //read the page number of the leftmost child
-            currentPage = this.readInt();
-            pageType = getPageType(currentPage);
-        }
-        
-
         //iterate over all records in leaf pages
+        int currentPage = getFirstLeafPage();
         while (currentPage != 0xFFFFFFFF) {
-            this.seek((long) currentPage * pageSize);
-            int numberOfCells = getCellCount(currentPage);
-            
             //iterate over all records in current leaf page
-            for (int i = 0; i < numberOfCells; i++) {
-                //move to the position of the current cell in the cell pointer array
-                this.seek((long) currentPage * pageSize + 0x10 + 2 * i);
-
-                //get the offset of the current cell
-                int currentOffset = getCellOffset(currentPage, i);
-
-                //read the record from the current page and offset
-                Record record = readRecord(currentPage, currentOffset);
-
+            for (Record record : readPageRecords(currentPage)) {
                 //check if the record satisfies the search condition
                 if (record.compare(columnIndex, value, operator)) {
                     records.add(record);
                 }
             }
 
-            //move to the position of the page pointer in the page header
-            this.seek((long) currentPage * pageSize + 0x06);
+            //move to the next leaf page
+            currentPage = getNextLeafPage(currentPage);
+        }
+        //return the arraylist of records that satisfy the condition
+        return records;
+    }
 
-            //read the page number of the next leaf page
+    //retrieves the page number of the first leaf page by following the leftmost children from the root
+    public int getFirstLeafPage() throws IOException {
+        int currentPage = getRootPage();
+        while (getPageType(currentPage) != Constants.PageType.TABLE_LEAF) {
+            //read the page number of the leftmost child
+            this.seek((long) currentPage * pageSize + getCellOffset(currentPage, 0));
             currentPage = this.readInt();
         }
-        //return the arraylist of records that satisfy the condition
+        return currentPage;
+    }
+
+    //retrieves the right sibling of a leaf page, 0xFFFFFFFF after the last leaf page
+    public int getNextLeafPage(int page) throws IOException {
+        this.seek((long) page * pageSize + 0x06);
+        return this.readInt();
+    }
+
+    //reads all records stored on a leaf page in row ID order
+    //lets callers stream through the table one page at a time
+    public ArrayList<Record> readPageRecords(int page) throws IOException {
+        int numberOfCells = getCellCount(page);
+        ArrayList<Record> records = new ArrayList<>(numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            records.add(readRecord(page, getCellOffset(page, i)));
+        }
         return records;
     }
 
+    //reads a leaf page whole into the buffer and appends its rows to the batch, decoding the cells
+    //straight into the column vectors, returns the right sibling of the page
+    //a row with fewer stored columns than the batch gets NULL for the missing ones
+    public int readPageColumns(int page, byte[] buffer, ColumnBatch batch) throws IOException {
+        this.seek((long) page * pageSize);
+        this.readFully(buffer, 0, pageSize);
+        ByteBuffer data = ByteBuffer.wrap(buffer);
+        int numberOfCells = data.getShort(0x02);
+        ColumnVector[] columns = batch.columns;
+
+        for (int cell = 0; cell < numberOfCells; cell++) {
+            //skip the payload size, then read the row ID and the column types
+            int position = (data.getShort(getHeaderSize() + 2 * cell) & 0xFFFF) + 2;
+            int row = batch.size++;
+            batch.rowIds[row] = data.getInt(position);
+            int numColumns = buffer[position + 4];
+            int typeStart = position + 5;
+            position = typeStart + numColumns;
+
+            for (int i = 0; i < columns.length; i++) {
+                ColumnVector column = columns[i];
+                int typeByte = i < numColumns ? buffer[typeStart + i] & 0xFF : 0;
+                if (typeByte >= 0x0C) {
+                    int length = typeByte - 0x0C;
+                    column.setText(row, buffer, position, length);
+                    position += length;
+                    continue;
+                }
+                switch (Constants.DataTypes.values()[typeByte]) {
+                    case TINYINT:
+                    case YEAR:
+                        column.ints[row] = buffer[position];
+                        position += 1;
+                        break;
+                    case SMALLINT:
+                        column.ints[row] = data.getShort(position);
+                        position += 2;
+                        break;
+                    case INT:
+                    case TIME:
+                        column.ints[row] = data.getInt(position);
+                        position += 4;
+                        break;
+                    case BIGINT:
+                    case DATE:
+                    case DATETIME:
+                        column.longs[row] = data.getLong(position);
+                        position += 8;
+                        break;
+                    case FLOAT:
+                        column.doubles[row] = data.getFloat(position);
+                        position += 4;
+                        break;
+                    case DOUBLE:
+                        column.doubles[row] = data.getDouble(position);
+                        position += 8;
+                        break;
+                    default:
+                        column.setNull(row);
+                        break;
+                }
+            }
+        }
+        return data.getInt(0x06);
+    }
+
 }
@@ -0,0 +1,52 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Reads all records of a table in row ID order, one leaf page at a time
+ * Only the records of the current leaf page are held in memory
+ */
+public class TableScan extends Operator {
+    private final Table table;
+    //leaf page to read next, 0xFFFFFFFF after the last leaf page
+    private int page;
+    //records of the current leaf page and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates a scan of all records of the table
+    public TableScan(Table table) {
+        super(table.columnNames, table.columnTypes);
+        this.table = table;
+    }
+
+    @Override
+    public void open() throws IOException {
+        page = table.tableFile.getFirstLeafPage();
+        records = new ArrayList<>();
+        position = 0;
+    }
+
+    @Override
+    public Record next() throws IOException {
+        while (position == records.size()) {
+            if (page == 0xFFFFFFFF) {
+                return null;
+            }
+            records = table.tableFile.readPageRecords(page);
+            position = 0;
+            page = table.tableFile.getNextLeafPage(page);
+        }
+        return records.get(position++);
+    }
+
+    @Override
+    public String describe() {
+        return "Table Scan on " + table.tableName;
+    }
+
+    //the table file belongs to the table and stays open
+    @Override
+    public void close() {
+        records = new ArrayList<>();
+    }
+}
@@ -0,0 +1,384 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Computes the functions of Aggregate over the batches of a vectorized operator, with the same results
+ * and the same order of groups
+ * Without group columns each function is a loop over the selected rows of a batch adding to a few local
+ * primitives, with group columns the slot of each selected row is looked up once per batch and the
+ * functions add to primitive arrays indexed by slot
+ */
+public class VectorAggregate extends Operator {
+    private final BatchOperator input;
+    private final ArrayList<String> groupColumns;
+    private final ArrayList<String> functions;
+    //column of each function, null for COUNT(*)
+    private final ArrayList<String> arguments;
+
+    //positions of the group columns and the function columns in the batches of the input
+    private int[] groupIndexes;
+    private int[] argumentIndexes;
+
+    //slots of the groups by their key, their keys in the order they were found and their number
+    private HashMap<ArrayList<Object>, Integer> slotsByKey;
+    private ArrayList<ArrayList<Object>> keys;
+    private int slotCount;
+    //state of each function by slot: number of values, sums and the least or greatest value so far
+    private long[][] counts;
+    private long[][] longSums;
+    private double[][] doubleSums;
+    private long[][] longExtremes;
+    private double[][] doubleExtremes;
+    private byte[][][] textExtremes;
+
+    //results and the position of the next one
+    private ArrayList<Record> records = new ArrayList<>();
+    private int position;
+
+    //Creates an aggregation of the batches of the input, see Aggregate
+    public VectorAggregate(BatchOperator input, ArrayList<String> groupColumns, ArrayList<String> functions, ArrayList<String> arguments) {
+        super(new ArrayList<>(), new ArrayList<>());
+        this.input = input;
+        this.groupColumns = groupColumns;
+        this.functions = functions;
+        this.arguments = arguments;
+        for (String column : groupColumns) {
+            columnNames.add(column);
+            columnTypes.add(input.columnTypes.get(input.columnIndex(column)));
+        }
+        for (int i = 0; i < functions.size(); i++) {
+            String argument = arguments.get(i);
+            columnNames.add(Aggregate.name(functions.get(i), argument));
+            columnTypes.add(Aggregate.resultType(functions.get(i),
+                    argument == null ? null : input.columnTypes.get(input.columnIndex(argument))));
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        groupIndexes = new int[groupColumns.size()];
+        for (int i = 0; i < groupIndexes.length; i++) {
+            groupIndexes[i] = input.columnIndex(groupColumns.get(i));
+        }
+        argumentIndexes = new int[arguments.size()];
+        for (int i = 0; i < argumentIndexes.length; i++) {
+            argumentIndexes[i] = arguments.get(i) == null ? -1 : input.columnIndex(arguments.get(i));
+        }
+
+        int functionCount = functions.size();
+        slotsByKey = new HashMap<>();
+        keys = new ArrayList<>();
+        slotCount = 0;
+        counts = new long[functionCount][16];
+        longSums = new long[functionCount][16];
+        doubleSums = new double[functionCount][16];
+        longExtremes = new long[functionCount][16];
+        doubleExtremes = new double[functionCount][16];
+        textExtremes = new byte[functionCount][16][];
+        //without group columns there is exactly one group
+        if (groupIndexes.length == 0) {
+            slot(new ArrayList<>());
+        }
+
+        int[] slots = new int[ColumnBatch.CAPACITY];
+        input.open();
+        ColumnBatch batch;
+        while ((batch = input.nextBatch()) != null) {
+            if (groupIndexes.length == 0) {
+                for (int f = 0; f < functionCount; f++) {
+                    accumulate(f, batch);
+                }
+            } else {
+                for (int i = 0; i < batch.selected; i++) {
+                    slots[i] = slot(key(batch, batch.selection[i]));
+                }
+                for (int f = 0; f < functionCount; f++) {
+                    accumulate(f, batch, slots);
+                }
+            }
+        }
+        input.close();
+
+        records = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            records.add(result(slot));
+        }
+        position = 0;
+    }
+
+    //returns the values of the group columns of a row
+    private ArrayList<Object> key(ColumnBatch batch, int row) {
+        ArrayList<Object> key = new ArrayList<>(groupIndexes.length);
+        for (int groupIndex : groupIndexes) {
+            key.add(batch.columns[groupIndex].getValue(row));
+        }
+        return key;
+    }
+
+    //returns the slot of the group with the key, adding the group if it is new
+    private int slot(ArrayList<Object> key) {
+        Integer slot = slotsByKey.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        if (counts.length > 0 && slotCount == counts[0].length) {
+            grow();
+        }
+        slotsByKey.put(key, slotCount);
+        keys.add(key);
+        return slotCount++;
+    }
+
+    //doubles the number of slots of the function states
+    private void grow() {
+        for (int f = 0; f < counts.length; f++) {
+            int capacity = counts[f].length * 2;
+            counts[f] = Arrays.copyOf(counts[f], capacity);
+            longSums[f] = Arrays.copyOf(longSums[f], capacity);
+            doubleSums[f] = Arrays.copyOf(doubleSums[f], capacity);
+            longExtremes[f] = Arrays.copyOf(longExtremes[f], capacity);
+            doubleExtremes[f] = Arrays.copyOf(doubleExtremes[f], capacity);
+            textExtremes[f] = Arrays.copyOf(textExtremes[f], capacity);
+        }
+    }
+
+    //adds the selected rows of the batch to function f of the single group
+    private void accumulate(int f, ColumnBatch batch) {
+        int[] selection = batch.selection;
+        int selected = batch.selected;
+        if (argumentIndexes[f] == -1) {
+            counts[f][0] += selected;
+            return;
+        }
+        ColumnVector column = batch.columns[argumentIndexes[f]];
+        boolean[] nulls = column.nulls;
+        String function = functions.get(f);
+
+        int count = 0;
+        for (int i = 0; i < selected; i++) {
+            count += nulls[selection[i]] ? 0 : 1;
+        }
+        if (count == 0) {
+            return;
+        }
+        boolean first = counts[f][0] == 0;
+        counts[f][0] += count;
+        if (function.equals("count")) {
+            return;
+        }
+
+        boolean sum = function.equals("sum") || function.equals("avg");
+        boolean min = function.equals("min");
+        switch (column.kind) {
+            case INT: {
+                int[] values = column.ints;
+                if (sum) {
+                    long total = 0;
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        total += nulls[row] ? 0 : values[row];
+                    }
+                    longSums[f][0] += total;
+                } else {
+                    long extreme = first ? (min ? Long.MAX_VALUE : Long.MIN_VALUE) : longExtremes[f][0];
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        int value = values[row];
+                        extreme = nulls[row] ? extreme : (min ? Math.min(extreme, value) : Math.max(extreme, value));
+                    }
+                    longExtremes[f][0] = extreme;
+                }
+                break;
+            }
+            case LONG: {
+                long[] values = column.longs;
+                if (sum) {
+                    long total = 0;
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        total += nulls[row] ? 0 : values[row];
+                    }
+                    longSums[f][0] += total;
+                } else {
+                    long extreme = first ? (min ? Long.MAX_VALUE : Long.MIN_VALUE) : longExtremes[f][0];
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        long value = values[row];
+                        extreme = nulls[row] ? extreme : (min ? Math.min(extreme, value) : Math.max(extreme, value));
+                    }
+                    longExtremes[f][0] = extreme;
+                }
+                break;
+            }
+            case DOUBLE: {
+                double[] values = column.doubles;
+                if (sum) {
+                    //added in row order from the running sum, so the rounding is that of Aggregate,
+                    //adding -0.0 leaves every sum as it is
+                    double total = doubleSums[f][0];
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        total += nulls[row] ? -0.0 : values[row];
+                    }
+                    doubleSums[f][0] = total;
+                } else {
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        if (!nulls[row]) {
+                            updateDouble(f, 0, values[row], min, first);
+                            first = false;
+                        }
+                    }
+                }
+                break;
+            }
+            case TEXT:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    if (!nulls[row]) {
+                        updateText(f, 0, column, row, min);
+                    }
+                }
+                break;
+        }
+    }
+
+    //adds the selected rows of the batch to function f of the groups in the slots of the rows
+    private void accumulate(int f, ColumnBatch batch, int[] slots) {
+        int[] selection = batch.selection;
+        int selected = batch.selected;
+        long[] functionCounts = counts[f];
+        if (argumentIndexes[f] == -1) {
+            for (int i = 0; i < selected; i++) {
+                functionCounts[slots[i]]++;
+            }
+            return;
+        }
+        ColumnVector column = batch.columns[argumentIndexes[f]];
+        boolean[] nulls = column.nulls;
+        String function = functions.get(f);
+        boolean sum = function.equals("sum") || function.equals("avg");
+        boolean min = function.equals("min");
+        boolean count = function.equals("count");
+
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            if (nulls[row]) {
+                continue;
+            }
+            int slot = slots[i];
+            boolean first = functionCounts[slot]++ == 0;
+            if (count) {
+                continue;
+            }
+            switch (column.kind) {
+                case INT:
+                case LONG:
+                    long value = column.kind == ColumnVector.Kind.INT ? column.ints[row] : column.longs[row];
+                    if (sum) {
+                        longSums[f][slot] += value;
+                    } else if (first || (min ? value < longExtremes[f][slot] : value > longExtremes[f][slot])) {
+                        longExtremes[f][slot] = value;
+                    }
+                    break;
+                case DOUBLE:
+                    if (sum) {
+                        doubleSums[f][slot] += column.doubles[row];
+                    } else {
+                        updateDouble(f, slot, column.doubles[row], min, first);
+                    }
+                    break;
+                case TEXT:
+                    updateText(f, slot, column, row, min);
+                    break;
+            }
+        }
+    }
+
+    //keeps the value as the least or greatest double of function f in the slot, ordered like Double.compare
+    private void updateDouble(int f, int slot, double value, boolean min, boolean first) {
+        int comparison = first ? 0 : Double.compare(value, doubleExtremes[f][slot]);
+        if (first || (min ? comparison < 0 : comparison > 0)) {
+            doubleExtremes[f][slot] = value;
+        }
+    }
+
+    //keeps the TEXT value of the row as the least or greatest of function f in the slot
+    private void updateText(int f, int slot, ColumnVector column, int row, boolean min) {
+        byte[] extreme = textExtremes[f][slot];
+        int start = column.offsets[row];
+        int end = column.offsets[row + 1];
+        int comparison = extreme == null ? 0
+                : Arrays.compareUnsigned(column.bytes, start, end, extreme, 0, extreme.length);
+        if (extreme == null || (min ? comparison < 0 : comparison > 0)) {
+            textExtremes[f][slot] = Arrays.copyOfRange(column.bytes, start, end);
+        }
+    }
+
+    //builds the record of a group from its key and the results of its functions
+    private Record result(int slot) {
+        ArrayList<Object> values = new ArrayList<>(keys.get(slot));
+        for (int f = 0; f < functions.size(); f++) {
+            long count = counts[f][slot];
+            Constants.DataTypes argumentType = argumentIndexes[f] == -1 ? null : input.columnTypes.get(argumentIndexes[f]);
+            switch (functions.get(f)) {
+                case "count":
+                    values.add(count);
+                    break;
+                case "sum":
+                    if (count == 0) {
+                        values.add(null);
+                    } else if (columnTypes.get(groupIndexes.length + f) == Constants.DataTypes.DOUBLE) {
+                        values.add(doubleSums[f][slot]);
+                    } else {
+                        values.add(longSums[f][slot]);
+                    }
+                    break;
+                case "avg":
+                    values.add(count == 0 ? null : (doubleSums[f][slot] + longSums[f][slot]) / count);
+                    break;
+                default:
+                    values.add(count == 0 ? null : extreme(f, slot, argumentType));
+                    break;
+            }
+        }
+        return new Record(new ArrayList<>(columnTypes), values, slot + 1);
+    }
+
+    //returns the least or greatest value of function f in the slot as the object a Record holds for the type
+    private Object extreme(int f, int slot, Constants.DataTypes type) {
+        switch (ColumnVector.kindOf(type)) {
+            case INT:
+                return ColumnVector.box(type, (int) longExtremes[f][slot]);
+            case LONG:
+                return longExtremes[f][slot];
+            case DOUBLE:
+                double value = doubleExtremes[f][slot];
+                return type == Constants.DataTypes.FLOAT ? (Object) (float) value : (Object) value;
+            default:
+                return new String(textExtremes[f][slot]);
+        }
+    }
+
+    @Override
+    public Record next() {
+        return position < records.size() ? records.get(position++) : null;
+    }
+
+    @Override
+    public String describe() {
+        return "Vector Aggregate (" + Aggregate.describe(groupColumns, functions, arguments) + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        records = new ArrayList<>();
+        input.close();
+    }
+}
@@ -0,0 +1,472 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Narrows the selection of the batches of its input to the rows matching a predicate, like Filter
+ * The predicate is compiled once the input is open into a tree of nodes, each narrowing a selection of
+ * rows: an AND passes the selection through its operands in turn, an OR checks each operand on the rows
+ * no earlier operand matched and keeps the rows one of them matched, in their order
+ * Each comparison is checked by a loop over the selected rows specialized for the kind of the column and
+ * the operator, the loop body has no branches: every row is written to the selection and the count only
+ * advances for a matching row, so the JIT can unroll the loop
+ * When most rows of a batch are still selected, INT, LONG and DOUBLE comparisons are instead checked on
+ * the whole column at once by the FilterKernels, whose loops the JIT turns into SIMD instructions, and the
+ * selection is then narrowed by the resulting mask
+ * TEXT values are compared byte by byte as unsigned numbers, which orders the one byte characters
+ * TableFile stores like String.compareTo does
+ */
+public class VectorFilter extends BatchOperator {
+    //operator codes the loops are specialized for
+    static final int EQUAL = 0;
+    static final int NOT_EQUAL = 1;
+    static final int LESS = 2;
+    static final int LESS_EQUAL = 3;
+    static final int GREATER = 4;
+    static final int GREATER_EQUAL = 5;
+    //the kernels are used when at least 1 in DENSE_FRACTION rows of a batch is selected
+    static final int DENSE_FRACTION = 4;
+
+    private final BatchOperator input;
+    private final Predicate predicate;
+
+    //the predicate compiled against the columns of the input
+    private Node root;
+    //masks and sortable keys the kernels write
+    private final int[] intMask = new int[ColumnBatch.CAPACITY];
+    private final long[] longMask = new long[ColumnBatch.CAPACITY];
+    private final long[] keys = new long[ColumnBatch.CAPACITY];
+
+    //Creates a filter keeping the rows of the input matching all conditions <column> <operator> <value>
+    public VectorFilter(BatchOperator input, ArrayList<String> columns, ArrayList<Object> values, ArrayList<String> operators) {
+        this(input, Predicate.and(columns, values, operators));
+    }
+
+    //Creates a filter keeping the rows of the input matching the predicate
+    public VectorFilter(BatchOperator input, Predicate predicate) {
+        super(input.columnNames, input.columnTypes);
+        this.input = input;
+        this.predicate = predicate;
+    }
+
+    //returns the code of an operator
+    static int operatorCode(String operator) {
+        switch (operator) {
+            case "=":
+                return EQUAL;
+            case "<>":
+                return NOT_EQUAL;
+            case "<":
+                return LESS;
+            case "<=":
+                return LESS_EQUAL;
+            case ">":
+                return GREATER;
+            case ">=":
+                return GREATER_EQUAL;
+            default:
+                throw new IllegalArgumentException("Operator must be =, <>, <, <=, >, or >=");
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        root = compile(predicate);
+        input.open();
+    }
+
+    //compiles the predicate into a node checking it on the columns of the input
+    private Node compile(Predicate predicate) {
+        switch (predicate.kind) {
+            case COMPARISON:
+                return new Comparison(predicate);
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return new NullTest(input.columnIndex(predicate.column), predicate.kind == Predicate.Kind.IS_NULL);
+            default:
+                Node[] operands = new Node[predicate.operands.size()];
+                for (int i = 0; i < operands.length; i++) {
+                    operands[i] = compile(predicate.operands.get(i));
+                }
+                return predicate.kind == Predicate.Kind.AND ? new And(operands) : new Or(operands);
+        }
+    }
+
+    @Override
+    public ColumnBatch nextBatch() throws IOException {
+        ColumnBatch batch;
+        while ((batch = input.nextBatch()) != null) {
+            batch.selected = root.select(batch, batch.selection, batch.selected);
+            if (batch.selected > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * A part of the predicate checked on the rows of a batch
+     */
+    private abstract static class Node {
+        //keeps the rows of the selection, selected of them, that match, returns their number
+        abstract int select(ColumnBatch batch, int[] selection, int selected);
+    }
+
+    /*
+     * A comparison <column> <operator> <value>, matching no row for a NULL value or a column the input
+     * does not have
+     */
+    private class Comparison extends Node {
+        private final int columnIndex;
+        private final int operator;
+        //the value as primitives
+        private long longValue;
+        private double doubleValue;
+        private byte[] textValue;
+        private boolean empty;
+
+        Comparison(Predicate comparison) {
+            columnIndex = input.columnIndex(comparison.column);
+            operator = operatorCode(comparison.operator);
+            Object value = comparison.value;
+            if (columnIndex == -1 || value == null) {
+                empty = true;
+            } else if (value instanceof String) {
+                textValue = ColumnVector.textBytes((String) value);
+            } else {
+                longValue = ((Number) value).longValue();
+                doubleValue = ((Number) value).doubleValue();
+            }
+        }
+
+        @Override
+        int select(ColumnBatch batch, int[] selection, int selected) {
+            if (empty || selected == 0) {
+                return 0;
+            }
+            ColumnVector column = batch.columns[columnIndex];
+            if (column.kind != ColumnVector.Kind.TEXT && selected * DENSE_FRACTION >= batch.size) {
+                return selectDense(column, batch.size, selection, selected);
+            }
+            switch (column.kind) {
+                case INT:
+                    return selectInts(column.ints, column.nulls, selection, selected, operator, (int) longValue);
+                case LONG:
+                    return selectLongs(column.longs, column.nulls, selection, selected, operator, longValue);
+                case DOUBLE:
+                    return selectDoubles(column.doubles, column.nulls, selection, selected, operator, doubleValue);
+                default:
+                    return selectTexts(column, selection, selected, operator, textValue);
+            }
+        }
+
+        //keeps the selected rows whose numeric value matches, comparing all rows of the batch with the
+        //kernels, returns their number
+        private int selectDense(ColumnVector column, int size, int[] selection, int selected) {
+            switch (column.kind) {
+                case INT:
+                    FilterKernels.compareInts(column.ints, size, operator, (int) longValue, intMask);
+                    return FilterKernels.select(intMask, column.nulls, selection, selected);
+                case LONG:
+                    FilterKernels.compareLongs(column.longs, size, operator, longValue, longMask);
+                    break;
+                default:
+                    FilterKernels.compareDoubles(column.doubles, size, operator, doubleValue, keys, longMask);
+                    break;
+            }
+            return FilterKernels.select(longMask, column.nulls, selection, selected);
+        }
+    }
+
+    /*
+     * <column> IS NULL, or IS NOT NULL, matching no row for a column the input does not have
+     */
+    private static class NullTest extends Node {
+        private final int columnIndex;
+        private final boolean isNull;
+
+        NullTest(int columnIndex, boolean isNull) {
+            this.columnIndex = columnIndex;
+            this.isNull = isNull;
+        }
+
+        @Override
+        int select(ColumnBatch batch, int[] selection, int selected) {
+            if (columnIndex == -1) {
+                return 0;
+            }
+            boolean[] nulls = batch.columns[columnIndex].nulls;
+            int count = 0;
+            for (int i = 0; i < selected; i++) {
+                int row = selection[i];
+                selection[count] = row;
+                count += nulls[row] == isNull ? 1 : 0;
+            }
+            return count;
+        }
+    }
+
+    /*
+     * Operands joined by AND, each narrows the selection the one before left
+     */
+    private static class And extends Node {
+        private final Node[] operands;
+
+        And(Node[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        int select(ColumnBatch batch, int[] selection, int selected) {
+            for (int i = 0; i < operands.length && selected > 0; i++) {
+                selected = operands[i].select(batch, selection, selected);
+            }
+            return selected;
+        }
+    }
+
+    /*
+     * Operands joined by OR, each is checked on a copy of the rows no operand before it matched and the
+     * rows it matches are marked, the selection then keeps the marked rows in order
+     */
+    private static class Or extends Node {
+        private final Node[] operands;
+        //rows no operand matched so far, the copy an operand narrows and the marks of the matched rows
+        private final int[] remaining = new int[ColumnBatch.CAPACITY];
+        private final int[] candidates = new int[ColumnBatch.CAPACITY];
+        private final boolean[] matched = new boolean[ColumnBatch.CAPACITY];
+
+        Or(Node[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        int select(ColumnBatch batch, int[] selection, int selected) {
+            System.arraycopy(selection, 0, remaining, 0, selected);
+            int left = selected;
+            for (int i = 0; i < operands.length && left > 0; i++) {
+                System.arraycopy(remaining, 0, candidates, 0, left);
+                int found = operands[i].select(batch, candidates, left);
+                for (int j = 0; j < found; j++) {
+                    matched[candidates[j]] = true;
+                }
+                int count = 0;
+                for (int j = 0; j < left; j++) {
+                    int row = remaining[j];
+                    remaining[count] = row;
+                    count += matched[row] ? 0 : 1;
+                }
+                left = count;
+            }
+            int count = 0;
+            for (int i = 0; i < selected; i++) {
+                int row = selection[i];
+                selection[count] = row;
+                count += matched[row] ? 1 : 0;
+                matched[row] = false;
+            }
+            return count;
+        }
+    }
+
+    //keeps the selected rows whose int value matches the operator and value, returns their number
+    static int selectInts(int[] column, boolean[] nulls, int[] selection, int selected, int operator, int value) {
+        int count = 0;
+        switch (operator) {
+            case EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] == value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] != value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] < value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] <= value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] > value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] >= value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+        }
+        return count;
+    }
+
+    //keeps the selected rows whose long value matches the operator and value, returns their number
+    static int selectLongs(long[] column, boolean[] nulls, int[] selection, int selected, int operator, long value) {
+        int count = 0;
+        switch (operator) {
+            case EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] == value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] != value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] < value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] <= value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] > value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (column[row] >= value & !nulls[row]) ? 1 : 0;
+                }
+                break;
+        }
+        return count;
+    }
+
+    //keeps the selected rows whose double value matches the operator and value, returns their number
+    //values are compared like Double.compare does, as DataTools.compare does for boxed values
+    static int selectDoubles(double[] column, boolean[] nulls, int[] selection, int selected, int operator, double value) {
+        int count = 0;
+        switch (operator) {
+            case EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) == 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) != 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) < 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) <= 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) > 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < selected; i++) {
+                    int row = selection[i];
+                    selection[count] = row;
+                    count += (Double.compare(column[row], value) >= 0 & !nulls[row]) ? 1 : 0;
+                }
+                break;
+        }
+        return count;
+    }
+
+    //keeps the selected rows whose TEXT value matches the operator and value, returns their number
+    static int selectTexts(ColumnVector column, int[] selection, int selected, int operator, byte[] value) {
+        int count = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            if (column.nulls[row]) {
+                continue;
+            }
+            int comparison = Arrays.compareUnsigned(column.bytes, column.offsets[row], column.offsets[row + 1],
+                    value, 0, value.length);
+            if (matches(comparison, operator)) {
+                selection[count++] = row;
+            }
+        }
+        return count;
+    }
+
+    //checks whether the result of a comparison satisfies the operator
+    static boolean matches(int comparison, int operator) {
+        switch (operator) {
+            case EQUAL:
+                return comparison == 0;
+            case NOT_EQUAL:
+                return comparison != 0;
+            case LESS:
+                return comparison < 0;
+            case LESS_EQUAL:
+                return comparison <= 0;
+            case GREATER:
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "Vector Filter (" + predicate + ")";
+    }
+
+    @Override
+    public void explain(ArrayList<String> lines, int depth) {
+        super.explain(lines, depth);
+        input.explain(lines, depth + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
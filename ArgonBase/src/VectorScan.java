@@ -0,0 +1,53 @@
+import java.io.*;
+import java.util.*;
+
+/*
+ * Reads all rows of a table in row ID order into ColumnBatches, see TableFile.readPageColumns
+ * Leaf pages are read whole and decoded straight into the column vectors, without building records
+ */
+public class VectorScan extends BatchOperator {
+    private final Table table;
+    private ColumnBatch batch;
+    //buffer a leaf page is read into
+    private byte[] page;
+    //leaf page to read next, 0xFFFFFFFF after the last leaf page
+    private int nextPage;
+
+    //Creates a scan of all rows of the table
+    public VectorScan(Table table) {
+        super(table.columnNames, table.columnTypes);
+        this.table = table;
+    }
+
+    @Override
+    public void open() throws IOException {
+        batch = new ColumnBatch(columnTypes);
+        page = new byte[table.tableFile.pageSize];
+        nextPage = table.tableFile.getFirstLeafPage();
+    }
+
+    @Override
+    public ColumnBatch nextBatch() throws IOException {
+        batch.reset();
+        while (batch.size < ColumnBatch.BATCH_SIZE && nextPage != 0xFFFFFFFF) {
+            nextPage = table.tableFile.readPageColumns(nextPage, page, batch);
+        }
+        if (batch.size == 0) {
+            return null;
+        }
+        batch.selectAll();
+        return batch;
+    }
+
+    @Override
+    public String describe() {
+        return "Vector Scan on " + table.tableName;
+    }
+
+    //the table file belongs to the table and stays open
+    @Override
+    public void close() {
+        batch = null;
+        page = null;
+    }
+}